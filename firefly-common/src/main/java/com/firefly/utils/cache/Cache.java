@@ -0,0 +1,84 @@
+package com.firefly.utils.cache;
+
+import java.util.function.Function;
+
+/**
+ * A bounded concurrent cache. The entries are evicted when the cache exceeds its maximum size or weight, or when they
+ * expire. Use the {@link CacheBuilder} to create a cache.
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ * @author Pengtao Qiu
+ */
+public interface Cache<K, V> {
+
+    /**
+     * Get the value of the key. The read does not block, it records the access for the eviction policy.
+     *
+     * @param key The key.
+     * @return The value or null if the key is not cached or the entry is expired.
+     */
+    V get(K key);
+
+    /**
+     * Get the value of the key. If the key is not cached, the mapping function computes the value and the value is
+     * cached when it is not null. The mapping function is called atomically at most once per key, so it must be short
+     * and it must not update this cache.
+     *
+     * @param key             The key.
+     * @param mappingFunction The function to compute the value.
+     * @return The current or the computed value, or null if the computed value is null.
+     */
+    V get(K key, Function<? super K, ? extends V> mappingFunction);
+
+    /**
+     * Associate the value with the key. The previous value is replaced.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return The previous value or null if the key was not cached.
+     */
+    V put(K key, V value);
+
+    /**
+     * Remove the entry of the key.
+     *
+     * @param key The key.
+     * @return The removed value or null if the key was not cached.
+     */
+    V remove(K key);
+
+    /**
+     * Remove all entries. The removed entries are not counted as the evictions.
+     */
+    void clear();
+
+    /**
+     * Get the approximate number of the entries. It may include the expired entries that have not been cleaned up.
+     *
+     * @return The number of the entries.
+     */
+    long size();
+
+    /**
+     * Get the total weight of the entries that is applied to the eviction policy. The weights of the latest writes
+     * may not be applied yet.
+     *
+     * @return The total weight.
+     */
+    long weightedSize();
+
+    /**
+     * Get the snapshot of the cache statistics. The hits and the misses are recorded only if the cache is built with
+     * {@link CacheBuilder#recordStats()}.
+     *
+     * @return The cache statistics.
+     */
+    CacheStats stats();
+
+    /**
+     * Perform the pending maintenance, such as applying the buffered reads and writes to the eviction policy and
+     * evicting the expired entries.
+     */
+    void cleanUp();
+}
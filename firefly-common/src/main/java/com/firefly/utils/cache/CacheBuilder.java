@@ -0,0 +1,187 @@
+package com.firefly.utils.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * The builder of the {@link TinyLFUCache}. The cache is bounded by either the maximum size or the maximum weight.
+ * <pre>
+ * Cache&lt;String, byte[]&gt; cache = CacheBuilder.&lt;String, byte[]&gt;newBuilder()
+ *         .maximumWeight(64 * 1024 * 1024)
+ *         .weigher((key, value) -&gt; value.length)
+ *         .expireAfterWrite(10, TimeUnit.MINUTES)
+ *         .build();
+ * </pre>
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Pengtao Qiu
+ */
+public class CacheBuilder<K, V> {
+
+    private long maximumSize = -1;
+    private long maximumWeight = -1;
+    private Weigher<? super K, ? super V> weigher;
+    private long expireAfterWriteNanos;
+    private long expireAfterAccessNanos;
+    private LongSupplier ticker = System::nanoTime;
+    private BiConsumer<? super K, ? super V> evictionListener;
+    private int initialCapacity = 16;
+    private boolean recordStats;
+
+    public static <K, V> CacheBuilder<K, V> newBuilder() {
+        return new CacheBuilder<>();
+    }
+
+    /**
+     * Bound the number of the entries.
+     *
+     * @param maximumSize The max number of the entries.
+     * @return The builder.
+     */
+    public CacheBuilder<K, V> maximumSize(long maximumSize) {
+        if (maximumSize < 0) {
+            throw new IllegalArgumentException("The maximum size must not be negative");
+        }
+        this.maximumSize = maximumSize;
+        return this;
+    }
+
+    /**
+     * Bound the total weight of the entries, it requires a weigher.
+     *
+     * @param maximumWeight The max total weight.
+     * @return The builder.
+     */
+    public CacheBuilder<K, V> maximumWeight(long maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("The maximum weight must not be negative");
+        }
+        this.maximumWeight = maximumWeight;
+        return this;
+    }
+
+    public CacheBuilder<K, V> weigher(Weigher<? super K, ? super V> weigher) {
+        this.weigher = weigher;
+        return this;
+    }
+
+    /**
+     * Expire the entries after the duration since they are created or their values are replaced.
+     *
+     * @param duration The duration.
+     * @param unit     The time unit.
+     * @return The builder.
+     */
+    public CacheBuilder<K, V> expireAfterWrite(long duration, TimeUnit unit) {
+        this.expireAfterWriteNanos = toNanos(duration, unit);
+        return this;
+    }
+
+    /**
+     * Expire the entries after the duration since they are read or written last time.
+     *
+     * @param duration The duration.
+     * @param unit     The time unit.
+     * @return The builder.
+     */
+    public CacheBuilder<K, V> expireAfterAccess(long duration, TimeUnit unit) {
+        this.expireAfterAccessNanos = toNanos(duration, unit);
+        return this;
+    }
+
+    /**
+     * Set the time source of the expiration, the default is {@link System#nanoTime()}.
+     *
+     * @param ticker The time source in nanoseconds.
+     * @return The builder.
+     */
+    public CacheBuilder<K, V> ticker(LongSupplier ticker) {
+        this.ticker = ticker;
+        return this;
+    }
+
+    /**
+     * Set the listener of the evicted entries. It is called when the eviction lock is held, so it must be fast and it
+     * must not update the cache.
+     *
+     * @param evictionListener The eviction listener.
+     * @return The builder.
+     */
+    public CacheBuilder<K, V> evictionListener(BiConsumer<? super K, ? super V> evictionListener) {
+        this.evictionListener = evictionListener;
+        return this;
+    }
+
+    /**
+     * Record the hits and the misses. They are not recorded by default, because the counters are updated in every
+     * read. The evictions are always recorded.
+     *
+     * @return The builder.
+     */
+    public CacheBuilder<K, V> recordStats() {
+        this.recordStats = true;
+        return this;
+    }
+
+    public CacheBuilder<K, V> initialCapacity(int initialCapacity) {
+        this.initialCapacity = initialCapacity;
+        return this;
+    }
+
+    private static long toNanos(long duration, TimeUnit unit) {
+        if (duration <= 0) {
+            throw new IllegalArgumentException("The duration must be positive");
+        }
+        return unit.toNanos(duration);
+    }
+
+    public Cache<K, V> build() {
+        if (maximumSize >= 0 && maximumWeight >= 0) {
+            throw new IllegalStateException("The maximum size and the maximum weight can not be both set");
+        }
+        if (maximumWeight >= 0 && weigher == null) {
+            throw new IllegalStateException("The maximum weight requires a weigher");
+        }
+        if (maximumSize >= 0 && weigher != null) {
+            throw new IllegalStateException("The weigher requires the maximum weight");
+        }
+        if (maximumSize < 0 && maximumWeight < 0) {
+            throw new IllegalStateException("The maximum size or the maximum weight must be set");
+        }
+        return new TinyLFUCache<>(this);
+    }
+
+    long getMaximum() {
+        return maximumWeight >= 0 ? maximumWeight : maximumSize;
+    }
+
+    Weigher<? super K, ? super V> getWeigher() {
+        return weigher;
+    }
+
+    long getExpireAfterWriteNanos() {
+        return expireAfterWriteNanos;
+    }
+
+    long getExpireAfterAccessNanos() {
+        return expireAfterAccessNanos;
+    }
+
+    LongSupplier getTicker() {
+        return ticker;
+    }
+
+    BiConsumer<? super K, ? super V> getEvictionListener() {
+        return evictionListener;
+    }
+
+    boolean isRecordStats() {
+        return recordStats;
+    }
+
+    int getInitialCapacity() {
+        return initialCapacity;
+    }
+}
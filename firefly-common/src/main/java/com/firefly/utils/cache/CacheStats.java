@@ -0,0 +1,68 @@
+package com.firefly.utils.cache;
+
+/**
+ * The snapshot of the cache statistics.
+ *
+ * @author Pengtao Qiu
+ */
+public class CacheStats {
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long evictionWeight;
+
+    public CacheStats(long hitCount, long missCount, long evictionCount, long evictionWeight) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.evictionWeight = evictionWeight;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    public long getRequestCount() {
+        return hitCount + missCount;
+    }
+
+    /**
+     * Get the ratio of the requests that hit the cache.
+     *
+     * @return The hit rate, it is 1.0 if no request has been made.
+     */
+    public double getHitRate() {
+        long requestCount = getRequestCount();
+        return requestCount == 0 ? 1.0 : (double) hitCount / requestCount;
+    }
+
+    /**
+     * Get the number of the entries that are evicted because of the size or the expiration. The explicit removals are
+     * not counted.
+     *
+     * @return The eviction count.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getEvictionWeight() {
+        return evictionWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats{" +
+                "hitCount=" + hitCount +
+                ", missCount=" + missCount +
+                ", hitRate=" + String.format("%.4f", getHitRate()) +
+                ", evictionCount=" + evictionCount +
+                ", evictionWeight=" + evictionWeight +
+                '}';
+    }
+}
@@ -0,0 +1,117 @@
+package com.firefly.utils.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * The lossy buffer of the cache reads. It is striped by the threads, and every stripe is a small ring buffer that the
+ * readers reserve a slot with a CAS. When a stripe is full or the CAS fails, the read is dropped instead of waiting,
+ * the eviction policy only needs a sample of the reads. The buffer is drained in the eviction lock.
+ * <p>
+ * It starts with one stripe, and the stripes are doubled when the CAS fails, so the drain is cheap until the readers
+ * contend.
+ *
+ * @param <E> the type of the buffered elements
+ * @author Pengtao Qiu
+ */
+class ReadBuffer<E> {
+
+    static final int SUCCESS = 0;
+    static final int FULL = 1;
+    static final int FAILED = 2;
+
+    private static final int STRIPE_SIZE = 16;
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+    private static final int MAX_STRIPES = 64;
+
+    private final int maxStripes;
+    private final AtomicBoolean resizing = new AtomicBoolean();
+    private volatile Stripe<E>[] stripes;
+
+    @SuppressWarnings("unchecked")
+    ReadBuffer() {
+        maxStripes = FrequencySketch.ceilingPowerOfTwo(Math.min(4 * Runtime.getRuntime().availableProcessors(), MAX_STRIPES));
+        stripes = new Stripe[]{new Stripe<>()};
+    }
+
+    /**
+     * Add the element to the stripe of the current thread.
+     *
+     * @param e The element.
+     * @return SUCCESS, or FULL if the stripe needs to be drained, or FAILED if the element is dropped because of the
+     * contention.
+     */
+    int offer(E e) {
+        Stripe<E>[] current = stripes;
+        int result = current[(int) Thread.currentThread().getId() & (current.length - 1)].offer(e);
+        if (result == FAILED) {
+            expand(current);
+        }
+        return result;
+    }
+
+    private void expand(Stripe<E>[] current) {
+        if (current.length >= maxStripes || !resizing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (stripes == current) {
+                Stripe<E>[] expanded = Arrays.copyOf(current, current.length << 1);
+                for (int i = current.length; i < expanded.length; i++) {
+                    expanded[i] = new Stripe<>();
+                }
+                stripes = expanded;
+            }
+        } finally {
+            resizing.set(false);
+        }
+    }
+
+    /**
+     * Drain all stripes, it must be called by one thread at a time.
+     *
+     * @param consumer The consumer of the elements.
+     */
+    void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            stripe.drainTo(consumer);
+        }
+    }
+
+    private static class Stripe<E> {
+        private final AtomicReferenceArray<E> buffer = new AtomicReferenceArray<>(STRIPE_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter;
+
+        int offer(E e) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            if (tail - head >= STRIPE_SIZE) {
+                return FULL;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) (tail & STRIPE_MASK), e);
+                return SUCCESS;
+            }
+            return FAILED;
+        }
+
+        void drainTo(Consumer<E> consumer) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            for (; head < tail; head++) {
+                int index = (int) (head & STRIPE_MASK);
+                E e = buffer.get(index);
+                if (e == null) {
+                    break; // the slot is reserved but the element is not published yet
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(e);
+            }
+            readCounter = head;
+        }
+    }
+}
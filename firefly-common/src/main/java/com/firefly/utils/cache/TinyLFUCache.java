@@ -0,0 +1,651 @@
+package com.firefly.utils.cache;
+
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * <p>
+ * A bounded concurrent cache with the W-TinyLFU eviction policy. The entries are stored in a ConcurrentHashMap, so the
+ * reads never lock. The eviction policy is not updated in the read and write threads, the reads are recorded in a
+ * lossy striped {@link ReadBuffer} and the writes are recorded in a {@link WriteBuffer}, and the buffers are drained
+ * in batches by the thread that acquires the eviction lock with a tryLock.
+ * </p>
+ * <p>
+ * The policy consists of a small admission window (1% of the maximum) and a main space that is a segmented LRU
+ * (probation and protected). A new entry is added to the window, and the entry that overflows the window becomes the
+ * candidate of the main space. The candidate is admitted only if its frequency, that is estimated by a
+ * {@link FrequencySketch}, is higher than the frequency of the probation victim. So a scan of the one-hit keys does
+ * not flush the popular entries like a LRU cache does.
+ * </p>
+ * <p>
+ * The entries expire after the write or the access time optionally. The expired entries are invisible to the reads
+ * immediately, and they are removed in the maintenance.
+ * </p>
+ *
+ * @param <K> the type of keys maintained by this cache
+ * @param <V> the type of cached values
+ * @author Pengtao Qiu
+ */
+public class TinyLFUCache<K, V> implements Cache<K, V> {
+
+    private static final double WINDOW_PERCENT = 0.01;
+    private static final double PROTECTED_PERCENT = 0.8;
+    private static final int ADMIT_HASHDOS_THRESHOLD = 5;
+
+    private static final int UNLINKED = 0;
+    private static final int WINDOW = 1;
+    private static final int PROBATION = 2;
+    private static final int PROTECTED = 3;
+
+    private final ConcurrentHashMap<K, Node<K, V>> data;
+    private final long maximum;
+    private final long maxWindow;
+    private final long maxProtected;
+    private final Weigher<? super K, ? super V> weigher;
+    private final long expireAfterWriteNanos;
+    private final long expireAfterAccessNanos;
+    private final LongSupplier ticker;
+    private final BiConsumer<? super K, ? super V> evictionListener;
+    private final boolean recordStats;
+
+    private final ReadBuffer<Node<K, V>> readBuffer = new ReadBuffer<>();
+    private final WriteBuffer writeBuffer = new WriteBuffer();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    // guarded by the eviction lock
+    private final FrequencySketch sketch = new FrequencySketch();
+    private final NodeDeque<K, V> window = new NodeDeque<>(false);
+    private final NodeDeque<K, V> probation = new NodeDeque<>(false);
+    private final NodeDeque<K, V> protectedDeque = new NodeDeque<>(false);
+    private final NodeDeque<K, V> writeOrder = new NodeDeque<>(true);
+    private long windowWeight;
+    private long protectedWeight;
+    private volatile long weightedSize;
+    private volatile long evictionCount;
+    private volatile long evictionWeight;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+
+    TinyLFUCache(CacheBuilder<K, V> builder) {
+        data = new ConcurrentHashMap<>(builder.getInitialCapacity());
+        maximum = builder.getMaximum();
+        maxWindow = (long) (maximum * WINDOW_PERCENT);
+        maxProtected = (long) ((maximum - maxWindow) * PROTECTED_PERCENT);
+        weigher = builder.getWeigher();
+        expireAfterWriteNanos = builder.getExpireAfterWriteNanos();
+        expireAfterAccessNanos = builder.getExpireAfterAccessNanos();
+        ticker = builder.getTicker();
+        evictionListener = builder.getEvictionListener();
+        recordStats = builder.isRecordStats();
+        // the number of the entries is unknown when the cache is bounded by the weight, the sketch grows with the map
+        sketch.ensureCapacity(weigher == null ? maximum : builder.getInitialCapacity());
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            recordMiss();
+            return null;
+        }
+        V value = node.value;
+        long now = currentTime();
+        if (isExpired(node, now)) {
+            recordMiss();
+            scheduleDrain();
+            return null;
+        }
+        afterRead(node, now);
+        if (recordStats) {
+            hitCount.increment();
+        }
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key, Function<? super K, ? extends V> mappingFunction) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+
+        long now = currentTime();
+        Node<K, V>[] changed = new Node[2]; // the expired node and the new node
+        Node<K, V> node = data.compute(key, (k, prior) -> {
+            if (prior != null) {
+                synchronized (prior) {
+                    if (!isExpired(prior, now)) {
+                        return prior;
+                    }
+                    prior.state = Node.RETIRED;
+                }
+                changed[0] = prior;
+            }
+            V newValue = mappingFunction.apply(k);
+            if (newValue == null) {
+                return null;
+            }
+            changed[1] = new Node<>(k, newValue, weigh(k, newValue), now);
+            return changed[1];
+        });
+
+        Node<K, V> expiredNode = changed[0];
+        Node<K, V> newNode = changed[1];
+        if (expiredNode != null && newNode != null) {
+            afterWrite(() -> {
+                onRemove(expiredNode, true);
+                onAdd(newNode);
+            });
+        } else if (expiredNode != null) {
+            afterWrite(() -> onRemove(expiredNode, true));
+        } else if (newNode != null) {
+            afterWrite(() -> onAdd(newNode));
+        }
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        int weight = weigh(key, value);
+        long now = currentTime();
+        while (true) {
+            Node<K, V> node = data.get(key);
+            if (node == null) {
+                Node<K, V> newNode = new Node<>(key, value, weight, now);
+                node = data.putIfAbsent(key, newNode);
+                if (node == null) {
+                    afterWrite(() -> onAdd(newNode));
+                    return null;
+                }
+            }
+
+            V oldValue;
+            boolean expired;
+            int weightDelta;
+            synchronized (node) {
+                if (node.state != Node.ALIVE) {
+                    continue; // the node is removed, retry to add a new node
+                }
+                oldValue = node.value;
+                expired = isExpired(node, now);
+                weightDelta = weight - node.weight;
+                node.value = value;
+                node.weight = weight;
+                node.writeTime = now;
+                node.accessTime = now;
+            }
+            Node<K, V> updatedNode = node;
+            afterWrite(() -> onUpdate(updatedNode, weightDelta));
+            return expired ? null : oldValue;
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        Node<K, V> node = data.remove(key);
+        if (node == null) {
+            return null;
+        }
+        V oldValue;
+        boolean expired;
+        synchronized (node) {
+            oldValue = node.value;
+            expired = isExpired(node, currentTime());
+            node.state = Node.RETIRED;
+        }
+        afterWrite(() -> onRemove(node, false));
+        return expired ? null : oldValue;
+    }
+
+    @Override
+    public void clear() {
+        for (K key : data.keySet()) {
+            remove(key);
+        }
+        cleanUp();
+    }
+
+    @Override
+    public long size() {
+        return data.mappingCount();
+    }
+
+    @Override
+    public long weightedSize() {
+        return weightedSize;
+    }
+
+    @Override
+    public CacheStats stats() {
+        return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount, evictionWeight);
+    }
+
+    @Override
+    public void cleanUp() {
+        evictionLock.lock();
+        try {
+            maintenance();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void recordMiss() {
+        if (recordStats) {
+            missCount.increment();
+        }
+    }
+
+    private int weigh(K key, V value) {
+        if (weigher == null) {
+            return 1;
+        }
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight must not be negative");
+        }
+        return weight;
+    }
+
+    private long currentTime() {
+        return expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0 ? ticker.getAsLong() : 0L;
+    }
+
+    private boolean isExpired(Node<K, V> node, long now) {
+        return (expireAfterWriteNanos > 0 && now - node.writeTime >= expireAfterWriteNanos)
+                || (expireAfterAccessNanos > 0 && now - node.accessTime >= expireAfterAccessNanos);
+    }
+
+    private void afterRead(Node<K, V> node, long now) {
+        if (expireAfterAccessNanos > 0) {
+            node.accessTime = now;
+        }
+        if (readBuffer.offer(node) == ReadBuffer.FULL) {
+            scheduleDrain();
+        }
+    }
+
+    private void afterWrite(Runnable task) {
+        writeBuffer.add(task);
+        scheduleDrain();
+    }
+
+    /**
+     * Drain the buffers if no other thread is draining. When the lock is released, the writes that are added by the
+     * threads that failed to acquire the lock are drained in the next round, so no write is left behind.
+     */
+    private void scheduleDrain() {
+        if (evictionLock.isHeldByCurrentThread()) {
+            return; // the eviction listener updates the cache
+        }
+        do {
+            if (!evictionLock.tryLock()) {
+                return;
+            }
+            try {
+                maintenance();
+            } finally {
+                evictionLock.unlock();
+            }
+        } while (!writeBuffer.isEmpty());
+    }
+
+    private void maintenance() {
+        readBuffer.drainTo(this::onAccess);
+        Runnable task;
+        while ((task = writeBuffer.poll()) != null) {
+            task.run();
+        }
+        if (expireAfterWriteNanos > 0 || expireAfterAccessNanos > 0) {
+            expireEntries(ticker.getAsLong());
+        }
+        evictEntries();
+    }
+
+    private void onAdd(Node<K, V> node) {
+        if (weigher != null) {
+            sketch.ensureCapacity(data.mappingCount());
+        }
+        sketch.increment(node.key);
+        if (node.state != Node.ALIVE) {
+            return; // it is removed before the policy knows it
+        }
+        node.policyWeight = node.initialWeight;
+        node.queueType = WINDOW;
+        window.addLast(node);
+        windowWeight += node.policyWeight;
+        weightedSize += node.policyWeight;
+        if (expireAfterWriteNanos > 0) {
+            writeOrder.addLast(node);
+        }
+    }
+
+    private void onUpdate(Node<K, V> node, int weightDelta) {
+        if (node.queueType == UNLINKED) {
+            return;
+        }
+        node.policyWeight += weightDelta;
+        weightedSize += weightDelta;
+        if (node.queueType == WINDOW) {
+            windowWeight += weightDelta;
+        } else if (node.queueType == PROTECTED) {
+            protectedWeight += weightDelta;
+        }
+        if (expireAfterWriteNanos > 0) {
+            writeOrder.moveToBack(node);
+        }
+        onAccess(node);
+    }
+
+    private void onRemove(Node<K, V> node, boolean expired) {
+        if (expired) {
+            evictionCount++;
+            evictionWeight += node.policyWeight;
+        }
+        unlink(node);
+        node.state = Node.DEAD;
+    }
+
+    private void onAccess(Node<K, V> node) {
+        sketch.increment(node.key);
+        switch (node.queueType) {
+            case WINDOW:
+                window.moveToBack(node);
+                break;
+            case PROBATION:
+                probation.remove(node);
+                node.queueType = PROTECTED;
+                protectedDeque.addLast(node);
+                protectedWeight += node.policyWeight;
+                demoteFromProtected();
+                break;
+            case PROTECTED:
+                protectedDeque.moveToBack(node);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void demoteFromProtected() {
+        while (protectedWeight > maxProtected) {
+            Node<K, V> node = protectedDeque.peekFirst();
+            if (node == null) {
+                break;
+            }
+            protectedDeque.remove(node);
+            protectedWeight -= node.policyWeight;
+            node.queueType = PROBATION;
+            probation.addLast(node);
+        }
+    }
+
+    private void expireEntries(long now) {
+        if (expireAfterAccessNanos > 0) {
+            expireAfterAccess(window, now);
+            expireAfterAccess(probation, now);
+            expireAfterAccess(protectedDeque, now);
+        }
+        if (expireAfterWriteNanos > 0) {
+            Node<K, V> node;
+            while ((node = writeOrder.peekFirst()) != null && now - node.writeTime >= expireAfterWriteNanos) {
+                evict(node);
+            }
+        }
+    }
+
+    private void expireAfterAccess(NodeDeque<K, V> deque, long now) {
+        // the deque is in the access order, but the latest reads may be still in the read buffer
+        Node<K, V> node;
+        while ((node = deque.peekFirst()) != null && now - node.accessTime >= expireAfterAccessNanos) {
+            evict(node);
+        }
+    }
+
+    private void evictEntries() {
+        evictFromMain(evictFromWindow());
+    }
+
+    /**
+     * Move the entries that overflow the window to the tail of the probation.
+     *
+     * @return The first moved entry, the moved entries are the candidates of the main space.
+     */
+    private Node<K, V> evictFromWindow() {
+        Node<K, V> first = null;
+        while (windowWeight > maxWindow) {
+            Node<K, V> node = window.peekFirst();
+            if (node == null) {
+                break;
+            }
+            window.remove(node);
+            windowWeight -= node.policyWeight;
+            node.queueType = PROBATION;
+            probation.addLast(node);
+            if (first == null) {
+                first = node;
+            }
+        }
+        return first;
+    }
+
+    /**
+     * Evict the entries until the cache does not exceed the maximum. The victims are from the head of the probation,
+     * and the candidates are from the window. The one whose frequency is lower is evicted.
+     *
+     * @param candidate The first candidate.
+     */
+    private void evictFromMain(Node<K, V> candidate) {
+        Node<K, V> victim = probation.peekFirst();
+        while (weightedSize > maximum) {
+            if (victim == null && candidate == null) {
+                Node<K, V> node = protectedDeque.peekFirst();
+                if (node == null) {
+                    node = window.peekFirst();
+                }
+                if (node == null) {
+                    break;
+                }
+                evict(node);
+            } else if (victim == candidate || victim == null) {
+                // no victim is older than the candidates
+                Node<K, V> next = candidate.nextInAccess;
+                evict(candidate);
+                victim = victim == null ? null : next;
+                candidate = next;
+            } else if (candidate == null) {
+                Node<K, V> next = victim.nextInAccess;
+                evict(victim);
+                victim = next;
+            } else if (candidate.policyWeight <= maximum && admit(candidate.key, victim.key)) {
+                Node<K, V> next = victim.nextInAccess;
+                evict(victim);
+                victim = next;
+            } else {
+                Node<K, V> next = candidate.nextInAccess;
+                evict(candidate);
+                candidate = next;
+            }
+        }
+    }
+
+    private boolean admit(K candidateKey, K victimKey) {
+        int victimFrequency = sketch.frequency(victimKey);
+        int candidateFrequency = sketch.frequency(candidateKey);
+        if (candidateFrequency > victimFrequency) {
+            return true;
+        }
+        if (candidateFrequency <= ADMIT_HASHDOS_THRESHOLD) {
+            return false;
+        }
+        // The warm candidate is admitted randomly, so an attacker can not keep a hot victim by raising the
+        // frequencies of the keys that collide with it.
+        return (ThreadLocalRandom.current().nextInt() & 127) == 0;
+    }
+
+    private void evict(Node<K, V> node) {
+        // A put that updates the node concurrently is lost like it is evicted after the put, and its update task ignores
+        // the unlinked node.
+        boolean removed = data.remove(node.key, node);
+        V value = node.value;
+        node.state = Node.DEAD;
+        unlink(node);
+        if (removed) { // or it is removed explicitly and the removal task is in the write buffer
+            evictionCount++;
+            evictionWeight += node.policyWeight;
+            if (evictionListener != null) {
+                evictionListener.accept(node.key, value);
+            }
+        }
+    }
+
+    private void unlink(Node<K, V> node) {
+        switch (node.queueType) {
+            case WINDOW:
+                window.remove(node);
+                windowWeight -= node.policyWeight;
+                break;
+            case PROBATION:
+                probation.remove(node);
+                break;
+            case PROTECTED:
+                protectedDeque.remove(node);
+                protectedWeight -= node.policyWeight;
+                break;
+            default:
+                return;
+        }
+        if (expireAfterWriteNanos > 0) {
+            writeOrder.remove(node);
+        }
+        node.queueType = UNLINKED;
+        weightedSize -= node.policyWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "TinyLFUCache{" +
+                "size=" + size() +
+                ", weightedSize=" + weightedSize +
+                ", maximum=" + maximum +
+                ", stats=" + stats() +
+                '}';
+    }
+
+    static final class Node<K, V> {
+        static final int ALIVE = 0;
+        static final int RETIRED = 1; // removed from the map
+        static final int DEAD = 2; // removed from the map and the policy
+
+        final K key;
+        final int initialWeight;
+        volatile V value;
+        volatile int state;
+        volatile long writeTime;
+        volatile long accessTime;
+        int weight; // guarded by the node
+
+        // guarded by the eviction lock
+        int policyWeight;
+        int queueType;
+        Node<K, V> prevInAccess;
+        Node<K, V> nextInAccess;
+        Node<K, V> prevInWrite;
+        Node<K, V> nextInWrite;
+
+        Node(K key, V value, int weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.initialWeight = weight;
+            this.writeTime = now;
+            this.accessTime = now;
+        }
+    }
+
+    /**
+     * The intrusive doubly linked list of the nodes in the access order or the write order.
+     */
+    static final class NodeDeque<K, V> {
+        private final boolean writeOrder;
+        private Node<K, V> first;
+        private Node<K, V> last;
+
+        NodeDeque(boolean writeOrder) {
+            this.writeOrder = writeOrder;
+        }
+
+        Node<K, V> peekFirst() {
+            return first;
+        }
+
+        void addLast(Node<K, V> node) {
+            setPrev(node, last);
+            setNext(node, null);
+            if (last == null) {
+                first = node;
+            } else {
+                setNext(last, node);
+            }
+            last = node;
+        }
+
+        void remove(Node<K, V> node) {
+            Node<K, V> prev = getPrev(node);
+            Node<K, V> next = getNext(node);
+            if (prev == null) {
+                first = next;
+            } else {
+                setNext(prev, next);
+            }
+            if (next == null) {
+                last = prev;
+            } else {
+                setPrev(next, prev);
+            }
+            setPrev(node, null);
+            setNext(node, null);
+        }
+
+        void moveToBack(Node<K, V> node) {
+            if (node != last) {
+                remove(node);
+                addLast(node);
+            }
+        }
+
+        private Node<K, V> getPrev(Node<K, V> node) {
+            return writeOrder ? node.prevInWrite : node.prevInAccess;
+        }
+
+        private Node<K, V> getNext(Node<K, V> node) {
+            return writeOrder ? node.nextInWrite : node.nextInAccess;
+        }
+
+        private void setPrev(Node<K, V> node, Node<K, V> prev) {
+            if (writeOrder) {
+                node.prevInWrite = prev;
+            } else {
+                node.prevInAccess = prev;
+            }
+        }
+
+        private void setNext(Node<K, V> node, Node<K, V> next) {
+            if (writeOrder) {
+                node.nextInWrite = next;
+            } else {
+                node.nextInAccess = next;
+            }
+        }
+    }
+}
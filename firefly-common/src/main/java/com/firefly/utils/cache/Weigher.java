@@ -0,0 +1,22 @@
+package com.firefly.utils.cache;
+
+/**
+ * Calculate the weight of a cache entry. The weight is calculated when the entry is written, and the total weight of
+ * the cache is bounded by the maximum weight.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of values
+ * @author Pengtao Qiu
+ */
+@FunctionalInterface
+public interface Weigher<K, V> {
+
+    /**
+     * Calculate the weight of the entry.
+     *
+     * @param key   The key.
+     * @param value The value.
+     * @return The weight, it must not be negative.
+     */
+    int weigh(K key, V value);
+}
@@ -0,0 +1,55 @@
+package com.firefly.utils.cache;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The unbounded multi-producer single-consumer queue of the write tasks. A producer links the task with one atomic
+ * swap of the tail, and the consumer, that holds the eviction lock, polls the tasks without the atomic operations.
+ *
+ * @author Pengtao Qiu
+ */
+class WriteBuffer {
+
+    private final AtomicReference<Task> tail;
+    private volatile Task head;
+
+    WriteBuffer() {
+        Task stub = new Task(null);
+        head = stub;
+        tail = new AtomicReference<>(stub);
+    }
+
+    void add(Runnable runnable) {
+        Task task = new Task(runnable);
+        tail.getAndSet(task).next = task;
+    }
+
+    /**
+     * Poll the task, it must be called by one thread at a time.
+     *
+     * @return The task or null if the queue is empty, or the latest task is not linked yet.
+     */
+    Runnable poll() {
+        Task next = head.next;
+        if (next == null) {
+            return null;
+        }
+        Runnable runnable = next.runnable;
+        next.runnable = null;
+        head = next;
+        return runnable;
+    }
+
+    boolean isEmpty() {
+        return head.next == null;
+    }
+
+    private static class Task {
+        private Runnable runnable;
+        private volatile Task next;
+
+        Task(Runnable runnable) {
+            this.runnable = runnable;
+        }
+    }
+}
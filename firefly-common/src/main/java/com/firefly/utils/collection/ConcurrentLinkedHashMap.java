@@ -12,7 +12,10 @@ import java.util.concurrent.locks.ReentrantLock;
  * @param <K> the type of keys maintained by this map
  * @param <V> the type of mapped values
  * @author Pengtao Qiu
+ * @deprecated Every get takes the lock of a segment to update the access order, use the
+ * {@link com.firefly.utils.cache.TinyLFUCache} that is built by the {@link com.firefly.utils.cache.CacheBuilder}.
  */
+@Deprecated
 public class ConcurrentLinkedHashMap<K, V> implements Map<K, V> {
 
     /**
@@ -0,0 +1,76 @@
+package com.firefly.utils.io;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The pool of the Deflater or Inflater. Creating them is expensive because they allocate the native memory,
+ * so they are reset and reused. The pooled objects that exceed the capacity are ended immediately.
+ *
+ * @author Pengtao Qiu
+ */
+public abstract class CompressionPool<T> {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private final ConcurrentLinkedQueue<T> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    public CompressionPool() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity The max number of the idle objects in the pool. If it is 0, the pool is disabled.
+     */
+    public CompressionPool(int capacity) {
+        this.capacity = capacity;
+    }
+
+    abstract protected T newObject();
+
+    abstract protected void reset(T object);
+
+    abstract protected void end(T object);
+
+    public T acquire() {
+        T object = pool.poll();
+        if (object == null) {
+            return newObject();
+        } else {
+            size.decrementAndGet();
+            return object;
+        }
+    }
+
+    public void release(T object) {
+        if (object == null) {
+            return;
+        }
+
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            end(object);
+        } else {
+            reset(object);
+            pool.offer(object);
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        T object;
+        while ((object = pool.poll()) != null) {
+            size.decrementAndGet();
+            end(object);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.firefly.utils.io;
+
+import java.util.zip.Deflater;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class DeflaterPool extends CompressionPool<Deflater> {
+
+    private final int compressionLevel;
+    private final boolean nowrap;
+
+    public DeflaterPool() {
+        this(DEFAULT_CAPACITY, Deflater.DEFAULT_COMPRESSION, false);
+    }
+
+    /**
+     * @param capacity         The max number of the idle deflaters.
+     * @param compressionLevel The compression level (0-9).
+     * @param nowrap           If true, the deflater does not write the ZLIB header and checksum, it is used by GZIP.
+     */
+    public DeflaterPool(int capacity, int compressionLevel, boolean nowrap) {
+        super(capacity);
+        this.compressionLevel = compressionLevel;
+        this.nowrap = nowrap;
+    }
+
+    @Override
+    protected Deflater newObject() {
+        return new Deflater(compressionLevel, nowrap);
+    }
+
+    @Override
+    protected void reset(Deflater deflater) {
+        deflater.reset();
+    }
+
+    @Override
+    protected void end(Deflater deflater) {
+        deflater.end();
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public boolean isNowrap() {
+        return nowrap;
+    }
+}
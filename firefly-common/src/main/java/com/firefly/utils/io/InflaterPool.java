@@ -0,0 +1,43 @@
+package com.firefly.utils.io;
+
+import java.util.zip.Inflater;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class InflaterPool extends CompressionPool<Inflater> {
+
+    private final boolean nowrap;
+
+    public InflaterPool() {
+        this(DEFAULT_CAPACITY, false);
+    }
+
+    /**
+     * @param capacity The max number of the idle inflaters.
+     * @param nowrap   If true, the inflater does not expect the ZLIB header and checksum, it is used by GZIP.
+     */
+    public InflaterPool(int capacity, boolean nowrap) {
+        super(capacity);
+        this.nowrap = nowrap;
+    }
+
+    @Override
+    protected Inflater newObject() {
+        return new Inflater(nowrap);
+    }
+
+    @Override
+    protected void reset(Inflater inflater) {
+        inflater.reset();
+    }
+
+    @Override
+    protected void end(Inflater inflater) {
+        inflater.end();
+    }
+
+    public boolean isNowrap() {
+        return nowrap;
+    }
+}
@@ -2,6 +2,8 @@ package com.firefly.utils.json;
 
 import com.firefly.utils.BeanUtils;
 import com.firefly.utils.exception.CommonRuntimeException;
+import com.firefly.utils.json.io.JsonBytesReader;
+import com.firefly.utils.json.io.JsonBytesWriter;
 import com.firefly.utils.json.io.JsonStringReader;
 import com.firefly.utils.json.io.JsonStringWriter;
 import com.firefly.utils.json.parser.GeneralJSONObjectStateMacine;
@@ -10,6 +12,7 @@ import com.firefly.utils.json.serializer.SerialStateMachine;
 import com.firefly.utils.lang.GenericTypeReference;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
 
 import static com.firefly.utils.json.parser.ComplexTypeParser.getImplClass;
@@ -64,4 +67,89 @@ public abstract class Json {
         }
     }
 
+    /**
+     * Serialize the object to the UTF-8 JSON bytes.
+     *
+     * @param obj The object.
+     * @return The UTF-8 JSON bytes.
+     */
+    public static byte[] toJsonBytes(Object obj) {
+        try (JsonBytesWriter writer = new JsonBytesWriter()) {
+            SerialStateMachine.toJson(obj, writer);
+            return writer.toByteArray();
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
+    /**
+     * Serialize the object and write the UTF-8 JSON bytes to the output stream.
+     *
+     * @param obj The object.
+     * @param out The output stream.
+     */
+    public static void writeJson(Object obj, OutputStream out) {
+        try (JsonBytesWriter writer = new JsonBytesWriter()) {
+            SerialStateMachine.toJson(obj, writer);
+            writer.writeTo(out);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
+    public static <T> T toObject(byte[] json, Class<T> clazz) {
+        return toObject(new JsonBytesReader(json), clazz);
+    }
+
+    public static <T> T toObject(byte[] json, GenericTypeReference<T> typeReference) {
+        return toObject(new JsonBytesReader(json), typeReference.getType());
+    }
+
+    public static <T> T toObject(byte[] json, Type type) {
+        return toObject(new JsonBytesReader(json), type);
+    }
+
+    public static JsonObject toJsonObject(byte[] json) {
+        return toJsonObject(new JsonBytesReader(json));
+    }
+
+    public static JsonArray toJsonArray(byte[] json) {
+        return toJsonArray(new JsonBytesReader(json));
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T toObject(JsonReader jsonReader, Class<T> clazz) {
+        try (JsonReader reader = jsonReader) {
+            return (T) ParserStateMachine.toObject(reader, clazz, clazz);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> T toObject(JsonReader jsonReader, Type type) {
+        try (JsonReader reader = jsonReader) {
+            Class<?> extractedClass = BeanUtils.extractClass(type);
+            return (T) ParserStateMachine.toObject(reader, getImplClass(extractedClass), type);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
+    public static JsonObject toJsonObject(JsonReader jsonReader) {
+        try (JsonReader reader = jsonReader) {
+            return GeneralJSONObjectStateMacine.toJsonObject(reader);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
+    public static JsonArray toJsonArray(JsonReader jsonReader) {
+        try (JsonReader reader = jsonReader) {
+            return GeneralJSONObjectStateMacine.toJsonArray(reader);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.firefly.utils.json;
 
+import java.io.IOException;
 import java.io.Writer;
 
 abstract public class JsonWriter extends Writer {
@@ -42,4 +43,15 @@ abstract public class JsonWriter extends Writer {
 
 	abstract public void writeBooleanArray(Boolean[] array);
 
+	/**
+	 * Write the property name that is encoded in advance.
+	 *
+	 * @param name        The property name characters.
+	 * @param encodedName The UTF-8 bytes of the property name.
+	 * @throws IOException If an I/O error occurs.
+	 */
+	public void writePropertyName(char[] name, byte[] encodedName) throws IOException {
+		write(name);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,416 @@
+package com.firefly.utils.json.compiler;
+
+import com.firefly.utils.StringUtils;
+import com.firefly.utils.json.Parser;
+import com.firefly.utils.json.Serializer;
+import com.firefly.utils.json.parser.*;
+import com.firefly.utils.json.support.ParserMetaInfo;
+import com.firefly.utils.json.support.SerializerMetaInfo;
+import com.firefly.utils.lang.bean.PropertyAccess;
+import javassist.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generate a dedicated serializer and parser class for a java bean. The generated code calls the getters and setters
+ * directly, writes the pre-encoded property names and dispatches the property names by a switch on the name length
+ * and the characters. The properties that can not be accessed directly fall back to the reflective meta information.
+ * <p>
+ * The generated codec is disabled by the system property "com.fireflysource.utils.json.bytecodeCodec=false".
+ * If the code of a class can not be generated, the class falls back to the reflective codec. If the generated classes
+ * can not be defined at all, e.g., the access to the class definition is denied in the current environment, the
+ * generated codec is disabled and the failure is logged once.
+ *
+ * @author Pengtao Qiu
+ */
+public class JavassistCodecCompiler {
+
+    private static final Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private static final Map<Class<?>, String> WRAPPER_MAP = new IdentityHashMap<>();
+    private static final Map<Class<?>, String> WRITER_MAP = new IdentityHashMap<>();
+    private static final Map<Class<?>, Class<?>> DIRECT_PARSER_MAP = new IdentityHashMap<>();
+    private static final Map<Class<?>, String> READER_MAP = new IdentityHashMap<>();
+
+    private static volatile boolean enabled = Boolean.parseBoolean(System.getProperty("com.fireflysource.utils.json.bytecodeCodec", "true"));
+    private static final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    static {
+        WRAPPER_MAP.put(boolean.class, Boolean.class.getName());
+        WRAPPER_MAP.put(byte.class, Byte.class.getName());
+        WRAPPER_MAP.put(short.class, Short.class.getName());
+        WRAPPER_MAP.put(char.class, Character.class.getName());
+        WRAPPER_MAP.put(int.class, Integer.class.getName());
+        WRAPPER_MAP.put(long.class, Long.class.getName());
+        WRAPPER_MAP.put(float.class, Float.class.getName());
+        WRAPPER_MAP.put(double.class, Double.class.getName());
+
+        WRITER_MAP.put(boolean.class, "writeBoolean");
+        WRITER_MAP.put(byte.class, "writeByte");
+        WRITER_MAP.put(short.class, "writeShort");
+        WRITER_MAP.put(int.class, "writeInt");
+        WRITER_MAP.put(long.class, "writeLong");
+
+        DIRECT_PARSER_MAP.put(boolean.class, BooleanParser.class);
+        DIRECT_PARSER_MAP.put(int.class, IntParser.class);
+        DIRECT_PARSER_MAP.put(long.class, LongParser.class);
+        DIRECT_PARSER_MAP.put(float.class, FloatParser.class);
+        DIRECT_PARSER_MAP.put(double.class, DoubleParser.class);
+        DIRECT_PARSER_MAP.put(String.class, StringParser.class);
+
+        READER_MAP.put(boolean.class, "reader.readBoolean()");
+        READER_MAP.put(int.class, "reader.readInt()");
+        READER_MAP.put(long.class, "reader.readLong()");
+        READER_MAP.put(float.class, "reader.readFloat()");
+        READER_MAP.put(double.class, "reader.readDouble()");
+        READER_MAP.put(String.class, "reader.readString()");
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Switch between the generated codec and the reflective codec. The codec is generated when the serializer or
+     * parser of the class is created, so it is only available if the mode is enabled at that time.
+     *
+     * @param enabled If true, use the generated codec.
+     */
+    public static void setEnabled(boolean enabled) {
+        JavassistCodecCompiler.enabled = enabled;
+    }
+
+    /**
+     * Get the failure that disabled the generated codec.
+     *
+     * @return The failure of the class definition, or null if the generated codec has not been disabled by it.
+     */
+    public static Throwable getFailure() {
+        return failure.get();
+    }
+
+    public abstract static class GeneratedSerializer implements Serializer {
+        protected char[][] names;
+        protected byte[][] encodedNames;
+        protected Serializer[] serializers;
+        protected SerializerMetaInfo[] metaInfos;
+    }
+
+    public abstract static class GeneratedParser implements Parser {
+        protected char[][] names;
+        protected Parser[] parsers;
+        protected Class<?>[] types;
+        protected ParserMetaInfo[] metaInfos;
+    }
+
+    /**
+     * Generate the serializer of the java bean.
+     *
+     * @param clazz     The java bean class.
+     * @param metaInfos The serializer meta information of the class.
+     * @param checkRef  If true, the serializer prevents the circular reference.
+     * @return The generated serializer, or null if the class can not be generated.
+     */
+    public static Serializer createSerializer(Class<?> clazz, SerializerMetaInfo[] metaInfos, boolean checkRef) {
+        if (!enabled || !isAccessible(clazz)) {
+            return null;
+        }
+        try {
+            String beanName = typeName(clazz);
+            StringBuilder code = new StringBuilder();
+            code.append("public void convertTo(com.firefly.utils.json.JsonWriter writer, Object obj) throws java.io.IOException {\n");
+            if (checkRef) {
+                code.append("\tif (writer.existRef(obj)) {\n")
+                    .append("\t\twriter.writeNull();\n")
+                    .append("\t\treturn;\n")
+                    .append("\t}\n")
+                    .append("\twriter.pushRef(obj);\n");
+            }
+            code.append(StringUtils.replace("\t{} o = ({}) obj;\n", beanName, beanName))
+                .append("\twriter.append('{');\n");
+
+            for (int i = 0; i < metaInfos.length; i++) {
+                code.append(StringUtils.replace("\twriter.writePropertyName(names[{}], encodedNames[{}]);\n", i, i));
+                PropertyAccess propertyAccess = metaInfos[i].getPropertyAccess();
+                Method getter = propertyAccess.getGetterMethod();
+                Field field = propertyAccess.getField();
+                String value;
+                Class<?> type;
+                if (getter != null && Modifier.isPublic(getter.getModifiers())) {
+                    value = "o." + getter.getName() + "()";
+                    type = getter.getReturnType();
+                } else if (getter == null && isAccessible(field)) {
+                    value = "o." + field.getName();
+                    type = field.getType();
+                } else {
+                    code.append(StringUtils.replace("\tmetaInfos[{}].toJson(obj, writer);\n", i));
+                    continue;
+                }
+
+                if (WRITER_MAP.containsKey(type)) {
+                    code.append(StringUtils.replace("\twriter.{}({});\n", WRITER_MAP.get(type), value));
+                } else if (type.isPrimitive()) {
+                    code.append(StringUtils.replace("\tserializers[{}].convertTo(writer, {}.valueOf({}));\n", i, WRAPPER_MAP.get(type), value));
+                } else {
+                    String v = "v" + i;
+                    code.append(StringUtils.replace("\t{} {} = {};\n", type == String.class ? "String" : "Object", v, value))
+                        .append(StringUtils.replace("\tif ({} == null) {\n", v))
+                        .append("\t\twriter.writeNull();\n")
+                        .append("\t} else {\n");
+                    if (type == String.class) {
+                        code.append(StringUtils.replace("\t\twriter.writeStringWithQuote({});\n", v));
+                    } else {
+                        code.append(StringUtils.replace("\t\tserializers[{}].convertTo(writer, {});\n", i, v));
+                    }
+                    code.append("\t}\n");
+                }
+            }
+
+            code.append("\twriter.append('}');\n");
+            if (checkRef) {
+                code.append("\twriter.popRef();\n");
+            }
+            code.append("}");
+
+            GeneratedSerializer serializer = (GeneratedSerializer) generate(clazz, GeneratedSerializer.class, "Serializer", code.toString());
+            serializer.metaInfos = metaInfos;
+            serializer.names = new char[metaInfos.length][];
+            serializer.encodedNames = new byte[metaInfos.length][];
+            serializer.serializers = new Serializer[metaInfos.length];
+            for (int i = 0; i < metaInfos.length; i++) {
+                serializer.names[i] = metaInfos[i].getPropertyName();
+                serializer.encodedNames[i] = new String(metaInfos[i].getPropertyName()).getBytes(StandardCharsets.UTF_8);
+                serializer.serializers[i] = metaInfos[i].getSerializer();
+            }
+            return serializer;
+        } catch (Throwable e) {
+            onGenerationFailed("serializer", clazz, e);
+            return null;
+        }
+    }
+
+    /**
+     * Generate the parser of the java bean.
+     *
+     * @param clazz     The java bean class.
+     * @param metaInfos The parser meta information of the class.
+     * @return The generated parser, or null if the class can not be generated.
+     */
+    public static Parser createParser(Class<?> clazz, ParserMetaInfo[] metaInfos) {
+        if (!enabled || !isAccessible(clazz) || Modifier.isAbstract(clazz.getModifiers())) {
+            return null;
+        }
+        try {
+            Constructor<?> constructor = clazz.getConstructor();
+            if (!Modifier.isPublic(constructor.getModifiers())) {
+                return null;
+            }
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+
+        try {
+            String beanName = typeName(clazz);
+            StringBuilder code = new StringBuilder();
+            code.append("public Object convertTo(com.firefly.utils.json.JsonReader reader, Class clazz) {\n")
+                .append("\tif (reader.isNull()) {\n")
+                .append("\t\treturn null;\n")
+                .append("\t}\n")
+                .append("\tif (!reader.isObject()) {\n")
+                .append("\t\tthrow new com.firefly.utils.json.exception.JsonException(\"json string is not object format\");\n")
+                .append("\t}\n")
+                .append(StringUtils.replace("\t{} o = new {}();\n", beanName, beanName))
+                .append("\tif (reader.isEmptyObject()) {\n")
+                .append("\t\treturn o;\n")
+                .append("\t}\n")
+                .append("\tint expected = 0;\n")
+                .append("\twhile (true) {\n")
+                .append("\t\tint i;\n")
+                .append(StringUtils.replace("\t\tif (expected < {}) {\n", metaInfos.length))
+                // the same order, the field name is skipped without copying
+                .append("\t\t\tchar[] field = reader.readField(names[expected]);\n")
+                .append("\t\t\ti = field == null ? expected : index(field);\n")
+                .append("\t\t} else {\n")
+                .append("\t\t\ti = index(reader.readChars());\n")
+                .append("\t\t}\n")
+                .append("\t\tif (!reader.isColon()) {\n")
+                .append("\t\t\tthrow new com.firefly.utils.json.exception.JsonException(\"missing ':'\");\n")
+                .append("\t\t}\n")
+                .append("\t\tswitch (i) {\n");
+
+            for (int i = 0; i < metaInfos.length; i++) {
+                code.append(StringUtils.replace("\t\t\tcase {}:\n", i))
+                    .append("\t\t\t\t").append(createSetterCode(metaInfos[i], i)).append("\n")
+                    .append("\t\t\t\tbreak;\n");
+            }
+
+            code.append("\t\t\tdefault:\n")
+                .append("\t\t\t\treader.skipValue();\n")
+                .append("\t\t}\n")
+                .append("\t\tif (i >= 0) {\n")
+                .append("\t\t\texpected = i + 1;\n")
+                .append("\t\t}\n")
+                .append("\t\tchar ch = reader.readAndSkipBlank();\n")
+                .append("\t\tif (ch == '}') {\n")
+                .append("\t\t\treturn o;\n")
+                .append("\t\t}\n")
+                .append("\t\tif (ch != ',') {\n")
+                .append("\t\t\tthrow new com.firefly.utils.json.exception.JsonException(\"missing ','\");\n")
+                .append("\t\t}\n")
+                .append("\t}\n")
+                .append("}");
+
+            GeneratedParser parser = (GeneratedParser) generate(clazz, GeneratedParser.class, "Parser", createIndexCode(metaInfos), code.toString());
+            parser.metaInfos = metaInfos;
+            parser.names = new char[metaInfos.length][];
+            parser.parsers = new Parser[metaInfos.length];
+            parser.types = new Class<?>[metaInfos.length];
+            for (int i = 0; i < metaInfos.length; i++) {
+                parser.names[i] = metaInfos[i].getPropertyName();
+                parser.parsers[i] = metaInfos[i].getParser();
+                parser.types[i] = metaInfos[i].getExtractedType();
+            }
+            return parser;
+        } catch (Throwable e) {
+            onGenerationFailed("parser", clazz, e);
+            return null;
+        }
+    }
+
+    private static void onGenerationFailed(String codec, Class<?> clazz, Throwable e) {
+        if (isDefinitionDenied(e)) {
+            enabled = false;
+            if (failure.compareAndSet(null, e)) {
+                log.error("define the json {} of {} exception, the generated codec is disabled", codec, clazz.getName(), e);
+            }
+        } else {
+            log.warn("generate the json {} of {} exception, use the reflective codec", codec, clazz.getName(), e);
+        }
+    }
+
+    private static boolean isDefinitionDenied(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof IllegalAccessException || t instanceof SecurityException
+                    || t.getClass().getName().equals("java.lang.reflect.InaccessibleObjectException")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String createSetterCode(ParserMetaInfo metaInfo, int i) {
+        PropertyAccess propertyAccess = metaInfo.getPropertyAccess();
+        Method setter = propertyAccess.getSetterMethod();
+        Field field = propertyAccess.getField();
+        Class<?> type;
+        if (setter != null && Modifier.isPublic(setter.getModifiers())) {
+            type = setter.getParameterTypes()[0];
+        } else if (setter == null && isAccessible(field) && !Modifier.isFinal(field.getModifiers())) {
+            type = field.getType();
+        } else {
+            return StringUtils.replace("metaInfos[{}].invoke(o, reader);", i);
+        }
+
+        String value;
+        if (DIRECT_PARSER_MAP.get(type) == metaInfo.getParser().getClass()) {
+            value = READER_MAP.get(type);
+        } else if (type.isPrimitive()) {
+            value = StringUtils.replace("(({}) parsers[{}].convertTo(reader, types[{}])).{}Value()", WRAPPER_MAP.get(type), i, i, type.getName());
+        } else {
+            value = StringUtils.replace("({}) parsers[{}].convertTo(reader, types[{}])", typeName(type), i, i);
+        }
+
+        if (setter != null) {
+            return StringUtils.replace("o.{}({});", setter.getName(), value);
+        } else {
+            return StringUtils.replace("o.{} = {};", field.getName(), value);
+        }
+    }
+
+    /**
+     * The field name dispatch, the candidates are selected by the name length and compared character by character.
+     */
+    private static String createIndexCode(ParserMetaInfo[] metaInfos) {
+        Map<Integer, List<Integer>> lengthMap = new TreeMap<>();
+        for (int i = 0; i < metaInfos.length; i++) {
+            lengthMap.computeIfAbsent(metaInfos[i].getPropertyName().length, k -> new ArrayList<>()).add(i);
+        }
+
+        StringBuilder code = new StringBuilder();
+        code.append("private int index(char[] field) {\n")
+            .append("\tswitch (field.length) {\n");
+        lengthMap.forEach((length, indexes) -> {
+            code.append(StringUtils.replace("\t\tcase {}:\n", length));
+            for (Integer i : indexes) {
+                char[] name = metaInfos[i].getPropertyName();
+                code.append("\t\t\tif (true");
+                for (int j = 0; j < name.length; j++) {
+                    code.append(StringUtils.replace(" && field[{}] == {}", j, (int) name[j]));
+                }
+                code.append(StringUtils.replace(") {\n\t\t\t\treturn {};\n\t\t\t}\n", i));
+            }
+            code.append("\t\t\treturn -1;\n");
+        });
+        code.append("\t\tdefault:\n")
+            .append("\t\t\treturn -1;\n")
+            .append("\t}\n")
+            .append("}");
+        return code.toString();
+    }
+
+    private static Object generate(Class<?> clazz, Class<?> superclass, String suffix, String... methods) throws Exception {
+        ClassPool classPool = ClassPool.getDefault();
+        classPool.insertClassPath(new ClassClassPath(superclass));
+        classPool.insertClassPath(new ClassClassPath(clazz));
+
+        CtClass cc = classPool.makeClass("com.firefly.utils.json.Generated" + suffix + UUID.randomUUID().toString().replace("-", ""));
+        cc.setSuperclass(classPool.get(superclass.getName()));
+        for (String method : methods) {
+            cc.addMethod(CtMethod.make(method, cc));
+        }
+
+        ClassLoader classLoader = clazz.getClassLoader();
+        if (classLoader == null) {
+            classLoader = Thread.currentThread().getContextClassLoader();
+        }
+        Object codec = cc.toClass(classLoader, null).getConstructor().newInstance();
+        cc.detach();
+        return codec;
+    }
+
+    private static boolean isAccessible(Class<?> clazz) {
+        if (clazz.isAnonymousClass() || clazz.isLocalClass()) {
+            return false;
+        }
+        for (Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+            if (!Modifier.isPublic(c.getModifiers())
+                    || (c.isMemberClass() && !Modifier.isStatic(c.getModifiers()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAccessible(Field field) {
+        return field != null
+                && Modifier.isPublic(field.getModifiers())
+                && !Modifier.isStatic(field.getModifiers());
+    }
+
+    private static String typeName(Class<?> clazz) {
+        if (clazz.isArray()) {
+            return typeName(clazz.getComponentType()) + "[]";
+        } else {
+            return clazz.getName();
+        }
+    }
+
+}
@@ -0,0 +1,650 @@
+package com.firefly.utils.json.io;
+
+import com.firefly.utils.VerifyUtils;
+import com.firefly.utils.io.IO;
+import com.firefly.utils.json.JsonReader;
+import com.firefly.utils.json.exception.JsonException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * The JSON reader that parses the UTF-8 bytes directly. The JSON structure characters are ASCII, so only the string
+ * values and the field names are decoded, it does not need to decode the whole content to a String at first.
+ * The position is the byte offset of the content.
+ *
+ * @author Pengtao Qiu
+ */
+public class JsonBytesReader extends JsonReader {
+
+    private final byte[] bytes;
+    private final int start;
+    private final int limit;
+    private int pos;
+    private int mark;
+
+    public JsonBytesReader(byte[] bytes) {
+        this(bytes, 0, bytes.length);
+    }
+
+    public JsonBytesReader(byte[] bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.start = offset;
+        this.limit = offset + length;
+        this.pos = offset;
+        this.mark = offset;
+    }
+
+    /**
+     * Create a reader from a JSON content that is split into several buffers.
+     *
+     * @param buffers The UTF-8 JSON content.
+     * @return The JSON reader.
+     */
+    public static JsonBytesReader create(List<ByteBuffer> buffers) {
+        if (buffers.size() == 1) {
+            return create(buffers.get(0));
+        }
+
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+        byte[] data = new byte[length];
+        int offset = 0;
+        for (ByteBuffer buffer : buffers) {
+            int len = buffer.remaining();
+            buffer.slice().get(data, offset, len);
+            offset += len;
+        }
+        return new JsonBytesReader(data);
+    }
+
+    /**
+     * Create a reader from the remaining bytes of the buffer. The content of a heap buffer is not copied.
+     *
+     * @param buffer The UTF-8 JSON content.
+     * @return The JSON reader.
+     */
+    public static JsonBytesReader create(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return new JsonBytesReader(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        } else {
+            byte[] data = new byte[buffer.remaining()];
+            buffer.slice().get(data);
+            return new JsonBytesReader(data);
+        }
+    }
+
+    public static JsonBytesReader create(InputStream inputStream) throws IOException {
+        return new JsonBytesReader(IO.readBytes(inputStream));
+    }
+
+    @Override
+    public void increasePosition() {
+        pos++;
+    }
+
+    @Override
+    public void decreasePosition() {
+        pos--;
+    }
+
+    @Override
+    public int position() {
+        return pos - start;
+    }
+
+    @Override
+    public boolean isEnd() {
+        return pos >= limit;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) {
+        mark = pos;
+    }
+
+    @Override
+    public void reset() {
+        pos = mark;
+    }
+
+    @Override
+    public boolean isEndFlag(char ch) {
+        switch (ch) {
+            case ',':
+            case '}':
+            case ']':
+            case ' ':
+            case ':':
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isString() {
+        char c = readAndSkipBlank();
+        return c == '"';
+    }
+
+    @Override
+    public boolean isArray() {
+        char c = readAndSkipBlank();
+        return c == '[';
+    }
+
+    @Override
+    public boolean isEmptyArray() {
+        mark(1024);
+        char c = readAndSkipBlank();
+
+        if (c == ']')
+            return true;
+
+        reset();
+        return false;
+    }
+
+    @Override
+    public boolean isObject() {
+        char c = readAndSkipBlank();
+        return c == '{';
+    }
+
+    @Override
+    public boolean isEmptyObject() {
+        mark(1024);
+        char c = readAndSkipBlank();
+
+        if (c == '}')
+            return true;
+
+        reset();
+        return false;
+    }
+
+    @Override
+    public boolean isColon() {
+        char c = readAndSkipBlank();
+        return c == ':';
+    }
+
+    @Override
+    public boolean isComma() {
+        char c = readAndSkipBlank();
+        return c == ',';
+    }
+
+    @Override
+    public boolean isNull() {
+        mark(1024);
+        char ch = readAndSkipBlank();
+        if (pos + 3 > limit) {
+            reset();
+            return false;
+        }
+
+        if (ch == 'n' && 'u' == read() && 'l' == read() && 'l' == read()) {
+            if (pos >= limit)
+                return true;
+
+            ch = readAndSkipBlank();
+            if (isEndFlag(ch)) {
+                pos--;
+                return true;
+            } else {
+                reset();
+                return false;
+            }
+        } else {
+            reset();
+            return false;
+        }
+    }
+
+    @Override
+    public int read() {
+        return bytes[pos++] & 0xff;
+    }
+
+    @Override
+    public char readAndSkipBlank() {
+        char c = (char) read();
+        if (c > ' ')
+            return c;
+        for (; ; ) {
+            c = (char) read();
+            if (c > ' ')
+                return c;
+        }
+    }
+
+    @Override
+    public boolean readBoolean() {
+        boolean ret = false;
+
+        if (isNull()) {
+            return false;
+        }
+
+        char ch = readAndSkipBlank();
+        boolean isString = (ch == '"');
+        if (isString) {
+            ch = readAndSkipBlank();
+        }
+        if (ch == 't' && 'r' == read() && 'u' == read() && 'e' == read()) {
+            ret = true;
+        } else if (ch == 'f' && 'a' == read() && 'l' == read() && 's' == read() && 'e' == read()) {
+            ret = false;
+        }
+        if (isString) {
+            ch = readAndSkipBlank();
+            if (ch != '"')
+                throw new JsonException("read boolean error, the position is " + position());
+        }
+
+        return ret;
+    }
+
+    @Override
+    public int readInt() {
+        return (int) readLong();
+    }
+
+    @Override
+    public long readLong() {
+        long value = 0;
+        if (isNull()) {
+            return value;
+        }
+        char ch = readAndSkipBlank();
+        boolean isString = (ch == '"');
+        if (isString) {
+            ch = readAndSkipBlank();
+        }
+        boolean negative = (ch == '-');
+
+        if (!negative) {
+            if (VerifyUtils.isDigit(ch))
+                value = (value << 3) + (value << 1) + (ch - '0');
+            else
+                throw new JsonException("read int error, charactor \"" + ch + "\" is not integer, the position is " + position());
+        }
+
+        for (; ; ) {
+            ch = (char) read();
+            if (VerifyUtils.isDigit(ch))
+                value = (value << 3) + (value << 1) + (ch - '0');
+            else {
+                if (isString) {
+                    if (ch == '"')
+                        break;
+                } else {
+                    if (isEndFlag(ch)) {
+                        pos--;
+                        break;
+                    } else
+                        throw new JsonException("read int error, charactor \"" + ch + "\" is not integer, the position is " + position());
+                }
+            }
+
+            if (pos >= limit) {
+                break;
+            }
+        }
+        return negative ? -value : value;
+    }
+
+    @Override
+    public String readValueAsString() {
+        int begin = pos;
+        int startBlankLength = 0;
+        int endBlankLength = 0;
+        boolean hasChar = false;
+        for (; ; ) {
+            char ch = (char) read();
+            if (ch <= ' ') {
+                if (!hasChar) {
+                    startBlankLength++;
+                } else {
+                    endBlankLength++;
+                }
+                continue;
+            }
+
+            if (!hasChar) {
+                hasChar = true;
+            }
+
+            if (isEndFlag(ch)) {
+                pos--;
+                break;
+            }
+        }
+        begin = begin + startBlankLength;
+        int end = pos - endBlankLength;
+        return new String(bytes, begin, end - begin, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read the number and keep it as the ASCII string.
+     */
+    private String readNumberAsString() {
+        char ch = readAndSkipBlank();
+        boolean isString = (ch == '"');
+        if (isString) {
+            readAndSkipBlank();
+        }
+        pos--;
+
+        int begin = pos;
+        for (; ; ) {
+            ch = (char) read();
+            if (isString) {
+                if (ch == '"')
+                    break;
+            } else {
+                if (isEndFlag(ch)) {
+                    pos--;
+                    break;
+                }
+            }
+        }
+
+        int len = isString ? pos - begin - 1 : pos - begin;
+        return new String(bytes, begin, len, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public BigInteger readBigInteger() {
+        if (isNull()) {
+            return new BigInteger("0");
+        }
+        return new BigInteger(readNumberAsString());
+    }
+
+    @Override
+    public BigDecimal readBigDecimal() {
+        if (isNull()) {
+            return new BigDecimal("0.0");
+        }
+        return new BigDecimal(readNumberAsString());
+    }
+
+    @Override
+    public double readDouble() {
+        if (isNull()) {
+            return 0.0;
+        }
+        return Double.parseDouble(readNumberAsString());
+    }
+
+    @Override
+    public float readFloat() {
+        if (isNull()) {
+            return 0.0F;
+        }
+        return Float.parseFloat(readNumberAsString());
+    }
+
+    @Override
+    public char[] readField(char[] chs) {
+        if (!isString()) {
+            throw new JsonException("read field error, the position is " + position());
+        }
+        int cur = pos;
+        int len = chs.length;
+        boolean skip = true;
+
+        // the field name is compared with the bytes directly if it is ASCII
+        int next = pos + len;
+        if (next < limit && bytes[next] == '"') {
+            for (int i = 0; i < len; i++) {
+                if (chs[i] != bytes[cur++]) {
+                    skip = false;
+                    break;
+                }
+            }
+        } else {
+            skip = false;
+        }
+
+        if (skip) {
+            pos = cur + 1;
+            return null;
+        } else {
+            return readStringChars();
+        }
+    }
+
+    @Override
+    public char[] readChars() {
+        if (!isString()) {
+            throw new JsonException("read field error, the position is " + position());
+        }
+        return readStringChars();
+    }
+
+    private char[] readStringChars() {
+        int begin = pos;
+        for (; ; ) {
+            int c = read();
+            if (c == '"')
+                break;
+        }
+        int len = pos - 1 - begin;
+        char[] chars = new char[len];
+        int count = decodeUTF8(bytes, begin, len, chars, 0);
+        if (count == len) {
+            return chars;
+        } else {
+            char[] ret = new char[count];
+            System.arraycopy(chars, 0, ret, 0, count);
+            return ret;
+        }
+    }
+
+    @Override
+    public void skipValue() {
+        char ch = readAndSkipBlank();
+        switch (ch) {
+            case '"': // skip string
+                for (; ; ) {
+                    ch = (char) read();
+                    if (ch == '"')
+                        break;
+                    else if (ch == '\\')
+                        pos++;
+                }
+                break;
+            case '[': // skip array
+                for (; ; ) {
+                    if (isEmptyArray())
+                        break;
+
+                    skipValue();
+                    ch = readAndSkipBlank();
+                    if (ch == ']')
+                        break;
+
+                    if (ch != ',')
+                        throw new JsonException("json string array format error, the position is " + position());
+                }
+                break;
+            case '{': // skip object
+                for (; ; ) {
+                    if (isEmptyObject())
+                        break;
+
+                    readChars();
+                    if (!isColon())
+                        throw new JsonException("json string object format error, the position is " + position());
+
+                    skipValue();
+                    ch = readAndSkipBlank();
+                    if (ch == '}')
+                        break;
+
+                    if (ch != ',')
+                        throw new JsonException("json string object format error, the position is " + position());
+                }
+                break;
+
+            default: // skip number or null
+                for (; ; ) {
+                    ch = (char) read();
+                    if (isEndFlag(ch)) {
+                        pos--;
+                        break;
+                    }
+                }
+                break;
+        }
+    }
+
+    @Override
+    public String readString() {
+        if (isNull()) {
+            return null;
+        }
+        if (!isString()) {
+            throw new JsonException("read string error, the position is " + position());
+        }
+
+        // the multi-byte UTF-8 sequence does not contain the quote and the backslash
+        int cur = pos;
+        for (; ; ) {
+            byte b = bytes[cur];
+            if (b == '"') {
+                String value = new String(bytes, pos, cur - pos, StandardCharsets.UTF_8);
+                pos = cur + 1;
+                return value;
+            } else if (b == '\\') {
+                break;
+            }
+            cur++;
+        }
+
+        try (JsonStringWriter writer = new JsonStringWriter()) {
+            char[] chars = new char[64];
+            for (; ; ) {
+                byte b = bytes[cur++];
+                if (b == '"') {
+                    writeDecoded(writer, pos, cur - pos - 1, chars);
+                    pos = cur;
+                    break;
+                } else if (b == '\\') {
+                    chars = writeDecoded(writer, pos, cur - pos - 1, chars);
+                    byte c0 = bytes[cur++];
+                    switch (c0) {
+                        case 'b':
+                            writer.write('\b');
+                            break;
+                        case 'n':
+                            writer.write('\n');
+                            break;
+                        case 'r':
+                            writer.write('\r');
+                            break;
+                        case 'f':
+                            writer.write('\f');
+                            break;
+                        case '\\':
+                            writer.write('\\');
+                            break;
+                        case '/':
+                            writer.write('/');
+                            break;
+                        case '"':
+                            writer.write('"');
+                            break;
+                        case 't':
+                            writer.write('\t');
+                            break;
+                        case 'u': // unicode char parse
+                            char tmp = (char) Integer.parseInt(new String(bytes, cur, 4, StandardCharsets.ISO_8859_1), 16);
+                            cur += 4;
+                            writer.write(tmp);
+                            break;
+                    }
+                    pos = cur;
+                }
+            }
+            return writer.toString();
+        }
+    }
+
+    private char[] writeDecoded(JsonStringWriter writer, int offset, int length, char[] chars) {
+        if (length == 0) {
+            return chars;
+        }
+        if (chars.length < length) {
+            chars = new char[length];
+        }
+        int count = decodeUTF8(bytes, offset, length, chars, 0);
+        writer.write(chars, 0, count);
+        return chars;
+    }
+
+    /**
+     * Decode the UTF-8 bytes. The malformed sequence is replaced by U+FFFD.
+     *
+     * @param src    The UTF-8 bytes.
+     * @param offset The offset of the bytes.
+     * @param length The length of the bytes.
+     * @param dst    The destination chars, its remaining size must not be less than the length of the bytes.
+     * @param dstOff The offset of the destination.
+     * @return The number of the decoded chars.
+     */
+    public static int decodeUTF8(byte[] src, int offset, int length, char[] dst, int dstOff) {
+        int i = offset;
+        int end = offset + length;
+        int j = dstOff;
+        while (i < end) {
+            int b = src[i];
+            if (b >= 0) {
+                dst[j++] = (char) b;
+                i++;
+            } else if ((b >> 5) == -2 && i + 1 < end && isContinuation(src[i + 1])) {
+                dst[j++] = (char) (((b & 0x1f) << 6) | (src[i + 1] & 0x3f));
+                i += 2;
+            } else if ((b >> 4) == -2 && i + 2 < end && isContinuation(src[i + 1]) && isContinuation(src[i + 2])) {
+                dst[j++] = (char) (((b & 0x0f) << 12) | ((src[i + 1] & 0x3f) << 6) | (src[i + 2] & 0x3f));
+                i += 3;
+            } else if ((b >> 3) == -2 && i + 3 < end
+                    && isContinuation(src[i + 1]) && isContinuation(src[i + 2]) && isContinuation(src[i + 3])) {
+                int codePoint = ((b & 0x07) << 18) | ((src[i + 1] & 0x3f) << 12)
+                        | ((src[i + 2] & 0x3f) << 6) | (src[i + 3] & 0x3f);
+                dst[j++] = Character.highSurrogate(codePoint);
+                dst[j++] = Character.lowSurrogate(codePoint);
+                i += 4;
+            } else {
+                dst[j++] = '\uFFFD';
+                i++;
+            }
+        }
+        return j - dstOff;
+    }
+
+    private static boolean isContinuation(byte b) {
+        return (b & 0xc0) == 0x80;
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        throw new JsonException("method not implements!");
+    }
+
+    @Override
+    public void close() throws IOException {
+
+    }
+
+}
@@ -0,0 +1,404 @@
+package com.firefly.utils.json.io;
+
+import com.firefly.utils.json.JsonWriter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedList;
+
+/**
+ * The JSON writer that encodes the content to UTF-8 bytes directly, so the serialized object can be written to
+ * the output stream without building a String and encoding it again.
+ *
+ * @author Pengtao Qiu
+ */
+public class JsonBytesWriter extends JsonWriter {
+
+    private static final ThreadLocal<SoftReference<byte[]>> bufLocal = new ThreadLocal<>();
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+    private static final byte[] TRUE_VALUE = {'t', 'r', 'u', 'e'};
+    private static final byte[] FALSE_VALUE = {'f', 'a', 'l', 's', 'e'};
+    private static final byte[] MIN_INT_VALUE = "-2147483648".getBytes();
+    private static final byte[] MIN_LONG_VALUE = "-9223372036854775808".getBytes();
+
+    private byte[] buf;
+    private int count;
+    private char[] digits = new char[20];
+    private int highSurrogate;
+    private Deque<Object> deque = new LinkedList<>();
+
+    public JsonBytesWriter() {
+        SoftReference<byte[]> ref = bufLocal.get();
+
+        if (ref != null) {
+            buf = ref.get();
+            bufLocal.set(null);
+        }
+
+        if (buf == null)
+            buf = new byte[1024];
+    }
+
+    public JsonBytesWriter(int initialSize) {
+        if (initialSize < 0) {
+            throw new IllegalArgumentException("Negative initial size: " + initialSize);
+        }
+        buf = new byte[initialSize];
+    }
+
+    private void ensureCapacity(int len) {
+        int newcount = count + len;
+        if (newcount > buf.length) {
+            int newCapacity = (buf.length * 3) / 2 + 1;
+            if (newCapacity < newcount) {
+                newCapacity = newcount;
+            }
+            buf = Arrays.copyOf(buf, newCapacity);
+        }
+    }
+
+    private void writeAscii(byte[] b) {
+        ensureCapacity(b.length);
+        System.arraycopy(b, 0, buf, count, b.length);
+        count += b.length;
+    }
+
+    @Override
+    public void write(int c) {
+        ensureCapacity(4);
+        writeChar((char) c);
+    }
+
+    /**
+     * Encode a char, the capacity must be ensured by the caller. A surrogate pair is encoded as a 4 bytes sequence.
+     */
+    private void writeChar(char c) {
+        if (highSurrogate != 0) {
+            int high = highSurrogate;
+            highSurrogate = 0;
+            if (Character.isLowSurrogate(c)) {
+                int codePoint = Character.toCodePoint((char) high, c);
+                buf[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buf[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buf[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buf[count++] = (byte) (0x80 | (codePoint & 0x3f));
+                return;
+            } else {
+                buf[count++] = '?';
+            }
+        }
+
+        if (c < 0x80) {
+            buf[count++] = (byte) c;
+        } else if (c < 0x800) {
+            buf[count++] = (byte) (0xc0 | (c >> 6));
+            buf[count++] = (byte) (0x80 | (c & 0x3f));
+        } else if (Character.isHighSurrogate(c)) {
+            highSurrogate = c;
+        } else if (Character.isLowSurrogate(c)) {
+            buf[count++] = '?';
+        } else {
+            buf[count++] = (byte) (0xe0 | (c >> 12));
+            buf[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            buf[count++] = (byte) (0x80 | (c & 0x3f));
+        }
+    }
+
+    @Override
+    public void write(char[] c) {
+        write(c, 0, c.length);
+    }
+
+    @Override
+    public void write(char[] c, int off, int len) {
+        if (off < 0 || off > c.length || len < 0 || off + len > c.length
+                || off + len < 0) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return;
+        }
+
+        ensureCapacity(len * 3 + 1);
+        for (int i = off; i < off + len; i++) {
+            writeChar(c[i]);
+        }
+    }
+
+    @Override
+    public void write(String str) {
+        write(str, 0, str.length());
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        ensureCapacity(len * 3 + 1);
+        for (int i = off; i < off + len; i++) {
+            writeChar(str.charAt(i));
+        }
+    }
+
+    @Override
+    public JsonBytesWriter append(CharSequence csq) {
+        String str = csq.toString();
+        write(str, 0, str.length());
+        return this;
+    }
+
+    @Override
+    public JsonBytesWriter append(CharSequence csq, int start, int end) {
+        String str = csq.subSequence(start, end).toString();
+        write(str, 0, str.length());
+        return this;
+    }
+
+    @Override
+    public JsonBytesWriter append(char c) {
+        write(c);
+        return this;
+    }
+
+    @Override
+    public void writePropertyName(char[] name, byte[] encodedName) {
+        writeAscii(encodedName);
+    }
+
+    @Override
+    public void writeNull() {
+        writeAscii(NULL);
+    }
+
+    @Override
+    public void writeBoolean(boolean b) {
+        writeAscii(b ? TRUE_VALUE : FALSE_VALUE);
+    }
+
+    @Override
+    public void writeInt(int i) {
+        if (i == Integer.MIN_VALUE) {
+            writeAscii(MIN_INT_VALUE);
+            return;
+        }
+        int size = (i < 0) ? IOUtils.stringSize(-i) + 1 : IOUtils.stringSize(i);
+        IOUtils.getChars(i, size, digits);
+        writeDigits(size);
+    }
+
+    @Override
+    public void writeShort(short i) {
+        writeInt((int) i);
+    }
+
+    @Override
+    public void writeByte(byte i) {
+        writeInt((int) i);
+    }
+
+    @Override
+    public void writeLong(long i) {
+        if (i == Long.MIN_VALUE) {
+            writeAscii(MIN_LONG_VALUE);
+            return;
+        }
+        int size = (i < 0) ? IOUtils.stringSize(-i) + 1 : IOUtils.stringSize(i);
+        IOUtils.getChars(i, size, digits);
+        writeDigits(size);
+    }
+
+    private void writeDigits(int size) {
+        ensureCapacity(size);
+        for (int j = 0; j < size; j++) {
+            buf[count++] = (byte) digits[j];
+        }
+    }
+
+    @Override
+    public void pushRef(Object obj) {
+        deque.addFirst(obj);
+    }
+
+    @Override
+    public boolean existRef(Object obj) {
+        return deque.contains(obj);
+    }
+
+    @Override
+    public void popRef() {
+        deque.removeFirst();
+    }
+
+    @Override
+    public void writeStringWithQuote(String value) {
+        char[] escapedValue = JsonStringWriter.escapeJsonString(value);
+        ensureCapacity(escapedValue.length * 3 + 3);
+        buf[count++] = '"';
+        for (char c : escapedValue) {
+            writeChar(c);
+        }
+        buf[count++] = '"';
+    }
+
+    @Override
+    public void writeStringArray(String[] array) {
+        write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeStringWithQuote(array[i]);
+        }
+        write(']');
+    }
+
+    @Override
+    public void writeIntArray(int[] array) {
+        write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeInt(array[i]);
+        }
+        write(']');
+    }
+
+    @Override
+    public void writeIntArray(Integer[] array) {
+        write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeInt(array[i]);
+        }
+        write(']');
+    }
+
+    @Override
+    public void writeShortArray(short[] array) {
+        write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeInt(array[i]);
+        }
+        write(']');
+    }
+
+    @Override
+    public void writeShortArray(Short[] array) {
+        write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeInt(array[i]);
+        }
+        write(']');
+    }
+
+    @Override
+    public void writeLongArray(long[] array) {
+        write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeLong(array[i]);
+        }
+        write(']');
+    }
+
+    @Override
+    public void writeLongArray(Long[] array) {
+        write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeLong(array[i]);
+        }
+        write(']');
+    }
+
+    @Override
+    public void writeBooleanArray(boolean[] array) {
+        write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeBoolean(array[i]);
+        }
+        write(']');
+    }
+
+    @Override
+    public void writeBooleanArray(Boolean[] array) {
+        write('[');
+        for (int i = 0; i < array.length; i++) {
+            if (i > 0) {
+                write(',');
+            }
+            writeBoolean(array[i]);
+        }
+        write(']');
+    }
+
+    /**
+     * Copy the UTF-8 content.
+     *
+     * @return The UTF-8 JSON bytes.
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buf, count);
+    }
+
+    /**
+     * Copy the UTF-8 content to a heap buffer.
+     *
+     * @return The buffer in flush mode.
+     */
+    public ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(toByteArray());
+    }
+
+    /**
+     * Write the UTF-8 content to the output stream without copying.
+     *
+     * @param out The output stream.
+     * @throws IOException The I/O error.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(buf, 0, count);
+    }
+
+    @Override
+    public String toString() {
+        return new String(buf, 0, count, StandardCharsets.UTF_8);
+    }
+
+    public void reset() {
+        count = 0;
+        highSurrogate = 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        reset();
+        bufLocal.set(new SoftReference<>(buf));
+    }
+}
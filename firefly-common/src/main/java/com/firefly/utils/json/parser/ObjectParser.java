@@ -4,9 +4,11 @@ import com.firefly.utils.exception.CommonRuntimeException;
 import com.firefly.utils.json.JsonReader;
 import com.firefly.utils.json.Parser;
 import com.firefly.utils.json.compiler.DecodeCompiler;
+import com.firefly.utils.json.compiler.JavassistCodecCompiler;
 import com.firefly.utils.json.exception.JsonException;
 import com.firefly.utils.json.support.ParserMetaInfo;
 
+import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.HashMap;
 import java.util.Map;
@@ -17,6 +19,7 @@ public class ObjectParser implements Parser {
     private int max;
     private Map<String, ParserMetaInfo> map;
     private boolean useMap;
+    private Parser generatedParser;
 
     public void init(Class<?> clazz, Type type) {
         parserMetaInfos = DecodeCompiler.compile(clazz, type);
@@ -28,10 +31,19 @@ public class ObjectParser implements Parser {
             }
             useMap = true;
         }
+        generatedParser = JavassistCodecCompiler.createParser(clazz, parserMetaInfos);
     }
 
     @Override
     public Object convertTo(JsonReader reader, Class<?> clazz) {
+        if (generatedParser != null && JavassistCodecCompiler.isEnabled()) {
+            try {
+                return generatedParser.convertTo(reader, clazz);
+            } catch (IOException e) {
+                throw new CommonRuntimeException(e);
+            }
+        }
+
         if (reader.isNull())
             return null;
 
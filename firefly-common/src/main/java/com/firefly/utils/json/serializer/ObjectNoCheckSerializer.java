@@ -8,18 +8,26 @@ import java.io.IOException;
 import com.firefly.utils.json.JsonWriter;
 import com.firefly.utils.json.Serializer;
 import com.firefly.utils.json.compiler.EncodeCompiler;
+import com.firefly.utils.json.compiler.JavassistCodecCompiler;
 import com.firefly.utils.json.support.SerializerMetaInfo;
 
 public class ObjectNoCheckSerializer implements Serializer {
 	
 	private SerializerMetaInfo[] serializerMetaInfos;
+	private Serializer generatedSerializer;
 	
 	public void init(Class<?> clazz) {
 		serializerMetaInfos = EncodeCompiler.compile(clazz);
+		generatedSerializer = JavassistCodecCompiler.createSerializer(clazz, serializerMetaInfos, false);
 	}
 
 	@Override
 	public void convertTo(JsonWriter writer, Object obj) throws IOException {
+		if (generatedSerializer != null && JavassistCodecCompiler.isEnabled()) {
+			generatedSerializer.convertTo(writer, obj);
+			return;
+		}
+
 		writer.append(OBJ_PRE);
 		for(SerializerMetaInfo metaInfo : serializerMetaInfos){
 			writer.write(metaInfo.getPropertyName());
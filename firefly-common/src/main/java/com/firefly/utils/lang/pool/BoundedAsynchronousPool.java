@@ -1,26 +1,74 @@
 package com.firefly.utils.lang.pool;
 
-import com.firefly.utils.concurrent.Atomics;
 import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
 import com.firefly.utils.exception.CommonRuntimeException;
 import com.firefly.utils.lang.AbstractLifeCycle;
 
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
 
 /**
+ * The bounded pool that never blocks the caller. When the pool is exhausted, the caller is added to a lock-free
+ * queue of waiters, and the released object is handed to the first waiter directly. The waiter is failed with
+ * the TimeoutException if no object is released before the timeout, the timeouts of all pools are handled by
+ * a shared timer.
+ *
  * @author Pengtao Qiu
  */
 public class BoundedAsynchronousPool<T> extends AbstractLifeCycle implements AsynchronousPool<T> {
 
-    private int maxSize;
-    private AtomicInteger createdObjectSize = new AtomicInteger(0);
-    private long timeout = 5000L;
-    private BlockingQueue<PooledObject<T>> queue;
-    private ExecutorService service;
-    private ObjectFactory<T> objectFactory;
-    private Validator<T> validator;
-    private Dispose<T> dispose;
+    private static final Scheduler sharedTimer;
+
+    static {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread thread = new Thread(r, "firefly bounded asynchronous pool timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        sharedTimer = new Schedulers.SchedulerService(executor);
+    }
+
+    private final int maxSize;
+    private final long timeout;
+    private final int maxWaiters;
+    private final boolean fair;
+    private final Scheduler timer;
+    private final ExecutorService service;
+    private final ObjectFactory<T> objectFactory;
+    private final Validator<T> validator;
+    private final Dispose<T> dispose;
+
+    private final AtomicInteger createdObjectSize = new AtomicInteger(0);
+    private final ConcurrentLinkedQueue<PooledObject<T>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger idleSize = new AtomicInteger(0);
+    private final ConcurrentLinkedQueue<Waiter<T>> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingSize = new AtomicInteger(0);
+    private final AtomicLong waitCount = new AtomicLong(0);
+    private final AtomicLong totalWaitTime = new AtomicLong(0);
+    private volatile LongConsumer waitTimeListener;
+
+    private static final class Waiter<T> {
+        private final Promise.Completable<PooledObject<T>> completable = new Promise.Completable<>();
+        private final long startTime = System.nanoTime();
+        private volatile Scheduler.Future timeoutFuture;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        /**
+         * The waiter is removed from the waiting size before its promise is completed, so the callers that are woken
+         * by the promise see the consistent size.
+         *
+         * @return If true, the current thread completes the waiter.
+         */
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
 
     public BoundedAsynchronousPool(ObjectFactory<T> objectFactory, Validator<T> validator, Dispose<T> dispose) {
         this(32, objectFactory, validator, dispose);
@@ -32,129 +80,252 @@ public class BoundedAsynchronousPool<T> extends AbstractLifeCycle implements Asy
 
     public BoundedAsynchronousPool(int maxSize, long timeout,
                                    ObjectFactory<T> objectFactory, Validator<T> validator, Dispose<T> dispose) {
-        this(maxSize, timeout,
-                Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), r -> new Thread(r, "firefly bounded asynchronous pool")),
-                objectFactory, validator, dispose);
+        this(maxSize, timeout, Integer.MAX_VALUE, false, objectFactory, validator, dispose);
     }
 
+    /**
+     * @deprecated The pool does not block any thread, the executor service is unused. It is shut down when the pool
+     * stops.
+     */
+    @Deprecated
     public BoundedAsynchronousPool(int maxSize, long timeout, ExecutorService service,
                                    ObjectFactory<T> objectFactory, Validator<T> validator, Dispose<T> dispose) {
+        this(maxSize, timeout, Integer.MAX_VALUE, false, sharedTimer, service, objectFactory, validator, dispose);
+    }
+
+    /**
+     * Create a pool.
+     *
+     * @param maxSize       The max number of the created objects.
+     * @param timeout       The max time of waiting for an object, the unit is millisecond.
+     * @param maxWaiters    The max number of the waiters. When it is exceeded, the take method fails immediately.
+     * @param fair          If true, the take method does not get the idle object when there are waiters, so the
+     *                      objects are taken in the order of the requests.
+     * @param objectFactory The object factory.
+     * @param validator     The object validator.
+     * @param dispose       Destroy the object.
+     */
+    public BoundedAsynchronousPool(int maxSize, long timeout, int maxWaiters, boolean fair,
+                                   ObjectFactory<T> objectFactory, Validator<T> validator, Dispose<T> dispose) {
+        this(maxSize, timeout, maxWaiters, fair, sharedTimer, null, objectFactory, validator, dispose);
+    }
+
+    private BoundedAsynchronousPool(int maxSize, long timeout, int maxWaiters, boolean fair,
+                                    Scheduler timer, ExecutorService service,
+                                    ObjectFactory<T> objectFactory, Validator<T> validator, Dispose<T> dispose) {
         this.maxSize = maxSize;
         this.timeout = timeout;
+        this.maxWaiters = maxWaiters;
+        this.fair = fair;
+        this.timer = timer;
         this.service = service;
         this.objectFactory = objectFactory;
         this.validator = validator;
         this.dispose = dispose;
-        this.queue = new ArrayBlockingQueue<>(maxSize);
         start();
     }
 
+    /**
+     * Reserve a slot of the created objects.
+     *
+     * @return If false, the pool is full.
+     */
+    private boolean reserve() {
+        while (true) {
+            int size = createdObjectSize.get();
+            if (size >= maxSize) {
+                return false;
+            }
+            if (createdObjectSize.compareAndSet(size, size + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private void unreserve() {
+        createdObjectSize.updateAndGet(size -> size > 0 ? size - 1 : 0);
+    }
+
     private Promise.Completable<PooledObject<T>> createObject() {
-        Promise.Completable<PooledObject<T>> r = new Promise.Completable<>();
-        createObject(r);
-        return r;
+        Promise.Completable<PooledObject<T>> completable = new Promise.Completable<>();
+        objectFactory.createNew()
+                     .thenAccept(completable::succeeded)
+                     .exceptionally(e -> {
+                         unreserve();
+                         completable.failed(e);
+                         createForWaiter();
+                         return null;
+                     });
+        return completable;
     }
 
-    private void createObject(Promise.Completable<PooledObject<T>> completable) {
-        Atomics.getAndIncrement(createdObjectSize, maxSize);
-        Promise.Completable<PooledObject<T>> tmp = objectFactory.createNew();
-        tmp.thenAccept(completable::succeeded)
-           .exceptionally(e0 -> {
-               Atomics.getAndDecrement(createdObjectSize, 0);
-               completable.failed(e0);
-               return null;
-           });
+    /**
+     * Create an object for the first waiter if a slot is available, e.g., an object is destroyed.
+     */
+    private void createForWaiter() {
+        if (waitingSize.get() > 0 && reserve()) {
+            objectFactory.createNew()
+                         .thenAccept(this::release)
+                         .exceptionally(e -> {
+                             unreserve();
+                             Waiter<T> waiter;
+                             while ((waiter = waiters.poll()) != null) {
+                                 if (waiter.claim()) {
+                                     waitingSize.decrementAndGet();
+                                     cancelTimeout(waiter);
+                                     waiter.completable.completeExceptionally(e);
+                                     break;
+                                 }
+                             }
+                             return null;
+                         });
+        }
     }
 
     private void destroyObject(PooledObject<T> t) {
-        Atomics.getAndDecrement(createdObjectSize, 0);
+        unreserve();
         dispose.destroy(t);
+        createForWaiter();
     }
 
     @Override
     public Promise.Completable<PooledObject<T>> take() {
-        PooledObject<T> t = get();
-        if (t != null) {
-            if (validator.isValid(t)) {
-                Promise.Completable<PooledObject<T>> completable = new Promise.Completable<>();
-                completable.succeeded(t);
-                return completable;
-            } else {
-                destroyObject(t);
-                return createObject();
-            }
-        } else {
-            // the queue is empty
-            int availableSize = maxSize - getCreatedObjectSize();
-            if (availableSize > 0) {
-                return createObject();
-            } else {
-                Promise.Completable<PooledObject<T>> completable = new Promise.Completable<>();
-                service.execute(() -> {
-                    try {
-                        PooledObject<T> r = queue.poll(timeout, TimeUnit.MILLISECONDS);
-                        if (r != null) {
-                            if (r.prepareTake()) {
-                                if (validator.isValid(r)) {
-                                    completable.succeeded(r);
-                                } else {
-                                    destroyObject(r);
-                                    createObject(completable);
-                                }
-                            } else {
-                                completable.failed(new CommonRuntimeException("the pooled object has been used"));
-                            }
-                        } else {
-                            completable.failed(new TimeoutException("take pooled object timeout"));
-                        }
-                    } catch (InterruptedException e) {
-                        completable.failed(e);
+        if (!fair || waitingSize.get() == 0) {
+            PooledObject<T> t = get();
+            if (t != null) {
+                if (validator.isValid(t)) {
+                    Promise.Completable<PooledObject<T>> completable = new Promise.Completable<>();
+                    completable.succeeded(t);
+                    return completable;
+                } else {
+                    unreserve();
+                    dispose.destroy(t);
+                    if (reserve()) {
+                        return createObject();
                     }
-                });
-                return completable;
+                }
+            } else if (reserve()) {
+                return createObject();
             }
         }
+
+        // the pool is exhausted
+        if (waitingSize.get() >= maxWaiters) {
+            Promise.Completable<PooledObject<T>> completable = new Promise.Completable<>();
+            completable.failed(new CommonRuntimeException("the pool waiters exceed the max size " + maxWaiters));
+            return completable;
+        }
+
+        Waiter<T> waiter = new Waiter<>();
+        waiters.offer(waiter);
+        waitingSize.incrementAndGet();
+        waiter.timeoutFuture = timer.schedule(() -> {
+            if (waiter.claim()) {
+                waitingSize.decrementAndGet();
+                waiters.remove(waiter);
+                waiter.completable.completeExceptionally(new TimeoutException("take pooled object timeout"));
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        // the object may be released before the waiter is added to the queue
+        dispatch();
+        return waiter.completable;
     }
 
     @Override
     public void release(PooledObject<T> t) {
-        if (t != null) {
-            if (t.prepareRelease()) {
-                boolean success = queue.offer(t);
-                if (!success) {
-                    // the queue is full
-                    service.execute(() -> {
-                        try {
-                            boolean success0 = queue.offer(t, timeout, TimeUnit.MILLISECONDS);
-                            if (!success0) {
-                                destroyObject(t);
-                            }
-                        } catch (InterruptedException e) {
-                            destroyObject(t);
-                        }
-                    });
+        if (t != null && t.prepareRelease()) {
+            if (waitingSize.get() > 0 && t.prepareTake()) {
+                if (!handOff(t)) {
+                    offer(t);
+                    dispatch();
+                }
+            } else {
+                offer(t);
+                dispatch();
+            }
+        }
+    }
+
+    private void offer(PooledObject<T> t) {
+        t.prepareRelease();
+        queue.offer(t);
+        idleSize.incrementAndGet();
+    }
+
+    /**
+     * Hand the idle objects to the waiters.
+     */
+    private void dispatch() {
+        while (waitingSize.get() > 0) {
+            PooledObject<T> t = get();
+            if (t == null) {
+                return;
+            }
+            if (!handOff(t)) {
+                offer(t);
+            }
+        }
+    }
+
+    /**
+     * Hand the object to the first waiter.
+     *
+     * @param t The taken object.
+     * @return If false, there is no waiter, and the object is not consumed.
+     */
+    private boolean handOff(PooledObject<T> t) {
+        if (!validator.isValid(t)) {
+            destroyObject(t);
+            return true;
+        }
+
+        Waiter<T> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.claim()) {
+                waitingSize.decrementAndGet();
+                cancelTimeout(waiter);
+                if (!waiter.completable.complete(t)) {
+                    // the promise is cancelled by the caller
+                    continue;
                 }
+                long waitTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.startTime);
+                waitCount.incrementAndGet();
+                totalWaitTime.addAndGet(waitTime);
+                LongConsumer listener = waitTimeListener;
+                if (listener != null) {
+                    listener.accept(waitTime);
+                }
+                return true;
             }
         }
+        return false;
+    }
+
+    private void cancelTimeout(Waiter<T> waiter) {
+        Scheduler.Future future = waiter.timeoutFuture;
+        if (future != null) {
+            future.cancel();
+        }
     }
 
     @Override
     public PooledObject<T> get() {
         PooledObject<T> t = queue.poll();
         if (t != null) {
+            idleSize.decrementAndGet();
             if (t.prepareTake()) {
                 return t;
             } else {
                 return null;
             }
         } else {
-            return t;
+            return null;
         }
     }
 
     @Override
     public int size() {
-        return queue.size();
+        return idleSize.get();
     }
 
     @Override
@@ -162,6 +333,63 @@ public class BoundedAsynchronousPool<T> extends AbstractLifeCycle implements Asy
         return createdObjectSize.get();
     }
 
+    /**
+     * Get the number of objects that are taken and not released.
+     *
+     * @return The active object size.
+     */
+    public int getActiveObjectSize() {
+        return Math.max(0, createdObjectSize.get() - idleSize.get());
+    }
+
+    /**
+     * Get the number of callers that are waiting for an object.
+     *
+     * @return The waiting size.
+     */
+    public int getWaitingSize() {
+        return Math.max(0, waitingSize.get());
+    }
+
+    /**
+     * Get the number of callers that have waited for an object and taken it.
+     *
+     * @return The wait count.
+     */
+    public long getWaitCount() {
+        return waitCount.get();
+    }
+
+    /**
+     * Get the total wait time of the callers that have taken an object.
+     *
+     * @return The total wait time, the unit is millisecond.
+     */
+    public long getTotalWaitTime() {
+        return totalWaitTime.get();
+    }
+
+    /**
+     * Set the listener that receives the wait time when a waiting caller takes an object.
+     *
+     * @param waitTimeListener The wait time listener, the unit of the wait time is millisecond.
+     */
+    public void setWaitTimeListener(LongConsumer waitTimeListener) {
+        this.waitTimeListener = waitTimeListener;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getMaxWaiters() {
+        return maxWaiters;
+    }
+
+    public boolean isFair() {
+        return fair;
+    }
+
     @Override
     public boolean isEmpty() {
         return queue.isEmpty();
@@ -178,11 +406,19 @@ public class BoundedAsynchronousPool<T> extends AbstractLifeCycle implements Asy
 
     @Override
     protected void destroy() {
+        Waiter<T> waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.claim()) {
+                waitingSize.decrementAndGet();
+                cancelTimeout(waiter);
+                waiter.completable.completeExceptionally(new CommonRuntimeException("the pool is stopped"));
+            }
+        }
         try {
             PooledObject<T> t;
-            while ((t = queue.poll()) != null) {
-                t.prepareTake();
-                destroyObject(t);
+            while ((t = get()) != null) {
+                unreserve();
+                dispose.destroy(t);
             }
         } catch (Exception e) {
             System.err.println(e.getMessage());
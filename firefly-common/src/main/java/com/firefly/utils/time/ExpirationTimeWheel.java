@@ -0,0 +1,355 @@
+package com.firefly.utils.time;
+
+import com.firefly.utils.lang.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The hashed timing wheel that expires a large number of long-lived items, e.g., the HTTP sessions.
+ * <p>
+ * Every item is added to the wheel only once, and the entry is reused for its whole life. Touching an item does not
+ * touch the wheel, when the deadline of the entry is reached, the expiration handler checks the item again and returns
+ * the remaining time. If the item is still alive, the entry is moved to the slot of the new deadline. So the cost of
+ * touching an item is only updating its last accessed time.
+ * <p>
+ * The worker thread sweeps one slot per tick. The slot is detached from the wheel at once, and the entries are checked
+ * without holding the lock. The rescheduled entries are put back to the wheel in batches to reduce the lock
+ * contention with the threads that add the new entries.
+ *
+ * @author Pengtao Qiu
+ */
+public class ExpirationTimeWheel<T> extends AbstractLifeCycle {
+
+    private static final Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final ExpirationHandler<T> handler;
+    private final Entry<T>[] slots;
+    private final int mask;
+    private final long tickDuration;
+    private final int batchSize;
+    private final String name;
+    private SweepListener sweepListener;
+
+    private long currentTick;
+    private int size;
+    private Thread worker;
+
+    private volatile long expiredCount;
+    private volatile long rescheduledCount;
+    private volatile long sweptCount;
+    private volatile long lastSweepLag;
+
+    /**
+     * Check the item when its deadline is reached.
+     */
+    public interface ExpirationHandler<T> {
+
+        /**
+         * Check the item. If the item is expired, the handler releases it and returns 0.
+         *
+         * @param item The item.
+         * @return The remaining time of the item, the unit is millisecond. If it is greater than 0, the item is
+         * rescheduled, otherwise the item is removed from the wheel.
+         */
+        long check(T item);
+    }
+
+    /**
+     * Receive the statistics after every tick.
+     */
+    public interface SweepListener {
+
+        /**
+         * @param lag     The delay between the tick deadline and the time that the worker thread sweeps the slot,
+         *                the unit is millisecond.
+         * @param swept   The number of entries in the slot.
+         * @param expired The number of expired entries.
+         */
+        void onSweep(long lag, int swept, int expired);
+    }
+
+    /**
+     * Create a timing wheel.
+     *
+     * @param name         The worker thread name.
+     * @param tickDuration The duration of a tick, the unit is millisecond.
+     * @param wheelSize    The number of slots, it is rounded up to a power of 2.
+     * @param batchSize    The number of rescheduled entries that are put back to the wheel under a lock acquisition.
+     * @param handler      The expiration handler.
+     */
+    @SuppressWarnings("unchecked")
+    public ExpirationTimeWheel(String name, long tickDuration, int wheelSize, int batchSize, ExpirationHandler<T> handler) {
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("the tick duration must be greater than 0");
+        }
+        if (wheelSize <= 0 || wheelSize > (1 << 30)) {
+            throw new IllegalArgumentException("the wheel size must be in (0, 2^30]");
+        }
+        int n = 1;
+        while (n < wheelSize) {
+            n <<= 1;
+        }
+        this.name = name;
+        this.slots = new Entry[n];
+        this.mask = n - 1;
+        this.tickDuration = tickDuration;
+        this.batchSize = Math.max(1, batchSize);
+        this.handler = handler;
+    }
+
+    public void setSweepListener(SweepListener sweepListener) {
+        this.sweepListener = sweepListener;
+    }
+
+    /**
+     * Add an item to the wheel.
+     *
+     * @param item  The item.
+     * @param delay The delay of the first check, the unit is millisecond.
+     * @return The entry of the item, it can be used to cancel the expiration.
+     */
+    public Entry<T> add(T item, long delay) {
+        Entry<T> entry = new Entry<>(this, item);
+        synchronized (this) {
+            link(entry, delay);
+        }
+        return entry;
+    }
+
+    private void link(Entry<T> entry, long delay) {
+        long ticks = Math.max(1L, (delay + tickDuration - 1) / tickDuration);
+        entry.deadlineTick = currentTick + ticks;
+        int index = (int) (entry.deadlineTick & mask);
+        Entry<T> head = slots[index];
+        entry.prev = null;
+        entry.next = head;
+        if (head != null) {
+            head.prev = entry;
+        }
+        slots[index] = entry;
+        entry.index = index;
+        size++;
+    }
+
+    private synchronized boolean cancel(Entry<T> entry) {
+        if (entry.cancelled) {
+            return false;
+        }
+        entry.cancelled = true;
+        if (entry.index >= 0) {
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                slots[entry.index] = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = entry.next = null;
+            entry.index = -1;
+            size--;
+        }
+        return true;
+    }
+
+    /**
+     * Detach the slot of the tick from the wheel.
+     */
+    private synchronized Entry<T> detach(long tick) {
+        currentTick = tick;
+        int index = (int) (tick & mask);
+        Entry<T> head = slots[index];
+        slots[index] = null;
+        for (Entry<T> e = head; e != null; e = e.next) {
+            e.index = -1;
+            size--;
+        }
+        return head;
+    }
+
+    private synchronized void relink(Entry<T> head) {
+        Entry<T> e = head;
+        while (e != null) {
+            Entry<T> next = e.nextPending;
+            e.nextPending = null;
+            if (!e.cancelled) {
+                if (e.remain > 0) {
+                    link(e, e.remain);
+                } else {
+                    link(e, (e.deadlineTick - currentTick) * tickDuration);
+                }
+            }
+            e = next;
+        }
+    }
+
+    private void sweep(long tick, long lag) {
+        Entry<T> e = detach(tick);
+        Entry<T> pending = null;
+        int pendingSize = 0;
+        int swept = 0;
+        int expired = 0;
+        int rescheduled = 0;
+
+        while (e != null) {
+            Entry<T> next = e.next;
+            e.next = e.prev = null;
+            swept++;
+            if (!e.cancelled) {
+                if (e.deadlineTick > tick) {
+                    // the deadline is in the later rounds
+                    e.remain = 0;
+                } else {
+                    long remain;
+                    try {
+                        remain = handler.check(e.item);
+                    } catch (Throwable t) {
+                        log.error("check the expiration exception", t);
+                        remain = 0;
+                    }
+                    if (remain > 0) {
+                        e.remain = remain;
+                        rescheduled++;
+                    } else {
+                        e.cancelled = true;
+                        expired++;
+                    }
+                }
+
+                if (!e.cancelled) {
+                    e.nextPending = pending;
+                    pending = e;
+                    if (++pendingSize >= batchSize) {
+                        relink(pending);
+                        pending = null;
+                        pendingSize = 0;
+                    }
+                }
+            }
+            e = next;
+        }
+        if (pending != null) {
+            relink(pending);
+        }
+
+        sweptCount += swept;
+        expiredCount += expired;
+        rescheduledCount += rescheduled;
+        lastSweepLag = lag;
+        SweepListener listener = sweepListener;
+        if (listener != null) {
+            listener.onSweep(lag, swept, expired);
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        @Override
+        public void run() {
+            long startTime = System.nanoTime();
+            long tickNanos = TimeUnit.MILLISECONDS.toNanos(tickDuration);
+            long tick = 0;
+            while (start) {
+                tick++;
+                long deadline = startTime + tick * tickNanos;
+                long now;
+                while ((now = System.nanoTime()) < deadline) {
+                    LockSupport.parkNanos(ExpirationTimeWheel.this, deadline - now);
+                    if (!start) {
+                        return;
+                    }
+                }
+                sweep(tick, TimeUnit.NANOSECONDS.toMillis(now - deadline));
+            }
+        }
+    }
+
+    /**
+     * The number of entries in the wheel. The entries that are being swept are not counted.
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    public long getTickDuration() {
+        return tickDuration;
+    }
+
+    public int getWheelSize() {
+        return slots.length;
+    }
+
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    public long getRescheduledCount() {
+        return rescheduledCount;
+    }
+
+    public long getSweptCount() {
+        return sweptCount;
+    }
+
+    /**
+     * The delay between the deadline of the last tick and the time that the worker thread swept the slot.
+     *
+     * @return The last sweep lag, the unit is millisecond.
+     */
+    public long getLastSweepLag() {
+        return lastSweepLag;
+    }
+
+    @Override
+    protected void init() {
+        start = true;
+        worker = new Thread(new Worker(), name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @Override
+    protected void destroy() {
+        start = false;
+        LockSupport.unpark(worker);
+    }
+
+    public static class Entry<T> {
+        private final ExpirationTimeWheel<T> wheel;
+        private final T item;
+        private Entry<T> next;
+        private Entry<T> prev;
+        private Entry<T> nextPending;
+        private int index = -1;
+        private long deadlineTick;
+        private long remain;
+        private volatile boolean cancelled;
+
+        private Entry(ExpirationTimeWheel<T> wheel, T item) {
+            this.wheel = wheel;
+            this.item = item;
+        }
+
+        public T getItem() {
+            return item;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Remove the entry from the wheel.
+         *
+         * @return If false, the entry has been cancelled or expired.
+         */
+        public boolean cancel() {
+            return wheel.cancel(this);
+        }
+    }
+}
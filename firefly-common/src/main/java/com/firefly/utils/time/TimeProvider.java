@@ -12,7 +12,8 @@ public class TimeProvider extends AbstractLifeCycle {
     }
 
     public long currentTimeMillis() {
-        return current;
+        // the stopped provider does not freeze the time, the timestamps are still used to check the idle timeout
+        return start ? current : System.currentTimeMillis();
     }
 
     @Override
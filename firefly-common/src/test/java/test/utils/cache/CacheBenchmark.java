@@ -0,0 +1,128 @@
+package test.utils.cache;
+
+import com.firefly.utils.cache.Cache;
+import com.firefly.utils.cache.CacheBuilder;
+import com.firefly.utils.collection.ConcurrentLinkedHashMap;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * Compare the TinyLFUCache with the segment-locked ConcurrentLinkedHashMap. The keys follow a Zipf distribution, and a
+ * part of the requests are the one-hit keys of a scan. The hit rate is measured in one thread. The throughput is
+ * measured in the multiple threads, the "read" load only reads the cache, and the "read-through" load puts the value
+ * when the read misses.
+ *
+ * @author Pengtao Qiu
+ */
+public class CacheBenchmark {
+
+    private static final int ITEMS = 100_000;
+    private static final int CACHE_SIZE = 2_000;
+    private static final int TRACE_SIZE = 1 << 21;
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors() * 2;
+        Integer[] trace = createTrace();
+
+        for (int i = 0; i < 3; i++) {
+            System.out.println("round " + i);
+            hitRate("ConcurrentLinkedHashMap", createConcurrentLinkedHashMap(true), trace);
+            hitRate("TinyLFUCache", createTinyLFUCache(true), trace);
+            throughput("ConcurrentLinkedHashMap read", createConcurrentLinkedHashMap(false), trace, threads);
+            throughput("TinyLFUCache read", createTinyLFUCache(false), trace, threads);
+            throughput("ConcurrentLinkedHashMap read-through", createConcurrentLinkedHashMap(true), trace, threads);
+            throughput("TinyLFUCache read-through", createTinyLFUCache(true), trace, threads);
+        }
+        System.exit(0);
+    }
+
+    private static Function<Integer, Integer> createConcurrentLinkedHashMap(boolean readThrough) {
+        ConcurrentLinkedHashMap<Integer, Integer> map = new ConcurrentLinkedHashMap<>(true, CACHE_SIZE);
+        populate(map::put);
+        return key -> {
+            Integer value = map.get(key);
+            if (value == null && readThrough) {
+                map.put(key, key);
+            }
+            return value;
+        };
+    }
+
+    private static Function<Integer, Integer> createTinyLFUCache(boolean readThrough) {
+        Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>newBuilder().maximumSize(CACHE_SIZE).build();
+        populate(cache::put);
+        return key -> {
+            Integer value = cache.get(key);
+            if (value == null && readThrough) {
+                cache.put(key, key);
+            }
+            return value;
+        };
+    }
+
+    private static void populate(BiConsumer<Integer, Integer> put) {
+        for (int i = 0; i < CACHE_SIZE; i++) {
+            put.accept(i, i);
+        }
+    }
+
+    private static void hitRate(String name, Function<Integer, Integer> cache, Integer[] trace) {
+        int hits = 0;
+        for (Integer key : trace) {
+            if (cache.apply(key) != null) {
+                hits++;
+            }
+        }
+        System.out.println(String.format("%s hit rate: %.2f%%", name, hits * 100.0 / trace.length));
+    }
+
+    private static void throughput(String name, Function<Integer, Integer> cache, Integer[] trace, int threads)
+            throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int i = 0; i < threads; i++) {
+            int offset = i * (TRACE_SIZE / threads);
+            new Thread(() -> {
+                for (int j = 0; j < TRACE_SIZE; j++) {
+                    cache.apply(trace[(offset + j) & (TRACE_SIZE - 1)]);
+                }
+                latch.countDown();
+            }).start();
+        }
+        latch.await();
+        long time = System.nanoTime() - start;
+        long ops = (long) TRACE_SIZE * threads;
+        System.out.println(String.format("%s throughput: %d threads, %.2f M ops/s", name, threads, ops * 1000.0 / time));
+    }
+
+    /**
+     * Create the trace of the Zipf distributed keys, one of every 4 requests is a sequential scan of the unique keys.
+     *
+     * @return The trace.
+     */
+    private static Integer[] createTrace() {
+        double[] cdf = new double[ITEMS];
+        double sum = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            sum += 1.0 / (i + 1);
+            cdf[i] = sum;
+        }
+        Random random = new Random(42);
+        Integer[] trace = new Integer[TRACE_SIZE];
+        int scanKey = ITEMS;
+        for (int i = 0; i < TRACE_SIZE; i++) {
+            if (i % 4 == 3) {
+                trace[i] = scanKey++;
+            } else {
+                double r = random.nextDouble() * sum;
+                int index = Arrays.binarySearch(cdf, r);
+                trace[i] = index >= 0 ? index : -index - 1;
+            }
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,208 @@
+package test.utils.cache;
+
+import com.firefly.utils.cache.Cache;
+import com.firefly.utils.cache.CacheBuilder;
+import com.firefly.utils.cache.CacheStats;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestTinyLFUCache {
+
+    @Test
+    public void testMaximumSize() {
+        AtomicInteger evicted = new AtomicInteger();
+        Cache<Integer, String> cache = CacheBuilder.<Integer, String>newBuilder()
+                .maximumSize(100)
+                .evictionListener((key, value) -> evicted.incrementAndGet())
+                .build();
+        for (int i = 0; i < 1000; i++) {
+            cache.put(i, "v" + i);
+        }
+        cache.cleanUp();
+        Assert.assertThat(cache.size(), is(100L));
+        Assert.assertThat(cache.weightedSize(), is(100L));
+        Assert.assertThat(cache.stats().getEvictionCount(), is(900L));
+        Assert.assertThat(evicted.get(), is(900));
+    }
+
+    @Test
+    public void testScanResistance() {
+        Cache<String, String> cache = CacheBuilder.<String, String>newBuilder().maximumSize(100).build();
+        for (int j = 0; j < 10; j++) {
+            for (int i = 0; i < 50; i++) {
+                cache.get("hot" + i, key -> "v");
+            }
+        }
+        cache.cleanUp();
+
+        // the one-hit keys do not flush the popular keys, a LRU cache loses them between their accesses
+        for (int i = 0; i < 10_000; i++) {
+            cache.get("scan" + i, key -> "v");
+            if (i % 20 == 0) {
+                cache.get("hot" + (i / 20) % 50);
+            }
+        }
+        cache.cleanUp();
+        Assert.assertThat(cache.size(), is(100L));
+        for (int i = 0; i < 50; i++) {
+            Assert.assertThat(cache.get("hot" + i), is("v"));
+        }
+    }
+
+    @Test
+    public void testMaximumWeight() {
+        Cache<Integer, String> cache = CacheBuilder.<Integer, String>newBuilder()
+                .maximumWeight(100)
+                .weigher((key, value) -> value.length())
+                .build();
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, "abcdefghij");
+        }
+        cache.cleanUp();
+        Assert.assertThat(cache.weightedSize(), is(100L));
+        Assert.assertThat(cache.size(), is(10L));
+
+        // the entry that is heavier than the maximum is not cached
+        cache.put(1000, new String(new char[101]));
+        cache.cleanUp();
+        Assert.assertThat(cache.get(1000), nullValue());
+        Assert.assertThat(cache.weightedSize(), lessThanOrEqualTo(100L));
+
+        // the weight is updated when the value is replaced
+        Integer key = 99;
+        cache.put(key, "abcdefghij");
+        cache.put(key, "a");
+        cache.cleanUp();
+        Assert.assertThat(cache.get(key), is("a"));
+        Assert.assertThat(cache.weightedSize(), lessThanOrEqualTo(91L));
+    }
+
+    @Test
+    public void testExpireAfterWrite() {
+        AtomicLong time = new AtomicLong();
+        Cache<String, String> cache = CacheBuilder.<String, String>newBuilder()
+                .maximumSize(100)
+                .expireAfterWrite(1, TimeUnit.SECONDS)
+                .ticker(time::get)
+                .build();
+        cache.put("a", "1");
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(500));
+        Assert.assertThat(cache.get("a"), is("1"));
+        cache.put("b", "2");
+        time.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+        Assert.assertThat(cache.get("a"), nullValue());
+        Assert.assertThat(cache.get("b"), is("2"));
+
+        cache.cleanUp();
+        Assert.assertThat(cache.size(), is(1L));
+        Assert.assertThat(cache.stats().getEvictionCount(), is(1L));
+
+        time.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        Assert.assertThat(cache.get("b", key -> "3"), is("3"));
+        cache.cleanUp();
+        Assert.assertThat(cache.size(), is(1L));
+        Assert.assertThat(cache.stats().getEvictionCount(), is(2L));
+    }
+
+    @Test
+    public void testExpireAfterAccess() {
+        AtomicLong time = new AtomicLong();
+        Cache<String, String> cache = CacheBuilder.<String, String>newBuilder()
+                .maximumSize(100)
+                .expireAfterAccess(1, TimeUnit.SECONDS)
+                .ticker(time::get)
+                .build();
+        cache.put("a", "1");
+        cache.put("b", "2");
+        for (int i = 0; i < 3; i++) {
+            time.addAndGet(TimeUnit.MILLISECONDS.toNanos(600));
+            Assert.assertThat(cache.get("a"), is("1"));
+        }
+        Assert.assertThat(cache.get("b"), nullValue());
+        cache.cleanUp();
+        Assert.assertThat(cache.size(), is(1L));
+    }
+
+    @Test
+    public void testStats() {
+        Cache<String, String> cache = CacheBuilder.<String, String>newBuilder().maximumSize(10).recordStats().build();
+        Assert.assertThat(cache.get("a", key -> "1"), is("1"));
+        Assert.assertThat(cache.get("a", key -> "2"), is("1"));
+        Assert.assertThat(cache.get("b"), nullValue());
+        Assert.assertThat(cache.put("a", "3"), is("1"));
+        Assert.assertThat(cache.remove("a"), is("3"));
+        Assert.assertThat(cache.get("a"), nullValue());
+
+        CacheStats stats = cache.stats();
+        Assert.assertThat(stats.getHitCount(), is(1L));
+        Assert.assertThat(stats.getMissCount(), is(3L));
+        Assert.assertThat(stats.getEvictionCount(), is(0L));
+        Assert.assertThat(stats.getHitRate(), is(0.25));
+        Assert.assertThat(cache.size(), is(0L));
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        int threads = 8;
+        int maximum = 500;
+        Cache<Integer, String> cache = CacheBuilder.<Integer, String>newBuilder()
+                .maximumWeight(maximum)
+                .weigher((key, value) -> value.length())
+                .build();
+        CountDownLatch latch = new CountDownLatch(threads);
+        List<Throwable> errors = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    for (int j = 0; j < 100_000; j++) {
+                        Integer key = random.nextInt(1000);
+                        switch (random.nextInt(10)) {
+                            case 0:
+                                cache.put(key, new String(new char[1 + key % 5]));
+                                break;
+                            case 1:
+                                cache.remove(key);
+                                break;
+                            default:
+                                String value = cache.get(key, k -> new String(new char[1 + k % 5]));
+                                Assert.assertThat(value.length(), is(1 + key % 5));
+                        }
+                    }
+                } catch (Throwable t) {
+                    synchronized (errors) {
+                        errors.add(t);
+                    }
+                } finally {
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        Assert.assertThat(errors.isEmpty(), is(true));
+
+        cache.cleanUp();
+        long weight = 0;
+        for (int i = 0; i < 1000; i++) {
+            String value = cache.get(i);
+            if (value != null) {
+                weight += value.length();
+            }
+        }
+        Assert.assertThat(cache.weightedSize(), is(weight));
+        Assert.assertThat(cache.weightedSize(), lessThanOrEqualTo((long) maximum));
+    }
+}
@@ -0,0 +1,52 @@
+package test.utils.io;
+
+import com.firefly.utils.io.DeflaterPool;
+import com.firefly.utils.io.InflaterPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestCompressionPool {
+
+    @Test
+    public void test() throws Exception {
+        DeflaterPool deflaterPool = new DeflaterPool(1, Deflater.BEST_SPEED, false);
+        InflaterPool inflaterPool = new InflaterPool(1, false);
+        byte[] data = "hello hello hello hello".getBytes(StandardCharsets.UTF_8);
+
+        for (int i = 0; i < 3; i++) {
+            Deflater deflater = deflaterPool.acquire();
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] compressed = new byte[128];
+            int len = deflater.deflate(compressed);
+
+            Inflater inflater = inflaterPool.acquire();
+            inflater.setInput(compressed, 0, len);
+            byte[] result = new byte[data.length];
+            Assert.assertThat(inflater.inflate(result), is(data.length));
+            Assert.assertThat(result, is(data));
+
+            deflaterPool.release(deflater);
+            inflaterPool.release(inflater);
+            Assert.assertThat(deflaterPool.size(), is(1));
+            Assert.assertThat(inflaterPool.size(), is(1));
+        }
+
+        Deflater d1 = deflaterPool.acquire();
+        Deflater d2 = deflaterPool.acquire();
+        deflaterPool.release(d1);
+        deflaterPool.release(d2);
+        Assert.assertThat(deflaterPool.size(), is(1));
+        deflaterPool.clear();
+        Assert.assertThat(deflaterPool.size(), is(0));
+    }
+}
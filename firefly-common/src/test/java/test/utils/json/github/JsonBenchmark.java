@@ -8,6 +8,7 @@ import com.firefly.utils.function.Action1;
 import com.firefly.utils.function.Func1;
 import com.firefly.utils.json.Json;
 import com.firefly.utils.json.JsonObject;
+import com.firefly.utils.json.compiler.JavassistCodecCompiler;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -67,6 +68,43 @@ public class JsonBenchmark {
         benchmark(times);
         System.out.println("benchmark end");
         System.out.println("=======================");
+        System.out.println();
+        System.out.println();
+
+        System.out.println("codec benchmark start");
+        codecBenchmark(times);
+        System.out.println("codec benchmark end");
+        System.out.println("=======================");
+    }
+
+    /**
+     * Compare the generated codec with the reflective codec of firefly json.
+     *
+     * @param times The serializing and parsing times.
+     */
+    public static void codecBenchmark(final int times) {
+        long generatedSerializer, generatedParser;
+        generatedSerializer = fireflyJsonSerializerTest(times);
+        generatedParser = fireflyJsonParserTest(times);
+
+        long reflectionSerializer, reflectionParser;
+        JavassistCodecCompiler.setEnabled(false);
+        try {
+            reflectionSerializer = serializerTest(times, "firefly-json-reflection", Json::toJson);
+            reflectionParser = parserTest(times, "firefly-json-reflection", json -> Json.toObject(json, MediaContent.class));
+        } finally {
+            JavassistCodecCompiler.setEnabled(true);
+        }
+
+        System.out.println();
+        System.out.println("parsing (object bind) time:");
+        System.out.println("firefly generated codec: " + generatedParser + "ms");
+        System.out.println("firefly reflection: " + reflectionParser + "ms");
+        System.out.println();
+        System.out.println("serializing time:");
+        System.out.println("firefly generated codec: " + generatedSerializer + "ms");
+        System.out.println("firefly reflection: " + reflectionSerializer + "ms");
+        System.out.println();
     }
 
     public static void analyze(final int times) {
@@ -3,6 +3,7 @@ package test.utils.json.parser;
 import com.firefly.utils.json.Json;
 import com.firefly.utils.json.JsonArray;
 import com.firefly.utils.json.JsonObject;
+import com.firefly.utils.json.compiler.JavassistCodecCompiler;
 import com.firefly.utils.json.io.JsonStringWriter;
 import com.firefly.utils.lang.GenericTypeReference;
 import com.firefly.utils.lang.Pair;
@@ -12,12 +13,15 @@ import org.junit.Test;
 import test.utils.json.*;
 import test.utils.json.BookDemo.TestBook;
 import test.utils.json.BookDemo.TestBook2;
+import test.utils.json.github.Image;
 import test.utils.json.github.MediaContent;
 import test.utils.json.github.Player;
 import test.utils.json.github.Size;
 
+import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
@@ -659,4 +663,72 @@ public class TestParser {
         Assert.assertThat(userBind.getName(), is("Pengtao Qiu"));
     }
 
+    @Test
+    public void testBytes() {
+        SimpleObj obj = new SimpleObj();
+        obj.setId(33);
+        obj.setAge(-12);
+        obj.setName("Pengtao \"Qiu\" 邱鹏滔 😀");
+        obj.setDate(Long.MIN_VALUE);
+        obj.setHeight(1.75);
+        obj.setType((short) 2);
+
+        byte[] bytes = Json.toJsonBytes(obj);
+        Assert.assertThat(new String(bytes, StandardCharsets.UTF_8), is(Json.toJson(obj)));
+
+        SimpleObj obj2 = Json.toObject(bytes, SimpleObj.class);
+        Assert.assertThat(obj2.getId(), is(33));
+        Assert.assertThat(obj2.getAge(), is(-12));
+        Assert.assertThat(obj2.getName(), is(obj.getName()));
+        Assert.assertThat(obj2.getDate(), is(Long.MIN_VALUE));
+        Assert.assertThat(obj2.getHeight(), is(1.75));
+        Assert.assertThat(obj2.getType(), is((short) 2));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Json.writeJson(Arrays.asList(obj, obj2), out);
+        List<SimpleObj> list = Json.toObject(out.toByteArray(), new GenericTypeReference<List<SimpleObj>>() {
+        });
+        Assert.assertThat(list.size(), is(2));
+        Assert.assertThat(list.get(1).getName(), is(obj.getName()));
+    }
+
+    public static class PublicFieldObj {
+        public int id;
+        public String name;
+        public List<Integer> values;
+    }
+
+    @Test
+    public void testGeneratedCodec() {
+        MediaContent record = MediaContent.createRecord();
+        String json = Json.toJson(record);
+        byte[] bytes = Json.toJsonBytes(record);
+        JavassistCodecCompiler.setEnabled(false);
+        try {
+            Assert.assertThat(Json.toJson(record), is(json));
+            Assert.assertThat(Json.toJsonBytes(record), is(bytes));
+        } finally {
+            JavassistCodecCompiler.setEnabled(true);
+        }
+        Assert.assertThat(Json.toJson(Json.toObject(json, MediaContent.class)), is(json));
+
+        // the fields are out of order and unknown
+        Image image = Json.toObject("{\"width\":3,\"unknown\":[1,{\"a\":2}],\"uri\":\"u\",\"height\":4,\"w\":null}", Image.class);
+        Assert.assertThat(image.getWidth(), is(3));
+        Assert.assertThat(image.getHeight(), is(4));
+        Assert.assertThat(image.getUri(), is("u"));
+        Assert.assertThat(image.getTitle(), nullValue());
+
+        PublicFieldObj obj = new PublicFieldObj();
+        obj.id = 10;
+        obj.name = "public field";
+        obj.values = Arrays.asList(1, 2);
+        json = Json.toJson(obj);
+        Assert.assertThat(json, is("{\"id\":10,\"name\":\"public field\",\"values\":[1,2]}"));
+        PublicFieldObj obj2 = Json.toObject(json, PublicFieldObj.class);
+        Assert.assertThat(obj2.id, is(10));
+        Assert.assertThat(obj2.name, is("public field"));
+        Assert.assertThat(obj2.values, is(Arrays.asList(1, 2)));
+    }
+
 }
@@ -0,0 +1,76 @@
+package test.utils.json.reader;
+
+import com.firefly.utils.json.Json;
+import com.firefly.utils.json.JsonObject;
+import com.firefly.utils.json.JsonReader;
+import com.firefly.utils.json.io.JsonBytesReader;
+import com.firefly.utils.json.io.JsonBytesWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestBytesReader {
+
+    @Test
+    public void testReadField() throws IOException {
+        JsonReader reader = new JsonBytesReader("  \"testField\" :".getBytes(StandardCharsets.UTF_8));
+        Assert.assertThat(reader.readField("testField".toCharArray()), nullValue());
+        Assert.assertThat(reader.isColon(), is(true));
+        reader.close();
+
+        reader = new JsonBytesReader("  \"测试字段\":".getBytes(StandardCharsets.UTF_8));
+        Assert.assertThat(new String(reader.readField("test".toCharArray())), is("测试字段"));
+        Assert.assertThat(reader.isColon(), is(true));
+        reader.close();
+    }
+
+    @Test
+    public void testReadString() throws IOException {
+        String json = "[\"hello 世界 😀\", \"a\\\"b\\n\\u4e2dc\"]";
+        JsonReader reader = new JsonBytesReader(json.getBytes(StandardCharsets.UTF_8));
+        Assert.assertThat(reader.isArray(), is(true));
+        Assert.assertThat(reader.readString(), is("hello 世界 😀"));
+        Assert.assertThat(reader.isComma(), is(true));
+        Assert.assertThat(reader.readString(), is("a\"b\n中c"));
+        reader.close();
+    }
+
+    @Test
+    public void testBuffers() {
+        byte[] bytes = "{\"name\":\"中文\",\"skip\":[1,{\"a\":null}],\"num\":[1,2,3]}".getBytes(StandardCharsets.UTF_8);
+        List<ByteBuffer> buffers = Arrays.asList(
+                ByteBuffer.wrap(bytes, 0, 10).slice(),
+                ByteBuffer.wrap(bytes, 10, bytes.length - 10).slice());
+        JsonObject object = Json.toJsonObject(JsonBytesReader.create(buffers));
+        Assert.assertThat(object.getString("name"), is("中文"));
+        Assert.assertThat(object.getJsonArray("num").size(), is(3));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes).flip();
+        object = Json.toJsonObject(JsonBytesReader.create(direct));
+        Assert.assertThat(object.getString("name"), is("中文"));
+        Assert.assertThat(direct.remaining(), is(bytes.length));
+    }
+
+    @Test
+    public void testWriter() {
+        try (JsonBytesWriter writer = new JsonBytesWriter(4)) {
+            writer.writeIntArray(new int[]{Integer.MIN_VALUE, -1, 0, 100});
+            writer.write(',');
+            writer.writeLong(Long.MAX_VALUE);
+            writer.write(",😀");
+            Assert.assertThat(new String(writer.toByteArray(), StandardCharsets.UTF_8),
+                    is("[-2147483648,-1,0,100],9223372036854775807,😀"));
+        }
+    }
+}
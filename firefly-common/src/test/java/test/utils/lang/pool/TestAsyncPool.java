@@ -179,6 +179,78 @@ public class TestAsyncPool {
         pool.stop();
     }
 
+    @Test
+    public void testWaiter() throws Exception {
+        AtomicInteger i = new AtomicInteger();
+        BoundedAsynchronousPool<TestPooledObject> pool = new BoundedAsynchronousPool<>(1, 200L, 2, true, () -> {
+            Promise.Completable<PooledObject<TestPooledObject>> completable = new Promise.Completable<>();
+            completable.succeeded(new PooledObject<>(new TestPooledObject(i.getAndIncrement())));
+            return completable;
+        }, (o) -> !o.getObject().closed, (o) -> o.getObject().closed = true);
+        List<Long> waitTimes = new CopyOnWriteArrayList<>();
+        pool.setWaitTimeListener(waitTimes::add);
+
+        PooledObject<TestPooledObject> o = pool.take().get();
+        Assert.assertThat(pool.getActiveObjectSize(), is(1));
+        Promise.Completable<PooledObject<TestPooledObject>> w1 = pool.take();
+        Promise.Completable<PooledObject<TestPooledObject>> w2 = pool.take();
+        Assert.assertThat(pool.getWaitingSize(), is(2));
+
+        // the max waiters is exceeded
+        Promise.Completable<PooledObject<TestPooledObject>> w3 = pool.take();
+        Assert.assertThat(w3.isCompletedExceptionally(), is(true));
+
+        // the released object is handed to the first waiter directly
+        pool.release(o);
+        Assert.assertThat(w1.get(), is(o));
+        Assert.assertThat(w2.isDone(), is(false));
+        Assert.assertThat(pool.size(), is(0));
+        Assert.assertThat(pool.getWaitingSize(), is(1));
+        Assert.assertThat(pool.getWaitCount(), is(1L));
+        Assert.assertThat(waitTimes.size(), is(1));
+
+        try {
+            w2.get(2, TimeUnit.SECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertThat(e.getCause(), instanceOf(TimeoutException.class));
+        }
+        Assert.assertThat(pool.getWaitingSize(), is(0));
+
+        // the invalid object is replaced by a new object for the waiter
+        Promise.Completable<PooledObject<TestPooledObject>> w4 = pool.take();
+        o.getObject().closed = true;
+        pool.release(o);
+        Assert.assertThat(w4.get(2, TimeUnit.SECONDS).getObject().i, is(1));
+        Assert.assertThat(pool.getCreatedObjectSize(), is(1));
+        pool.stop();
+    }
+
+    @Test
+    public void testFairness() throws Exception {
+        BoundedAsynchronousPool<TestPooledObject> fairPool = new BoundedAsynchronousPool<>(1, 1000L, 8, true, () -> {
+            Promise.Completable<PooledObject<TestPooledObject>> completable = new Promise.Completable<>();
+            completable.succeeded(new PooledObject<>(new TestPooledObject(0)));
+            return completable;
+        }, (o) -> true, (o) -> {
+        });
+        PooledObject<TestPooledObject> o = fairPool.take().get();
+        Promise.Completable<PooledObject<TestPooledObject>> w1 = fairPool.take();
+        Promise.Completable<PooledObject<TestPooledObject>> w2 = fairPool.take();
+        fairPool.release(o);
+        fairPool.release(w1.get());
+        Assert.assertThat(w2.get(), is(o));
+        fairPool.release(o);
+
+        Assert.assertThat(fairPool.size(), is(1));
+        Assert.assertThat(fairPool.take().get(), is(o));
+        Promise.Completable<PooledObject<TestPooledObject>> w3 = fairPool.take();
+        fairPool.release(o);
+        Assert.assertThat(fairPool.size(), is(0));
+        Assert.assertThat(w3.get(), is(o));
+        fairPool.stop();
+    }
+
     private void takeObjectTest(BoundedAsynchronousPool<TestPooledObject> pool, int number) {
         Phaser phaser = new Phaser(number + 1);
         for (int j = 0; j < number; j++) {
@@ -0,0 +1,111 @@
+package test.utils.time;
+
+import com.firefly.utils.time.ExpirationTimeWheel;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestExpirationTimeWheel {
+
+    private static class Item {
+        final int id;
+        final long maxInactive;
+        volatile long lastAccessed = System.currentTimeMillis();
+
+        Item(int id, long maxInactive) {
+            this.id = id;
+            this.maxInactive = maxInactive;
+        }
+
+        long remain() {
+            return maxInactive - (System.currentTimeMillis() - lastAccessed);
+        }
+    }
+
+    private static void waitExpiredCount(ExpirationTimeWheel<?> wheel, long count) throws InterruptedException {
+        // the statistics are updated after the slot is swept
+        for (int i = 0; i < 100 && wheel.getExpiredCount() < count; i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        int count = 100;
+        CountDownLatch latch = new CountDownLatch(count);
+        ConcurrentHashMap<Integer, Item> store = new ConcurrentHashMap<>();
+        ExpirationTimeWheel<Item> wheel = new ExpirationTimeWheel<>("test wheel", 10, 8, 16, item -> {
+            long remain = item.remain();
+            if (remain > 0) {
+                return remain;
+            } else {
+                store.remove(item.id);
+                latch.countDown();
+                return 0;
+            }
+        });
+        AtomicLong sweeps = new AtomicLong();
+        wheel.setSweepListener((lag, swept, expired) -> sweeps.incrementAndGet());
+        wheel.start();
+        try {
+            for (int i = 0; i < count; i++) {
+                Item item = new Item(i, 50 + i * 2); // some items stay in the wheel for several rounds
+                store.put(i, item);
+                wheel.add(item, i % 3 == 0 ? 0 : item.maxInactive);
+            }
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertThat(store.isEmpty(), is(true));
+            waitExpiredCount(wheel, count);
+            Assert.assertThat(wheel.getExpiredCount(), is((long) count));
+            Assert.assertThat(wheel.size(), is(0));
+            Assert.assertTrue(wheel.getRescheduledCount() > 0);
+            Assert.assertTrue(sweeps.get() > 0);
+        } finally {
+            wheel.stop();
+        }
+    }
+
+    @Test
+    public void testTouchAndCancel() throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        ExpirationTimeWheel<Item> wheel = new ExpirationTimeWheel<>("test wheel", 10, 16, 4, item -> {
+            long remain = item.remain();
+            if (remain <= 0) {
+                latch.countDown();
+            }
+            return remain;
+        });
+        wheel.start();
+        try {
+            Item touched = new Item(1, 100);
+            wheel.add(touched, touched.maxInactive);
+            Item cancelled = new Item(2, 50);
+            ExpirationTimeWheel.Entry<Item> entry = wheel.add(cancelled, cancelled.maxInactive);
+            Assert.assertThat(wheel.size(), is(2));
+            Assert.assertThat(entry.cancel(), is(true));
+            Assert.assertThat(entry.cancel(), is(false));
+            Assert.assertThat(wheel.size(), is(1));
+
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 3; i++) {
+                Thread.sleep(60);
+                touched.lastAccessed = System.currentTimeMillis();
+            }
+            Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+            Assert.assertTrue(System.currentTimeMillis() - start >= 280);
+            waitExpiredCount(wheel, 1);
+            Assert.assertThat(wheel.getExpiredCount(), is(1L));
+        } finally {
+            wheel.stop();
+        }
+    }
+}
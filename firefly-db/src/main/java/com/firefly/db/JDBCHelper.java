@@ -10,6 +10,7 @@ import com.firefly.utils.ReflectUtils;
 import com.firefly.utils.ServiceUtils;
 import com.firefly.utils.classproxy.JavassistClassProxyFactory;
 import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.function.Action1;
 import com.firefly.utils.function.Func2;
 import com.firefly.utils.lang.AbstractLifeCycle;
 import org.apache.commons.dbutils.BasicRowProcessor;
@@ -24,20 +25,33 @@ import org.slf4j.LoggerFactory;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedTransferQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class JDBCHelper extends AbstractLifeCycle {
 
     private final static Logger log = LoggerFactory.getLogger("firefly-system");
 
+    public static final int DEFAULT_FETCH_SIZE = 1000;
+
     private final DataSource dataSource;
     private final QueryRunner runner;
+    // the runner without the monitor proxy, it fills the statements of the streaming queries
+    private final QueryRunner statementRunner;
     private final DefaultBeanProcessor defaultBeanProcessor;
     private final ExecutorService executorService;
     private final boolean monitorEnable;
@@ -70,6 +84,7 @@ public class JDBCHelper extends AbstractLifeCycle {
         }
 
         this.dataSource = dataSource;
+        this.statementRunner = runner;
         if (monitorEnable) {
             this.runner = getMonitorQueryRunner(runner);
         } else {
@@ -261,6 +276,225 @@ public class JDBCHelper extends AbstractLifeCycle {
         }
     }
 
+    public <T> Stream<T> queryForStream(String sql, Class<T> t, Object... params) {
+        return this.queryForStream(sql, t, defaultBeanProcessor, DEFAULT_FETCH_SIZE, params);
+    }
+
+    /**
+     * Query the rows lazily. The rows are fetched from the database in batches of the fetch size and they are mapped
+     * to the beans when the stream consumes them. The stream holds the connection until it is closed, so it must be
+     * used in the try-with-resources statement. The connection runs the query in a read-only transaction, because
+     * some drivers, e.g., PostgreSQL, fetch rows incrementally only if the auto-commit is off. The auto-commit and
+     * read-only modes of the connection are restored when the stream is closed.
+     *
+     * @param sql           The query SQL.
+     * @param t             The bean type.
+     * @param beanProcessor The bean processor that maps the row to the bean.
+     * @param fetchSize     The number of rows that are fetched from the database in one round trip. Some drivers need
+     *                      the vendor specific value to fetch rows incrementally, e.g., Integer.MIN_VALUE for MySQL.
+     * @param params        The SQL parameters.
+     * @param <T>           The bean type.
+     * @return The stream of the beans. Closing the stream closes the result set, statement and connection.
+     */
+    public <T> Stream<T> queryForStream(String sql, Class<T> t, BeanProcessor beanProcessor, int fetchSize,
+                                        Object... params) {
+        Connection connection = getConnection();
+        boolean autoCommit;
+        boolean readOnly;
+        try {
+            autoCommit = connection.getAutoCommit();
+            readOnly = connection.isReadOnly();
+            connection.setReadOnly(true);
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            close(connection);
+            log.error("set read-only transaction exception, sql: {}", e, sql);
+            throw new DBException(e);
+        }
+
+        try {
+            return this.queryForStream(connection, sql, t, beanProcessor, fetchSize, params)
+                       .onClose(() -> endReadOnlyTransaction(connection, autoCommit, readOnly));
+        } catch (RuntimeException e) {
+            endReadOnlyTransaction(connection, autoCommit, readOnly);
+            throw e;
+        }
+    }
+
+    private void endReadOnlyTransaction(Connection connection, boolean autoCommit, boolean readOnly) {
+        try {
+            connection.rollback();
+            connection.setAutoCommit(autoCommit);
+            connection.setReadOnly(readOnly);
+        } catch (SQLException e) {
+            log.error("end read-only transaction exception", e);
+        } finally {
+            close(connection);
+        }
+    }
+
+    public <T> Stream<T> queryForStream(Connection connection, String sql, Class<T> t, Object... params) {
+        return this.queryForStream(connection, sql, t, defaultBeanProcessor, DEFAULT_FETCH_SIZE, params);
+    }
+
+    /**
+     * Query the rows lazily using the connection. Closing the stream closes the result set and statement, but the
+     * connection is not closed. The PostgreSQL driver fetches rows incrementally only if the auto-commit is off.
+     *
+     * @param connection    The database connection.
+     * @param sql           The query SQL.
+     * @param t             The bean type.
+     * @param beanProcessor The bean processor that maps the row to the bean.
+     * @param fetchSize     The number of rows that are fetched from the database in one round trip.
+     * @param params        The SQL parameters.
+     * @param <T>           The bean type.
+     * @return The stream of the beans.
+     */
+    public <T> Stream<T> queryForStream(Connection connection, String sql, Class<T> t, BeanProcessor beanProcessor,
+                                        int fetchSize, Object... params) {
+        Timer.Context context = monitorEnable ? getMetrics().timer("db.JDBCHelper.sql:```" + sql + "```").time() : null;
+        PreparedStatement statement = null;
+        ResultSet resultSet = null;
+        try {
+            statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            statement.setFetchSize(fetchSize);
+            statementRunner.fillStatement(statement, params);
+            resultSet = statement.executeQuery();
+        } catch (SQLException e) {
+            closeQuietly(resultSet, statement, context);
+            log.error("query exception, sql: {}", e, sql);
+            throw new DBException(e);
+        }
+
+        ResultSet rs = resultSet;
+        PreparedStatement stmt = statement;
+        Spliterator<T> spliterator = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super T> action) {
+                try {
+                    if (rs.next()) {
+                        action.accept(beanProcessor.toBean(rs, t));
+                        return true;
+                    } else {
+                        return false;
+                    }
+                } catch (SQLException e) {
+                    log.error("query exception, sql: {}", e, sql);
+                    throw new DBException(e);
+                }
+            }
+        };
+        return StreamSupport.stream(spliterator, false).onClose(() -> closeQuietly(rs, stmt, context));
+    }
+
+    private void closeQuietly(ResultSet resultSet, PreparedStatement statement, Timer.Context context) {
+        if (resultSet != null) {
+            try {
+                resultSet.close();
+            } catch (SQLException e) {
+                log.error("close result set exception", e);
+            }
+        }
+        if (statement != null) {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                log.error("close statement exception", e);
+            }
+        }
+        if (context != null) {
+            context.stop();
+        }
+    }
+
+    /**
+     * Query the rows and pass them to the action one by one. The rows are not held in memory.
+     *
+     * @param sql    The query SQL.
+     * @param t      The bean type.
+     * @param action Receive the beans.
+     * @param params The SQL parameters.
+     * @param <T>    The bean type.
+     * @return The number of the rows.
+     */
+    public <T> long queryForEach(String sql, Class<T> t, Action1<T> action, Object... params) {
+        try (Stream<T> stream = this.queryForStream(sql, t, params)) {
+            return forEach(stream, action);
+        }
+    }
+
+    public <T> long queryForEach(Connection connection, String sql, Class<T> t, Action1<T> action, Object... params) {
+        try (Stream<T> stream = this.queryForStream(connection, sql, t, params)) {
+            return forEach(stream, action);
+        }
+    }
+
+    private static <T> long forEach(Stream<T> stream, Action1<T> action) {
+        long[] count = new long[1];
+        stream.forEach(bean -> {
+            action.call(bean);
+            count[0]++;
+        });
+        return count[0];
+    }
+
+    /**
+     * Query the rows in the JDBC helper thread pool and push them to the consumer in batches, e.g., the consumer writes
+     * the batches to the HTTP chunked response. The consumer is called in the JDBC helper thread, the next batch is
+     * fetched after the consumer returns. The rows are fetched from the database with the default fetch size.
+     *
+     * @param sql       The query SQL.
+     * @param t         The bean type.
+     * @param batchSize The max number of beans in a batch.
+     * @param consumer  Receive the batches, every batch is a new list.
+     * @param params    The SQL parameters.
+     * @param <T>       The bean type.
+     * @return The future of the number of the rows.
+     */
+    public <T> Promise.Completable<Long> asyncQueryForEach(String sql, Class<T> t, int batchSize,
+                                                           Action1<List<T>> consumer, Object... params) {
+        return this.asyncQueryForEach(sql, t, batchSize, DEFAULT_FETCH_SIZE, consumer, params);
+    }
+
+    /**
+     * Query the rows in the JDBC helper thread pool and push them to the consumer in batches.
+     *
+     * @param sql       The query SQL.
+     * @param t         The bean type.
+     * @param batchSize The max number of beans in a batch.
+     * @param fetchSize The number of rows that are fetched from the database in one round trip. Some drivers need
+     *                  the vendor specific value to fetch rows incrementally, e.g., Integer.MIN_VALUE for MySQL.
+     * @param consumer  Receive the batches, every batch is a new list.
+     * @param params    The SQL parameters.
+     * @param <T>       The bean type.
+     * @return The future of the number of the rows.
+     */
+    public <T> Promise.Completable<Long> asyncQueryForEach(String sql, Class<T> t, int batchSize, int fetchSize,
+                                                           Action1<List<T>> consumer, Object... params) {
+        Assert.isTrue(batchSize > 0, "the batch size must be greater than 0");
+        Promise.Completable<Long> c = new Promise.Completable<>();
+        executorService.submit(() -> {
+            try (Stream<T> stream = this.queryForStream(sql, t, defaultBeanProcessor, fetchSize, params)) {
+                long count = 0;
+                List<T> list = new ArrayList<>(batchSize);
+                for (Iterator<T> iterator = stream.iterator(); iterator.hasNext(); count++) {
+                    list.add(iterator.next());
+                    if (list.size() >= batchSize) {
+                        consumer.call(list);
+                        list = new ArrayList<>(batchSize);
+                    }
+                }
+                if (!list.isEmpty()) {
+                    consumer.call(list);
+                }
+                c.succeeded(count);
+            } catch (Throwable e) {
+                c.failed(e);
+            }
+        });
+        return c;
+    }
+
     public int update(String sql, Object... params) {
         try (Connection connection = dataSource.getConnection()) {
             connection.setAutoCommit(true);
@@ -1,6 +1,7 @@
 package com.firefly.db;
 
 import com.firefly.utils.Assert;
+import com.firefly.utils.function.Action1;
 import com.firefly.utils.function.Func1;
 import com.firefly.utils.function.Func2;
 import org.apache.commons.dbutils.BeanProcessor;
@@ -79,6 +80,11 @@ public class TransactionalJDBCHelper {
         return executeSQL((connection, helper) -> helper.queryForList(connection, sql, t, beanProcessor, params));
     }
 
+    public <T> long queryForEach(String sql, Class<T> t, Action1<T> action, Object... params) {
+        Long ret = executeSQL((connection, helper) -> helper.queryForEach(connection, sql, t, action, params));
+        return ret != null ? ret : -1;
+    }
+
     public int update(String sql, Object... params) {
         Integer ret = executeSQL((connection, helper) -> helper.update(connection, sql, params));
         return ret != null ? ret : -1;
@@ -1,5 +1,6 @@
 package test.db;
 
+import com.firefly.db.JDBCHelper;
 import com.firefly.db.TransactionalJDBCHelper;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
@@ -10,6 +11,9 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.hamcrest.Matchers.is;
 
@@ -122,6 +126,37 @@ public class TestTransactionalJdbcHelper {
         Assert.assertThat(user2.getName(), is("test transaction 1"));
     }
 
+    @Test
+    public void testQueryForStream() throws Exception {
+        JDBCHelper helper = jdbcHelper.getJdbcHelper();
+        String sql = "select * from `test`.`user` where id > ? order by id";
+        try (Stream<User> stream = helper.queryForStream(sql, User.class, 0L)) {
+            List<Long> ids = stream.map(User::getId).collect(Collectors.toList());
+            Assert.assertThat(ids.size(), is(size));
+            Assert.assertThat(ids.get(size - 1), is((long) size));
+        }
+
+        List<String> names = new ArrayList<>();
+        long count = jdbcHelper.queryForEach(sql, User.class, user -> names.add(user.getName()), 0L);
+        Assert.assertThat(count, is((long) size));
+        Assert.assertThat(names.get(0), is("test transaction 0"));
+
+        List<List<User>> batches = new CopyOnWriteArrayList<>();
+        long rows = helper.asyncQueryForEach(sql, User.class, 3, batches::add, 0L).get();
+        Assert.assertThat(rows, is((long) size));
+        Assert.assertThat(batches.size(), is(4));
+        Assert.assertThat(batches.get(3).size(), is(1));
+
+        batches.clear();
+        rows = helper.asyncQueryForEach(sql, User.class, 3, 2, batches::add, 0L).get();
+        Assert.assertThat(rows, is((long) size));
+        Assert.assertThat(batches.size(), is(4));
+
+        // the read-only transaction of the stream is ended, the helper still writes
+        Assert.assertThat(helper.update("update `test`.`user` set pt_name = ? where id = ?", "stream", 1L), is(1));
+        Assert.assertThat(helper.queryById(User.class, 1L).getName(), is("stream"));
+    }
+
     @After
     public void after() {
         jdbcHelper.update("DROP TABLE IF EXISTS `test`.`user`");
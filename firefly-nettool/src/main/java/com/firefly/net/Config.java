@@ -1,17 +1,28 @@
 package com.firefly.net;
 
+import com.firefly.net.buffer.FileRegionSender;
+import com.firefly.net.buffer.SizeClassBufferPool;
 import com.firefly.utils.ServiceUtils;
 
 public class Config {
 
     public static final int defaultTimeout = Integer.getInteger("com.firefly.net.defaultTimeout", 30 * 1000);
     public static final int defaultPoolSize = Integer.getInteger("com.firefly.net.defaultPoolSize", Runtime.getRuntime().availableProcessors());
+    public static final String defaultTransport = System.getProperty("com.firefly.net.defaultTransport", "aio");
 
     private int timeout = defaultTimeout;
+    private int readIdleTimeout;
+    private int writeIdleTimeout;
 
     // asynchronous I/O fork join pool size
     private int asynchronousCorePoolSize = defaultPoolSize;
 
+    // the transport implementation, aio or nio
+    private String transport = defaultTransport;
+    private int eventLoopSize = defaultPoolSize;
+    private int acceptorSize = 1;
+    private boolean reusePort;
+
     private String serverName = "firefly-server";
     private String clientName = "firefly-client";
 
@@ -19,11 +30,20 @@ public class Config {
     private Encoder encoder;
     private Handler handler;
 
+    private BufferPool readBufferPool = new SizeClassBufferPool();
+
+    private int maxGatheringWriteBytes = 256 * 1024;
+    private int maxGatheringWriteEntries = 64;
+
+    private int fileRegionChunkSize = FileRegionSender.DEFAULT_CHUNK_SIZE;
+    private int maxInFlightFileRegionChunks = FileRegionSender.DEFAULT_MAX_IN_FLIGHT_CHUNKS;
+
     private boolean monitorEnable = true;
     private MetricReporterFactory metricReporterFactory = ServiceUtils.loadService(MetricReporterFactory.class, new DefaultMetricReporterFactory());
 
     /**
-     * The max I/O idle time, the default value is 10 seconds.
+     * The max I/O idle time, the default value is 30 seconds. If the session neither reads nor writes any data
+     * during this time, it will close. If it is less than or equal to 0, the all idle timeout is disabled.
      *
      * @return The max I/O idle time，the unit is MS.
      */
@@ -41,6 +61,34 @@ public class Config {
         this.timeout = timeout;
     }
 
+    /**
+     * If the session does not read any data during this time, it will close. The default value is 0, it means the
+     * read idle timeout is disabled.
+     *
+     * @return The max read idle time, the unit is MS.
+     */
+    public int getReadIdleTimeout() {
+        return readIdleTimeout;
+    }
+
+    public void setReadIdleTimeout(int readIdleTimeout) {
+        this.readIdleTimeout = readIdleTimeout;
+    }
+
+    /**
+     * If the session does not write any data during this time, it will close. The default value is 0, it means the
+     * write idle timeout is disabled.
+     *
+     * @return The max write idle time, the unit is MS.
+     */
+    public int getWriteIdleTimeout() {
+        return writeIdleTimeout;
+    }
+
+    public void setWriteIdleTimeout(int writeIdleTimeout) {
+        this.writeIdleTimeout = writeIdleTimeout;
+    }
+
     public String getServerName() {
         return serverName;
     }
@@ -81,6 +129,82 @@ public class Config {
         this.handler = handler;
     }
 
+    /**
+     * Get the buffer pool that the session leases the read buffers from.
+     *
+     * @return The read buffer pool.
+     */
+    public BufferPool getReadBufferPool() {
+        return readBufferPool;
+    }
+
+    /**
+     * Set the buffer pool that the session leases the read buffers from. The default pool keeps the heap buffers,
+     * use the SizeClassBufferPool(true) to read the data into the direct buffers.
+     * Notice: the HTTP/2 decoder requires the heap buffer.
+     *
+     * @param readBufferPool The read buffer pool.
+     */
+    public void setReadBufferPool(BufferPool readBufferPool) {
+        this.readBufferPool = readBufferPool;
+    }
+
+    /**
+     * The max bytes of the pending output entries that are coalesced into one gathering write.
+     * The first entry is always written even if it is greater than this value.
+     *
+     * @return The max bytes of a gathering write.
+     */
+    public int getMaxGatheringWriteBytes() {
+        return maxGatheringWriteBytes;
+    }
+
+    public void setMaxGatheringWriteBytes(int maxGatheringWriteBytes) {
+        this.maxGatheringWriteBytes = maxGatheringWriteBytes;
+    }
+
+    /**
+     * The max number of the pending output entries that are coalesced into one gathering write.
+     *
+     * @return The max number of the entries of a gathering write.
+     */
+    public int getMaxGatheringWriteEntries() {
+        return maxGatheringWriteEntries;
+    }
+
+    public void setMaxGatheringWriteEntries(int maxGatheringWriteEntries) {
+        this.maxGatheringWriteEntries = maxGatheringWriteEntries;
+    }
+
+    /**
+     * The size of the chunk that the TLS or asynchronous session reads and writes at a time to send the file region,
+     * it is capped at the {@link FileRegionSender#MAX_CHUNK_SIZE}. The plaintext NIO session transfers the file
+     * region to the socket channel directly, so it does not use the chunks.
+     *
+     * @return The file region chunk size.
+     */
+    public int getFileRegionChunkSize() {
+        return fileRegionChunkSize;
+    }
+
+    public void setFileRegionChunkSize(int fileRegionChunkSize) {
+        this.fileRegionChunkSize = fileRegionChunkSize;
+    }
+
+    /**
+     * The max number of the file region chunks that are written but not completed.
+     * The memory that a file transfer holds is limited to the chunk size multiplied by this value.
+     *
+     * @return The max in-flight file region chunks.
+     */
+    public int getMaxInFlightFileRegionChunks() {
+        return maxInFlightFileRegionChunks;
+    }
+
+    public void setMaxInFlightFileRegionChunks(int maxInFlightFileRegionChunks) {
+        this.maxInFlightFileRegionChunks = maxInFlightFileRegionChunks;
+    }
+
     public int getAsynchronousCorePoolSize() {
         return asynchronousCorePoolSize;
     }
@@ -89,6 +213,63 @@ public class Config {
         this.asynchronousCorePoolSize = asynchronousCorePoolSize;
     }
 
+    /**
+     * The transport implementation. The "aio" transport runs the asynchronous channel group on a fork join pool,
+     * the "nio" transport runs the selectors on the event loops and each session is handled by one event loop.
+     * The default value is "aio", it can be changed by the system property "com.firefly.net.defaultTransport".
+     *
+     * @return The transport name.
+     */
+    public String getTransport() {
+        return transport;
+    }
+
+    public void setTransport(String transport) {
+        this.transport = transport;
+    }
+
+    /**
+     * The number of the NIO event loops, the default value is the number of the processors.
+     *
+     * @return The number of the NIO event loops.
+     */
+    public int getEventLoopSize() {
+        return eventLoopSize;
+    }
+
+    public void setEventLoopSize(int eventLoopSize) {
+        this.eventLoopSize = eventLoopSize;
+    }
+
+    /**
+     * The number of the event loops that accept the connections of the NIO server, the default value is 1.
+     * If the port is reused, every acceptor binds its own server socket and the kernel balances the connections,
+     * otherwise the acceptors share one server socket.
+     *
+     * @return The number of the NIO acceptors.
+     */
+    public int getAcceptorSize() {
+        return acceptorSize;
+    }
+
+    public void setAcceptorSize(int acceptorSize) {
+        this.acceptorSize = acceptorSize;
+    }
+
+    /**
+     * Whether the NIO acceptors bind the server sockets with the SO_REUSEPORT option. It requires the JDK 9 or
+     * higher and the operating system support.
+     *
+     * @return Whether the port is reused.
+     */
+    public boolean isReusePort() {
+        return reusePort;
+    }
+
+    public void setReusePort(boolean reusePort) {
+        this.reusePort = reusePort;
+    }
+
     public MetricReporterFactory getMetricReporterFactory() {
         return metricReporterFactory;
     }
@@ -109,7 +290,15 @@ public class Config {
     public String toString() {
         return "Firefly asynchronous TCP configuration {" +
                 "timeout=" + timeout +
+                ", readIdleTimeout=" + readIdleTimeout +
+                ", writeIdleTimeout=" + writeIdleTimeout +
+                ", transport=" + transport +
                 ", asynchronousCorePoolSize=" + asynchronousCorePoolSize +
+                ", eventLoopSize=" + eventLoopSize +
+                ", acceptorSize=" + acceptorSize +
+                ", reusePort=" + reusePort +
+                ", maxGatheringWriteBytes=" + maxGatheringWriteBytes +
+                ", maxGatheringWriteEntries=" + maxGatheringWriteEntries +
                 '}';
     }
 }
@@ -3,5 +3,15 @@ package com.firefly.net;
 import java.nio.ByteBuffer;
 
 public interface Decoder {
+
+	/**
+	 * Decode the received data. The buffer is leased from the read buffer pool, and it will be released
+	 * when this method returns. If the decoder keeps the buffer after decoding, it must call
+	 * Session#retainReadBuffer to take over the buffer.
+	 *
+	 * @param buf     The received data.
+	 * @param session The current session.
+	 * @throws Throwable A decoding error.
+	 */
 	void decode(ByteBuffer buf, Session session) throws Throwable;
 }
@@ -0,0 +1,54 @@
+package com.firefly.net;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import com.firefly.net.buffer.FileRegion;
+import com.firefly.utils.concurrent.Callback;
+
+/**
+ * The file region that is transferred to the channel by {@link FileChannel#transferTo}, the kernel sends the file
+ * content without copying it to the user space buffers. The entry keeps the position that has been transferred.
+ */
+public class FileRegionOutputEntry extends AbstractOutputEntry<FileRegion> {
+
+	private final long endPosition;
+	private long position;
+
+	public FileRegionOutputEntry(Callback callback, FileRegion data) {
+		super(callback, data);
+		position = data.getPosition();
+		endPosition = data.getPosition() + data.getLength();
+	}
+
+	@Override
+	public OutputEntryType getOutputEntryType() {
+		return OutputEntryType.FILE_REGION;
+	}
+
+	@Override
+	public long remaining() {
+		return endPosition - position;
+	}
+
+	/**
+	 * Transfer the remaining file region to the target channel. It transfers the bytes that the target channel
+	 * accepts without blocking, so it may transfer a part of the region.
+	 *
+	 * @param target The target channel.
+	 * @return The number of the transferred bytes.
+	 * @throws IOException If the file is truncated or the target channel is failed.
+	 */
+	public long transferTo(WritableByteChannel target) throws IOException {
+		FileChannel fileChannel = data.getFileChannel();
+		long transferredBytes = fileChannel.transferTo(position, remaining(), target);
+		if (transferredBytes == 0 && remaining() > 0 && position >= fileChannel.size()) {
+			throw new EOFException("the file " + data.getFile() + " is truncated");
+		}
+		position += transferredBytes;
+		return transferredBytes;
+	}
+
+}
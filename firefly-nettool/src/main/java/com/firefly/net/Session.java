@@ -31,6 +31,16 @@ public interface Session {
 
     void write(FileRegion file, Callback callback);
 
+    /**
+     * Take over the ownership of the buffer that is being decoded. By default, the session returns the received
+     * buffer to the read buffer pool after the Decoder#decode method returns. If the decoder keeps the buffer
+     * (or any slice of it) after decoding, it must call this method during decoding, and the buffer will not
+     * be reused by the session.
+     *
+     * @param buffer The buffer that is passed to the Decoder#decode method.
+     */
+    void retainReadBuffer(ByteBuffer buffer);
+
     int getSessionId();
 
     long getOpenTime();
@@ -0,0 +1,223 @@
+package com.firefly.net.buffer;
+
+import com.firefly.net.BufferPool;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.IO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+
+/**
+ * Send the file region using a sliding window. The file region is read chunk by chunk, and only a bounded number
+ * of chunks are in flight. The next chunk is read when a previous chunk has been written, so the memory that
+ * a large file transfer holds is limited to the chunk size multiplied by the max in-flight chunks.
+ * <p>
+ * It copies the file content to the chunks, so it is used by the outputs that can not transfer the file
+ * directly, e.g., the TLS session, the asynchronous session and the HTTP response. The plaintext NIO session
+ * transfers the file region with {@link FileChannel#transferTo} instead. The chunks are read by the blocking
+ * file reads, only the writes of the chunks are asynchronous.
+ * <p>
+ * The chunks are the direct buffers that are leased from a shared pool, the socket channel writes them without
+ * copying the file content to the heap. A chunk is returned to the pool when it has been written. The chunks are
+ * not mapped, because a mapping is only released when the buffer is garbage collected, and a large transfer would
+ * pile up the mappings.
+ * <p>
+ * The writer must complete the callback of every chunk, including the chunks that are written after the output
+ * is closed, otherwise the file region is never closed.
+ *
+ * @author Pengtao Qiu
+ */
+public class FileRegionSender {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    public static final int MAX_CHUNK_SIZE = 256 * 1024;
+    public static final int DEFAULT_CHUNK_SIZE = MAX_CHUNK_SIZE;
+    public static final int DEFAULT_MAX_IN_FLIGHT_CHUNKS = 4;
+
+    // the chunk size is capped at the largest size class, so every chunk is returned to the pool
+    private static final BufferPool chunkBufferPool = new SizeClassBufferPool(true,
+            SizeClassBufferPool.DEFAULT_MIN_CLASS_SIZE, MAX_CHUNK_SIZE, 16);
+
+    /**
+     * The output of the file region chunks.
+     */
+    public interface ChunkWriter {
+        void write(ByteBuffer chunk, Callback callback) throws IOException;
+    }
+
+    private final FileRegion fileRegion;
+    private final ChunkWriter writer;
+    private final Callback callback;
+    private final int chunkSize;
+    private final int maxInFlightChunks;
+    private final long endPosition;
+    private long nextPosition;
+    private int inFlightChunks;
+    private boolean sending;
+    private boolean completed;
+
+    public FileRegionSender(FileRegion fileRegion, ChunkWriter writer, Callback callback) {
+        this(fileRegion, writer, callback, DEFAULT_CHUNK_SIZE, DEFAULT_MAX_IN_FLIGHT_CHUNKS);
+    }
+
+    /**
+     * Create a file region sender.
+     *
+     * @param fileRegion        The file region.
+     * @param writer            The output of the chunks.
+     * @param callback          The callback of the file region.
+     * @param chunkSize         The chunk size. If it is greater than the {@link #MAX_CHUNK_SIZE},
+     *                          the {@link #MAX_CHUNK_SIZE} is used.
+     * @param maxInFlightChunks The max number of the chunks that are written but not completed.
+     */
+    public FileRegionSender(FileRegion fileRegion, ChunkWriter writer, Callback callback,
+                            int chunkSize, int maxInFlightChunks) {
+        if (chunkSize <= 0 || maxInFlightChunks <= 0) {
+            throw new IllegalArgumentException("the chunk size and the max in-flight chunks must be positive");
+        }
+        this.fileRegion = fileRegion;
+        this.writer = writer;
+        this.callback = callback;
+        this.chunkSize = Math.min(chunkSize, MAX_CHUNK_SIZE);
+        this.maxInFlightChunks = maxInFlightChunks;
+        this.nextPosition = fileRegion.getPosition();
+        this.endPosition = fileRegion.getPosition() + fileRegion.getLength();
+    }
+
+    /**
+     * Start to send the file region. The file region is closed and the callback is completed
+     * when all chunks have been written or any chunk is failed.
+     */
+    public void send() {
+        sendNextChunks();
+    }
+
+    /**
+     * Only one thread reads and writes the chunks at a time, so the chunks are written in the file order. The other
+     * threads return immediately, and the sending thread checks the in-flight chunks again before it exits.
+     */
+    private void sendNextChunks() {
+        synchronized (this) {
+            if (sending) {
+                return;
+            }
+            sending = true;
+        }
+
+        while (true) {
+            ByteBuffer chunk;
+            synchronized (this) {
+                if (completed) {
+                    sending = false;
+                    return;
+                }
+                if (nextPosition >= endPosition) {
+                    if (inFlightChunks == 0) {
+                        completed = true;
+                    } else {
+                        sending = false;
+                        return;
+                    }
+                    chunk = null;
+                } else if (inFlightChunks >= maxInFlightChunks) {
+                    sending = false;
+                    return;
+                } else {
+                    try {
+                        chunk = readNextChunk();
+                    } catch (Throwable t) {
+                        completed = true;
+                        fail(t);
+                        return;
+                    }
+                    inFlightChunks++;
+                }
+            }
+
+            if (chunk == null) {
+                IO.close(fileRegion);
+                callback.succeeded();
+                return;
+            }
+
+            try {
+                writer.write(chunk, new ChunkCallback(chunk));
+            } catch (Throwable t) {
+                chunkFailed(t);
+                return;
+            }
+        }
+    }
+
+    private ByteBuffer readNextChunk() throws IOException {
+        int size = (int) Math.min(chunkSize, endPosition - nextPosition);
+        FileChannel fileChannel = fileRegion.getFileChannel();
+        ByteBuffer chunk = chunkBufferPool.acquire(size);
+        try {
+            while (chunk.hasRemaining()) {
+                if (fileChannel.read(chunk, nextPosition + chunk.position()) < 0) {
+                    throw new EOFException("the file " + fileRegion.getFile() + " is truncated");
+                }
+            }
+        } catch (IOException e) {
+            chunkBufferPool.release(chunk);
+            throw e;
+        }
+        chunk.flip();
+        if (log.isDebugEnabled()) {
+            log.debug("read the file {} chunk, position: {}, size: {}", fileRegion.getFile(), nextPosition, size);
+        }
+        nextPosition += size;
+        return chunk;
+    }
+
+    private void chunkFailed(Throwable t) {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+        }
+        fail(t);
+    }
+
+    private void fail(Throwable t) {
+        if (t instanceof ClosedChannelException) {
+            log.debug("the output is closed before the file region has been transferred");
+        } else {
+            log.error("transfer file region error", t);
+        }
+        IO.close(fileRegion);
+        callback.failed(t);
+    }
+
+    private class ChunkCallback implements Callback {
+
+        private final ByteBuffer chunk;
+
+        private ChunkCallback(ByteBuffer chunk) {
+            this.chunk = chunk;
+        }
+
+        @Override
+        public void succeeded() {
+            chunkBufferPool.release(chunk);
+            synchronized (FileRegionSender.this) {
+                inFlightChunks--;
+            }
+            sendNextChunks();
+        }
+
+        @Override
+        public void failed(Throwable x) {
+            // the failed chunk is not returned to the pool, the writer may still reference it
+            chunkFailed(x);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package com.firefly.net.buffer;
+
+import com.firefly.net.BufferPool;
+import com.firefly.utils.io.BufferUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A thread safe buffer pool that keeps the released buffers in the power of two size classes.
+ * The buffer is leased from the smallest size class that can hold the requested size. If the requested size is
+ * greater than the largest size class, the pool allocates a new buffer and discards it when it is released.
+ *
+ * @author Pengtao Qiu
+ */
+public class SizeClassBufferPool implements BufferPool {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    public static final int DEFAULT_MIN_CLASS_SIZE = 1024;
+    public static final int DEFAULT_MAX_CLASS_SIZE = 64 * 1024;
+    public static final int DEFAULT_MAX_BUFFERS_PER_CLASS = 256;
+
+    private final boolean directBuffer;
+    private final int minClassShift;
+    private final int maxClassSize;
+    private final int maxBuffersPerClass;
+    private final SizeClass[] sizeClasses;
+
+    private static class SizeClass {
+        final int capacity;
+        final Queue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        final AtomicInteger count = new AtomicInteger();
+
+        SizeClass(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    public SizeClassBufferPool() {
+        this(false);
+    }
+
+    public SizeClassBufferPool(boolean directBuffer) {
+        this(directBuffer, DEFAULT_MIN_CLASS_SIZE, DEFAULT_MAX_CLASS_SIZE, DEFAULT_MAX_BUFFERS_PER_CLASS);
+    }
+
+    /**
+     * Create a size class buffer pool.
+     *
+     * @param directBuffer       If true, the pool allocates the direct buffer, or else it allocates the heap buffer.
+     * @param minClassSize       The capacity of the smallest size class, it must be the power of two.
+     * @param maxClassSize       The capacity of the largest size class, it must be the power of two.
+     * @param maxBuffersPerClass The max number of the idle buffers that are kept in one size class.
+     */
+    public SizeClassBufferPool(boolean directBuffer, int minClassSize, int maxClassSize, int maxBuffersPerClass) {
+        if (Integer.bitCount(minClassSize) != 1 || Integer.bitCount(maxClassSize) != 1) {
+            throw new IllegalArgumentException("the size class must be the power of two");
+        }
+        if (minClassSize > maxClassSize) {
+            throw new IllegalArgumentException("the min size class is greater than the max size class");
+        }
+        if (maxBuffersPerClass < 0) {
+            throw new IllegalArgumentException("the max buffers per class must be non-negative");
+        }
+
+        this.directBuffer = directBuffer;
+        this.minClassShift = Integer.numberOfTrailingZeros(minClassSize);
+        this.maxClassSize = maxClassSize;
+        this.maxBuffersPerClass = maxBuffersPerClass;
+
+        int classNumber = Integer.numberOfTrailingZeros(maxClassSize) - minClassShift + 1;
+        sizeClasses = new SizeClass[classNumber];
+        for (int i = 0; i < classNumber; i++) {
+            sizeClasses[i] = new SizeClass(minClassSize << i);
+        }
+    }
+
+    private int sizeClassIndex(int size) {
+        if (size <= (1 << minClassShift)) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - minClassShift;
+    }
+
+    /**
+     * Lease a buffer from the pool. The buffer capacity may be greater than the requested size,
+     * but its limit is set to the requested size.
+     *
+     * @param size The requested buffer size.
+     * @return The buffer that is ready to read data.
+     */
+    @Override
+    public ByteBuffer acquire(int size) {
+        if (size > maxClassSize) {
+            int allocateSize = BufferUtils.normalizeBufferSize(size);
+            log.debug("the buffer size {} is greater than the max size class, allocate new buffer", allocateSize);
+            return allocate(allocateSize);
+        }
+
+        SizeClass sizeClass = sizeClasses[sizeClassIndex(size)];
+        ByteBuffer buffer = sizeClass.buffers.poll();
+        if (buffer != null) {
+            sizeClass.count.decrementAndGet();
+            buffer.clear();
+        } else {
+            buffer = allocate(sizeClass.capacity);
+        }
+        buffer.limit(size);
+        return buffer;
+    }
+
+    /**
+     * Return the buffer to the pool. The buffer is discarded if its capacity does not match any size class,
+     * its type does not match the pool type or the size class is full.
+     *
+     * @param buffer The buffer that is leased from this pool.
+     */
+    @Override
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || buffer.isDirect() != directBuffer || buffer.isReadOnly()) {
+            return;
+        }
+
+        int capacity = buffer.capacity();
+        if (capacity > maxClassSize || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+
+        int index = sizeClassIndex(capacity);
+        SizeClass sizeClass = sizeClasses[index];
+        if (sizeClass.capacity != capacity) {
+            return;
+        }
+
+        if (sizeClass.count.incrementAndGet() <= maxBuffersPerClass) {
+            buffer.clear();
+            sizeClass.buffers.offer(buffer);
+        } else {
+            sizeClass.count.decrementAndGet();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (SizeClass sizeClass : sizeClasses) {
+            size += sizeClass.count.get();
+        }
+        return size;
+    }
+
+    public boolean isDirectBuffer() {
+        return directBuffer;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return directBuffer ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+}
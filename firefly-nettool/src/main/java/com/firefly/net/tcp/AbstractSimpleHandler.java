@@ -16,6 +16,7 @@ abstract public class AbstractSimpleHandler implements Handler {
         if (o != null) {
             TcpConnectionImpl c = (TcpConnectionImpl) o;
             if (c.buffer != null) {
+                session.retainReadBuffer(buf);
                 c.buffer.call(buf);
             }
         }
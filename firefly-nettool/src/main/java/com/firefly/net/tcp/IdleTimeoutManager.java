@@ -0,0 +1,94 @@
+package com.firefly.net.tcp;
+
+import com.firefly.net.Config;
+import com.firefly.net.Session;
+import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.time.ExpirationTimeWheel;
+import com.firefly.utils.time.Millisecond100Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.firefly.net.tcp.TcpPerformanceParameter.IDLE_TIMEOUT_TICK_DURATION;
+import static com.firefly.net.tcp.TcpPerformanceParameter.IDLE_TIMEOUT_WHEEL_SIZE;
+
+/**
+ * Close the idle sessions of a server or client. All sessions are checked by one timing wheel, the reads and writes
+ * only update the last read and written timestamps of the session, so they are issued without the I/O timeouts.
+ * <p>
+ * The read idle, write idle and all idle timeouts are checked separately, the session is closed when any of them is
+ * reached. When the session is checked before it is idle, it is rescheduled to the earliest deadline of the timeouts.
+ *
+ * @author Pengtao Qiu
+ */
+public class IdleTimeoutManager extends AbstractLifeCycle {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final Config config;
+    private final ExpirationTimeWheel<Session> timeWheel;
+
+    public IdleTimeoutManager(Config config, String name) {
+        this.config = config;
+        timeWheel = new ExpirationTimeWheel<>(name, IDLE_TIMEOUT_TICK_DURATION, IDLE_TIMEOUT_WHEEL_SIZE,
+                256, this::check);
+    }
+
+    /**
+     * Add the session to the timing wheel.
+     *
+     * @param session The new session.
+     * @return The entry of the session, it is cancelled when the session closes. If all idle timeouts are disabled,
+     * it returns null.
+     */
+    public ExpirationTimeWheel.Entry<Session> add(Session session) {
+        long delay = Math.min(Math.min(
+                getDelay(config.getReadIdleTimeout()),
+                getDelay(config.getWriteIdleTimeout())),
+                getDelay(config.getTimeout()));
+        if (delay == Long.MAX_VALUE) {
+            return null;
+        }
+        return timeWheel.add(session, delay);
+    }
+
+    private static long getDelay(int timeout) {
+        return timeout > 0 ? timeout : Long.MAX_VALUE;
+    }
+
+    private long check(Session session) {
+        if (!session.isOpen()) {
+            return 0;
+        }
+
+        long now = Millisecond100Clock.currentTimeMillis();
+        long openTime = session.getOpenTime();
+        long readIdle = getRemaining(now, Math.max(openTime, session.getLastReadTime()), config.getReadIdleTimeout());
+        long writeIdle = getRemaining(now, Math.max(openTime, session.getLastWrittenTime()), config.getWriteIdleTimeout());
+        long allIdle = getRemaining(now, Math.max(openTime, session.getLastActiveTime()), config.getTimeout());
+        long remaining = Math.min(Math.min(readIdle, writeIdle), allIdle);
+        if (remaining > 0) {
+            return remaining;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("the session {} is idle timeout. read idle: {}, write idle: {}, all idle: {}",
+                    session.getSessionId(), readIdle <= 0, writeIdle <= 0, allIdle <= 0);
+        }
+        session.closeNow();
+        return 0;
+    }
+
+    private static long getRemaining(long now, long lastTime, int timeout) {
+        return timeout > 0 ? lastTime + timeout - now : Long.MAX_VALUE;
+    }
+
+    @Override
+    protected void init() {
+        timeWheel.start();
+    }
+
+    @Override
+    protected void destroy() {
+        timeWheel.stop();
+    }
+}
@@ -1,7 +1,7 @@
 package com.firefly.net.tcp;
 
+import com.firefly.net.Client;
 import com.firefly.net.Session;
-import com.firefly.net.tcp.aio.AsynchronousTcpClient;
 import com.firefly.net.tcp.ssl.SSLSession;
 import com.firefly.utils.concurrent.Promise;
 import com.firefly.utils.function.Action1;
@@ -12,7 +12,7 @@ import java.util.concurrent.ConcurrentHashMap;
 
 public class SimpleTcpClient extends AbstractLifeCycle {
 
-    private AsynchronousTcpClient client;
+    private Client client;
     private TcpConfiguration config;
 
     private Map<Integer, Promise<TcpConnection>> context = new ConcurrentHashMap<>();
@@ -22,7 +22,7 @@ public class SimpleTcpClient extends AbstractLifeCycle {
     }
 
     public SimpleTcpClient(TcpConfiguration config) {
-        client = new AsynchronousTcpClient(config);
+        client = TcpTransport.createClient(config);
         this.config = config;
     }
 
@@ -1,7 +1,7 @@
 package com.firefly.net.tcp;
 
+import com.firefly.net.Server;
 import com.firefly.net.Session;
-import com.firefly.net.tcp.aio.AsynchronousTcpServer;
 import com.firefly.net.tcp.ssl.SSLSession;
 import com.firefly.utils.function.Action0;
 import com.firefly.utils.function.Action1;
@@ -17,7 +17,7 @@ public class SimpleTcpServer extends AbstractLifeCycle {
     private Action1<TcpConnection> accept;
     private Action2<Integer, Throwable> failedAcceptance;
 
-    private AsynchronousTcpServer server;
+    private Server server;
     private TcpServerConfiguration config;
 
     public SimpleTcpServer() {
@@ -26,7 +26,7 @@ public class SimpleTcpServer extends AbstractLifeCycle {
 
     public SimpleTcpServer(TcpServerConfiguration config) {
         this.config = config;
-        server = new AsynchronousTcpServer(config);
+        server = TcpTransport.createServer(config);
     }
 
     public SimpleTcpServer accept(Action1<TcpConnection> accept) {
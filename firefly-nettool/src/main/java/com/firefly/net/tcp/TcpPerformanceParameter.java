@@ -9,4 +9,6 @@ public interface TcpPerformanceParameter {
 	int CLEANUP_INTERVAL = 256;
 	int WRITE_SPIN_COUNT = 16;
 	int IO_TIMEOUT_CHECK_INTERVAL = 5000;
+	int IDLE_TIMEOUT_TICK_DURATION = 100;
+	int IDLE_TIMEOUT_WHEEL_SIZE = 512;
 }
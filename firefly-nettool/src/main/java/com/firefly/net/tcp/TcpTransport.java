@@ -0,0 +1,39 @@
+package com.firefly.net.tcp;
+
+import com.firefly.net.Client;
+import com.firefly.net.Config;
+import com.firefly.net.Server;
+import com.firefly.net.tcp.aio.AsynchronousTcpClient;
+import com.firefly.net.tcp.aio.AsynchronousTcpServer;
+import com.firefly.net.tcp.nio.NioTcpClient;
+import com.firefly.net.tcp.nio.NioTcpServer;
+
+/**
+ * Create the server and client of the transport that is selected by the configuration.
+ *
+ * @author Pengtao Qiu
+ */
+abstract public class TcpTransport {
+
+    public static Server createServer(Config config) {
+        switch (config.getTransport()) {
+            case "nio":
+                return new NioTcpServer(config);
+            case "aio":
+                return new AsynchronousTcpServer(config);
+            default:
+                throw new IllegalArgumentException("the transport " + config.getTransport() + " is not supported");
+        }
+    }
+
+    public static Client createClient(Config config) {
+        switch (config.getTransport()) {
+            case "nio":
+                return new NioTcpClient(config);
+            case "aio":
+                return new AsynchronousTcpClient(config);
+            default:
+                throw new IllegalArgumentException("the transport " + config.getTransport() + " is not supported");
+        }
+    }
+}
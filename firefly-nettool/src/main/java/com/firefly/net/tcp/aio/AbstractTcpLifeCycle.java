@@ -5,6 +5,7 @@ import com.firefly.net.Config;
 import com.firefly.net.EventManager;
 import com.firefly.net.event.DefaultEventManager;
 import com.firefly.net.exception.NetException;
+import com.firefly.net.tcp.IdleTimeoutManager;
 import com.firefly.utils.lang.AbstractLifeCycle;
 import com.firefly.utils.time.Millisecond100Clock;
 import org.slf4j.ILoggerFactory;
@@ -30,6 +31,7 @@ abstract public class AbstractTcpLifeCycle extends AbstractLifeCycle {
     protected AtomicInteger sessionId = new AtomicInteger();
     protected AsynchronousChannelGroup group;
     protected AsynchronousTcpWorker worker;
+    protected IdleTimeoutManager idleTimeoutManager;
     protected ScheduledReporter reporter;
 
     abstract protected String getThreadName();
@@ -48,7 +50,9 @@ abstract public class AbstractTcpLifeCycle extends AbstractLifeCycle {
                     }, null, true));
             log.info(config.toString());
             EventManager eventManager = new DefaultEventManager(config);
-            worker = new AsynchronousTcpWorker(config, eventManager);
+            idleTimeoutManager = new IdleTimeoutManager(config, getThreadName() + "idle-timeout");
+            idleTimeoutManager.start();
+            worker = new AsynchronousTcpWorker(config, eventManager, idleTimeoutManager);
             if (config.isMonitorEnable()) {
                 reporter = config.getMetricReporterFactory().getScheduledReporter();
                 try {
@@ -71,6 +75,9 @@ abstract public class AbstractTcpLifeCycle extends AbstractLifeCycle {
                 log.error("aio tcp thread group shutdown exception -> {}", e.getMessage());
             }
         }
+        if (idleTimeoutManager != null) {
+            idleTimeoutManager.stop();
+        }
         if (config.isMonitorEnable()) {
             try {
                 reporter.stop();
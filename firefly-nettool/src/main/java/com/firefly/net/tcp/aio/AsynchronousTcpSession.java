@@ -6,10 +6,10 @@ import com.codahale.metrics.MetricRegistry;
 import com.firefly.net.*;
 import com.firefly.net.buffer.AdaptiveBufferSizePredictor;
 import com.firefly.net.buffer.FileRegion;
+import com.firefly.net.buffer.FileRegionSender;
 import com.firefly.utils.concurrent.Callback;
-import com.firefly.utils.concurrent.CountingCallback;
-import com.firefly.utils.io.BufferReaderHandler;
 import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.time.ExpirationTimeWheel;
 import com.firefly.utils.time.Millisecond100Clock;
 import com.firefly.utils.time.SafeSimpleDateFormat;
 import org.slf4j.Logger;
@@ -19,13 +19,10 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.channels.*;
-import java.util.Collection;
-import java.util.Date;
-import java.util.LinkedList;
-import java.util.Queue;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class AsynchronousTcpSession implements Session {
 
@@ -36,8 +33,8 @@ public class AsynchronousTcpSession implements Session {
     private final Counter activeCount;
     private final Histogram duration;
     private long closeTime;
-    private long lastReadTime;
-    private long lastWrittenTime;
+    private volatile long lastReadTime;
+    private volatile long lastWrittenTime;
     private long readBytes = 0;
     private long writtenBytes = 0;
     private volatile State state;
@@ -48,11 +45,21 @@ public class AsynchronousTcpSession implements Session {
     private final Config config;
     private final EventManager eventManager;
     private volatile Object attachment;
-
-    private final Lock outputLock = new ReentrantLock();
-    private boolean isWriting = false;
-    private final Queue<OutputEntry<?>> outputBuffer = new LinkedList<>();
+    private volatile ExpirationTimeWheel.Entry<Session> idleTimeoutEntry;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+    private final Queue<OutputEntry<?>> outputBuffer = new ConcurrentLinkedQueue<>();
+    private final List<OutputEntry<?>> flushingEntries = new ArrayList<>();
+    private ByteBuffer[] flushingBuffers = new ByteBuffer[16];
+    private int flushingBufferOffset;
+    private int flushingBufferLength;
+    private int completedEntryIndex;
+    private final GatheringWriteCompletionHandler gatheringWriteCompletionHandler = new GatheringWriteCompletionHandler();
     private final BufferSizePredictor bufferSizePredictor = new AdaptiveBufferSizePredictor();
+    private final BufferPool readBufferPool;
+    private ByteBuffer currentReadBuffer;
+    private boolean readBufferRetained;
 
     AsynchronousTcpSession(int sessionId, Config config, EventManager eventManager,
                            AsynchronousSocketChannel socketChannel) {
@@ -61,6 +68,7 @@ public class AsynchronousTcpSession implements Session {
         this.config = config;
         this.eventManager = eventManager;
         this.socketChannel = socketChannel;
+        this.readBufferPool = config.getReadBufferPool();
         state = State.OPEN;
         MetricRegistry metrics = config.getMetricReporterFactory().getMetricRegistry();
         activeCount = metrics.counter("aio.AsynchronousTcpSession.activeCount");
@@ -68,16 +76,24 @@ public class AsynchronousTcpSession implements Session {
         duration = metrics.histogram("aio.AsynchronousTcpSession.duration");
     }
 
+    void setIdleTimeoutEntry(ExpirationTimeWheel.Entry<Session> idleTimeoutEntry) {
+        this.idleTimeoutEntry = idleTimeoutEntry;
+        if (idleTimeoutEntry != null && !isOpen()) {
+            idleTimeoutEntry.cancel();
+        }
+    }
+
     void _read() {
         if (!isOpen())
             return;
 
-        final ByteBuffer buf = ByteBuffer.allocate(BufferUtils.normalizeBufferSize(bufferSizePredictor.nextBufferSize()));
+        final ByteBuffer buf = readBufferPool.acquire(BufferUtils.normalizeBufferSize(bufferSizePredictor.nextBufferSize()));
 
         if (log.isDebugEnabled()) {
             log.debug("the session {} buffer size is {}", getSessionId(), buf.remaining());
         }
-        socketChannel.read(buf, config.getTimeout(), TimeUnit.MILLISECONDS, this,
+        // the idle timeout is checked by the idle timeout manager, the read is issued without the timeout
+        socketChannel.read(buf, this,
                 new CompletionHandler<Integer, AsynchronousTcpSession>() {
 
                     @Override
@@ -88,6 +104,7 @@ public class AsynchronousTcpSession implements Session {
                                 log.debug("the session {} input is closed, {}", session.getSessionId(),
                                         currentReadBytes);
                             }
+                            readBufferPool.release(buf);
                             session.closeNow();
                             return;
                         }
@@ -99,59 +116,41 @@ public class AsynchronousTcpSession implements Session {
                         session.bufferSizePredictor.previousReceivedBufferSize(currentReadBytes);
                         session.readBytes += currentReadBytes;
                         buf.flip();
+                        session.currentReadBuffer = buf;
+                        session.readBufferRetained = false;
                         try {
                             config.getDecoder().decode(buf, session);
                         } catch (Throwable t) {
                             eventManager.executeExceptionTask(session, t);
                         } finally {
+                            session.currentReadBuffer = null;
+                            if (!session.readBufferRetained) {
+                                readBufferPool.release(buf);
+                            }
                             _read();
                         }
                     }
 
                     @Override
                     public void failed(Throwable t, AsynchronousTcpSession session) {
-                        if (t instanceof InterruptedByTimeoutException) {
+                        if (t instanceof AsynchronousCloseException) {
                             if (log.isDebugEnabled()) {
-                                log.debug("the session {} reading data is timeout.", getSessionId());
+                                log.debug("the session {} is closed when it reads data.", getSessionId());
                             }
                         } else {
                             log.warn("the session {} read data is failed", t, session.getSessionId());
                         }
 
+                        readBufferPool.release(buf);
                         session.closeNow();
                     }
                 });
     }
 
-    private class OutputEntryCompletionHandler<V extends Number, T> implements CompletionHandler<V, AsynchronousTcpSession> {
-
-        private final OutputEntry<T> entry;
-
-        OutputEntryCompletionHandler(OutputEntry<T> entry) {
-            this.entry = entry;
-        }
+    private class GatheringWriteCompletionHandler implements CompletionHandler<Long, AsynchronousTcpSession> {
 
         @Override
-        public void completed(V currentWrittenBytes, AsynchronousTcpSession session) {
-            if (log.isDebugEnabled()) {
-                log.debug("the session {} completed writing {} bytes, remaining {} bytes",
-                        session.getSessionId(),
-                        currentWrittenBytes, entry.remaining());
-            }
-            if (entry.remaining() > 0) {
-                _write(entry);
-            } else {
-                writingCompletedCallback(entry.getCallback(), currentWrittenBytes.longValue());
-            }
-        }
-
-        @Override
-        public void failed(Throwable t, AsynchronousTcpSession session) {
-            writingFailedCallback(entry.getCallback(), t);
-        }
-
-
-        private void writingCompletedCallback(Callback callback, long currentWrittenBytes) {
+        public void completed(Long currentWrittenBytes, AsynchronousTcpSession session) {
             lastWrittenTime = Millisecond100Clock.currentTimeMillis();
             if (currentWrittenBytes < 0) {
                 if (log.isDebugEnabled()) {
@@ -161,93 +160,179 @@ public class AsynchronousTcpSession implements Session {
                 return;
             }
 
-            if (log.isDebugEnabled()) {
-                log.debug("the session {} writes {} bytes", getSessionId(), currentWrittenBytes);
+            writtenBytes += currentWrittenBytes;
+            while (flushingBufferOffset < flushingBufferLength && !flushingBuffers[flushingBufferOffset].hasRemaining()) {
+                flushingBufferOffset++;
             }
 
-            writtenBytes += currentWrittenBytes;
-            callback.succeeded();
+            if (log.isDebugEnabled()) {
+                log.debug("the session {} writes {} bytes, remaining {} buffers", getSessionId(),
+                        currentWrittenBytes, flushingBufferLength - flushingBufferOffset);
+            }
 
-            outputLock.lock();
-            try {
-                OutputEntry<?> obj = outputBuffer.poll();
-                if (obj != null) {
-                    _write(obj);
-                } else {
-                    isWriting = false;
+            // complete the entries in order once all their bytes are written
+            while (completedEntryIndex < flushingEntries.size()) {
+                OutputEntry<?> entry = flushingEntries.get(completedEntryIndex);
+                if (entry.remaining() > 0) {
+                    break;
                 }
-            } finally {
-                outputLock.unlock();
+                completedEntryIndex++;
+                entry.getCallback().succeeded();
+            }
+
+            if (flushingBufferOffset < flushingBufferLength) {
+                _write();
+            } else {
+                clearFlushingEntries();
+                flush();
             }
         }
 
-        private void writingFailedCallback(Callback callback, Throwable t) {
-            if (t instanceof InterruptedByTimeoutException) {
+        @Override
+        public void failed(Throwable t, AsynchronousTcpSession session) {
+            if (t instanceof AsynchronousCloseException) {
                 if (log.isDebugEnabled()) {
-                    log.debug("the session {} writing data is timeout.", getSessionId());
+                    log.debug("the session {} is closed when it writes data.", getSessionId());
                 }
             } else {
                 log.warn("the session {} writes data is failed", t, getSessionId());
             }
 
-            outputLock.lock();
-            try {
-                int bufferSize = outputBuffer.size();
-                log.warn("the session {} has {} buffer data can not ouput", getSessionId(), bufferSize);
-                outputBuffer.clear();
-                isWriting = false;
-                shutdownSocketChannel();
-            } finally {
-                outputLock.unlock();
-            }
-            callback.failed(t);
+            shutdownSocketChannel();
+            failFlushingEntries(t);
         }
     }
 
-    private void _write(final OutputEntry<?> entry) {
-        if (!isOpen())
-            return;
+    /**
+     * Fail the flushing entries and the pending entries, they will never be written.
+     *
+     * @param t The cause.
+     */
+    private void failFlushingEntries(Throwable t) {
+        List<OutputEntry<?>> failedEntries = new ArrayList<>(flushingEntries.subList(completedEntryIndex, flushingEntries.size()));
+        clearFlushingEntries();
+        int bufferSize = outputBuffer.size();
+        if (bufferSize > 0) {
+            log.warn("the session {} has {} buffer data can not ouput", getSessionId(), bufferSize);
+        }
+        writing.set(false);
+        failedEntries.forEach(entry -> entry.getCallback().failed(t));
+        failPendingEntries(t);
+    }
 
-        switch (entry.getOutputEntryType()) {
-            case BYTE_BUFFER:
-                ByteBufferOutputEntry byteBufferOutputEntry = (ByteBufferOutputEntry) entry;
-                socketChannel.write(byteBufferOutputEntry.getData(),
-                        config.getTimeout(), TimeUnit.MILLISECONDS, this,
-                        new OutputEntryCompletionHandler<>(byteBufferOutputEntry));
-                break;
+    private void failPendingEntries(Throwable t) {
+        OutputEntry<?> entry;
+        while ((entry = outputBuffer.poll()) != null) {
+            entry.getCallback().failed(t);
+        }
+    }
 
-            case BYTE_BUFFER_ARRAY:
-                ByteBufferArrayOutputEntry byteBuffersEntry = (ByteBufferArrayOutputEntry) entry;
-                socketChannel.write(byteBuffersEntry.getData(), 0, byteBuffersEntry.getData().length,
-                        config.getTimeout(), TimeUnit.MILLISECONDS, this,
-                        new OutputEntryCompletionHandler<>(byteBuffersEntry));
-                break;
-            case DISCONNECTION:
+    /**
+     * Drain the pending entries and write them using a single gathering write.
+     * Only one thread flushes the session at a time, the flushing thread is guarded by the writing flag.
+     */
+    private void flush() {
+        while (true) {
+            if (!isOpen())
+                return;
+
+            OutputEntry<?> entry = outputBuffer.peek();
+            if (entry == null) {
+                writing.set(false);
+                // the other threads may offer entries before the writing flag is reset
+                if (outputBuffer.isEmpty() || !writing.compareAndSet(false, true)) {
+                    return;
+                } else {
+                    continue;
+                }
+            }
+
+            if (entry.getOutputEntryType() == OutputEntryType.DISCONNECTION) {
+                outputBuffer.poll();
                 log.debug("the session {} will close", getSessionId());
                 shutdownSocketChannel();
-            default:
+                return;
+            }
+
+            gather();
+            _write();
+            return;
+        }
+    }
+
+    private void gather() {
+        long bytes = 0;
+        OutputEntry<?> entry;
+        while ((entry = outputBuffer.peek()) != null && entry.getOutputEntryType() != OutputEntryType.DISCONNECTION) {
+            long remaining = entry.remaining();
+            if (!flushingEntries.isEmpty()
+                    && (flushingEntries.size() >= config.getMaxGatheringWriteEntries()
+                    || bytes + remaining > config.getMaxGatheringWriteBytes())) {
                 break;
+            }
+
+            outputBuffer.poll();
+            flushingEntries.add(entry);
+            bytes += remaining;
+            switch (entry.getOutputEntryType()) {
+                case BYTE_BUFFER:
+                    addFlushingBuffer(((ByteBufferOutputEntry) entry).getData());
+                    break;
+                case BYTE_BUFFER_ARRAY:
+                    for (ByteBuffer buffer : ((ByteBufferArrayOutputEntry) entry).getData()) {
+                        addFlushingBuffer(buffer);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void addFlushingBuffer(ByteBuffer buffer) {
+        if (flushingBufferLength == flushingBuffers.length) {
+            flushingBuffers = Arrays.copyOf(flushingBuffers, flushingBuffers.length << 1);
+        }
+        flushingBuffers[flushingBufferLength++] = buffer;
+    }
+
+    private void clearFlushingEntries() {
+        Arrays.fill(flushingBuffers, 0, flushingBufferLength, null);
+        flushingBufferOffset = 0;
+        flushingBufferLength = 0;
+        completedEntryIndex = 0;
+        flushingEntries.clear();
+    }
+
+    private void _write() {
+        if (!isOpen()) {
+            failFlushingEntries(new ClosedChannelException());
+            return;
         }
+
+        // the timeout 0 means the write is issued without the timeout
+        socketChannel.write(flushingBuffers, flushingBufferOffset, flushingBufferLength - flushingBufferOffset,
+                0L, TimeUnit.MILLISECONDS, this, gatheringWriteCompletionHandler);
     }
 
     @Override
     public void write(OutputEntry<?> entry) {
-        if (!isOpen())
+        if (entry == null)
             return;
 
-        if (entry == null)
+        if (!isOpen()) {
+            entry.getCallback().failed(new ClosedChannelException());
             return;
+        }
 
-        outputLock.lock();
-        try {
-            if (!isWriting) {
-                isWriting = true;
-                _write(entry);
-            } else {
-                outputBuffer.offer(entry);
-            }
-        } finally {
-            outputLock.unlock();
+        outputBuffer.offer(entry);
+        if (!isOpen()) {
+            // the session is closed before the entry is queued, nobody flushes it
+            failPendingEntries(new ClosedChannelException());
+            return;
+        }
+        if (writing.compareAndSet(false, true)) {
+            flush();
         }
     }
 
@@ -266,29 +351,17 @@ public class AsynchronousTcpSession implements Session {
         write(new ByteBufferArrayOutputEntry(callback, buffers.toArray(BufferUtils.EMPTY_BYTE_BUFFER_ARRAY)));
     }
 
-    private class FileBufferReaderHandler implements BufferReaderHandler {
-
-        private final long len;
-
-        private FileBufferReaderHandler(long len) {
-            this.len = len;
-        }
-
-        @Override
-        public void readBuffer(ByteBuffer buf, CountingCallback countingCallback, long count) {
-            log.debug("write file,  count: {} , lenth: {}", count, len);
-            write(buf, countingCallback);
+    @Override
+    public void retainReadBuffer(ByteBuffer buffer) {
+        if (buffer == currentReadBuffer) {
+            readBufferRetained = true;
         }
-
     }
 
     @Override
     public void write(FileRegion file, Callback callback) {
-        try (FileRegion fileRegion = file) {
-            fileRegion.transferTo(callback, new FileBufferReaderHandler(fileRegion.getLength()));
-        } catch (Throwable t) {
-            log.error("transfer file error", t);
-        }
+        new FileRegionSender(file, this::write, callback,
+                config.getFileRegionChunkSize(), config.getMaxInFlightFileRegionChunks()).send();
     }
 
     @Override
@@ -322,7 +395,8 @@ public class AsynchronousTcpSession implements Session {
 
     @Override
     public void closeNow() {
-        if (!isOpen())
+        // the I/O threads and the idle timeout manager may close the session at the same time
+        if (!closed.compareAndSet(false, true))
             return;
 
         closeTime = Millisecond100Clock.currentTimeMillis();
@@ -335,6 +409,12 @@ public class AsynchronousTcpSession implements Session {
             log.error("the session {} close error", e, sessionId);
         }
         state = State.CLOSE;
+        ExpirationTimeWheel.Entry<Session> entry = idleTimeoutEntry;
+        if (entry != null) {
+            entry.cancel();
+        }
+        // the flushing entries are failed by the write completion handler
+        failPendingEntries(new ClosedChannelException());
         eventManager.executeCloseTask(this);
         activeCount.dec();
         duration.update(getDuration());
@@ -3,6 +3,7 @@ package com.firefly.net.tcp.aio;
 import com.firefly.net.Config;
 import com.firefly.net.EventManager;
 import com.firefly.net.Worker;
+import com.firefly.net.tcp.IdleTimeoutManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,10 +17,12 @@ public class AsynchronousTcpWorker implements Worker {
 
 	private final Config config;
 	private final EventManager eventManager;
+	private final IdleTimeoutManager idleTimeoutManager;
 
-	AsynchronousTcpWorker(Config config, EventManager eventManager) {
+	AsynchronousTcpWorker(Config config, EventManager eventManager, IdleTimeoutManager idleTimeoutManager) {
 		this.config = config;
 		this.eventManager = eventManager;
+		this.idleTimeoutManager = idleTimeoutManager;
 	}
 
 	@Override
@@ -31,6 +34,7 @@ public class AsynchronousTcpWorker implements Worker {
 			socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, false);
 
 			AsynchronousTcpSession session = new AsynchronousTcpSession(sessionId, config, eventManager, socketChannel);
+			session.setIdleTimeoutEntry(idleTimeoutManager.add(session));
 			eventManager.executeOpenTask(session);
 			session._read();
 		} catch (IOException e) {
@@ -0,0 +1,81 @@
+package com.firefly.net.tcp.nio;
+
+import com.codahale.metrics.ScheduledReporter;
+import com.firefly.net.Config;
+import com.firefly.net.EventManager;
+import com.firefly.net.event.DefaultEventManager;
+import com.firefly.net.exception.NetException;
+import com.firefly.net.tcp.IdleTimeoutManager;
+import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.time.Millisecond100Clock;
+import org.slf4j.ILoggerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * @author Pengtao Qiu
+ */
+abstract public class AbstractNioTcpLifeCycle extends AbstractLifeCycle {
+
+    protected static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    protected Config config;
+    protected AtomicInteger sessionId = new AtomicInteger();
+    protected NioTcpWorker worker;
+    protected IdleTimeoutManager idleTimeoutManager;
+    protected ScheduledReporter reporter;
+
+    abstract protected String getThreadName();
+
+    @Override
+    protected void init() {
+        if (config == null)
+            throw new NetException("server configuration is null");
+
+        log.info(config.toString());
+        EventManager eventManager = new DefaultEventManager(config);
+        idleTimeoutManager = new IdleTimeoutManager(config, getThreadName() + "idle-timeout");
+        idleTimeoutManager.start();
+        worker = new NioTcpWorker(config, eventManager, idleTimeoutManager, getThreadName());
+        if (config.isMonitorEnable()) {
+            reporter = config.getMetricReporterFactory().getScheduledReporter();
+            try {
+                reporter.start(10, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.error("start metric reporter exception -> {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    protected void destroy() {
+        if (worker != null) {
+            try {
+                worker.shutdown();
+            } catch (Exception e) {
+                log.error("nio tcp event loops shutdown exception -> {}", e.getMessage());
+            }
+        }
+        if (idleTimeoutManager != null) {
+            idleTimeoutManager.stop();
+        }
+        if (config.isMonitorEnable()) {
+            try {
+                reporter.stop();
+            } catch (Exception e) {
+                log.error("stop metric reporter exception -> {}", e.getMessage());
+            }
+        }
+        ILoggerFactory iLoggerFactory = LoggerFactory.getILoggerFactory();
+        try {
+            iLoggerFactory.getClass().getDeclaredMethod("stop").invoke(iLoggerFactory);
+        } catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+            System.out.println(e.getMessage());
+        }
+        Millisecond100Clock.stop();
+    }
+}
@@ -0,0 +1,158 @@
+package com.firefly.net.tcp.nio;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.firefly.net.tcp.TcpPerformanceParameter.IO_TIMEOUT_CHECK_INTERVAL;
+
+/**
+ * A single thread that owns a selector. The channels registered with the event loop are read, written and closed
+ * in the event loop thread only, the other threads submit the tasks to the event loop.
+ *
+ * @author Pengtao Qiu
+ */
+class NioEventLoop implements Runnable {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private static final int MAX_TASKS_PER_LOOP = 1024;
+
+    /**
+     * The attachment of the selection key.
+     */
+    interface SelectionHandler {
+
+        void handleSelection(SelectionKey key);
+
+        void close();
+    }
+
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakenUp = new AtomicBoolean(false);
+    private volatile boolean running = true;
+
+    NioEventLoop(String name) throws IOException {
+        selector = Selector.open();
+        thread = new Thread(this, name);
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    boolean inEventLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    void execute(Runnable task) {
+        tasks.offer(task);
+        if (!inEventLoop() && wakenUp.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Register the channel with the selector, it must be called in the event loop thread.
+     */
+    SelectionKey register(SelectableChannel channel, int ops, SelectionHandler handler) throws ClosedChannelException {
+        return channel.register(selector, ops, handler);
+    }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                wakenUp.set(false);
+                int selected = tasks.isEmpty() ? selector.select() : selector.selectNow();
+                if (selected > 0) {
+                    processSelectedKeys();
+                }
+                runTasks();
+            } catch (Throwable t) {
+                log.error("the event loop {} exception", t, thread.getName());
+            }
+        }
+
+        closeAll();
+        try {
+            selector.close();
+        } catch (IOException e) {
+            log.error("the event loop {} closes selector exception", e, thread.getName());
+        }
+        log.info("the event loop {} stopped", thread.getName());
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> iterator = selector.selectedKeys().iterator();
+        while (iterator.hasNext()) {
+            SelectionKey key = iterator.next();
+            iterator.remove();
+            try {
+                ((SelectionHandler) key.attachment()).handleSelection(key);
+            } catch (CancelledKeyException e) {
+                if (log.isDebugEnabled()) {
+                    log.debug("the selection key is cancelled, {}", key);
+                }
+            } catch (Throwable t) {
+                log.error("the event loop {} handles selection exception", t, thread.getName());
+            }
+        }
+    }
+
+    // the tasks that are submitted by the running tasks are left for the next loop, so the selection is not starved
+    private void runTasks() {
+        Runnable task;
+        for (int i = 0; i < MAX_TASKS_PER_LOOP && (task = tasks.poll()) != null; i++) {
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("the event loop {} runs task exception", t, thread.getName());
+            }
+        }
+    }
+
+    private void closeAll() {
+        // the handlers cancel their keys, so the key set is copied before it is traversed
+        List<SelectionHandler> handlers = new ArrayList<>(selector.keys().size());
+        for (SelectionKey key : selector.keys()) {
+            if (key.isValid()) {
+                handlers.add((SelectionHandler) key.attachment());
+            }
+        }
+        for (SelectionHandler handler : handlers) {
+            try {
+                handler.close();
+            } catch (Throwable t) {
+                log.error("the event loop {} closes channel exception", t, thread.getName());
+            }
+        }
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+        if (!inEventLoop()) {
+            try {
+                thread.join(IO_TIMEOUT_CHECK_INTERVAL);
+            } catch (InterruptedException e) {
+                log.warn("the event loop {} shutdown is interrupted", thread.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.firefly.net.tcp.nio;
+
+import com.codahale.metrics.Timer;
+import com.firefly.net.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class NioTcpClient extends AbstractNioTcpLifeCycle implements Client {
+
+    public NioTcpClient() {
+    }
+
+    public NioTcpClient(Config config) {
+        this.config = config;
+    }
+
+    public NioTcpClient(Decoder decoder, Encoder encoder, Handler handler) {
+        config = new Config();
+        config.setDecoder(decoder);
+        config.setEncoder(encoder);
+        config.setHandler(handler);
+    }
+
+    public NioTcpClient(Decoder decoder, Encoder encoder, Handler handler, int timeout) {
+        config = new Config();
+        config.setDecoder(decoder);
+        config.setEncoder(encoder);
+        config.setHandler(handler);
+        config.setTimeout(timeout);
+    }
+
+    @Override
+    public void setConfig(Config config) {
+        this.config = config;
+    }
+
+    @Override
+    public int connect(String host, int port) {
+        int id = sessionId.getAndIncrement();
+        connect(host, port, id);
+        return id;
+    }
+
+    @Override
+    public void connect(String host, int port, int id) {
+        start();
+        try {
+            Timer timer = config.getMetricReporterFactory()
+                                .getMetricRegistry()
+                                .timer("nio.NioTcpClient.connect:```" + host + ":" + port + "```");
+            Timer.Context context = timer.time();
+            InetSocketAddress address = new InetSocketAddress(host, port);
+            SocketChannel socketChannel = SocketChannel.open();
+            socketChannel.configureBlocking(false);
+            NioEventLoop eventLoop = worker.next();
+            Connector connector = new Connector(socketChannel, eventLoop, id, context);
+            eventLoop.execute(() -> {
+                try {
+                    if (socketChannel.connect(address)) {
+                        connector.completed(null);
+                    } else {
+                        eventLoop.register(socketChannel, SelectionKey.OP_CONNECT, connector);
+                    }
+                } catch (Throwable t) {
+                    connector.failed(t);
+                }
+            });
+        } catch (IOException e) {
+            log.error("client connect error", e);
+        }
+    }
+
+    private class Connector implements NioEventLoop.SelectionHandler {
+
+        private final SocketChannel socketChannel;
+        private final NioEventLoop eventLoop;
+        private final int sessionId;
+        private final Timer.Context context;
+
+        private Connector(SocketChannel socketChannel, NioEventLoop eventLoop, int sessionId, Timer.Context context) {
+            this.socketChannel = socketChannel;
+            this.eventLoop = eventLoop;
+            this.sessionId = sessionId;
+            this.context = context;
+        }
+
+        @Override
+        public void handleSelection(SelectionKey key) {
+            try {
+                if (socketChannel.finishConnect()) {
+                    completed(key);
+                }
+            } catch (Throwable t) {
+                failed(t);
+            }
+        }
+
+        private void completed(SelectionKey key) {
+            worker.registerChannel(eventLoop, socketChannel, sessionId, key);
+            context.stop();
+        }
+
+        private void failed(Throwable t) {
+            close();
+            try {
+                config.getHandler().failedOpeningSession(sessionId, t);
+            } catch (Throwable e) {
+                log.error("session {} open exception", e, sessionId);
+            }
+            log.error("session {} connect error", t, sessionId);
+            context.stop();
+        }
+
+        @Override
+        public void close() {
+            try {
+                socketChannel.close();
+            } catch (IOException e) {
+                log.error("client socket channel close error", e);
+            }
+        }
+    }
+
+    @Override
+    protected String getThreadName() {
+        return "firefly-nio-tcp-client-";
+    }
+}
@@ -0,0 +1,154 @@
+package com.firefly.net.tcp.nio;
+
+import com.firefly.net.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import static com.firefly.net.tcp.TcpPerformanceParameter.BACKLOG;
+
+/**
+ * The server accepts the connections in the acceptor event loops and distributes them to all event loops. If the
+ * port is reused, every acceptor binds its own server socket, otherwise the acceptors select the same server socket.
+ *
+ * @author Pengtao Qiu
+ */
+public class NioTcpServer extends AbstractNioTcpLifeCycle implements Server {
+
+    // the SO_REUSEPORT option is available since JDK 9
+    private static final SocketOption<Boolean> SO_REUSEPORT = getReusePortOption();
+
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> getReusePortOption() {
+        try {
+            return (SocketOption<Boolean>) StandardSocketOptions.class.getField("SO_REUSEPORT").get(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public NioTcpServer() {
+    }
+
+    public NioTcpServer(Config config) {
+        this.config = config;
+    }
+
+    public NioTcpServer(Decoder decoder, Encoder encoder, Handler handler) {
+        config = new Config();
+        config.setDecoder(decoder);
+        config.setEncoder(encoder);
+        config.setHandler(handler);
+    }
+
+    public NioTcpServer(Decoder decoder, Encoder encoder, Handler handler, int timeout) {
+        config = new Config();
+        config.setDecoder(decoder);
+        config.setEncoder(encoder);
+        config.setHandler(handler);
+        config.setTimeout(timeout);
+    }
+
+    @Override
+    public void setConfig(Config config) {
+        this.config = config;
+    }
+
+    @Override
+    public void listen(String host, int port) {
+        start();
+        int acceptorSize = Math.max(1, Math.min(config.getAcceptorSize(), worker.getEventLoopSize()));
+        boolean reusePort = config.isReusePort() && acceptorSize > 1;
+        if (reusePort && SO_REUSEPORT == null) {
+            log.warn("the SO_REUSEPORT option is not supported, the acceptors share one server socket");
+            reusePort = false;
+        }
+        try {
+            ServerSocketChannel serverSocketChannel = null;
+            for (int i = 0; i < acceptorSize; i++) {
+                if (serverSocketChannel == null || reusePort) {
+                    serverSocketChannel = bind(host, port, reusePort);
+                }
+                listen(serverSocketChannel, worker.getEventLoop(i));
+            }
+        } catch (Exception e) {
+            log.error("ServerSocket bind error", e);
+            return;
+        }
+        log.info("start server. host: {}, port: {}, acceptors: {}, reuse port: {}", host, port, acceptorSize, reusePort);
+    }
+
+    private ServerSocketChannel bind(String host, int port, boolean reusePort) throws IOException {
+        ServerSocketChannel serverSocketChannel = ServerSocketChannel.open();
+        serverSocketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        if (reusePort) {
+            serverSocketChannel.setOption(SO_REUSEPORT, true);
+        }
+        serverSocketChannel.configureBlocking(false);
+        serverSocketChannel.bind(new InetSocketAddress(host, port), BACKLOG);
+        return serverSocketChannel;
+    }
+
+    private void listen(ServerSocketChannel serverSocketChannel, NioEventLoop eventLoop) {
+        Acceptor acceptor = new Acceptor(serverSocketChannel);
+        eventLoop.execute(() -> {
+            try {
+                eventLoop.register(serverSocketChannel, SelectionKey.OP_ACCEPT, acceptor);
+            } catch (IOException e) {
+                log.error("ServerSocket register error", e);
+            }
+        });
+    }
+
+    private class Acceptor implements NioEventLoop.SelectionHandler {
+
+        private final ServerSocketChannel serverSocketChannel;
+
+        private Acceptor(ServerSocketChannel serverSocketChannel) {
+            this.serverSocketChannel = serverSocketChannel;
+        }
+
+        @Override
+        public void handleSelection(SelectionKey key) {
+            while (true) {
+                SocketChannel socketChannel;
+                try {
+                    // the other acceptors may take the connection when they select the same server socket
+                    socketChannel = serverSocketChannel.accept();
+                } catch (Throwable t) {
+                    int id = sessionId.getAndIncrement();
+                    try {
+                        config.getHandler().failedAcceptingSession(id, t);
+                    } catch (Throwable e) {
+                        log.error("session {} accepting exception", e, id);
+                    }
+                    log.error("server accepts channel {} error occurs", t, id);
+                    return;
+                }
+                if (socketChannel == null) {
+                    return;
+                }
+                worker.registerChannel(socketChannel, sessionId.getAndIncrement());
+            }
+        }
+
+        @Override
+        public void close() {
+            try {
+                serverSocketChannel.close();
+            } catch (IOException e) {
+                log.error("ServerSocket close error", e);
+            }
+        }
+    }
+
+    @Override
+    protected String getThreadName() {
+        return "firefly-nio-tcp-server-";
+    }
+}
@@ -0,0 +1,638 @@
+package com.firefly.net.tcp.nio;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.firefly.net.*;
+import com.firefly.net.buffer.AdaptiveBufferSizePredictor;
+import com.firefly.net.buffer.FileRegion;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.io.IO;
+import com.firefly.utils.time.ExpirationTimeWheel;
+import com.firefly.utils.time.Millisecond100Clock;
+import com.firefly.utils.time.SafeSimpleDateFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.firefly.net.tcp.TcpPerformanceParameter.WRITE_SPIN_COUNT;
+
+/**
+ * The session is owned by one event loop. The reading and the gathering write run in the event loop thread, the
+ * entries that are written by the other threads are queued and flushed by the event loop. The file region is
+ * transferred to the socket channel by {@link java.nio.channels.FileChannel#transferTo} in the queue order.
+ *
+ * @author Pengtao Qiu
+ */
+public class NioTcpSession implements Session, NioEventLoop.SelectionHandler {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final int sessionId;
+    private final long openTime;
+    private final Counter activeCount;
+    private final Histogram duration;
+    private long closeTime;
+    private volatile long lastReadTime;
+    private volatile long lastWrittenTime;
+    private long readBytes = 0;
+    private long writtenBytes = 0;
+    private volatile State state;
+    private final SocketChannel socketChannel;
+    private final NioEventLoop eventLoop;
+    private SelectionKey selectionKey;
+    private volatile InetSocketAddress localAddress;
+    private volatile InetSocketAddress remoteAddress;
+
+    private final Config config;
+    private final EventManager eventManager;
+    private volatile Object attachment;
+    private volatile ExpirationTimeWheel.Entry<Session> idleTimeoutEntry;
+
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private final AtomicBoolean writing = new AtomicBoolean(false);
+    private final Queue<OutputEntry<?>> outputBuffer = new ConcurrentLinkedQueue<>();
+    private final List<OutputEntry<?>> flushingEntries = new ArrayList<>();
+    private ByteBuffer[] flushingBuffers = new ByteBuffer[16];
+    private int flushingBufferOffset;
+    private int flushingBufferLength;
+    private int completedEntryIndex;
+    private final Runnable flushTask = this::flush;
+    private final BufferSizePredictor bufferSizePredictor = new AdaptiveBufferSizePredictor();
+    private final BufferPool readBufferPool;
+    private ByteBuffer currentReadBuffer;
+    private boolean readBufferRetained;
+
+    NioTcpSession(int sessionId, Config config, EventManager eventManager,
+                  SocketChannel socketChannel, NioEventLoop eventLoop) {
+        this.sessionId = sessionId;
+        this.openTime = Millisecond100Clock.currentTimeMillis();
+        this.config = config;
+        this.eventManager = eventManager;
+        this.socketChannel = socketChannel;
+        this.eventLoop = eventLoop;
+        this.readBufferPool = config.getReadBufferPool();
+        state = State.OPEN;
+        MetricRegistry metrics = config.getMetricReporterFactory().getMetricRegistry();
+        activeCount = metrics.counter("nio.NioTcpSession.activeCount");
+        activeCount.inc();
+        duration = metrics.histogram("nio.NioTcpSession.duration");
+    }
+
+    void setSelectionKey(SelectionKey selectionKey) {
+        this.selectionKey = selectionKey;
+    }
+
+    void setIdleTimeoutEntry(ExpirationTimeWheel.Entry<Session> idleTimeoutEntry) {
+        this.idleTimeoutEntry = idleTimeoutEntry;
+        if (idleTimeoutEntry != null && !isOpen()) {
+            idleTimeoutEntry.cancel();
+        }
+    }
+
+    @Override
+    public void handleSelection(SelectionKey key) {
+        if (!key.isValid())
+            return;
+
+        int readyOps = key.readyOps();
+        if ((readyOps & SelectionKey.OP_WRITE) != 0) {
+            flush();
+        }
+        if ((readyOps & SelectionKey.OP_READ) != 0 && key.isValid()) {
+            read();
+        }
+    }
+
+    private void read() {
+        final ByteBuffer buf = readBufferPool.acquire(BufferUtils.normalizeBufferSize(bufferSizePredictor.nextBufferSize()));
+        int currentReadBytes;
+        try {
+            currentReadBytes = socketChannel.read(buf);
+        } catch (IOException e) {
+            log.warn("the session {} read data is failed", e, getSessionId());
+            readBufferPool.release(buf);
+            closeNow();
+            return;
+        }
+
+        lastReadTime = Millisecond100Clock.currentTimeMillis();
+        if (currentReadBytes < 0) {
+            if (log.isDebugEnabled()) {
+                log.debug("the session {} input is closed, {}", getSessionId(), currentReadBytes);
+            }
+            readBufferPool.release(buf);
+            closeNow();
+            return;
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("the session {} read {} bytes", getSessionId(), currentReadBytes);
+        }
+        // Update the predictor.
+        bufferSizePredictor.previousReceivedBufferSize(currentReadBytes);
+        readBytes += currentReadBytes;
+        buf.flip();
+        currentReadBuffer = buf;
+        readBufferRetained = false;
+        try {
+            config.getDecoder().decode(buf, this);
+        } catch (Throwable t) {
+            eventManager.executeExceptionTask(this, t);
+        } finally {
+            currentReadBuffer = null;
+            if (!readBufferRetained) {
+                readBufferPool.release(buf);
+            }
+        }
+    }
+
+    /**
+     * Drain the pending entries and write them using the gathering writes in the event loop thread. The session
+     * flushes a limited number of batches at a time, then it yields the event loop to the other sessions.
+     */
+    private void flush() {
+        for (int i = 0; i < WRITE_SPIN_COUNT; i++) {
+            if (!isOpen())
+                return;
+
+            if (flushingEntries.isEmpty()) {
+                OutputEntry<?> entry = outputBuffer.peek();
+                if (entry == null) {
+                    writing.set(false);
+                    // the other threads may offer entries before the writing flag is reset
+                    if (outputBuffer.isEmpty() || !writing.compareAndSet(false, true)) {
+                        return;
+                    } else {
+                        continue;
+                    }
+                }
+
+                if (entry.getOutputEntryType() == OutputEntryType.DISCONNECTION) {
+                    outputBuffer.poll();
+                    log.debug("the session {} will close", getSessionId());
+                    shutdownSocketChannel();
+                    return;
+                }
+
+                gather();
+            }
+
+            OutputEntry<?> first = flushingEntries.get(0);
+            boolean flushed = first.getOutputEntryType() == OutputEntryType.FILE_REGION
+                    ? _transfer((FileRegionOutputEntry) first)
+                    : _write();
+            if (!flushed) {
+                return;
+            }
+            clearFlushingEntries();
+        }
+        eventLoop.execute(flushTask);
+    }
+
+    private void gather() {
+        long bytes = 0;
+        OutputEntry<?> entry;
+        while ((entry = outputBuffer.peek()) != null && entry.getOutputEntryType() != OutputEntryType.DISCONNECTION) {
+            if (entry.getOutputEntryType() == OutputEntryType.FILE_REGION) {
+                // the file region is transferred alone after the buffers before it are written
+                if (flushingEntries.isEmpty()) {
+                    outputBuffer.poll();
+                    flushingEntries.add(entry);
+                }
+                break;
+            }
+
+            long remaining = entry.remaining();
+            if (!flushingEntries.isEmpty()
+                    && (flushingEntries.size() >= config.getMaxGatheringWriteEntries()
+                    || bytes + remaining > config.getMaxGatheringWriteBytes())) {
+                break;
+            }
+
+            outputBuffer.poll();
+            flushingEntries.add(entry);
+            bytes += remaining;
+            switch (entry.getOutputEntryType()) {
+                case BYTE_BUFFER:
+                    addFlushingBuffer(((ByteBufferOutputEntry) entry).getData());
+                    break;
+                case BYTE_BUFFER_ARRAY:
+                    for (ByteBuffer buffer : ((ByteBufferArrayOutputEntry) entry).getData()) {
+                        addFlushingBuffer(buffer);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void addFlushingBuffer(ByteBuffer buffer) {
+        if (flushingBufferLength == flushingBuffers.length) {
+            flushingBuffers = Arrays.copyOf(flushingBuffers, flushingBuffers.length << 1);
+        }
+        flushingBuffers[flushingBufferLength++] = buffer;
+    }
+
+    private void clearFlushingEntries() {
+        Arrays.fill(flushingBuffers, 0, flushingBufferLength, null);
+        flushingBufferOffset = 0;
+        flushingBufferLength = 0;
+        completedEntryIndex = 0;
+        flushingEntries.clear();
+    }
+
+    /**
+     * Write the flushing buffers until the socket send buffer is full.
+     *
+     * @return If it returns true, all flushing buffers are written, otherwise the session waits for the socket
+     * being writable or it is closed.
+     */
+    private boolean _write() {
+        for (int i = 0; i < WRITE_SPIN_COUNT; i++) {
+            long currentWrittenBytes;
+            try {
+                currentWrittenBytes = socketChannel.write(flushingBuffers, flushingBufferOffset,
+                        flushingBufferLength - flushingBufferOffset);
+            } catch (IOException e) {
+                failFlushingEntries(e);
+                return false;
+            }
+
+            lastWrittenTime = Millisecond100Clock.currentTimeMillis();
+            writtenBytes += currentWrittenBytes;
+            while (flushingBufferOffset < flushingBufferLength && !flushingBuffers[flushingBufferOffset].hasRemaining()) {
+                flushingBufferOffset++;
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("the session {} writes {} bytes, remaining {} buffers", getSessionId(),
+                        currentWrittenBytes, flushingBufferLength - flushingBufferOffset);
+            }
+
+            // complete the entries in order once all their bytes are written
+            while (completedEntryIndex < flushingEntries.size()) {
+                OutputEntry<?> entry = flushingEntries.get(completedEntryIndex);
+                if (entry.remaining() > 0) {
+                    break;
+                }
+                completedEntryIndex++;
+                entry.getCallback().succeeded();
+            }
+
+            if (flushingBufferOffset == flushingBufferLength) {
+                setWriteInterest(false);
+                return true;
+            }
+            if (currentWrittenBytes == 0) {
+                break;
+            }
+        }
+        setWriteInterest(true);
+        return false;
+    }
+
+    /**
+     * Transfer the file region until the socket send buffer is full.
+     *
+     * @return If it returns true, the file region is transferred, otherwise the session waits for the socket
+     * being writable or it is closed.
+     */
+    private boolean _transfer(FileRegionOutputEntry entry) {
+        for (int i = 0; i < WRITE_SPIN_COUNT; i++) {
+            long currentWrittenBytes;
+            try {
+                currentWrittenBytes = entry.transferTo(socketChannel);
+            } catch (IOException e) {
+                failFlushingEntries(e);
+                return false;
+            }
+
+            lastWrittenTime = Millisecond100Clock.currentTimeMillis();
+            writtenBytes += currentWrittenBytes;
+            if (log.isDebugEnabled()) {
+                log.debug("the session {} transfers {} bytes of the file region, remaining {} bytes", getSessionId(),
+                        currentWrittenBytes, entry.remaining());
+            }
+
+            if (entry.remaining() == 0) {
+                completedEntryIndex++;
+                entry.getCallback().succeeded();
+                setWriteInterest(false);
+                return true;
+            }
+            if (currentWrittenBytes == 0) {
+                break;
+            }
+        }
+        setWriteInterest(true);
+        return false;
+    }
+
+    private void setWriteInterest(boolean interested) {
+        if (!selectionKey.isValid())
+            return;
+
+        int interestOps = selectionKey.interestOps();
+        int newInterestOps = interested
+                ? interestOps | SelectionKey.OP_WRITE
+                : interestOps & ~SelectionKey.OP_WRITE;
+        if (newInterestOps != interestOps) {
+            selectionKey.interestOps(newInterestOps);
+        }
+    }
+
+    private void failFlushingEntries(Throwable t) {
+        log.warn("the session {} writes data is failed", t, getSessionId());
+        List<OutputEntry<?>> failedEntries = new ArrayList<>(flushingEntries.subList(completedEntryIndex, flushingEntries.size()));
+        clearFlushingEntries();
+        int bufferSize = outputBuffer.size();
+        if (bufferSize > 0) {
+            log.warn("the session {} has {} buffer data can not ouput", getSessionId(), bufferSize);
+        }
+        writing.set(false);
+        closeNow();
+        failedEntries.forEach(entry -> entry.getCallback().failed(t));
+        failPendingEntries(t);
+    }
+
+    /**
+     * Fail the entries that will never be written after the session is closed. The flushing entries are owned
+     * by the event loop, so it must be called in the event loop thread.
+     */
+    private void failClosedEntries() {
+        ClosedChannelException e = new ClosedChannelException();
+        List<OutputEntry<?>> failedEntries = new ArrayList<>(flushingEntries.subList(completedEntryIndex, flushingEntries.size()));
+        clearFlushingEntries();
+        failedEntries.forEach(entry -> entry.getCallback().failed(e));
+        failPendingEntries(e);
+    }
+
+    private void failPendingEntries(Throwable t) {
+        OutputEntry<?> entry;
+        while ((entry = outputBuffer.poll()) != null) {
+            entry.getCallback().failed(t);
+        }
+    }
+
+    @Override
+    public void write(OutputEntry<?> entry) {
+        if (entry == null)
+            return;
+
+        if (!isOpen()) {
+            entry.getCallback().failed(new ClosedChannelException());
+            return;
+        }
+
+        outputBuffer.offer(entry);
+        if (!isOpen()) {
+            // the session is closed before the entry is queued, nobody flushes it
+            failPendingEntries(new ClosedChannelException());
+            return;
+        }
+        if (writing.compareAndSet(false, true)) {
+            if (eventLoop.inEventLoop()) {
+                flush();
+            } else {
+                eventLoop.execute(flushTask);
+            }
+        }
+    }
+
+    @Override
+    public void write(ByteBuffer byteBuffer, Callback callback) {
+        write(new ByteBufferOutputEntry(callback, byteBuffer));
+    }
+
+    @Override
+    public void write(ByteBuffer[] buffers, Callback callback) {
+        write(new ByteBufferArrayOutputEntry(callback, buffers));
+    }
+
+    @Override
+    public void write(Collection<ByteBuffer> buffers, Callback callback) {
+        write(new ByteBufferArrayOutputEntry(callback, buffers.toArray(BufferUtils.EMPTY_BYTE_BUFFER_ARRAY)));
+    }
+
+    @Override
+    public void retainReadBuffer(ByteBuffer buffer) {
+        if (buffer == currentReadBuffer) {
+            readBufferRetained = true;
+        }
+    }
+
+    @Override
+    public void write(FileRegion file, Callback callback) {
+        write(new FileRegionOutputEntry(new Callback() {
+            @Override
+            public void succeeded() {
+                IO.close(file);
+                callback.succeeded();
+            }
+
+            @Override
+            public void failed(Throwable x) {
+                IO.close(file);
+                callback.failed(x);
+            }
+        }, file));
+    }
+
+    @Override
+    public void attachObject(Object attachment) {
+        this.attachment = attachment;
+    }
+
+    @Override
+    public Object getAttachment() {
+        return attachment;
+    }
+
+    @Override
+    public void fireReceiveMessage(Object message) {
+        eventManager.executeReceiveTask(this, message);
+    }
+
+    @Override
+    public void encode(Object message) {
+        try {
+            config.getEncoder().encode(message, this);
+        } catch (Throwable t) {
+            eventManager.executeExceptionTask(this, t);
+        }
+    }
+
+    @Override
+    public void close() {
+        write(DISCONNECTION_FLAG);
+    }
+
+    @Override
+    public void closeNow() {
+        // the event loop, the idle timeout manager and the other threads may close the session at the same time
+        if (!closed.compareAndSet(false, true))
+            return;
+
+        closeTime = Millisecond100Clock.currentTimeMillis();
+        try {
+            socketChannel.close();
+        } catch (IOException e) {
+            log.error("the session {} close error", e, sessionId);
+        }
+        state = State.CLOSE;
+        ExpirationTimeWheel.Entry<Session> entry = idleTimeoutEntry;
+        if (entry != null) {
+            entry.cancel();
+        }
+        if (eventLoop.inEventLoop()) {
+            failClosedEntries();
+        } else {
+            eventLoop.execute(this::failClosedEntries);
+        }
+        eventManager.executeCloseTask(this);
+        activeCount.dec();
+        duration.update(getDuration());
+    }
+
+    @Override
+    public void shutdownOutput() {
+        try {
+            socketChannel.shutdownOutput();
+        } catch (ClosedChannelException e) {
+            log.debug("the session {} is closed", e, sessionId);
+        } catch (IOException e) {
+            log.error("the session {} shutdown output error", e, sessionId);
+        }
+    }
+
+    @Override
+    public void shutdownInput() {
+        try {
+            socketChannel.shutdownInput();
+        } catch (ClosedChannelException e) {
+            log.debug("the session {} is closed", e, sessionId);
+        } catch (IOException e) {
+            log.error("the session {} shutdown input error", e, sessionId);
+        }
+    }
+
+    private void shutdownSocketChannel() {
+        shutdownOutput();
+        shutdownInput();
+    }
+
+    @Override
+    public int getSessionId() {
+        return sessionId;
+    }
+
+    @Override
+    public long getOpenTime() {
+        return openTime;
+    }
+
+    @Override
+    public long getCloseTime() {
+        return closeTime;
+    }
+
+    @Override
+    public long getDuration() {
+        if (closeTime > 0) {
+            return closeTime - openTime;
+        } else {
+            return Millisecond100Clock.currentTimeMillis() - openTime;
+        }
+    }
+
+    @Override
+    public long getLastReadTime() {
+        return lastReadTime;
+    }
+
+    @Override
+    public long getLastWrittenTime() {
+        return lastWrittenTime;
+    }
+
+    @Override
+    public long getLastActiveTime() {
+        return Math.max(lastReadTime, lastWrittenTime);
+    }
+
+    @Override
+    public long getReadBytes() {
+        return readBytes;
+    }
+
+    @Override
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+
+    @Override
+    public State getState() {
+        return state;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return state == State.OPEN;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        if (localAddress != null) {
+            return localAddress;
+        } else {
+            try {
+                localAddress = (InetSocketAddress) socketChannel.getLocalAddress();
+                return localAddress;
+            } catch (IOException e) {
+                log.error("the session {} gets local address error", e, sessionId);
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        if (remoteAddress != null) {
+            return remoteAddress;
+        } else {
+            try {
+                remoteAddress = (InetSocketAddress) socketChannel.getRemoteAddress();
+                return remoteAddress;
+            } catch (Throwable t) {
+                log.error("the session {} gets remote address error", t, sessionId);
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "[sessionId=" + sessionId + ", openTime="
+                + SafeSimpleDateFormat.defaultDateFormat.format(new Date(openTime)) + ", closeTime="
+                + SafeSimpleDateFormat.defaultDateFormat.format(new Date(closeTime)) + ", duration=" + getDuration()
+                + ", readBytes=" + readBytes + ", writtenBytes=" + writtenBytes + "]";
+    }
+
+    @Override
+    public long getIdleTimeout() {
+        return config.getTimeout();
+    }
+
+}
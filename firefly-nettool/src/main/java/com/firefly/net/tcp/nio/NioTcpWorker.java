@@ -0,0 +1,106 @@
+package com.firefly.net.tcp.nio;
+
+import com.firefly.net.Config;
+import com.firefly.net.EventManager;
+import com.firefly.net.Worker;
+import com.firefly.net.exception.NetException;
+import com.firefly.net.tcp.IdleTimeoutManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.Channel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The worker assigns the channels to the event loops in turn, the session is handled by the same event loop until
+ * it is closed.
+ *
+ * @author Pengtao Qiu
+ */
+public class NioTcpWorker implements Worker {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final Config config;
+    private final EventManager eventManager;
+    private final IdleTimeoutManager idleTimeoutManager;
+    private final NioEventLoop[] eventLoops;
+    private final AtomicInteger index = new AtomicInteger();
+
+    NioTcpWorker(Config config, EventManager eventManager, IdleTimeoutManager idleTimeoutManager, String threadName) {
+        this.config = config;
+        this.eventManager = eventManager;
+        this.idleTimeoutManager = idleTimeoutManager;
+        eventLoops = new NioEventLoop[Math.max(1, config.getEventLoopSize())];
+        try {
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new NioEventLoop(threadName + i);
+            }
+        } catch (IOException e) {
+            throw new NetException("open selector error -> " + e.getMessage());
+        }
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.start();
+        }
+    }
+
+    NioEventLoop next() {
+        return eventLoops[Math.abs(index.getAndIncrement() % eventLoops.length)];
+    }
+
+    NioEventLoop getEventLoop(int i) {
+        return eventLoops[i % eventLoops.length];
+    }
+
+    int getEventLoopSize() {
+        return eventLoops.length;
+    }
+
+    @Override
+    public void registerChannel(Channel channel, int sessionId) {
+        NioEventLoop eventLoop = next();
+        eventLoop.execute(() -> registerChannel(eventLoop, (SocketChannel) channel, sessionId, null));
+    }
+
+    /**
+     * Create the session in the event loop thread. If the channel has been registered by the client connector, the
+     * selection key is attached to the session.
+     */
+    void registerChannel(NioEventLoop eventLoop, SocketChannel socketChannel, int sessionId, SelectionKey key) {
+        try {
+            socketChannel.configureBlocking(false);
+            socketChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            socketChannel.setOption(StandardSocketOptions.SO_KEEPALIVE, true);
+            socketChannel.setOption(StandardSocketOptions.TCP_NODELAY, false);
+
+            if (key == null) {
+                key = eventLoop.register(socketChannel, SelectionKey.OP_READ, null);
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+            }
+            NioTcpSession session = new NioTcpSession(sessionId, config, eventManager, socketChannel, eventLoop);
+            session.setSelectionKey(key);
+            key.attach(session);
+            session.setIdleTimeoutEntry(idleTimeoutManager.add(session));
+            eventManager.executeOpenTask(session);
+        } catch (IOException e) {
+            log.error("socketChannel register error", e);
+            try {
+                socketChannel.close();
+            } catch (IOException e1) {
+                log.error("socketChannel close error", e1);
+            }
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        for (NioEventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+    }
+}
@@ -5,11 +5,12 @@ import com.firefly.net.SSLContextFactory;
 import com.firefly.net.SSLEventHandler;
 import com.firefly.net.Session;
 import com.firefly.net.buffer.FileRegion;
+import com.firefly.net.buffer.FileRegionSender;
 import com.firefly.net.buffer.ThreadSafeIOBufferPool;
 import com.firefly.utils.concurrent.Callback;
 import com.firefly.utils.concurrent.CountingCallback;
-import com.firefly.utils.io.BufferReaderHandler;
 import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.io.FileUtils;
 import io.netty.handler.ssl.SslHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,6 +21,7 @@ import javax.net.ssl.SSLEngineResult.HandshakeStatus;
 import java.io.Closeable;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 public class SSLSession implements Closeable {
@@ -250,20 +252,17 @@ public class SSLSession implements Closeable {
     }
 
     private void merge(ByteBuffer now) {
+        if (inNetBuffer == null || !inNetBuffer.hasRemaining()) {
+            inNetBuffer = now;
+            return;
+        }
+
         if (!now.hasRemaining())
             return;
 
-        if (inNetBuffer != null) {
-            if (inNetBuffer.hasRemaining()) {
-                ByteBuffer ret = ByteBuffer.allocate(inNetBuffer.remaining() + now.remaining());
-                ret.put(inNetBuffer).put(now).flip();
-                inNetBuffer = ret;
-            } else {
-                inNetBuffer = now;
-            }
-        } else {
-            inNetBuffer = now;
-        }
+        ByteBuffer ret = ByteBuffer.allocate(inNetBuffer.remaining() + now.remaining());
+        ret.put(inNetBuffer).put(now).flip();
+        inNetBuffer = ret;
     }
 
     private ByteBuffer getOutAppBuffer() {
@@ -325,6 +324,33 @@ public class SSLSession implements Closeable {
      * @throws IOException sslEngine error during data read
      */
     public ByteBuffer read(ByteBuffer receiveBuffer) throws IOException {
+        try {
+            return decrypt(receiveBuffer);
+        } finally {
+            detachReceiveBuffer(receiveBuffer);
+        }
+    }
+
+    /**
+     * The receive buffer is returned to the read buffer pool after decoding,
+     * so the remaining encrypted data must be copied before the buffer is reused,
+     * and the consumed buffer must not be referenced.
+     *
+     * @param receiveBuffer Encrypted message
+     */
+    private void detachReceiveBuffer(ByteBuffer receiveBuffer) {
+        if (inNetBuffer == receiveBuffer) {
+            if (inNetBuffer.hasRemaining()) {
+                ByteBuffer buf = ByteBuffer.allocate(inNetBuffer.remaining());
+                buf.put(inNetBuffer).flip();
+                inNetBuffer = buf;
+            } else {
+                inNetBuffer = null;
+            }
+        }
+    }
+
+    private ByteBuffer decrypt(ByteBuffer receiveBuffer) throws IOException {
         if (!doHandshake(receiveBuffer))
             return null;
 
@@ -339,66 +365,64 @@ public class SSLSession implements Closeable {
             return null;
         }
 
-        //split net buffer when the net buffer remaining great than the net size
+        // unwrap the records one by one, the engine reads a packet at most, so the copied data is limited to the packet size
         int netSize = sslEngine.getSession().getPacketBufferSize();
-        List<ByteBuffer> inNetBuffers = BufferUtils.split(inNetBuffer, netSize);
-        for (ByteBuffer net : inNetBuffers) {
+        while (true) {
+            ByteBuffer net = inNetBuffer.slice();
+            if (net.remaining() > netSize) {
+                net.limit(netSize);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("SSL session {} unwrap, pocket -> {},  in -> {}, out -> {}, temp -> {}",
+                        session.getSessionId(), netSize, inNetBuffer.remaining(), outAppBuffer.remaining(),
+                        net.remaining());
+            }
+
             SSLEngineResult result;
-            while (true) {
-                if (log.isDebugEnabled()) {
-                    log.debug("SSL session {} unwrap, pocket -> {},  in -> {}, out -> {}, temp -> {}",
-                            session.getSessionId(), netSize, inNetBuffer.remaining(), outAppBuffer.remaining(),
-                            net.remaining());
-                }
+            //FIXME using direct buffer avoid netty ByteBufAllocator bug
+            ByteBuffer directTmpBuffer = bufferPool.acquire(net.remaining());
+            try {
+                directTmpBuffer.put(net).flip();
+                result = sslEngine.unwrap(directTmpBuffer, outAppBuffer);
+            } finally {
+                bufferPool.release(directTmpBuffer);
+            }
 
-                //FIXME using direct buffer avoid netty ByteBufAllocator bug
-                ByteBuffer directTmpBuffer = bufferPool.acquire(net.remaining());
-                try {
-                    directTmpBuffer.put(net.slice()).flip();
-                    result = sslEngine.unwrap(directTmpBuffer, outAppBuffer);
-                } finally {
-                    bufferPool.release(directTmpBuffer);
-                }
+            int consumed = result.bytesConsumed();
+            inNetBuffer.position(inNetBuffer.position() + consumed);
+            if (log.isDebugEnabled()) {
+                log.debug("SSL session {} unwrap, status -> {}, in -> {}, out -> {}, consumed -> {}",
+                        session.getSessionId(), result.getStatus(), inNetBuffer.remaining(), outAppBuffer.remaining(),
+                        consumed);
+            }
 
-                int consumed = result.bytesConsumed();
-                inNetBuffer.position(inNetBuffer.position() + consumed);
-                net.position(net.position() + consumed);
-                if (log.isDebugEnabled()) {
-                    log.debug("SSL session {} unwrap, status -> {}, in -> {}, out -> {}, temp -> {}, consumed -> {}",
-                            session.getSessionId(), result.getStatus(), inNetBuffer.remaining(), outAppBuffer.remaining(),
-                            net.remaining(), consumed);
-                }
+            switch (result.getStatus()) {
+                case BUFFER_OVERFLOW:
+                    // Reset the application buffer size. Some engines require the space of a whole packet.
+                    int appSize = Math.max(sslEngine.getSession().getApplicationBufferSize(), netSize);
+                    ByteBuffer b = ByteBuffer.allocate(appSize + outAppBuffer.position());
+                    outAppBuffer.flip();
+                    b.put(outAppBuffer);
+                    outAppBuffer = b;
+                    // retry the operation.
+                    break;
 
-                switch (result.getStatus()) {
-                    case BUFFER_OVERFLOW:
-                        // Reset the application buffer size.
-                        int appSize = sslEngine.getSession().getApplicationBufferSize();
-                        ByteBuffer b = ByteBuffer.allocate(appSize + outAppBuffer.position());
-                        outAppBuffer.flip();
-                        b.put(outAppBuffer);
-                        outAppBuffer = b;
-                        // retry the operation.
-                        break;
+                case BUFFER_UNDERFLOW:
+                    return getOutAppBuffer();
 
-                    case BUFFER_UNDERFLOW:
+                case OK:
+                    if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
+                        doTasks();
+                    }
+                    if (!inNetBuffer.hasRemaining() || (consumed == 0 && result.bytesProduced() == 0)) {
                         return getOutAppBuffer();
+                    }
+                    break;
 
-                    case OK:
-                        if (result.getHandshakeStatus() == HandshakeStatus.NEED_TASK) {
-                            doTasks();
-                        }
-                        if (!inNetBuffer.hasRemaining()) {
-                            return getOutAppBuffer();
-                        }
-                        break;
-
-                    default:
-                        throw new IOException("sslEngine error during data read: " + result.getStatus());
-                }
+                default:
+                    throw new IOException("sslEngine error during data read: " + result.getStatus());
             }
         }
-
-        return getOutAppBuffer();
     }
 
     public int write(ByteBuffer[] outputBuffers, Callback callback) throws IOException {
@@ -422,10 +446,14 @@ public class SSLSession implements Closeable {
             throw new IllegalStateException("The initial handshake is not complete.");
 
         int ret = 0;
-        if (!outputBuffer.hasRemaining())
+        if (!outputBuffer.hasRemaining()) {
+            callback.succeeded();
             return ret;
+        }
 
         final int remain = outputBuffer.remaining();
+        // the records are written as one entry, so the callback is completed once
+        List<ByteBuffer> records = new ArrayList<>();
 
         while (ret < remain) {
             ByteBuffer writeBuf = ByteBuffer.allocateDirect(writeBufferSize);
@@ -444,6 +472,7 @@ public class SSLSession implements Closeable {
                 }
 
                 ret += result.bytesConsumed();
+                outputBuffer.position(outputBuffer.position() + result.bytesConsumed());
 
                 switch (result.getStatus()) {
                     case OK:
@@ -452,7 +481,7 @@ public class SSLSession implements Closeable {
                         }
 
                         writeBuf.flip();
-                        session.write(writeBuf, callback);
+                        records.add(writeBuf);
                         break wrap;
 
                     case BUFFER_OVERFLOW:
@@ -469,35 +498,21 @@ public class SSLSession implements Closeable {
             }
         }
 
+        session.write(records, callback);
         return ret;
     }
 
-    private class FileBufferReaderHandler implements BufferReaderHandler {
-
-        private final long len;
-
-        private FileBufferReaderHandler(long len) {
-            this.len = len;
-        }
-
-        @Override
-        public void readBuffer(ByteBuffer buf, CountingCallback countingCallback, long count) {
-            log.debug("write file,  count: {} , lenth: {}", count, len);
-            try {
-                write(buf, countingCallback);
-            } catch (Throwable e) {
-                log.error("ssl session writing error", e);
-            }
-        }
-
-    }
-
-    public long transferFileRegion(FileRegion file, Callback callback) throws Throwable {
-        long ret = 0;
-        try (FileRegion fileRegion = file) {
-            fileRegion.transferTo(callback, new FileBufferReaderHandler(file.getLength()));
-        }
-        return ret;
+    /**
+     * Encrypt and send the file region asynchronously. The callback is completed when the whole region has been
+     * written or the transfer is failed.
+     *
+     * @param file     The file region.
+     * @param callback The transfer callback.
+     */
+    public void transferFileRegion(FileRegion file, Callback callback) {
+        // the SSL engine copies the remaining plaintext to wrap each record, so the chunk should be small
+        new FileRegionSender(file, this::write, callback,
+                (int) FileUtils.FILE_READER_BUFFER_SIZE, FileRegionSender.DEFAULT_MAX_IN_FLIGHT_CHUNKS).send();
     }
 
     public boolean isHandshakeFinished() {
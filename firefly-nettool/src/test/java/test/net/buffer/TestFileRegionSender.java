@@ -0,0 +1,121 @@
+package test.net.buffer;
+
+import com.firefly.net.buffer.FileRegion;
+import com.firefly.net.buffer.FileRegionSender;
+import com.firefly.utils.concurrent.Callback;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestFileRegionSender {
+
+    @Test
+    public void testSlidingWindow() throws Exception {
+        byte[] data = new byte[100 * 1024 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        File file = File.createTempFile("testFileRegionSender", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), data);
+
+        int position = 1000;
+        int length = data.length - 2000;
+        Queue<Callback> pendingCallbacks = new LinkedList<>();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        FileRegionSender sender = new FileRegionSender(new FileRegion(file, position, length), (chunk, callback) -> {
+            Assert.assertThat(chunk.isDirect(), is(true));
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            out.write(bytes);
+            pendingCallbacks.offer(callback);
+        }, new Callback() {
+            @Override
+            public void succeeded() {
+                completed.set(true);
+            }
+        }, 8 * 1024, 2);
+
+        sender.send();
+        while (!pendingCallbacks.isEmpty()) {
+            Assert.assertThat(pendingCallbacks.size() <= 2, is(true));
+            Assert.assertThat(completed.get(), is(false));
+            pendingCallbacks.poll().succeeded();
+        }
+
+        Assert.assertThat(completed.get(), is(true));
+        Assert.assertThat(out.toByteArray(), is(Arrays.copyOfRange(data, position, position + length)));
+    }
+
+    @Test
+    public void testChunkSizeCap() throws Exception {
+        byte[] data = new byte[FileRegionSender.MAX_CHUNK_SIZE * 3 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        File file = File.createTempFile("testFileRegionSender", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), data);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicInteger chunks = new AtomicInteger();
+        AtomicBoolean completed = new AtomicBoolean();
+
+        // the callbacks are completed in the writer, the sender keeps writing in the same loop
+        new FileRegionSender(new FileRegion(file), (chunk, callback) -> {
+            Assert.assertThat(chunk.remaining() <= FileRegionSender.MAX_CHUNK_SIZE, is(true));
+            byte[] bytes = new byte[chunk.remaining()];
+            chunk.get(bytes);
+            out.write(bytes);
+            chunks.incrementAndGet();
+            callback.succeeded();
+        }, new Callback() {
+            @Override
+            public void succeeded() {
+                completed.set(true);
+            }
+        }, FileRegionSender.MAX_CHUNK_SIZE * 4, 2).send();
+
+        Assert.assertThat(completed.get(), is(true));
+        Assert.assertThat(chunks.get(), is(4));
+        Assert.assertThat(out.toByteArray(), is(data));
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        File file = File.createTempFile("testFileRegionSender", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[64 * 1024]);
+
+        AtomicBoolean failed = new AtomicBoolean();
+        Queue<ByteBuffer> chunks = new LinkedList<>();
+        new FileRegionSender(new FileRegion(file), (chunk, callback) -> {
+            chunks.offer(chunk);
+            callback.failed(new IllegalStateException("mock write failure"));
+        }, new Callback() {
+            @Override
+            public void failed(Throwable x) {
+                failed.set(true);
+            }
+        }, 8 * 1024, 4).send();
+
+        Assert.assertThat(failed.get(), is(true));
+        Assert.assertThat(chunks.size(), is(1));
+    }
+}
@@ -0,0 +1,68 @@
+package test.net.buffer;
+
+import com.firefly.net.buffer.SizeClassBufferPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestSizeClassBufferPool {
+
+    @Test
+    public void testAcquireAndRelease() {
+        SizeClassBufferPool pool = new SizeClassBufferPool();
+        ByteBuffer buffer = pool.acquire(3 * 1024);
+        Assert.assertThat(buffer.capacity(), is(4 * 1024));
+        Assert.assertThat(buffer.remaining(), is(3 * 1024));
+        Assert.assertThat(buffer.isDirect(), is(false));
+        Assert.assertThat(pool.size(), is(0));
+
+        buffer.put((byte) 1);
+        pool.release(buffer);
+        Assert.assertThat(pool.size(), is(1));
+
+        ByteBuffer buffer2 = pool.acquire(4 * 1024);
+        Assert.assertThat(buffer2 == buffer, is(true));
+        Assert.assertThat(buffer2.position(), is(0));
+        Assert.assertThat(buffer2.remaining(), is(4 * 1024));
+        Assert.assertThat(pool.size(), is(0));
+
+        ByteBuffer buffer3 = pool.acquire(1024);
+        Assert.assertThat(buffer3 == buffer, is(false));
+        Assert.assertThat(buffer3.capacity(), is(1024));
+    }
+
+    @Test
+    public void testUnpooledBuffer() {
+        SizeClassBufferPool pool = new SizeClassBufferPool();
+        ByteBuffer buffer = pool.acquire(100 * 1024);
+        Assert.assertThat(buffer.remaining(), is(100 * 1024));
+        pool.release(buffer);
+        Assert.assertThat(pool.size(), is(0));
+
+        pool.release(ByteBuffer.allocate(3000));
+        Assert.assertThat(pool.size(), is(0));
+
+        pool.release(ByteBuffer.allocateDirect(1024));
+        Assert.assertThat(pool.size(), is(0));
+    }
+
+    @Test
+    public void testMaxBuffersPerClass() {
+        SizeClassBufferPool pool = new SizeClassBufferPool(true, 1024, 8 * 1024, 2);
+        ByteBuffer b1 = pool.acquire(1024);
+        ByteBuffer b2 = pool.acquire(1024);
+        ByteBuffer b3 = pool.acquire(1024);
+        Assert.assertThat(b1.isDirect(), is(true));
+
+        pool.release(b1);
+        pool.release(b2);
+        pool.release(b3);
+        Assert.assertThat(pool.size(), is(2));
+    }
+}
@@ -0,0 +1,123 @@
+package test.net.tcp;
+
+import com.firefly.net.Config;
+import com.firefly.net.Handler;
+import com.firefly.net.Server;
+import com.firefly.net.Session;
+import com.firefly.net.tcp.TcpTransport;
+import com.firefly.utils.concurrent.Callback;
+
+import java.io.DataInputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * The requests per second and the latency percentiles of the echo server on the AIO and NIO transports. Every client
+ * thread sends a small request on its own connection and waits for the echoed response before it sends the next one.
+ *
+ * @author Pengtao Qiu
+ */
+public class TcpTransportBenchmark {
+
+    private static final int CONNECTIONS = 64;
+    private static final int MESSAGE_SIZE = 128;
+    private static final long DURATION = 5000L;
+
+    public static void main(String[] args) throws Exception {
+        int port = 1220;
+        for (int i = 0; i < 2; i++) {
+            test("aio", port++, i == 0);
+            test("nio", port++, i == 0);
+        }
+        System.exit(0);
+    }
+
+    private static void test(String transport, int port, boolean warmUp) throws Exception {
+        Config config = new Config();
+        config.setTransport(transport);
+        config.setMonitorEnable(false);
+        config.setDecoder((buf, session) -> {
+            ByteBuffer response = ByteBuffer.allocate(buf.remaining());
+            response.put(buf).flip();
+            session.write(response, Callback.NOOP);
+        });
+        config.setHandler(new Handler() {
+            @Override
+            public void sessionOpened(Session session) {
+            }
+
+            @Override
+            public void sessionClosed(Session session) {
+            }
+
+            @Override
+            public void messageReceived(Session session, Object message) {
+            }
+
+            @Override
+            public void exceptionCaught(Session session, Throwable t) {
+                session.closeNow();
+            }
+        });
+
+        Server server = TcpTransport.createServer(config);
+        server.listen("localhost", port);
+
+        long[][] latencies = new long[CONNECTIONS][];
+        int[] counts = new int[CONNECTIONS];
+        CountDownLatch latch = new CountDownLatch(CONNECTIONS);
+        long end = System.currentTimeMillis() + DURATION;
+        for (int i = 0; i < CONNECTIONS; i++) {
+            int index = i;
+            new Thread(() -> {
+                long[] latency = new long[1024];
+                int count = 0;
+                byte[] request = new byte[MESSAGE_SIZE];
+                byte[] response = new byte[MESSAGE_SIZE];
+                Arrays.fill(request, (byte) 'a');
+                try (Socket socket = new Socket("localhost", port)) {
+                    socket.setTcpNoDelay(true);
+                    OutputStream out = socket.getOutputStream();
+                    DataInputStream in = new DataInputStream(socket.getInputStream());
+                    while (System.currentTimeMillis() < end) {
+                        long start = System.nanoTime();
+                        out.write(request);
+                        out.flush();
+                        in.readFully(response);
+                        if (count == latency.length) {
+                            latency = Arrays.copyOf(latency, count << 1);
+                        }
+                        latency[count++] = System.nanoTime() - start;
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    latencies[index] = latency;
+                    counts[index] = count;
+                    latch.countDown();
+                }
+            }).start();
+        }
+        latch.await();
+        server.stop();
+
+        int total = Arrays.stream(counts).sum();
+        long[] all = new long[total];
+        int offset = 0;
+        for (int i = 0; i < CONNECTIONS; i++) {
+            System.arraycopy(latencies[i], 0, all, offset, counts[i]);
+            offset += counts[i];
+        }
+        Arrays.sort(all);
+        if (!warmUp && total > 0) {
+            System.out.println(String.format("%s: %d requests/s, p50 %d us, p99 %d us, p999 %d us",
+                    transport, total * 1000L / DURATION,
+                    all[(int) (total * 0.5)] / 1000,
+                    all[(int) (total * 0.99)] / 1000,
+                    all[(int) (total * 0.999)] / 1000));
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package test.net.tcp;
+
+import com.firefly.net.Config;
+import com.firefly.net.Handler;
+import com.firefly.net.Server;
+import com.firefly.net.Session;
+import com.firefly.net.buffer.FileRegion;
+import com.firefly.net.tcp.TcpTransport;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.IO;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestGatheringWrite {
+
+    @Test
+    public void test() throws Exception {
+        test(new Config(), 1214);
+    }
+
+    @Test
+    public void testNio() throws Exception {
+        Config config = new Config();
+        config.setTransport("nio");
+        config.setEventLoopSize(2);
+        config.setAcceptorSize(2);
+        config.setReusePort(true);
+        test(config, 1217);
+    }
+
+    @Test
+    public void testWriteAfterClose() throws Exception {
+        testWriteAfterClose(new Config(), 1218);
+    }
+
+    @Test
+    public void testNioWriteAfterClose() throws Exception {
+        Config config = new Config();
+        config.setTransport("nio");
+        testWriteAfterClose(config, 1219);
+    }
+
+    @Test
+    public void testFileRegion() throws Exception {
+        testFileRegion(new Config(), 1220);
+    }
+
+    @Test
+    public void testNioFileRegion() throws Exception {
+        Config config = new Config();
+        config.setTransport("nio");
+        testFileRegion(config, 1221);
+    }
+
+    private void testFileRegion(Config config, int port) throws Exception {
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        File file = File.createTempFile("testFileRegion", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), data);
+        FileRegion fileRegion = new FileRegion(file, 100, data.length - 200);
+        byte[] head = "head".getBytes(StandardCharsets.UTF_8);
+        byte[] tail = "tail".getBytes(StandardCharsets.UTF_8);
+        CountDownLatch latch = new CountDownLatch(3);
+
+        config.setMonitorEnable(false);
+        config.setDecoder((buf, session) -> {
+        });
+        config.setHandler(new Handler() {
+            @Override
+            public void sessionOpened(Session session) {
+                Callback callback = new Callback() {
+                    @Override
+                    public void succeeded() {
+                        latch.countDown();
+                    }
+                };
+                session.write(ByteBuffer.wrap(head), callback);
+                session.write(fileRegion, callback);
+                session.write(ByteBuffer.wrap(tail), callback);
+                session.close();
+            }
+
+            @Override
+            public void sessionClosed(Session session) {
+            }
+
+            @Override
+            public void messageReceived(Session session, Object message) {
+            }
+
+            @Override
+            public void exceptionCaught(Session session, Throwable t) {
+            }
+        });
+
+        Server server = TcpTransport.createServer(config);
+        server.listen("localhost", port);
+        try (Socket socket = new Socket("localhost", port)) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IO.copy(socket.getInputStream(), out);
+            ByteArrayOutputStream expected = new ByteArrayOutputStream();
+            expected.write(head);
+            expected.write(data, 100, data.length - 200);
+            expected.write(tail);
+            Assert.assertThat(out.toByteArray(), is(expected.toByteArray()));
+            Assert.assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+            Assert.assertThat(fileRegion.getFileChannel().isOpen(), is(false));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void testWriteAfterClose(Config config, int port) throws Exception {
+        File file = File.createTempFile("testWriteAfterClose", ".bin");
+        file.deleteOnExit();
+        Files.write(file.toPath(), new byte[64 * 1024]);
+        FileRegion fileRegion = new FileRegion(file);
+        FileChannel fileChannel = fileRegion.getFileChannel();
+        CountDownLatch latch = new CountDownLatch(2);
+
+        config.setMonitorEnable(false);
+        config.setDecoder((buf, session) -> {
+        });
+        config.setHandler(new Handler() {
+            @Override
+            public void sessionOpened(Session session) {
+                session.closeNow();
+                Callback callback = new Callback() {
+                    @Override
+                    public void failed(Throwable x) {
+                        latch.countDown();
+                    }
+                };
+                session.write(ByteBuffer.wrap("message".getBytes(StandardCharsets.UTF_8)), callback);
+                session.write(fileRegion, callback);
+            }
+
+            @Override
+            public void sessionClosed(Session session) {
+            }
+
+            @Override
+            public void messageReceived(Session session, Object message) {
+            }
+
+            @Override
+            public void exceptionCaught(Session session, Throwable t) {
+            }
+        });
+
+        Server server = TcpTransport.createServer(config);
+        server.listen("localhost", port);
+        try (Socket socket = new Socket("localhost", port)) {
+            Assert.assertThat(socket.getInputStream().read(), is(-1));
+            Assert.assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+            Assert.assertThat(fileChannel.isOpen(), is(false));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void test(Config config, int port) throws Exception {
+        int maxMsg = 2000;
+        AtomicInteger succeeded = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(maxMsg);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < maxMsg; i++) {
+            expected.append("message ").append(i).append("\r\n");
+        }
+
+        config.setMaxGatheringWriteEntries(16);
+        config.setMaxGatheringWriteBytes(1024);
+        config.setMonitorEnable(false);
+        config.setDecoder((buf, session) -> {
+        });
+        config.setHandler(new Handler() {
+            @Override
+            public void sessionOpened(Session session) {
+                Callback callback = new Callback() {
+                    @Override
+                    public void succeeded() {
+                        succeeded.incrementAndGet();
+                        latch.countDown();
+                    }
+                };
+                for (int i = 0; i < maxMsg; i++) {
+                    if (i % 2 == 0) {
+                        session.write(ByteBuffer.wrap(("message " + i + "\r\n").getBytes(StandardCharsets.UTF_8)), callback);
+                    } else {
+                        ByteBuffer[] buffers = {
+                                ByteBuffer.wrap(("message " + i).getBytes(StandardCharsets.UTF_8)),
+                                ByteBuffer.wrap("\r\n".getBytes(StandardCharsets.UTF_8))};
+                        session.write(buffers, callback);
+                    }
+                }
+                session.close();
+            }
+
+            @Override
+            public void sessionClosed(Session session) {
+            }
+
+            @Override
+            public void messageReceived(Session session, Object message) {
+            }
+
+            @Override
+            public void exceptionCaught(Session session, Throwable t) {
+            }
+        });
+
+        Server server = TcpTransport.createServer(config);
+        server.listen("localhost", port);
+        try (Socket socket = new Socket("localhost", port)) {
+            InputStream in = socket.getInputStream();
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            IO.copy(in, out);
+            Assert.assertThat(new String(out.toByteArray(), StandardCharsets.UTF_8), is(expected.toString()));
+            Assert.assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+            Assert.assertThat(succeeded.get(), is(maxMsg));
+        } finally {
+            server.stop();
+        }
+    }
+}
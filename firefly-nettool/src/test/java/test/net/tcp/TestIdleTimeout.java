@@ -0,0 +1,104 @@
+package test.net.tcp;
+
+import com.firefly.net.Config;
+import com.firefly.net.Handler;
+import com.firefly.net.Server;
+import com.firefly.net.Session;
+import com.firefly.net.tcp.TcpTransport;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
+
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+
+/**
+ * @author Pengtao Qiu
+ */
+@RunWith(Parameterized.class)
+public class TestIdleTimeout {
+
+    @Parameter
+    public String transport;
+
+    @Parameters(name = "{0}")
+    public static Collection<String> data() {
+        return Arrays.asList("aio", "nio");
+    }
+
+    @Test
+    public void testReadIdleTimeout() throws Exception {
+        Config config = new Config();
+        config.setTimeout(0);
+        config.setReadIdleTimeout(300);
+        CountDownLatch closed = new CountDownLatch(1);
+        Server server = createServer(config, closed);
+        int port = "aio".equals(transport) ? 1230 : 1231;
+        server.listen("localhost", port);
+        try (Socket ignored = new Socket("localhost", port)) {
+            long start = System.currentTimeMillis();
+            Assert.assertThat(closed.await(3, TimeUnit.SECONDS), is(true));
+            Assert.assertThat(System.currentTimeMillis() - start >= 200, is(true));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testAllIdleTimeout() throws Exception {
+        Config config = new Config();
+        config.setTimeout(500);
+        CountDownLatch closed = new CountDownLatch(1);
+        Server server = createServer(config, closed);
+        int port = "aio".equals(transport) ? 1232 : 1233;
+        server.listen("localhost", port);
+        try (Socket socket = new Socket("localhost", port)) {
+            // the active session is not closed
+            OutputStream out = socket.getOutputStream();
+            for (int i = 0; i < 12; i++) {
+                out.write('a');
+                out.flush();
+                Thread.sleep(100);
+            }
+            Assert.assertThat(closed.getCount(), is(1L));
+            Assert.assertThat(closed.await(3, TimeUnit.SECONDS), is(true));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private Server createServer(Config config, CountDownLatch closed) {
+        config.setTransport(transport);
+        config.setMonitorEnable(false);
+        config.setDecoder((buf, session) -> {
+        });
+        config.setHandler(new Handler() {
+            @Override
+            public void sessionOpened(Session session) {
+            }
+
+            @Override
+            public void sessionClosed(Session session) {
+                closed.countDown();
+            }
+
+            @Override
+            public void messageReceived(Session session, Object message) {
+            }
+
+            @Override
+            public void exceptionCaught(Session session, Throwable t) {
+            }
+        });
+        return TcpTransport.createServer(config);
+    }
+}
@@ -64,6 +64,28 @@ public class TestSimpleTcpServerAndClient {
         run.testName = "Test TCP server and client with TLS";
         data.add(run);
 
+        run = new Run();
+        run.clientConfig = new TcpConfiguration();
+        run.clientConfig.setTransport("nio");
+        run.serverConfig = new TcpServerConfiguration();
+        run.serverConfig.setTransport("nio");
+        run.port = 1215;
+        run.maxMsg = 5;
+        run.testName = "Test NIO TCP server and client";
+        data.add(run);
+
+        run = new Run();
+        run.clientConfig = new TcpConfiguration();
+        run.clientConfig.setTransport("nio");
+        run.clientConfig.setSecureConnectionEnabled(true);
+        run.serverConfig = new TcpServerConfiguration();
+        run.serverConfig.setTransport("nio");
+        run.serverConfig.setSecureConnectionEnabled(true);
+        run.port = 1216;
+        run.maxMsg = 20;
+        run.testName = "Test NIO TCP server and client with TLS";
+        data.add(run);
+
         return data;
     }
 
@@ -1,11 +1,62 @@
 package com.firefly.utils.log;
 
+import com.firefly.utils.StringUtils;
+import com.firefly.utils.time.SafeSimpleDateFormat;
+
+import java.util.Date;
+import java.util.Map;
+
 /**
  * @author Pengtao Qiu
  */
 public class DefaultLogFormatter implements LogFormatter {
+
+    private static class FormattedDate {
+        private final long second;
+        private final String text;
+
+        private FormattedDate(long second, String text) {
+            this.second = second;
+            this.text = text;
+        }
+    }
+
+    // the date format is accurate to the second, so the formatted text is reused in the same second
+    private volatile FormattedDate formattedDate = new FormattedDate(Long.MIN_VALUE, "");
+
     @Override
     public String format(LogItem logItem) {
         return logItem.toString();
     }
+
+    @Override
+    public void format(LogItem logItem, StringBuilder builder) {
+        builder.append(logItem.getLevel()).append(", ").append(formatDate(logItem.getDate()));
+
+        Map<String, String> mdcData = logItem.getMdcData();
+        if (mdcData != null && !mdcData.isEmpty()) {
+            builder.append(", ").append(mdcData);
+        }
+
+        if (StringUtils.hasText(logItem.getClassName())) {
+            builder.append(", ").append(logItem.getClassName());
+        }
+
+        if (logItem.getStackTraceElement() != null) {
+            builder.append(", ").append(logItem.getStackTraceElement());
+        }
+
+        builder.append(",\t");
+        logItem.renderContentTemplate(builder);
+    }
+
+    private String formatDate(Date date) {
+        long second = Math.floorDiv(date.getTime(), 1000L);
+        FormattedDate current = formattedDate;
+        if (current.second != second) {
+            current = new FormattedDate(second, SafeSimpleDateFormat.defaultDateFormat.format(date));
+            formattedDate = current;
+        }
+        return current.text;
+    }
 }
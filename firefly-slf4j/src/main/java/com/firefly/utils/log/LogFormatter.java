@@ -6,4 +6,15 @@ package com.firefly.utils.log;
 public interface LogFormatter {
 
     String format(LogItem logItem);
+
+    /**
+     * Format the log item and append it to the builder. The builder is reused by the log writer, override this method
+     * to avoid creating the intermediate strings.
+     *
+     * @param logItem The log item.
+     * @param builder The string builder.
+     */
+    default void format(LogItem logItem, StringBuilder builder) {
+        builder.append(format(logItem));
+    }
 }
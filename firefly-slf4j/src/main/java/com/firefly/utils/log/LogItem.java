@@ -5,6 +5,8 @@ import com.firefly.utils.time.SafeSimpleDateFormat;
 
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.util.AbstractCollection;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.Map;
 
@@ -102,6 +104,93 @@ public class LogItem {
         this.threadName = threadName;
     }
 
+    /**
+     * Render the content template and append it to the builder. It is the same as the {@link #renderContentTemplate()},
+     * but it does not create the intermediate strings.
+     *
+     * @param builder The string builder.
+     */
+    public void renderContentTemplate(StringBuilder builder) {
+        if (content == null || objs == null || objs.length == 0) {
+            builder.append(content);
+        } else {
+            int cursor = 0;
+            int index = 0;
+            for (int start; (start = content.indexOf("{}", cursor)) != -1; ) {
+                builder.append(content, cursor, start);
+                if (index < objs.length) {
+                    Object obj = objs[index];
+                    try {
+                        if (obj instanceof AbstractCollection) {
+                            builder.append(Arrays.toString(((AbstractCollection<?>) obj).toArray()));
+                        } else {
+                            builder.append(obj);
+                        }
+                    } catch (Throwable t) {
+                        System.err.println("replace string exception, the parameter type is " + obj.getClass() + ", " + t.getMessage());
+                    }
+                } else {
+                    builder.append("{}");
+                }
+                cursor = start + 2;
+                index++;
+            }
+            builder.append(content, cursor, content.length());
+        }
+
+        if (throwable != null) {
+            StringWriter str = new StringWriter();
+            try (PrintWriter out = new PrintWriter(str)) {
+                out.println();
+                out.println("$err_start");
+                throwable.printStackTrace(out);
+                out.println("$err_end");
+            }
+            builder.append(str.getBuffer());
+        }
+    }
+
+    /**
+     * Copy all fields of the other item. The date object is not shared, its time is copied to the current date object.
+     *
+     * @param item The other log item.
+     */
+    public void copyFrom(LogItem item) {
+        name = item.name;
+        className = item.className;
+        content = item.content;
+        level = item.level;
+        objs = item.objs;
+        throwable = item.throwable;
+        stackTraceElement = item.stackTraceElement;
+        mdcData = item.mdcData;
+        threadName = item.threadName;
+        logStr = null;
+        if (item.date == null) {
+            date = null;
+        } else if (date == null) {
+            date = new Date(item.date.getTime());
+        } else {
+            date.setTime(item.date.getTime());
+        }
+    }
+
+    /**
+     * Clear the fields so that the item can be reused. The date object is kept.
+     */
+    public void clear() {
+        name = null;
+        className = null;
+        content = null;
+        level = null;
+        objs = null;
+        throwable = null;
+        stackTraceElement = null;
+        logStr = null;
+        mdcData = null;
+        threadName = null;
+    }
+
     public String renderContentTemplate() {
         String ret = StringUtils.replace(content, objs);
         if (throwable != null) {
@@ -2,11 +2,21 @@ package com.firefly.utils.log.file;
 
 import com.firefly.utils.log.*;
 
-import java.io.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.Date;
 import java.util.Objects;
 
@@ -25,44 +35,101 @@ public class FileLog implements Log, Closeable {
 
     private LogOutputStream output = new LogOutputStream();
 
+    // the buffers are reused by the log writing thread
+    private final StringBuilder text = new StringBuilder(256);
+    private char[] chars = new char[256];
+    private CharBuffer charBuffer = CharBuffer.wrap(chars);
+    private ByteBuffer line = ByteBuffer.allocate(512);
+    private CharsetEncoder encoder;
+
     void write(LogItem logItem) {
+        text.setLength(0);
+        logFormatter.format(logItem, text);
+
         if (consoleOutput) {
-            System.out.println(logFormatter.format(logItem));
+            System.out.println(text);
         }
 
         if (fileOutput) {
-            output.write(logFormatter.format(logItem), logItem.getDate());
+            output.write(encode(text.append(CL)), logItem.getDate());
+        }
+    }
+
+    private ByteBuffer encode(StringBuilder text) {
+        int len = text.length();
+        if (chars.length < len) {
+            chars = new char[Math.max(len, chars.length * 2)];
+            charBuffer = CharBuffer.wrap(chars);
+        }
+        text.getChars(0, len, chars, 0);
+        charBuffer.clear();
+        charBuffer.limit(len);
+
+        if (encoder == null || !encoder.charset().equals(charset)) {
+            encoder = charset.newEncoder()
+                             .onMalformedInput(CodingErrorAction.REPLACE)
+                             .onUnmappableCharacter(CodingErrorAction.REPLACE);
         }
+        int maxLen = (int) Math.ceil(len * (double) encoder.maxBytesPerChar());
+        if (line.capacity() < maxLen) {
+            line = ByteBuffer.allocate(Math.max(maxLen, line.capacity() * 2));
+        }
+
+        line.clear();
+        encoder.reset();
+        encoder.encode(charBuffer, line, true);
+        encoder.flush(line);
+        line.flip();
+        return line;
     }
 
     private class LogOutputStream {
 
-        private static final int bufferSize = 4 * 1024;
-        private BufferedOutputStream bufferedOutputStream;
+        private static final int bufferSize = 64 * 1024;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(bufferSize);
+        private FileChannel channel;
+        private Path logPath;
 
-        private String currentDate = LogFactory.DAY_DATE_FORMAT.format(new Date());
+        private String currentDate;
+        // the current date is valid in [dayStart, nextDayStart)
+        private long dayStart;
+        private long nextDayStart;
         private long writeSize;
         private int currentBakIndex;
 
-        public void write(String str, Date date) {
-            byte[] text = (str + CL).getBytes(charset);
-            boolean success = initializeBufferedWriter(LogFactory.DAY_DATE_FORMAT.format(date), writeSize + text.length);
-            if (success) {
-                try {
-                    bufferedOutputStream.write(text);
-                    writeSize += text.length;
-                } catch (IOException e) {
-                    System.err.println("writer log exception, " + e.getMessage());
+        public void write(ByteBuffer text, Date date) {
+            int len = text.remaining();
+            if (!prepare(date.getTime(), len)) {
+                System.err.println("The log " + toString() + " can not get the file channel!");
+                return;
+            }
+
+            try {
+                if (buffer.remaining() < len) {
+                    writeBuffer();
                 }
-            } else {
-                System.err.println("The log " + toString() + " can not get buffered writer!");
+                if (len > buffer.capacity()) {
+                    while (text.hasRemaining()) {
+                        channel.write(text);
+                    }
+                } else {
+                    buffer.put(text);
+                }
+                writeSize += len;
+            } catch (IOException e) {
+                System.err.println("writer log exception, " + e.getMessage());
             }
         }
 
         public void flush() {
-            if (bufferedOutputStream != null) {
+            if (channel != null) {
                 try {
-                    bufferedOutputStream.flush();
+                    writeBuffer();
+                    if (!Files.exists(logPath)) {
+                        // the log file is removed, create a new one
+                        close();
+                        open(currentDate);
+                    }
                 } catch (IOException e) {
                     System.err.println("flush log buffer exception, " + e.getMessage());
                 }
@@ -70,22 +137,65 @@ public class FileLog implements Log, Closeable {
         }
 
         public void close() {
-            if (bufferedOutputStream != null) {
+            if (channel != null) {
                 try {
-                    bufferedOutputStream.close();
+                    writeBuffer();
+                    channel.close();
                 } catch (IOException e) {
                     System.err.println("close log writer exception, " + e.getMessage());
+                } finally {
+                    channel = null;
+                    buffer.clear();
+                }
+            }
+        }
+
+        private void writeBuffer() throws IOException {
+            buffer.flip();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } finally {
+                buffer.clear();
+            }
+        }
+
+        private boolean prepare(long time, int len) {
+            if (channel == null || time < dayStart || time >= nextDayStart) {
+                // the date is formatted only when it crosses the day boundary
+                ZoneId zone = ZoneId.systemDefault();
+                LocalDate day = Instant.ofEpochMilli(time).atZone(zone).toLocalDate();
+                dayStart = day.atStartOfDay(zone).toInstant().toEpochMilli();
+                nextDayStart = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+                close();
+                return open(LogFactory.DAY_DATE_FORMAT.format(new Date(time)));
+            }
+
+            if (maxFileSize > 0 && writeSize > 0 && writeSize + len > maxFileSize) {
+                close();
+                try {
+                    // create log file backup
+                    while (Files.exists(Paths.get(path, getBackupLogFileName(currentDate, currentBakIndex)))) {
+                        currentBakIndex++;
+                    }
+                    Files.move(logPath, Paths.get(path, getBackupLogFileName(currentDate, currentBakIndex)));
+                } catch (IOException e) {
+                    System.err.println("create new log file exception, " + e.getMessage());
                 }
+                return open(currentDate);
             }
+            return true;
         }
 
-        private boolean createNewBufferedOutputStream(String newDate) {
+        private boolean open(String newDate) {
             try {
-                File file = new File(path, getLogFileName(newDate));
-                bufferedOutputStream = new BufferedOutputStream(new FileOutputStream(file, true), bufferSize);
+                Path file = Paths.get(path, getLogFileName(newDate));
+                channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+                logPath = file;
                 currentDate = newDate;
-                writeSize = file.length();
-                System.out.println("get new log buffer, the file path is " + file.getAbsolutePath() + " and the size is " + file.length());
+                writeSize = channel.size();
+                System.out.println("get new log buffer, the file path is " + file.toAbsolutePath() + " and the size is " + writeSize);
                 return true;
             } catch (IOException e) {
                 System.err.println("create log writer exception, " + e.getMessage());
@@ -100,51 +210,6 @@ public class FileLog implements Log, Closeable {
         private String getBackupLogFileName(String date, int index) {
             return getLogFileName(date) + "." + index + ".bak";
         }
-
-        private boolean createNewLogFile(String date, long currentWriteSize) {
-            boolean ret;
-            try {
-                Path logPath = Paths.get(path, getLogFileName(date));
-                if (!Files.exists(logPath)) {
-                    ret = true;
-                } else {
-                    if (maxFileSize > 0) {
-                        if (!currentDate.equals(date)) {
-                            ret = true;
-                        } else {
-                            if (currentWriteSize < 0 || currentWriteSize > maxFileSize) {
-                                // create log file backup
-                                while (Files.exists(Paths.get(path, getBackupLogFileName(date, currentBakIndex)))) {
-                                    currentBakIndex++;
-                                }
-                                Files.move(logPath, Paths.get(path, getBackupLogFileName(date, currentBakIndex)));
-                                ret = true;
-                            } else {
-                                ret = false;
-                            }
-                        }
-                    } else {
-                        ret = !currentDate.equals(date);
-                    }
-                }
-                if (ret) {
-                    Files.createFile(logPath);
-                }
-            } catch (IOException e) {
-                System.err.println("create new log file exception, " + e.getMessage());
-                ret = false;
-            }
-            return ret;
-        }
-
-        private boolean initializeBufferedWriter(String newDate, long currentWriteSize) {
-            if (createNewLogFile(newDate, currentWriteSize)) {
-                close();
-                return createNewBufferedOutputStream(newDate);
-            } else {
-                return bufferedOutputStream != null || createNewBufferedOutputStream(newDate);
-            }
-        }
     }
 
     public void flush() {
@@ -222,20 +287,46 @@ public class FileLog implements Log, Closeable {
     }
 
     private void add(String str, String level, Throwable throwable, Object... objs) {
-        LogItem item = new LogItem();
+        // get the stack trace element here, the depth of the caller is fixed
+        StackTraceElement stackTraceElement = stackTrace ? getStackTraceElement() : null;
+        LogTask logTask = LogFactory.getInstance().getLogTask();
+        if (logTask instanceof FileLogTask) {
+            // fill the preallocated log item of the ring buffer
+            FileLogTask fileLogTask = (FileLogTask) logTask;
+            long sequence = fileLogTask.next();
+            if (sequence < 0) {
+                return;
+            }
+            LogItem item = fileLogTask.get(sequence, this);
+            try {
+                if (item.getDate() == null) {
+                    item.setDate(new Date());
+                } else {
+                    item.getDate().setTime(System.currentTimeMillis());
+                }
+                fill(item, str, level, throwable, objs, stackTraceElement);
+            } finally {
+                fileLogTask.publish(sequence);
+            }
+        } else {
+            LogItem item = new LogItem();
+            item.setDate(new Date());
+            fill(item, str, level, throwable, objs, stackTraceElement);
+            logTask.add(item);
+        }
+    }
+
+    private void fill(LogItem item, String str, String level, Throwable throwable, Object[] objs,
+                      StackTraceElement stackTraceElement) {
         item.setLevel(level);
         item.setName(name);
         item.setContent(str);
         item.setObjs(objs);
         item.setThrowable(throwable);
-        item.setDate(new Date());
         item.setMdcData(mdc.getCopyOfContextMap());
         item.setClassName(ClassNameLogWrap.name.get());
         item.setThreadName(Thread.currentThread().getName());
-        if (stackTrace) {
-            item.setStackTraceElement(getStackTraceElement());
-        }
-        LogFactory.getInstance().getLogTask().add(item);
+        item.setStackTraceElement(stackTraceElement);
     }
 
     @Override
@@ -255,7 +346,7 @@ public class FileLog implements Log, Closeable {
     @Override
     public void trace(String str, Throwable throwable, Object... objs) {
         if (isTraceEnabled()) {
-            add(str, LogLevel.TRACE.getName(), null, objs);
+            add(str, LogLevel.TRACE.getName(), throwable, objs);
         }
     }
 
@@ -7,21 +7,52 @@ import com.firefly.utils.lang.AbstractLifeCycle;
 import com.firefly.utils.log.*;
 import com.firefly.utils.time.Millisecond100Clock;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedTransferQueue;
-import java.util.concurrent.TimeUnit;
-
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The asynchronous log task. The log items are stored in a preallocated ring buffer, the producers claim the slots by
+ * an atomic counter and fill the reused log items, the single consumer thread writes the published items to the log
+ * files in batches. If the ring buffer is full, the producers wait until the consumer releases the slots.
+ */
 public class FileLogTask extends AbstractLifeCycle implements LogTask {
 
     public static final long maxLogFlushInterval = Long.getLong("com.firefly.utils.log.file.maxLogFlushInterval", 1000L);
+    public static final int ringBufferSize = Integer.getInteger("com.firefly.utils.log.file.ringBufferSize", 64 * 1024);
+
+    private static final long CONSUMER_PARK_NANOS = 1000L * 1000L;
+    private static final long PRODUCER_PARK_NANOS = 10L * 1000L;
+
+    private static class Slot {
+        private FileLog fileLog;
+        private final LogItem logItem = new LogItem();
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    // the sequence that is published in the slot
+    private final AtomicLongArray published;
+    // the next sequence to claim
+    private final AtomicLong claimed = new AtomicLong();
+    // the next sequence to consume, it is only written by the consumer thread
+    private volatile long consumed;
 
-    private BlockingQueue<LogItem> queue = new LinkedTransferQueue<>();
     private Thread thread = new Thread(this, "firefly asynchronous log thread");
     private final Trie<Log> logTree;
 
     public FileLogTask(Trie<Log> logTree) {
         thread.setPriority(Thread.MIN_PRIORITY);
         this.logTree = logTree;
+
+        int size = Integer.highestOneBit(Math.max(ringBufferSize, 2) - 1) << 1;
+        slots = new Slot[size];
+        published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1L);
+        }
+        mask = size - 1;
     }
 
     private long flushAllPerSecond(final long lastFlushedTime) {
@@ -55,19 +86,44 @@ public class FileLogTask extends AbstractLifeCycle implements LogTask {
         return null;
     }
 
+    /**
+     * Write the published items.
+     *
+     * @return The number of the written items.
+     */
+    private int consume() {
+        long sequence = consumed;
+        int count = 0;
+        for (int index; published.get(index = (int) sequence & mask) == sequence; sequence++, count++) {
+            Slot slot = slots[index];
+            try {
+                if (slot.fileLog != null) {
+                    slot.fileLog.write(slot.logItem);
+                }
+            } catch (Throwable e) {
+                System.err.println("write log exception, " + e.getMessage());
+            } finally {
+                slot.fileLog = null;
+                slot.logItem.clear();
+            }
+
+            // release the slots in batches
+            if ((count & 63) == 63) {
+                consumed = sequence + 1;
+            }
+        }
+        consumed = sequence;
+        return count;
+    }
+
     @Override
     public void run() {
         long lastFlushedTime = Millisecond100Clock.currentTimeMillis();
         while (true) {
             try {
-                for (LogItem logItem; (logItem = queue.poll(maxLogFlushInterval, TimeUnit.MILLISECONDS)) != null; ) {
-                    FileLog fileLog = getFileLog(logItem.getName());
-                    if (fileLog != null) {
-                        fileLog.write(logItem);
-                    }
-                    lastFlushedTime = flushAllPerSecond(lastFlushedTime);
+                if (consume() == 0) {
+                    LockSupport.parkNanos(CONSUMER_PARK_NANOS);
                 }
-
                 lastFlushedTime = flushAllPerSecond(lastFlushedTime);
             } catch (Throwable e) {
                 System.err.println("write log exception, " + e.getMessage());
@@ -75,7 +131,7 @@ public class FileLogTask extends AbstractLifeCycle implements LogTask {
                 ThreadUtils.sleep(1000L);
             }
 
-            if (!start && queue.isEmpty()) {
+            if (!start && consumed == claimed.get()) {
                 for (String key : logTree.keySet()) {
                     FileLog fileLog = getFileLog(key);
                     if (fileLog != null) {
@@ -87,6 +143,34 @@ public class FileLogTask extends AbstractLifeCycle implements LogTask {
         }
     }
 
+    /**
+     * Claim a slot of the ring buffer, the caller must fill the log item and publish the sequence.
+     *
+     * @return The claimed sequence, or -1 if the task is stopped.
+     */
+    long next() {
+        if (!start) {
+            return -1L;
+        }
+
+        long sequence = claimed.getAndIncrement();
+        while (sequence - consumed >= slots.length) {
+            // the ring buffer is full, the consumer keeps running until all claimed sequences are written
+            LockSupport.parkNanos(PRODUCER_PARK_NANOS);
+        }
+        return sequence;
+    }
+
+    LogItem get(long sequence, FileLog fileLog) {
+        Slot slot = slots[(int) sequence & mask];
+        slot.fileLog = fileLog;
+        return slot.logItem;
+    }
+
+    void publish(long sequence) {
+        published.lazySet((int) sequence & mask, sequence);
+    }
+
     @Override
     public void add(LogItem logItem) {
         if (!start)
@@ -95,7 +179,13 @@ public class FileLogTask extends AbstractLifeCycle implements LogTask {
         if (VerifyUtils.isEmpty(logItem.getName()))
             throw new IllegalArgumentException("log name is empty");
 
-        queue.offer(logItem);
+        long sequence = next();
+        if (sequence < 0) {
+            return;
+        }
+        LogItem item = get(sequence, getFileLog(logItem.getName()));
+        item.copyFrom(logItem);
+        publish(sequence);
     }
 
     @Override
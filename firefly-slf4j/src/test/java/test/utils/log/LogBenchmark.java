@@ -41,9 +41,9 @@ public class LogBenchmark {
 		}
 		phaser.arriveAndAwaitAdvance();
 		long end = System.currentTimeMillis();
-		long time = (end - start) / 1000;
-		System.out.println("time: " + time);
-		System.out.println("msg/sec: " + (messageNum / time));
+		long time = Math.max(end - start, 1);
+		System.out.println("time: " + time + "ms");
+		System.out.println("msg/sec: " + (messageNum * 1000L / time));
 	}
 
 }
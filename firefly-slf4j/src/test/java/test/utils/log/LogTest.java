@@ -3,8 +3,10 @@ package test.utils.log;
 import com.firefly.utils.StringUtils;
 import com.firefly.utils.io.FileUtils;
 import com.firefly.utils.log.ClassNameLogWrap;
+import com.firefly.utils.log.DefaultLogFormatter;
 import com.firefly.utils.log.Log;
 import com.firefly.utils.log.LogFactory;
+import com.firefly.utils.log.LogItem;
 import com.firefly.utils.log.file.FileLog;
 import org.junit.Assert;
 import org.junit.Before;
@@ -14,7 +16,7 @@ import test.utils.log.foo.bar.Bar;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Date;
+import java.util.*;
 
 import static org.hamcrest.Matchers.is;
 
@@ -293,4 +295,33 @@ public class LogTest {
         test2();
     }
 
+
+    @Test
+    public void testFormatter() {
+        LogItem item = new LogItem();
+        item.setLevel("INFO");
+        item.setName("test-INFO");
+        item.setClassName("test.utils.log.LogTest");
+        item.setContent("test {} format {} and {} {}");
+        item.setObjs(new Object[]{"log", new ArrayList<>(Arrays.asList(1, 2)), null});
+        item.setThrowable(new IllegalStateException("test exception"));
+        item.setMdcData(Collections.singletonMap("reqId", "1"));
+        item.setDate(new Date());
+
+        DefaultLogFormatter formatter = new DefaultLogFormatter();
+        StringBuilder builder = new StringBuilder();
+        formatter.format(item, builder);
+        Assert.assertThat(builder.toString(), is(formatter.format(item)));
+
+        LogItem copy = new LogItem();
+        Date date = new Date(0L);
+        copy.setDate(date);
+        copy.copyFrom(item);
+        Assert.assertThat(copy.toString(), is(item.toString()));
+        Assert.assertThat(copy.getDate() == date, is(true));
+
+        copy.clear();
+        Assert.assertThat(copy.getContent() == null, is(true));
+        Assert.assertThat(copy.getDate() == date, is(true));
+    }
 }
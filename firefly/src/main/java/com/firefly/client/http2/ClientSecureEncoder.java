@@ -1,6 +1,7 @@
 package com.firefly.client.http2;
 
 import com.firefly.codec.http2.stream.HTTPConnection;
+import com.firefly.net.ByteBufferOutputEntry;
 import com.firefly.net.EncoderChain;
 import com.firefly.net.Session;
 import com.firefly.utils.concurrent.Callback;
@@ -23,9 +24,13 @@ public class ClientSecureEncoder extends EncoderChain {
                 if (message instanceof ByteBuffer) {
                     HTTP1ClientConnection http1ClientConnection = (HTTP1ClientConnection) connection;
                     http1ClientConnection.getSSLSession().write((ByteBuffer) message, Callback.NOOP);
+                } else if (message instanceof ByteBufferOutputEntry) {
+                    ByteBufferOutputEntry outputEntry = (ByteBufferOutputEntry) message;
+                    HTTP1ClientConnection http1ClientConnection = (HTTP1ClientConnection) connection;
+                    http1ClientConnection.getSSLSession().write(outputEntry.getData(), outputEntry.getCallback());
                 } else {
                     throw new IllegalArgumentException(
-                            "the http1 encoder must receive the ByteBuffer, but this message type is "
+                            "the http1 encoder must receive the ByteBuffer or ByteBufferOutputEntry, but this message type is "
                                     + message.getClass());
                 }
                 break;
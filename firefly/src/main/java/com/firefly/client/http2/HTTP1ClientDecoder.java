@@ -24,9 +24,14 @@ public class HTTP1ClientDecoder extends DecoderChain {
 		case HTTP_1_1:
 			final HTTP1ClientConnection http1Connection = (HTTP1ClientConnection) connection;
 			final HttpParser parser = http1Connection.getParser();
+			long contentChunks = parser.getContentChunkCount();
 			while (buf.hasRemaining()) {
 				parser.parseNext(buf);
 			}
+			if (parser.getContentChunkCount() != contentChunks) {
+				// the content handlers keep the slices of the buffer
+				session.retainReadBuffer(buf);
+			}
 			break;
 		default:
 			throw new IllegalStateException("client does not support the http version " + connection.getHttpVersion());
@@ -6,7 +6,7 @@ import com.firefly.codec.http2.stream.ShutdownHelper;
 import com.firefly.net.Client;
 import com.firefly.net.DecoderChain;
 import com.firefly.net.EncoderChain;
-import com.firefly.net.tcp.aio.AsynchronousTcpClient;
+import com.firefly.net.tcp.TcpTransport;
 import com.firefly.utils.concurrent.Promise;
 import com.firefly.utils.lang.AbstractLifeCycle;
 
@@ -40,7 +40,7 @@ public class HTTP2Client extends AbstractLifeCycle {
         http2Configuration.getTcpConfiguration().setEncoder(encoder);
         http2Configuration.getTcpConfiguration()
                           .setHandler(new HTTP2ClientHandler(http2Configuration, http2ClientContext));
-        this.client = new AsynchronousTcpClient(http2Configuration.getTcpConfiguration());
+        this.client = TcpTransport.createClient(http2Configuration.getTcpConfiguration());
         this.http2Configuration = http2Configuration;
     }
 
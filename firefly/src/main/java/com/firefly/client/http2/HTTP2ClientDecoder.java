@@ -1,5 +1,6 @@
 package com.firefly.client.http2;
 
+import com.firefly.codec.http2.decode.Parser;
 import com.firefly.net.DecoderChain;
 import com.firefly.net.Session;
 import org.slf4j.Logger;
@@ -24,7 +25,13 @@ public class HTTP2ClientDecoder extends DecoderChain {
 			log.debug("the client session {} received the {} bytes", session.getSessionId(), buffer.remaining());
 
 		HTTP2ClientConnection http2ClientConnection = (HTTP2ClientConnection) session.getAttachment();
-		http2ClientConnection.getParser().parse(buffer);
+		Parser parser = http2ClientConnection.getParser();
+		long dataSlices = parser.getDataSliceCount();
+		parser.parse(buffer);
+		if (parser.getDataSliceCount() != dataSlices) {
+			// the stream listeners keep the slices of the buffer
+			session.retainReadBuffer(buffer);
+		}
 	}
 
 }
@@ -0,0 +1,455 @@
+package com.firefly.client.http2;
+
+import com.firefly.codec.http2.model.HttpVersion;
+import com.firefly.codec.http2.stream.HTTP2Session;
+import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.exception.CommonRuntimeException;
+import com.firefly.utils.lang.pool.BoundedAsynchronousPool;
+import com.firefly.utils.lang.pool.PooledObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * Manage the connections of an origin. The connections are created by the pool. The HTTP/1 connection serves one
+ * exchange at a time, so it is taken from the pool and released when the exchange completes. The HTTP/2 connection is
+ * multiplexed, it leaves the pool when it is created and the manager counts its active streams. The new stream is
+ * sent through the least loaded connection whose active streams do not reach the peer's
+ * SETTINGS_MAX_CONCURRENT_STREAMS, a new connection is opened only when all connections are saturated. Until the
+ * peer's settings are received, a connection serves the initial streams per connection. If the peer's settings do not
+ * limit the concurrent streams, a connection serves the max streams per connection. If the pool is full, the caller waits until a stream
+ * completes.
+ * <p>
+ * The HTTP version is negotiated when the first connection is created, the other callers wait for it, so the first
+ * burst of requests does not open a connection per request for the HTTP/2 origin.
+ *
+ * @author Pengtao Qiu
+ */
+public class HTTP2ConnectionManager {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final BoundedAsynchronousPool<HTTPClientConnection> pool;
+    private final Scheduler timer;
+    private final long timeout;
+    private final List<MultiplexedConnection> connections = new CopyOnWriteArrayList<>();
+    private final ConcurrentLinkedQueue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger waitingSize = new AtomicInteger();
+    private final AtomicInteger pendingConnections = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile HttpVersion httpVersion;
+    private final int initialStreamsPerConnection;
+    private final int maxStreamsPerConnection;
+    private volatile LongConsumer waitTimeListener;
+
+    private final class MultiplexedConnection {
+        private final PooledObject<HTTPClientConnection> pooledObject;
+        private final AtomicInteger activeStreams = new AtomicInteger();
+
+        private MultiplexedConnection(PooledObject<HTTPClientConnection> pooledObject) {
+            this.pooledObject = pooledObject;
+        }
+
+        private int getMaxStreams() {
+            HTTP2Session session = (HTTP2Session) ((HTTP2ClientConnection) pooledObject.getObject()).getHttp2Session();
+            if (!session.isSettingsReceived()) {
+                // the streams over the peer's unknown limit would be refused
+                return initialStreamsPerConnection;
+            }
+            int max = session.getMaxLocalStreams();
+            if (max >= 0) {
+                return max;
+            } else {
+                // the peer does not limit the concurrent streams
+                return maxStreamsPerConnection > 0 ? maxStreamsPerConnection : Integer.MAX_VALUE;
+            }
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int active = activeStreams.get();
+                if (active >= getMaxStreams() || !pooledObject.getObject().isOpen()) {
+                    return false;
+                }
+                if (activeStreams.compareAndSet(active, active + 1)) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final Promise.Completable<Lease> completable = new Promise.Completable<>();
+        private final long startTime = System.nanoTime();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile Scheduler.Future timeoutFuture;
+    }
+
+    /**
+     * The connection that is leased to an exchange. It must be released when the exchange completes.
+     */
+    public class Lease {
+        private final PooledObject<HTTPClientConnection> pooledObject;
+        private final MultiplexedConnection multiplexedConnection;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Lease(PooledObject<HTTPClientConnection> pooledObject) {
+            this.pooledObject = pooledObject;
+            this.multiplexedConnection = null;
+        }
+
+        private Lease(MultiplexedConnection multiplexedConnection) {
+            this.pooledObject = multiplexedConnection.pooledObject;
+            this.multiplexedConnection = multiplexedConnection;
+        }
+
+        public HTTPClientConnection getConnection() {
+            return pooledObject.getObject();
+        }
+
+        public boolean isMultiplexed() {
+            return multiplexedConnection != null;
+        }
+
+        public boolean isReleased() {
+            return released.get();
+        }
+
+        public void release() {
+            if (multiplexedConnection != null) {
+                if (released.compareAndSet(false, true)) {
+                    multiplexedConnection.activeStreams.decrementAndGet();
+                    dispatch();
+                }
+            } else {
+                released.set(true);
+                pool.release(pooledObject);
+            }
+        }
+    }
+
+    public HTTP2ConnectionManager(BoundedAsynchronousPool<HTTPClientConnection> pool, Scheduler timer, long timeout) {
+        this(pool, timer, timeout,
+                SimpleHTTPClientConfiguration.defaultInitialStreamsPerConnection,
+                SimpleHTTPClientConfiguration.defaultMaxStreamsPerConnection);
+    }
+
+    /**
+     * Create the connection manager of an origin.
+     *
+     * @param pool                        The connection pool of the origin.
+     * @param timer                       The timer of the waiters.
+     * @param timeout                     The timeout of taking a connection.
+     * @param initialStreamsPerConnection The max concurrent streams of a connection before the peer's settings are
+     *                                    received.
+     * @param maxStreamsPerConnection     The max concurrent streams of a connection if the peer does not limit them.
+     *                                    If it is less than or equal to 0, the streams are unlimited.
+     */
+    public HTTP2ConnectionManager(BoundedAsynchronousPool<HTTPClientConnection> pool, Scheduler timer, long timeout,
+                                  int initialStreamsPerConnection, int maxStreamsPerConnection) {
+        this.pool = pool;
+        this.timer = timer;
+        this.timeout = timeout;
+        this.initialStreamsPerConnection = initialStreamsPerConnection;
+        this.maxStreamsPerConnection = maxStreamsPerConnection;
+    }
+
+    /**
+     * Take a connection to send a request.
+     *
+     * @return The leased connection.
+     */
+    public Promise.Completable<Lease> take() {
+        HttpVersion version = httpVersion;
+        if (version == HttpVersion.HTTP_2) {
+            MultiplexedConnection connection = acquire();
+            if (connection != null) {
+                Promise.Completable<Lease> completable = new Promise.Completable<>();
+                completable.succeeded(new Lease(connection));
+                return completable;
+            }
+        } else if (version != null) {
+            return takeFromPool();
+        } else if (probing.compareAndSet(false, true)) {
+            return probe();
+        }
+
+        // all connections are saturated or the HTTP version is negotiating
+        if (waitingSize.get() >= pool.getMaxWaiters()) {
+            Promise.Completable<Lease> completable = new Promise.Completable<>();
+            completable.failed(new CommonRuntimeException("the connection waiters exceed the max size " + pool.getMaxWaiters()));
+            return completable;
+        }
+
+        Waiter waiter = new Waiter();
+        waiters.offer(waiter);
+        waitingSize.incrementAndGet();
+        waiter.timeoutFuture = timer.schedule(() -> {
+            if (waiter.claimed.compareAndSet(false, true)) {
+                waitingSize.decrementAndGet();
+                waiters.remove(waiter);
+                waiter.completable.completeExceptionally(new TimeoutException("take connection timeout"));
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+        // the stream may be released before the waiter is added to the queue
+        dispatch();
+        return waiter.completable;
+    }
+
+    /**
+     * Create the first connection to negotiate the HTTP version.
+     */
+    private Promise.Completable<Lease> probe() {
+        Promise.Completable<Lease> completable = new Promise.Completable<>();
+        takeFromPool().thenAccept(lease -> {
+            probing.set(false);
+            completable.succeeded(lease);
+            dispatch();
+        }).exceptionally(e -> {
+            probing.set(false);
+            completable.failed(e);
+            dispatch();
+            return null;
+        });
+        return completable;
+    }
+
+    private Promise.Completable<Lease> takeFromPool() {
+        Promise.Completable<Lease> completable = new Promise.Completable<>();
+        pool.take().thenAccept(o -> {
+            httpVersion = o.getObject().getHttpVersion();
+            if (httpVersion == HttpVersion.HTTP_2) {
+                MultiplexedConnection connection = new MultiplexedConnection(o);
+                connection.activeStreams.incrementAndGet();
+                connections.add(connection);
+                o.getObject().close(c -> remove(connection))
+                 .exception((c, e) -> {
+                     if (!c.isOpen()) {
+                         remove(connection);
+                     }
+                 });
+                log.debug("the HTTP2 connection {} is managed, the current size is {}",
+                        o.getObject().getSessionId(), connections.size());
+                completable.succeeded(new Lease(connection));
+            } else {
+                o.getObject().close(c -> pool.release(o))
+                 .exception((c, e) -> pool.release(o));
+                completable.succeeded(new Lease(o));
+            }
+        }).exceptionally(e -> {
+            completable.failed(e);
+            return null;
+        });
+        return completable;
+    }
+
+    private void remove(MultiplexedConnection connection) {
+        if (connections.remove(connection)) {
+            log.debug("the HTTP2 connection {} is removed, the current size is {}",
+                    connection.pooledObject.getObject().getSessionId(), connections.size());
+            // the pool destroys the closed connection
+            pool.release(connection.pooledObject);
+            dispatch();
+        }
+    }
+
+    /**
+     * Acquire a stream of the least loaded connection.
+     *
+     * @return The connection, or null if all connections are saturated.
+     */
+    private MultiplexedConnection acquire() {
+        while (true) {
+            MultiplexedConnection leastLoaded = null;
+            int min = Integer.MAX_VALUE;
+            for (MultiplexedConnection connection : connections) {
+                int active = connection.activeStreams.get();
+                if (active < min && active < connection.getMaxStreams() && connection.pooledObject.getObject().isOpen()) {
+                    leastLoaded = connection;
+                    min = active;
+                }
+            }
+            if (leastLoaded == null) {
+                return null;
+            }
+            if (leastLoaded.tryAcquire()) {
+                return leastLoaded;
+            }
+        }
+    }
+
+    /**
+     * Hand the available streams to the waiters, and open a new connection if all connections are saturated.
+     */
+    private void dispatch() {
+        while (waitingSize.get() > 0) {
+            HttpVersion version = httpVersion;
+            if (version == HttpVersion.HTTP_2) {
+                MultiplexedConnection connection = acquire();
+                if (connection == null) {
+                    if (pendingConnections.get() == 0 && pool.getActiveObjectSize() < pool.getMaxSize()) {
+                        connect();
+                    }
+                    return;
+                }
+                if (!handOff(new Lease(connection))) {
+                    connection.activeStreams.decrementAndGet();
+                    return;
+                }
+            } else if (version != null) {
+                // the HTTP/1 connections are not multiplexed, the waiters take them from the pool
+                Waiter waiter = poll();
+                if (waiter == null) {
+                    return;
+                }
+                takeFromPool().thenAccept(lease -> {
+                    if (!waiter.completable.complete(lease)) {
+                        lease.release();
+                    }
+                }).exceptionally(e -> {
+                    waiter.completable.completeExceptionally(e);
+                    return null;
+                });
+            } else {
+                if (probing.compareAndSet(false, true)) {
+                    connect();
+                }
+                return;
+            }
+        }
+    }
+
+    private void connect() {
+        pendingConnections.incrementAndGet();
+        takeFromPool().thenAccept(lease -> {
+            pendingConnections.decrementAndGet();
+            probing.set(false);
+            if (!handOff(lease)) {
+                lease.release();
+            }
+            dispatch();
+        }).exceptionally(e -> {
+            pendingConnections.decrementAndGet();
+            probing.set(false);
+            log.error("create HTTP connection exception", e);
+            Waiter waiter = poll();
+            if (waiter != null) {
+                waiter.completable.completeExceptionally(e);
+            }
+            dispatch();
+            return null;
+        });
+    }
+
+    /**
+     * Remove the first waiter that is not timeout.
+     *
+     * @return The waiter, or null if there is no waiter.
+     */
+    private Waiter poll() {
+        Waiter waiter;
+        while ((waiter = waiters.poll()) != null) {
+            if (waiter.claimed.compareAndSet(false, true)) {
+                waitingSize.decrementAndGet();
+                cancelTimeout(waiter);
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private boolean handOff(Lease lease) {
+        for (Waiter waiter; (waiter = poll()) != null; ) {
+            if (!waiter.completable.complete(lease)) {
+                // the promise is cancelled by the caller
+                continue;
+            }
+            LongConsumer listener = waitTimeListener;
+            if (listener != null) {
+                listener.accept(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - waiter.startTime));
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private void cancelTimeout(Waiter waiter) {
+        Scheduler.Future future = waiter.timeoutFuture;
+        if (future != null) {
+            future.cancel();
+        }
+    }
+
+    public BoundedAsynchronousPool<HTTPClientConnection> getPool() {
+        return pool;
+    }
+
+    /**
+     * Get the HTTP version of the origin. It is known after the first connection is created.
+     *
+     * @return The HTTP version, or null if it is unknown.
+     */
+    public HttpVersion getHttpVersion() {
+        return httpVersion;
+    }
+
+    /**
+     * Get the number of the HTTP/2 connections.
+     *
+     * @return The HTTP/2 connection size.
+     */
+    public int getConnectionSize() {
+        return connections.size();
+    }
+
+    /**
+     * Get the number of the active HTTP/2 streams of all connections.
+     *
+     * @return The active stream size.
+     */
+    public int getActiveStreamSize() {
+        return connections.stream().mapToInt(c -> c.activeStreams.get()).sum();
+    }
+
+    /**
+     * Get the number of callers that are waiting for an HTTP/2 stream.
+     *
+     * @return The waiting size.
+     */
+    public int getWaitingSize() {
+        return Math.max(0, waitingSize.get());
+    }
+
+    /**
+     * Set the listener that receives the wait time when a waiting caller takes an HTTP/2 stream.
+     *
+     * @param waitTimeListener The wait time listener, the unit of the wait time is millisecond.
+     */
+    public void setWaitTimeListener(LongConsumer waitTimeListener) {
+        this.waitTimeListener = waitTimeListener;
+    }
+
+    public void stop() {
+        for (Waiter waiter; (waiter = poll()) != null; ) {
+            waiter.completable.completeExceptionally(new CommonRuntimeException("the connection manager is stopped"));
+        }
+        for (MultiplexedConnection connection : connections) {
+            try {
+                connection.pooledObject.getObject().close();
+            } catch (Exception e) {
+                log.error("close http connection exception", e);
+            }
+        }
+        connections.clear();
+        pool.stop();
+    }
+}
@@ -7,6 +7,8 @@ import com.firefly.codec.http2.model.MetaData.Response;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
 import com.firefly.utils.StringUtils;
 import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.concurrent.Schedulers;
 import com.firefly.utils.function.Action1;
 import com.firefly.utils.function.Action3;
 import com.firefly.utils.io.BufferUtils;
@@ -14,7 +16,6 @@ import com.firefly.utils.io.EofException;
 import com.firefly.utils.io.IO;
 import com.firefly.utils.json.Json;
 import com.firefly.utils.lang.AbstractLifeCycle;
-import com.firefly.utils.lang.pool.AsynchronousPool;
 import com.firefly.utils.lang.pool.BoundedAsynchronousPool;
 import com.firefly.utils.lang.pool.PooledObject;
 import com.firefly.utils.time.Millisecond100Clock;
@@ -39,10 +40,14 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
     private final HTTP2Client http2Client;
-    private final ConcurrentHashMap<RequestBuilder, AsynchronousPool<HTTPClientConnection>> poolMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<RequestBuilder, HTTP2ConnectionManager> poolMap = new ConcurrentHashMap<>();
     private final SimpleHTTPClientConfiguration simpleHTTPClientConfiguration;
+    private final MetricRegistry metrics;
     private final Timer responseTimer;
     private final Meter errorMeter;
+    private final Histogram poolWaitTime;
+    private final Histogram streamWaitTime;
+    private final Scheduler timer = Schedulers.createScheduler();
 
     public SimpleHTTPClient() {
         this(new SimpleHTTPClientConfiguration());
@@ -51,9 +56,9 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
     public SimpleHTTPClient(SimpleHTTPClientConfiguration http2Configuration) {
         this.simpleHTTPClientConfiguration = http2Configuration;
         http2Client = new HTTP2Client(http2Configuration);
-        MetricRegistry metrics = http2Configuration.getTcpConfiguration()
-                                                   .getMetricReporterFactory()
-                                                   .getMetricRegistry();
+        metrics = http2Configuration.getTcpConfiguration()
+                                    .getMetricReporterFactory()
+                                    .getMetricRegistry();
         responseTimer = metrics.timer("http2.SimpleHTTPClient.response.time");
         errorMeter = metrics.meter("http2.SimpleHTTPClient.error.count");
         metrics.register("http2.SimpleHTTPClient.error.ratio.1m", new RatioGauge() {
@@ -62,6 +67,20 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                 return Ratio.of(errorMeter.getOneMinuteRate(), responseTimer.getOneMinuteRate());
             }
         });
+        poolWaitTime = metrics.histogram("http2.SimpleHTTPClient.pool.waitTime");
+        metrics.register("http2.SimpleHTTPClient.pool.idle", (Gauge<Integer>) () ->
+                poolMap.values().stream().mapToInt(m -> m.getPool().size()).sum());
+        metrics.register("http2.SimpleHTTPClient.pool.active", (Gauge<Integer>) () ->
+                poolMap.values().stream().mapToInt(m -> m.getPool().getActiveObjectSize()).sum());
+        metrics.register("http2.SimpleHTTPClient.pool.waiting", (Gauge<Integer>) () ->
+                poolMap.values().stream().mapToInt(m -> m.getPool().getWaitingSize()).sum());
+        streamWaitTime = metrics.histogram("http2.SimpleHTTPClient.http2.stream.waitTime");
+        metrics.register("http2.SimpleHTTPClient.http2.connections", (Gauge<Integer>) () ->
+                poolMap.values().stream().mapToInt(HTTP2ConnectionManager::getConnectionSize).sum());
+        metrics.register("http2.SimpleHTTPClient.http2.stream.active", (Gauge<Integer>) () ->
+                poolMap.values().stream().mapToInt(HTTP2ConnectionManager::getActiveStreamSize).sum());
+        metrics.register("http2.SimpleHTTPClient.http2.stream.waiting", (Gauge<Integer>) () ->
+                poolMap.values().stream().mapToInt(HTTP2ConnectionManager::getWaitingSize).sum());
         start();
     }
 
@@ -133,7 +152,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
         }
 
         public RequestBuilder jsonBody(Object obj) {
-            return put(HttpHeader.CONTENT_TYPE, MimeTypes.Type.APPLICATION_JSON.asString()).body(Json.toJson(obj));
+            return put(HttpHeader.CONTENT_TYPE, MimeTypes.Type.APPLICATION_JSON.asString()).write(ByteBuffer.wrap(Json.toJsonBytes(obj)));
         }
 
         public RequestBuilder body(String content) {
@@ -309,8 +328,15 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
     }
 
     private void removePool(RequestBuilder req) {
-        AsynchronousPool<HTTPClientConnection> pool = poolMap.remove(req);
-        pool.stop();
+        HTTP2ConnectionManager manager = poolMap.remove(req);
+        if (manager != null) {
+            metrics.removeMatching((name, metric) -> name.startsWith(getOriginMetricPrefix(req)));
+            manager.stop();
+        }
+    }
+
+    private String getOriginMetricPrefix(RequestBuilder req) {
+        return "http2.SimpleHTTPClient.origin." + req.host + ":" + req.port + ".";
     }
 
     public int getConnectionPoolSize(String host, int port) {
@@ -337,14 +363,28 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
     }
 
     private int _getPoolSize(RequestBuilder req) {
-        AsynchronousPool<HTTPClientConnection> pool = poolMap.get(req);
-        if (pool != null) {
-            return pool.size();
+        HTTP2ConnectionManager manager = poolMap.get(req);
+        if (manager != null) {
+            return manager.getPool().size();
         } else {
             return 0;
         }
     }
 
+    /**
+     * Get the connection manager of the origin.
+     *
+     * @param host The host.
+     * @param port The port.
+     * @return The connection manager, or null if no request is sent to the origin.
+     */
+    public HTTP2ConnectionManager getConnectionManager(String host, int port) {
+        RequestBuilder req = new RequestBuilder();
+        req.host = host;
+        req.port = port;
+        return poolMap.get(req);
+    }
+
     public RequestBuilder get(String url) {
         return request(HttpMethod.GET.asString(), url);
     }
@@ -397,19 +437,13 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
 
     protected void send(RequestBuilder r) {
         Timer.Context resTimerCtx = responseTimer.time();
-        AsynchronousPool<HTTPClientConnection> pool = getPool(r);
-        pool.take().thenAccept(o -> {
-            HTTPClientConnection connection = o.getObject();
-            connection.close(conn -> pool.release(o))
-                      .exception((conn, exception) -> pool.release(o));
-
-            if (connection.getHttpVersion() == HttpVersion.HTTP_2) {
-                pool.release(o);
-            }
+        HTTP2ConnectionManager manager = getConnectionManager(r);
+        manager.take().thenAccept(o -> {
+            HTTPClientConnection connection = o.getConnection();
 
-            log.debug("take the connection {} from pool, released: {}",
+            log.debug("take the connection {} from pool, multiplexed: {}",
                     connection.getSessionId(),
-                    o.isReleased());
+                    o.isMultiplexed());
 
             ClientHTTPHandler handler = new ClientHTTPHandler.Adapter()
                     .headerComplete((req, resp, outputStream, conn) -> {
@@ -446,7 +480,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                             resTimerCtx.stop();
                             return true;
                         } finally {
-                            pool.release(o);
+                            o.release();
                             log.debug("complete request of the connection {} , released: {}",
                                     connection.getSessionId(),
                                     o.isReleased());
@@ -463,12 +497,12 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                                 r.future.failed(new BadMessageException(errCode, reason));
                             }
                             if (r.badMessage == null && r.future == null) {
-                                IO.close(o.getObject());
+                                IO.close(connection);
                             }
                             errorMeter.mark();
                             resTimerCtx.stop();
                         } finally {
-                            pool.release(o);
+                            o.release();
                             log.debug("bad message of the connection {} , released: {}",
                                     connection.getSessionId(),
                                     o.isReleased());
@@ -485,12 +519,12 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                                 r.future.failed(new EofException("early eof"));
                             }
                             if (r.earlyEof == null && r.future == null) {
-                                IO.close(o.getObject());
+                                IO.close(connection);
                             }
                             errorMeter.mark();
                             resTimerCtx.stop();
                         } finally {
-                            pool.release(o);
+                            o.release();
                             log.debug("eafly EOF of the connection {} , released: {}",
                                     connection.getSessionId(),
                                     o.isReleased());
@@ -526,6 +560,7 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
                     }
                 }).exceptionally(t -> {
                     log.error("SimpleHTTPClient gets output stream exception", t);
+                    o.release();
                     resTimerCtx.stop();
                     errorMeter.mark();
                     return null;
@@ -545,28 +580,46 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
         });
     }
 
-    private AsynchronousPool<HTTPClientConnection> getPool(RequestBuilder request) {
-        return poolMap.computeIfAbsent(request,
-                req -> new BoundedAsynchronousPool<>(simpleHTTPClientConfiguration.getPoolSize(),
-                        simpleHTTPClientConfiguration.getConnectTimeout(),
-                        () -> {
-                            Promise.Completable<PooledObject<HTTPClientConnection>> r = new Promise.Completable<>();
-                            Promise.Completable<HTTPClientConnection> c = http2Client.connect(request.host, request.port);
-                            c.thenAccept(conn -> r.succeeded(new PooledObject<>(conn)))
-                             .exceptionally(e -> {
-                                 r.failed(e);
-                                 return null;
-                             });
-                            return r;
-                        },
-                        o -> o.getObject().isOpen(),
-                        (o) -> {
-                            try {
-                                o.getObject().close();
-                            } catch (IOException e) {
-                                log.error("close http connection exception", e);
-                            }
-                        }));
+    private HTTP2ConnectionManager getConnectionManager(RequestBuilder request) {
+        return poolMap.computeIfAbsent(request, req -> {
+            BoundedAsynchronousPool<HTTPClientConnection> pool = new BoundedAsynchronousPool<>(
+                    simpleHTTPClientConfiguration.getPoolSize(),
+                    simpleHTTPClientConfiguration.getConnectTimeout(),
+                    simpleHTTPClientConfiguration.getMaxWaiters(),
+                    simpleHTTPClientConfiguration.isFairPool(),
+                    () -> {
+                        Promise.Completable<PooledObject<HTTPClientConnection>> r = new Promise.Completable<>();
+                        Promise.Completable<HTTPClientConnection> c = http2Client.connect(request.host, request.port);
+                        c.thenAccept(conn -> r.succeeded(new PooledObject<>(conn)))
+                         .exceptionally(e -> {
+                             r.failed(e);
+                             return null;
+                         });
+                        return r;
+                    },
+                    o -> o.getObject().isOpen(),
+                    (o) -> {
+                        try {
+                            o.getObject().close();
+                        } catch (IOException e) {
+                            log.error("close http connection exception", e);
+                        }
+                    });
+            pool.setWaitTimeListener(poolWaitTime::update);
+
+            HTTP2ConnectionManager manager = new HTTP2ConnectionManager(pool, timer,
+                    simpleHTTPClientConfiguration.getConnectTimeout(),
+                    simpleHTTPClientConfiguration.getInitialStreamsPerConnection(),
+                    simpleHTTPClientConfiguration.getMaxStreamsPerConnection());
+            manager.setWaitTimeListener(streamWaitTime::update);
+            String prefix = getOriginMetricPrefix(req);
+            metrics.register(prefix + "http2.connections", (Gauge<Integer>) manager::getConnectionSize);
+            metrics.register(prefix + "http2.stream.active", (Gauge<Integer>) manager::getActiveStreamSize);
+            metrics.register(prefix + "http2.stream.waiting", (Gauge<Integer>) manager::getWaitingSize);
+            metrics.register(prefix + "pool.active", (Gauge<Integer>) pool::getActiveObjectSize);
+            metrics.register(prefix + "pool.waiting", (Gauge<Integer>) pool::getWaitingSize);
+            return manager;
+        });
     }
 
     @Override
@@ -578,5 +631,6 @@ public class SimpleHTTPClient extends AbstractLifeCycle {
     protected void destroy() {
         http2Client.stop();
         poolMap.forEach((k, v) -> v.stop());
+        timer.stop();
     }
 }
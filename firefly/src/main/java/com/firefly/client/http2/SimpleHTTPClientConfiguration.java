@@ -10,8 +10,16 @@ public class SimpleHTTPClientConfiguration extends HTTP2Configuration {
     public static final int defaultPoolSize = Integer.getInteger("com.firefly.client.http2.connection.defaultPoolSize", 64);
     public static final long defaultConnectTimeout = Long.getLong("com.firefly.client.http2.connection.defaultConnectTimeout", 30 * 1000L);
 
+    public static final int defaultMaxWaiters = Integer.getInteger("com.firefly.client.http2.connection.defaultMaxWaiters", 16 * 1024);
+    public static final int defaultInitialStreamsPerConnection = Integer.getInteger("com.firefly.client.http2.connection.defaultInitialStreamsPerConnection", 1);
+    public static final int defaultMaxStreamsPerConnection = Integer.getInteger("com.firefly.client.http2.connection.defaultMaxStreamsPerConnection", 100);
+
     private int poolSize = defaultPoolSize;
     private long connectTimeout = defaultConnectTimeout;
+    private int maxWaiters = defaultMaxWaiters;
+    private int initialStreamsPerConnection = defaultInitialStreamsPerConnection;
+    private int maxStreamsPerConnection = defaultMaxStreamsPerConnection;
+    private boolean fairPool;
 
     public int getPoolSize() {
         return poolSize;
@@ -28,4 +36,60 @@ public class SimpleHTTPClientConfiguration extends HTTP2Configuration {
     public void setConnectTimeout(long connectTimeout) {
         this.connectTimeout = connectTimeout;
     }
+
+    /**
+     * The max number of the requests that are waiting for a connection of a host. When it is exceeded, the request
+     * fails immediately.
+     *
+     * @return The max waiters of the connection pool.
+     */
+    public int getMaxWaiters() {
+        return maxWaiters;
+    }
+
+    public void setMaxWaiters(int maxWaiters) {
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * The max number of the concurrent streams of an HTTP/2 connection before the server's settings are received.
+     * The server's SETTINGS_MAX_CONCURRENT_STREAMS is unknown at that time, the streams over it would be refused.
+     *
+     * @return The initial streams per connection.
+     */
+    public int getInitialStreamsPerConnection() {
+        return initialStreamsPerConnection;
+    }
+
+    public void setInitialStreamsPerConnection(int initialStreamsPerConnection) {
+        this.initialStreamsPerConnection = initialStreamsPerConnection;
+    }
+
+    /**
+     * The max number of the concurrent streams of an HTTP/2 connection when the server's settings do not contain
+     * the SETTINGS_MAX_CONCURRENT_STREAMS. If it is less than or equal to 0, the streams are unlimited.
+     *
+     * @return The max streams per connection.
+     */
+    public int getMaxStreamsPerConnection() {
+        return maxStreamsPerConnection;
+    }
+
+    public void setMaxStreamsPerConnection(int maxStreamsPerConnection) {
+        this.maxStreamsPerConnection = maxStreamsPerConnection;
+    }
+
+    /**
+     * If true, the connections are taken in the order of the requests. Otherwise a new request may take the idle
+     * connection before the waiting requests, it has the higher throughput.
+     *
+     * @return Is the connection pool fair.
+     */
+    public boolean isFairPool() {
+        return fairPool;
+    }
+
+    public void setFairPool(boolean fairPool) {
+        this.fairPool = fairPool;
+    }
 }
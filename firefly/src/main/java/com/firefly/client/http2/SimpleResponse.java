@@ -4,6 +4,7 @@ import com.firefly.codec.http2.model.*;
 import com.firefly.codec.http2.model.MetaData.Response;
 import com.firefly.utils.io.BufferUtils;
 import com.firefly.utils.io.IO;
+import com.firefly.utils.io.InflaterPool;
 import com.firefly.utils.json.Json;
 import com.firefly.utils.json.JsonArray;
 import com.firefly.utils.json.JsonObject;
@@ -22,10 +23,13 @@ import java.util.function.Consumer;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 public class SimpleResponse {
 
     private static Logger log = LoggerFactory.getLogger("firefly-system");
+    private static final InflaterPool inflaterPool = new InflaterPool();
 
     Response response;
     List<ByteBuffer> responseBody = new ArrayList<>();
@@ -99,6 +103,21 @@ public class SimpleResponse {
                 } else {
                     return null;
                 }
+            } else if ("deflate".equalsIgnoreCase(contentEncoding)) {
+                byte[] bytes = BufferUtils.toArray(responseBody);
+                if (bytes != null) {
+                    Inflater inflater = inflaterPool.acquire();
+                    try (InflaterInputStream inflaterInputStream = new InflaterInputStream(new ByteArrayInputStream(bytes), inflater)) {
+                        return IO.toString(inflaterInputStream, charset);
+                    } catch (IOException e) {
+                        log.error("inflate exception", e);
+                        return null;
+                    } finally {
+                        inflaterPool.release(inflater);
+                    }
+                } else {
+                    return null;
+                }
             } else {
                 stringBody = BufferUtils.toString(responseBody, charset);
                 return stringBody;
@@ -11,6 +11,7 @@ public class DataBodyParser extends BodyParser {
 	private int padding;
 	private int paddingLength;
 	private int length;
+	private long sliceCount;
 
 	public DataBodyParser(HeaderParser headerParser, Parser.Listener listener) {
 		super(headerParser, listener);
@@ -62,6 +63,7 @@ public class DataBodyParser extends BodyParser {
 				int limit = buffer.limit();
 				buffer.limit(position + size);
 				ByteBuffer slice = buffer.slice();
+				sliceCount++;
 				buffer.limit(limit);
 				buffer.position(position + size);
 
@@ -101,6 +103,16 @@ public class DataBodyParser extends BodyParser {
 		return false;
 	}
 
+	/**
+	 * Get the number of the data slices that have been passed to the listener.
+	 * A data slice shares the memory of the parsed buffer.
+	 *
+	 * @return The number of the data slices.
+	 */
+	public long getSliceCount() {
+		return sliceCount;
+	}
+
 	private void onData(ByteBuffer buffer, boolean fragment, int padding) {
 		DataFrame frame = new DataFrame(getStreamId(), buffer, !fragment && isEndStream(), padding);
 		notifyData(frame);
@@ -155,6 +155,7 @@ public class HttpParser {
     private boolean _headResponse;
     private boolean _cr;
     private ByteBuffer _contentChunk;
+    private long _contentChunkCount;
     private Trie<HttpField> _connectionFields;
 
     private int _length;
@@ -310,6 +311,18 @@ public class HttpParser {
 
     /* ------------------------------------------------------------ */
 
+    /**
+     * Get the number of the content chunks that have been passed to the handler. A content chunk is a view of
+     * the parsed buffer, so the buffer must not be reused once the count changes.
+     *
+     * @return The number of the content chunks.
+     */
+    public long getContentChunkCount() {
+        return _contentChunkCount;
+    }
+
+    /* ------------------------------------------------------------ */
+
     /**
      * Set if a HEAD response is expected
      *
@@ -1292,6 +1305,7 @@ public class HttpParser {
             switch (_state) {
                 case EOF_CONTENT:
                     _contentChunk = buffer.asReadOnlyBuffer();
+                    _contentChunkCount++;
                     _contentPosition += remaining;
                     buffer.position(buffer.position() + remaining);
                     if (_handler.content(_contentChunk))
@@ -1308,6 +1322,7 @@ public class HttpParser {
                         return handleContentMessage();
                     } else {
                         _contentChunk = buffer.asReadOnlyBuffer();
+                        _contentChunkCount++;
 
                         // limit content by expected size
                         if (remaining > content) {
@@ -1378,6 +1393,7 @@ public class HttpParser {
                         setState(State.CHUNKED_CONTENT);
                     } else {
                         _contentChunk = buffer.asReadOnlyBuffer();
+                        _contentChunkCount++;
 
                         if (remaining > chunk)
                             _contentChunk.limit(_contentChunk.position() + chunk);
@@ -23,6 +23,7 @@ public class Parser {
 	private final Listener listener;
 	private final HeaderParser headerParser;
 	private final BodyParser[] bodyParsers;
+	private final DataBodyParser dataBodyParser;
 	private boolean continuation;
 	private State state = State.HEADER;
 
@@ -34,7 +35,8 @@ public class Parser {
 		HeaderBlockParser headerBlockParser = new HeaderBlockParser(new HpackDecoder(maxDynamicTableSize, maxHeaderSize));
         HeaderBlockFragments headerBlockFragments = new HeaderBlockFragments();
 
-		bodyParsers[FrameType.DATA.getType()] = new DataBodyParser(headerParser, listener);
+		dataBodyParser = new DataBodyParser(headerParser, listener);
+		bodyParsers[FrameType.DATA.getType()] = dataBodyParser;
 		bodyParsers[FrameType.HEADERS.getType()] = new HeadersBodyParser(headerParser, listener, headerBlockParser, headerBlockFragments);
 		bodyParsers[FrameType.PRIORITY.getType()] = new PriorityBodyParser(headerParser, listener);
 		bodyParsers[FrameType.RST_STREAM.getType()] = new ResetBodyParser(headerParser, listener);
@@ -46,6 +48,17 @@ public class Parser {
 		bodyParsers[FrameType.CONTINUATION.getType()] = new ContinuationBodyParser(headerParser, listener, headerBlockParser, headerBlockFragments);
 	}
 
+	/**
+	 * Get the number of the DATA frame contents that have been passed to the
+	 * listener. The contents are the slices of the parsed buffers, so a buffer
+	 * must not be reused once the count changes.
+	 *
+	 * @return The number of the DATA frame contents.
+	 */
+	public long getDataSliceCount() {
+		return dataBodyParser.getSliceCount();
+	}
+
 	private void reset() {
 		headerParser.reset();
 		state = State.HEADER;
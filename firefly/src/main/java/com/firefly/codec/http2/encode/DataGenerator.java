@@ -1,7 +1,7 @@
 package com.firefly.codec.http2.encode;
 
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import com.firefly.codec.http2.frame.DataFrame;
@@ -26,10 +26,7 @@ public class DataGenerator {
 		if (streamId < 0)
 			throw new IllegalArgumentException("Invalid stream id: " + streamId);
 
-		List<ByteBuffer> list = new LinkedList<>();
-
-		if (streamId < 0)
-			throw new IllegalArgumentException("Invalid stream id: " + streamId);
+		List<ByteBuffer> list = new ArrayList<>(2);
 
 		int dataLength = data.remaining();
 		int maxFrameSize = headerGenerator.getMaxFrameSize();
@@ -55,8 +52,8 @@ public class DataGenerator {
 		if (last)
 			flags |= Flags.END_STREAM;
 
-		ByteBuffer header = headerGenerator.generate(FrameType.DATA, Frame.HEADER_LENGTH + length, length, flags,
-				streamId);
+		// the payload is not copied, so only the frame header is allocated
+		ByteBuffer header = headerGenerator.generate(FrameType.DATA, Frame.HEADER_LENGTH, length, flags, streamId);
 
 		BufferUtils.flipToFlush(header, 0);
 		list.add(header);
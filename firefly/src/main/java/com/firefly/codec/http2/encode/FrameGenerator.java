@@ -5,8 +5,13 @@ import java.util.List;
 
 import com.firefly.codec.http2.frame.Frame;
 import com.firefly.codec.http2.frame.FrameType;
+import com.firefly.codec.http2.hpack.HpackEncoder;
+import com.firefly.codec.http2.model.MetaData;
 
 public abstract class FrameGenerator {
+	// the header blocks are encoded in the scratch buffer of the thread, then they are copied to the frames
+	private static final ThreadLocal<ByteBuffer> headerBlockBuffer = new ThreadLocal<>();
+
 	private final HeaderGenerator headerGenerator;
 
 	public FrameGenerator(HeaderGenerator headerGenerator) {
@@ -21,5 +26,26 @@ public abstract class FrameGenerator {
 		return headerGenerator.generate(frameType, Frame.HEADER_LENGTH + length, length, flags, streamId);
 	}
 
+	/**
+	 * Encode the header block.
+	 *
+	 * @param encoder The HPACK encoder.
+	 * @param metaData The header fields.
+	 * @param maxLength The max length of the header block.
+	 * @return The encoded header block, it is valid until the next header block is encoded in the current thread.
+	 */
+	protected ByteBuffer encodeHeaderBlock(HpackEncoder encoder, MetaData metaData, int maxLength) {
+		ByteBuffer buffer = headerBlockBuffer.get();
+		if (buffer == null || buffer.capacity() < maxLength) {
+			buffer = ByteBuffer.allocate(maxLength);
+			headerBlockBuffer.set(buffer);
+		}
+		buffer.clear();
+		buffer.limit(maxLength);
+		encoder.encode(buffer, metaData);
+		buffer.flip();
+		return buffer;
+	}
+
 	public abstract List<ByteBuffer> generate(Frame frame);
 }
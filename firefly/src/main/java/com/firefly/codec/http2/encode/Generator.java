@@ -64,4 +64,11 @@ public class Generator {
 	public void setMaxHeaderListSize(int value) {
         hpackEncoder.setMaxHeaderListSize(value);
     }
+
+	/**
+	 * Reuse the buffers of the generated frames. It is called after all generated frames have been written.
+	 */
+	public void reset() {
+		headerGenerator.reset();
+	}
 }
@@ -5,11 +5,19 @@ import java.nio.ByteBuffer;
 import com.firefly.codec.http2.frame.Frame;
 import com.firefly.codec.http2.frame.FrameType;
 
+/**
+ * Generate the frame headers. The frames of a connection are sliced from a small chunk, the chunk is reused after
+ * the generated frames have been written, see {@link #reset()}. If the generated frames are not reset, the frames
+ * are sliced from the new chunks.
+ */
 public class HeaderGenerator {
+	private static final int CHUNK_SIZE = 4096;
+
 	private int maxFrameSize = Frame.DEFAULT_MAX_LENGTH;
-	
+	private ByteBuffer chunk;
+
 	public ByteBuffer generate(FrameType frameType, int capacity, int length, int flags, int streamId) {
-		ByteBuffer header = ByteBuffer.allocate(capacity);
+		ByteBuffer header = allocate(capacity);
 		header.put((byte)((length & 0x00_FF_00_00) >>> 16));
         header.put((byte)((length & 0x00_00_FF_00) >>> 8));
         header.put((byte)((length & 0x00_00_00_FF)));
@@ -19,6 +27,38 @@ public class HeaderGenerator {
         return header;
 	}
 
+	/**
+	 * Allocate a buffer whose position is 0 and limit is the capacity. The small buffers are sliced from the chunk,
+	 * the large buffers are allocated separately.
+	 *
+	 * @param capacity The buffer capacity.
+	 * @return The buffer for filling.
+	 */
+	public ByteBuffer allocate(int capacity) {
+		if (capacity > CHUNK_SIZE) {
+			return ByteBuffer.allocate(capacity);
+		}
+		if (chunk == null || chunk.remaining() < capacity) {
+			// the slices of the old chunk may be being written, they are released when the write completes
+			chunk = ByteBuffer.allocate(CHUNK_SIZE);
+		}
+		int position = chunk.position();
+		chunk.limit(position + capacity);
+		ByteBuffer buffer = chunk.slice();
+		chunk.limit(chunk.capacity());
+		chunk.position(position + capacity);
+		return buffer;
+	}
+
+	/**
+	 * Reuse the chunk. It must be called after all generated frames have been written.
+	 */
+	public void reset() {
+		if (chunk != null) {
+			chunk.clear();
+		}
+	}
+
 	public int getMaxFrameSize() {
 		return maxFrameSize;
 	}
@@ -26,5 +66,5 @@ public class HeaderGenerator {
 	public void setMaxFrameSize(int maxFrameSize) {
 		this.maxFrameSize = maxFrameSize;
 	}
-	
+
 }
@@ -1,7 +1,8 @@
 package com.firefly.codec.http2.encode;
 
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.firefly.codec.http2.frame.Flags;
@@ -38,7 +39,6 @@ public class HeadersGenerator extends FrameGenerator {
 
 	public List<ByteBuffer> generateHeaders(int streamId, MetaData metaData, PriorityFrame priority,
 			boolean endStream) {
-		List<ByteBuffer> list = new LinkedList<>();
 		if (streamId < 0)
 			throw new IllegalArgumentException("Invalid stream id: " + streamId);
 
@@ -47,63 +47,50 @@ public class HeadersGenerator extends FrameGenerator {
 		if (priority != null)
 			flags = Flags.PRIORITY;
 
-		int maxFrameSize = getMaxFrameSize();
-		ByteBuffer hpacked = ByteBuffer.allocate(maxFrameSize);
-		BufferUtils.clearToFill(hpacked);
-		encoder.encode(hpacked, metaData);
-		int hpackedLength = hpacked.position();
-		BufferUtils.flipToFlush(hpacked, 0);
+		ByteBuffer hpacked = encodeHeaderBlock(encoder, metaData, getMaxFrameSize());
+		int hpackedLength = hpacked.remaining();
 
 		// Split into CONTINUATION frames if necessary.
 		if (maxHeaderBlockFragment > 0 && hpackedLength > maxHeaderBlockFragment) {
 			if (endStream)
 				flags |= Flags.END_STREAM;
 
-			int length = maxHeaderBlockFragment;
-			if (priority != null)
-				length += PriorityFrame.PRIORITY_LENGTH;
-
-			ByteBuffer header = generateHeader(FrameType.HEADERS, length, flags, streamId);
-			generatePriority(header, priority);
-			BufferUtils.flipToFlush(header, 0);
-			list.add(header);
-
+			List<ByteBuffer> list = new ArrayList<>(hpackedLength / maxHeaderBlockFragment + 1);
 			hpacked.limit(maxHeaderBlockFragment);
-			list.add(hpacked.slice());
-
-			int position = maxHeaderBlockFragment;
-			int limit = position + maxHeaderBlockFragment;
-			while (limit < hpackedLength) {
-				hpacked.position(position).limit(limit);
-				header = generateHeader(FrameType.CONTINUATION, maxHeaderBlockFragment, Flags.NONE, streamId);
-				BufferUtils.flipToFlush(header, 0);
-				list.add(header);
-				list.add(hpacked.slice());
-				position += maxHeaderBlockFragment;
-				limit += maxHeaderBlockFragment;
+			list.add(generateFrame(FrameType.HEADERS, flags, streamId, priority, hpacked));
+
+			while (hpackedLength - hpacked.limit() > maxHeaderBlockFragment) {
+				hpacked.limit(hpacked.limit() + maxHeaderBlockFragment);
+				list.add(generateFrame(FrameType.CONTINUATION, Flags.NONE, streamId, null, hpacked));
 			}
 
-			hpacked.position(position).limit(hpackedLength);
-			header = generateHeader(FrameType.CONTINUATION, hpacked.remaining(), Flags.END_HEADERS, streamId);
-			BufferUtils.flipToFlush(header, 0);
-			list.add(header);
-			list.add(hpacked);
+			hpacked.limit(hpackedLength);
+			list.add(generateFrame(FrameType.CONTINUATION, Flags.END_HEADERS, streamId, null, hpacked));
+			return list;
 		} else {
 			flags |= Flags.END_HEADERS;
 			if (endStream)
 				flags |= Flags.END_STREAM;
 
-			int length = hpackedLength;
-			if (priority != null)
-				length += PriorityFrame.PRIORITY_LENGTH;
-
-			ByteBuffer header = generateHeader(FrameType.HEADERS, length, flags, streamId);
-			generatePriority(header, priority);
-			BufferUtils.flipToFlush(header, 0);
-			list.add(header);
-			list.add(hpacked);
+			return Collections.singletonList(generateFrame(FrameType.HEADERS, flags, streamId, priority, hpacked));
 		}
-		return list;
+	}
+
+	/**
+	 * Generate a frame that contains the frame header and the header block fragment, the fragment is copied from the
+	 * position to the limit of the header block.
+	 */
+	private ByteBuffer generateFrame(FrameType frameType, int flags, int streamId, PriorityFrame priority,
+			ByteBuffer fragment) {
+		int length = fragment.remaining();
+		if (priority != null)
+			length += PriorityFrame.PRIORITY_LENGTH;
+
+		ByteBuffer frame = generateHeader(frameType, length, flags, streamId);
+		generatePriority(frame, priority);
+		frame.put(fragment);
+		BufferUtils.flipToFlush(frame, 0);
+		return frame;
 	}
 
 	private void generatePriority(ByteBuffer header, PriorityFrame priority) {
@@ -68,6 +68,7 @@ public class HttpGenerator {
     private Supplier<HttpFields> _trailers = null;
 
     private final int _send;
+    private final boolean _sendDate;
     private final static int SEND_SERVER = 0x01;
     private final static int SEND_XPOWEREDBY = 0x02;
     private final static Trie<Boolean> __assumedContentMethods = new ArrayTrie<>(8);
@@ -96,7 +97,13 @@ public class HttpGenerator {
 
     /* ------------------------------------------------------------------------------- */
     public HttpGenerator(boolean sendServerVersion, boolean sendXPoweredBy) {
+        this(sendServerVersion, sendXPoweredBy, false);
+    }
+
+    /* ------------------------------------------------------------------------------- */
+    public HttpGenerator(boolean sendServerVersion, boolean sendXPoweredBy, boolean sendDate) {
         _send = (sendServerVersion ? SEND_SERVER : 0) | (sendXPoweredBy ? SEND_XPOWEREDBY : 0);
+        _sendDate = sendDate;
     }
 
     /* ------------------------------------------------------------------------------- */
@@ -541,6 +548,7 @@ public class HttpGenerator {
 
         // default field values
         int send = _send;
+        boolean send_date = _sendDate;
         HttpField transfer_encoding = null;
         boolean http11 = info.getHttpVersion() == HttpVersion.HTTP_1_1;
         boolean close = false;
@@ -576,7 +584,7 @@ public class HttpGenerator {
                         case CONTENT_TYPE: {
                             // write the field to the header
                             content_type = true;
-                            putTo(field, header);
+                            putTo(getContentTypeField(field), header);
                             break;
                         }
 
@@ -609,6 +617,12 @@ public class HttpGenerator {
                             break;
                         }
 
+                        case DATE: {
+                            send_date = false;
+                            putTo(field, header);
+                            break;
+                        }
+
                         default:
                             putTo(field, header);
                     }
@@ -701,8 +715,11 @@ public class HttpGenerator {
 
         // Send server?
         int status = response != null ? response.getStatus() : -1;
-        if (status > 199)
+        if (status > 199) {
             header.put(SEND[send]);
+            if (send_date)
+                putTo(DateGenerator.getDateField(), header);
+        }
 
         // end the header.
         header.put(HttpTokens.CRLF);
@@ -816,6 +833,17 @@ public class HttpGenerator {
         }
     }
 
+    /* ------------------------------------------------------------------------------- */
+    // the common content types are written from the pre-encoded fields of the mime types
+    private static HttpField getContentTypeField(HttpField field) {
+        if (field instanceof PreEncodedHttpField)
+            return field;
+        MimeTypes.Type type = MimeTypes.CACHE.get(field.getValue());
+        if (type != null && type.asString().equals(field.getValue()))
+            return type.getContentTypeField();
+        return field;
+    }
+
     public static void putTo(HttpField field, ByteBuffer bufferInFillMode) {
         if (field instanceof PreEncodedHttpField) {
             ((PreEncodedHttpField) field).putTo(bufferInFillMode, HttpVersion.HTTP_1_0);
@@ -1,7 +1,7 @@
 package com.firefly.codec.http2.encode;
 
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
 
 import com.firefly.codec.http2.frame.Flags;
@@ -33,27 +33,19 @@ public class PushPromiseGenerator extends FrameGenerator {
 		if (promisedStreamId < 0)
 			throw new IllegalArgumentException("Invalid promised stream id: " + promisedStreamId);
 
-		List<ByteBuffer> list = new LinkedList<>();
 		int maxFrameSize = getMaxFrameSize();
 		// The promised streamId space.
 		int extraSpace = 4;
 		maxFrameSize -= extraSpace;
 
-		ByteBuffer hpacked = ByteBuffer.allocate(maxFrameSize);
-		BufferUtils.clearToFill(hpacked);
-		encoder.encode(hpacked, metaData);
-		int hpackedLength = hpacked.position();
-		BufferUtils.flipToFlush(hpacked, 0);
-
-		int length = hpackedLength + extraSpace;
+		ByteBuffer hpacked = encodeHeaderBlock(encoder, metaData, maxFrameSize);
+		int length = hpacked.remaining() + extraSpace;
 		int flags = Flags.END_HEADERS;
 
-		ByteBuffer header = generateHeader(FrameType.PUSH_PROMISE, length, flags, streamId);
-		header.putInt(promisedStreamId);
-		BufferUtils.flipToFlush(header, 0);
-
-		list.add(header);
-		list.add(hpacked);
-		return list;
+		ByteBuffer frame = generateHeader(FrameType.PUSH_PROMISE, length, flags, streamId);
+		frame.putInt(promisedStreamId);
+		frame.put(hpacked);
+		BufferUtils.flipToFlush(frame, 0);
+		return Collections.singletonList(frame);
 	}
 }
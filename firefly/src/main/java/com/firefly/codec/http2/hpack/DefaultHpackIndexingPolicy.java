@@ -0,0 +1,34 @@
+package com.firefly.codec.http2.hpack;
+
+import com.firefly.codec.http2.model.HttpField;
+import com.firefly.codec.http2.model.HttpHeader;
+
+/**
+ * The sensitive fields are never indexed, the fields that change on every message are sent without indexing until
+ * the same value is repeated, the other fields are indexed.
+ *
+ * @author Pengtao Qiu
+ */
+public class DefaultHpackIndexingPolicy implements HpackIndexingPolicy {
+
+    @Override
+    public Indexing getIndexing(HttpField field, boolean nameIndexed, boolean repeated) {
+        HttpHeader header = field.getHeader();
+        if (header != null) {
+            if (HpackEncoder.__NEVER_INDEX.contains(header)) {
+                return Indexing.NEVER_INDEXED;
+            }
+            if (HpackEncoder.__DO_NOT_INDEX.contains(header)) {
+                return Indexing.WITHOUT_INDEXING;
+            }
+            // the content length of 3 digits or more is rarely repeated
+            if (header == HttpHeader.CONTENT_LENGTH && field.getValue().length() > 2 && !repeated) {
+                return Indexing.WITHOUT_INDEXING;
+            }
+            return Indexing.INCREMENTAL_INDEXING;
+        }
+
+        // the custom field whose name is known but the value is not is probably changing on every message
+        return nameIndexed && !repeated ? Indexing.WITHOUT_INDEXING : Indexing.INCREMENTAL_INDEXING;
+    }
+}
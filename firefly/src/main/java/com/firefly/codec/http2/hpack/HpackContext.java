@@ -1,7 +1,6 @@
 package com.firefly.codec.http2.hpack;
 
 import com.firefly.codec.http2.model.*;
-import com.firefly.utils.StringUtils;
 import com.firefly.utils.collection.ArrayTernaryTrie;
 import com.firefly.utils.collection.Trie;
 import org.slf4j.Logger;
@@ -163,8 +162,8 @@ public class HpackContext {
     private int _maxDynamicTableSizeInBytes;
     private int _dynamicTableSizeInBytes;
     private final DynamicTable _dynamicTable;
-    private final Map<HttpField, Entry> _fieldMap = new HashMap<>();
-    private final Map<String, Entry> _nameMap = new HashMap<>();
+    private final FieldTable _fieldMap = new FieldTable();
+    private final NameTable _nameMap = new NameTable();
 
     public HpackContext(int maxDynamicTableSize) {
         _maxDynamicTableSizeInBytes = maxDynamicTableSize;
@@ -192,7 +191,7 @@ public class HpackContext {
         Entry entry = __staticNameMap.get(name);
         if (entry != null)
             return entry;
-        return _nameMap.get(StringUtils.asciiToLowerCase(name));
+        return _nameMap.get(name);
     }
 
     public Entry get(int index) {
@@ -223,8 +222,8 @@ public class HpackContext {
         }
         _dynamicTableSizeInBytes += size;
         _dynamicTable.add(entry);
-        _fieldMap.put(field, entry);
-        _nameMap.put(StringUtils.asciiToLowerCase(field.getName()), entry);
+        _fieldMap.put(entry);
+        _nameMap.put(entry);
 
         if (LOG.isDebugEnabled())
             LOG.debug(String.format("HdrTbl[%x] added %s", hashCode(), entry));
@@ -330,10 +329,8 @@ public class HpackContext {
                     LOG.debug(String.format("HdrTbl[%x] evict %s", hashCode(), entry));
                 _dynamicTableSizeInBytes -= entry.getSize();
                 entry._slot = -1;
-                _fieldMap.remove(entry.getHttpField());
-                String lc = StringUtils.asciiToLowerCase(entry.getHttpField().getName());
-                if (entry == _nameMap.get(lc))
-                    _nameMap.remove(lc);
+                _fieldMap.remove(entry);
+                _nameMap.remove(entry);
 
             }
             if (LOG.isDebugEnabled())
@@ -342,6 +339,140 @@ public class HpackContext {
 
     }
 
+    /**
+     * The open addressing hash table of the dynamic entries, the lookup does not allocate. The key maps to the latest
+     * added entry, the evicted entry is removed only if it is still mapped, and the removal shifts the following
+     * entries backward, so the table does not need the tombstones.
+     */
+    private static abstract class EntryTable<K> {
+        private Entry[] _table = new Entry[16];
+        private int _size;
+
+        abstract int hash(K key);
+
+        abstract K keyOf(Entry entry);
+
+        abstract boolean matches(Entry entry, K key);
+
+        private int slot(K key, int mask) {
+            int h = hash(key);
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        Entry get(K key) {
+            Entry[] table = _table;
+            int mask = table.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                Entry entry = table[i];
+                if (entry == null || matches(entry, key))
+                    return entry;
+            }
+        }
+
+        void put(Entry entry) {
+            if ((_size + 1) * 2 > _table.length)
+                grow();
+
+            Entry[] table = _table;
+            int mask = table.length - 1;
+            K key = keyOf(entry);
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                Entry e = table[i];
+                if (e == null) {
+                    table[i] = entry;
+                    _size++;
+                    return;
+                }
+                if (matches(e, key)) {
+                    table[i] = entry;
+                    return;
+                }
+            }
+        }
+
+        void remove(Entry entry) {
+            Entry[] table = _table;
+            int mask = table.length - 1;
+            K key = keyOf(entry);
+            int i = slot(key, mask);
+            while (true) {
+                Entry e = table[i];
+                if (e == null)
+                    return;
+                if (matches(e, key)) {
+                    if (e != entry)
+                        return; // the key is mapped to a newer entry
+                    break;
+                }
+                i = (i + 1) & mask;
+            }
+
+            table[i] = null;
+            _size--;
+            for (int j = (i + 1) & mask; table[j] != null; j = (j + 1) & mask) {
+                int k = slot(keyOf(table[j]), mask);
+                // move the entry to the empty slot unless its home slot is cyclically in (i, j]
+                if (i <= j ? (i < k && k <= j) : (i < k || k <= j))
+                    continue;
+                table[i] = table[j];
+                table[j] = null;
+                i = j;
+            }
+        }
+
+        private void grow() {
+            Entry[] old = _table;
+            _table = new Entry[old.length * 2];
+            _size = 0;
+            for (Entry entry : old) {
+                if (entry != null)
+                    put(entry);
+            }
+        }
+    }
+
+    private static class FieldTable extends EntryTable<HttpField> {
+        @Override
+        int hash(HttpField field) {
+            return field.hashCode();
+        }
+
+        @Override
+        HttpField keyOf(Entry entry) {
+            return entry._field;
+        }
+
+        @Override
+        boolean matches(Entry entry, HttpField field) {
+            return field.equals(entry._field);
+        }
+    }
+
+    private static class NameTable extends EntryTable<String> {
+        @Override
+        int hash(String name) {
+            // the ascii case insensitive hash, the name is not converted to lower case
+            int h = 0;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                if (c >= 'A' && c <= 'Z')
+                    c += 0x20;
+                h = 31 * h + c;
+            }
+            return h;
+        }
+
+        @Override
+        String keyOf(Entry entry) {
+            return entry._field.getName();
+        }
+
+        @Override
+        boolean matches(Entry entry, String name) {
+            return entry._field.getName().equalsIgnoreCase(name);
+        }
+    }
+
     public static class Entry {
         final HttpField _field;
         int _slot; // The index within it's array
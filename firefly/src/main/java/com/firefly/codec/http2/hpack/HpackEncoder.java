@@ -58,6 +58,9 @@ public class HpackEncoder {
     }
 
     private final HpackContext _context;
+    // the hash codes of the fields that are sent without indexing recently, it is direct mapped
+    private final int[] _notIndexedFields = new int[256];
+    private HpackIndexingPolicy _indexingPolicy = new DefaultHpackIndexingPolicy();
     private final boolean _debug;
     private int _remoteMaxDynamicTableSize;
     private int _localMaxDynamicTableSize;
@@ -96,6 +99,14 @@ public class HpackEncoder {
         return _context;
     }
 
+    public HpackIndexingPolicy getIndexingPolicy() {
+        return _indexingPolicy;
+    }
+
+    public void setIndexingPolicy(HpackIndexingPolicy indexingPolicy) {
+        _indexingPolicy = indexingPolicy;
+    }
+
     public void setRemoteMaxDynamicTableSize(int remoteMaxDynamicTableSize) {
         _remoteMaxDynamicTableSize = remoteMaxDynamicTableSize;
     }
@@ -184,94 +195,66 @@ public class HpackEncoder {
                 if (_debug)
                     encoding = "IdxField" + (entry.isStatic() ? "S" : "") + (1 + NBitInteger.octectsNeeded(7, index));
             }
+        } else if (field instanceof PreEncodedHttpField) {
+            // Unknown field entry, but the field is pre-encoded
+            int i = buffer.position();
+            ((PreEncodedHttpField) field).putTo(buffer, HttpVersion.HTTP_2);
+            byte b = buffer.get(i);
+            boolean indexed = b < 0 || b >= 0x40;
+            if (_debug)
+                encoding = indexed ? "PreEncodedIdx" : "PreEncoded";
+
+            if (indexed)
+                if (_context.add(field) == null)
+                    throw new IllegalStateException();
         } else {
             // Unknown field entry, so we will have to send literally.
-            final boolean indexed;
-
-            // But do we know it's name?
             HttpHeader header = field.getHeader();
+            Entry name = header == null ? _context.get(field.getName()) : _context.get(header);
 
             // Select encoding strategy
-            if (header == null) {
-                // Select encoding strategy for unknown header names
-                Entry name = _context.get(field.getName());
-
-                if (field instanceof PreEncodedHttpField) {
-                    int i = buffer.position();
-                    ((PreEncodedHttpField) field).putTo(buffer, HttpVersion.HTTP_2);
-                    byte b = buffer.get(i);
-                    indexed = b < 0 || b >= 0x40;
-                    if (_debug)
-                        encoding = indexed ? "PreEncodedIdx" : "PreEncoded";
-                }
-                // has the custom header name been seen before?
-                else if (name == null) {
-                    // unknown name and value, so let's index this just in case it is
-                    // the first time we have seen a custom name or a custom field.
-                    // unless the name is changing, this is worthwhile
-                    indexed = true;
-                    encodeName(buffer, (byte) 0x40, 6, field.getName(), null);
-                    encodeValue(buffer, true, field.getValue());
-                    if (_debug)
-                        encoding = "LitHuffNHuffVIdx";
-                } else {
-                    // known custom name, but unknown value.
-                    // This is probably a custom field with changing value, so don't index.
-                    indexed = false;
-                    encodeName(buffer, (byte) 0x00, 4, field.getName(), null);
-                    encodeValue(buffer, true, field.getValue());
-                    if (_debug)
-                        encoding = "LitHuffNHuffV!Idx";
-                }
-            } else {
-                // Select encoding strategy for known header names
-                Entry name = _context.get(header);
-
-                if (field instanceof PreEncodedHttpField) {
-                    // Preencoded field
-                    int i = buffer.position();
-                    ((PreEncodedHttpField) field).putTo(buffer, HttpVersion.HTTP_2);
-                    byte b = buffer.get(i);
-                    indexed = b < 0 || b >= 0x40;
-                    if (_debug)
-                        encoding = indexed ? "PreEncodedIdx" : "PreEncoded";
-                } else if (__DO_NOT_INDEX.contains(header)) {
-                    // Non indexed field
-                    indexed = false;
-                    boolean never_index = __NEVER_INDEX.contains(header);
-                    boolean huffman = !__DO_NOT_HUFFMAN.contains(header);
-                    encodeName(buffer, never_index ? (byte) 0x10 : (byte) 0x00, 4, header.asString(), name);
-                    encodeValue(buffer, huffman, field.getValue());
-
-                    if (_debug)
-                        encoding = "Lit" +
-                                ((name == null) ? "HuffN" : ("IdxN" + (name.isStatic() ? "S" : "") + (1 + NBitInteger.octectsNeeded(4, _context.index(name))))) +
-                                (huffman ? "HuffV" : "LitV") +
-                                (indexed ? "Idx" : (never_index ? "!!Idx" : "!Idx"));
-                } else if (field_size >= _context.getMaxDynamicTableSize() || header == HttpHeader.CONTENT_LENGTH && field.getValue().length() > 2) {
-                    // Non indexed if field too large or a content length for 3 digits or more
-                    indexed = false;
-                    encodeName(buffer, (byte) 0x00, 4, header.asString(), name);
-                    encodeValue(buffer, true, field.getValue());
-                    if (_debug)
-                        encoding = "LitIdxNS" + (1 + NBitInteger.octectsNeeded(4, _context.index(name))) + "HuffV!Idx";
-                } else {
-                    // indexed
-                    indexed = true;
-                    boolean huffman = !__DO_NOT_HUFFMAN.contains(header);
-                    encodeName(buffer, (byte) 0x40, 6, header.asString(), name);
-                    encodeValue(buffer, huffman, field.getValue());
-                    if (_debug)
-                        encoding = ((name == null) ? "LitHuffN" : ("LitIdxN" + (name.isStatic() ? "S" : "") + (1 + NBitInteger.octectsNeeded(6, _context.index(name))))) +
-                                (huffman ? "HuffVIdx" : "LitVIdx");
-                }
+            int hash = field.hashCode();
+            int slot = (hash ^ (hash >>> 16)) & (_notIndexedFields.length - 1);
+            boolean repeated = _notIndexedFields[slot] == hash;
+            HpackIndexingPolicy.Indexing indexing = _indexingPolicy.getIndexing(field, name != null, repeated);
+            if (indexing == HpackIndexingPolicy.Indexing.INCREMENTAL_INDEXING && field_size >= _context.getMaxDynamicTableSize())
+                indexing = HpackIndexingPolicy.Indexing.WITHOUT_INDEXING; // the field will not fit in the table ever
+
+            boolean huffman = header == null || !__DO_NOT_HUFFMAN.contains(header);
+            String fieldName = header == null ? field.getName() : header.asString();
+            switch (indexing) {
+                case INCREMENTAL_INDEXING:
+                    encodeName(buffer, (byte) 0x40, 6, fieldName, name);
+                    break;
+                case WITHOUT_INDEXING:
+                    encodeName(buffer, (byte) 0x00, 4, fieldName, name);
+                    break;
+                default:
+                    encodeName(buffer, (byte) 0x10, 4, fieldName, name);
+                    break;
             }
 
+            // the sensitive values are not kept in the shared cache
+            if (huffman && indexing != HpackIndexingPolicy.Indexing.NEVER_INDEXED)
+                HuffmanValueCache.encode(buffer, field.getValue());
+            else
+                encodeValue(buffer, huffman, field.getValue());
+
+            if (_debug)
+                encoding = "Lit" +
+                        ((name == null) ? "HuffN" : ("IdxN" + (name.isStatic() ? "S" : "") + (1 + NBitInteger.octectsNeeded(indexing == HpackIndexingPolicy.Indexing.INCREMENTAL_INDEXING ? 6 : 4, _context.index(name))))) +
+                        (huffman ? "HuffV" : "LitV") +
+                        (indexing == HpackIndexingPolicy.Indexing.INCREMENTAL_INDEXING ? "Idx" : (indexing == HpackIndexingPolicy.Indexing.NEVER_INDEXED ? "!!Idx" : "!Idx"));
+
             // If we want the field referenced, then we add it to our
-            // table and reference set.
-            if (indexed)
+            // table and reference set, otherwise remember it, so the policy
+            // knows whether it is repeated.
+            if (indexing == HpackIndexingPolicy.Indexing.INCREMENTAL_INDEXING) {
                 if (_context.add(field) == null)
                     throw new IllegalStateException();
+            } else {
+                _notIndexedFields[slot] = hash;
+            }
         }
 
         if (_debug) {
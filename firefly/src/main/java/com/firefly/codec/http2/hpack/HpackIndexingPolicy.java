@@ -0,0 +1,39 @@
+package com.firefly.codec.http2.hpack;
+
+import com.firefly.codec.http2.model.HttpField;
+
+/**
+ * Select the literal representation of the header field that is not found in the static and dynamic tables.
+ *
+ * @author Pengtao Qiu
+ */
+public interface HpackIndexingPolicy {
+
+    enum Indexing {
+        /**
+         * The field is added to the dynamic table, the next same field is sent as an index.
+         */
+        INCREMENTAL_INDEXING,
+
+        /**
+         * The field is sent literally and it is not added to the dynamic table.
+         */
+        WITHOUT_INDEXING,
+
+        /**
+         * The field is sent literally and the intermediaries must not index it, it is used for the sensitive fields.
+         */
+        NEVER_INDEXED
+    }
+
+    /**
+     * Select the representation of the field. The field that is larger than the dynamic table is sent without
+     * indexing whatever is selected.
+     *
+     * @param field       The header field.
+     * @param nameIndexed Whether the field name is in the static or dynamic table.
+     * @param repeated    Whether the same field has been sent without indexing on the connection recently.
+     * @return The representation of the field.
+     */
+    Indexing getIndexing(HttpField field, boolean nameIndexed, boolean repeated);
+}
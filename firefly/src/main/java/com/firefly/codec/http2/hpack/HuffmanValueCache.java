@@ -0,0 +1,56 @@
+package com.firefly.codec.http2.hpack;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The Huffman encoded string literals of the frequently sent values, they are shared by all connections. The cache is
+ * direct mapped by the hash code of the value, the value is admitted when it is seen twice in a row in its slot, so
+ * the values that change on every message do not allocate or evict the cached values.
+ *
+ * @author Pengtao Qiu
+ */
+class HuffmanValueCache {
+
+    private static final int SIZE = 1024;
+    private static final int MASK = SIZE - 1;
+    private static final int MAX_VALUE_LENGTH = 256;
+
+    private static final class EncodedValue {
+        private final String value;
+        private final byte[] encoded;
+
+        private EncodedValue(String value) {
+            this.value = value;
+            int length = Huffman.octetsNeeded(value);
+            ByteBuffer buffer = ByteBuffer.allocate(1 + NBitInteger.octectsNeeded(7, length) + length);
+            encode(buffer, value, length);
+            this.encoded = buffer.array();
+        }
+    }
+
+    // the races only cause the misses, the encoded values are immutable
+    private static final EncodedValue[] values = new EncodedValue[SIZE];
+    private static final int[] candidates = new int[SIZE];
+
+    static void encode(ByteBuffer buffer, String value) {
+        int hash = value.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & MASK;
+        EncodedValue encodedValue = values[slot];
+        if (encodedValue != null && encodedValue.value.equals(value)) {
+            buffer.put(encodedValue.encoded);
+        } else if (candidates[slot] == hash && value.length() <= MAX_VALUE_LENGTH) {
+            encodedValue = new EncodedValue(value);
+            values[slot] = encodedValue;
+            buffer.put(encodedValue.encoded);
+        } else {
+            candidates[slot] = hash;
+            encode(buffer, value, Huffman.octetsNeeded(value));
+        }
+    }
+
+    private static void encode(ByteBuffer buffer, String value, int length) {
+        buffer.put((byte) 0x80);
+        NBitInteger.encode(buffer, 7, length);
+        Huffman.encode(buffer, value);
+    }
+}
@@ -5,6 +5,7 @@ import java.util.GregorianCalendar;
 import java.util.TimeZone;
 
 import com.firefly.utils.StringUtils;
+import com.firefly.utils.time.Millisecond100Clock;
 
 /**
  * ThreadLocal Date formatters for HTTP style dates.
@@ -29,6 +30,36 @@ public class DateGenerator {
 
 	public final static String __01Jan1970 = DateGenerator.formatDate(0);
 
+	private static volatile DateField __dateField = new DateField(Millisecond100Clock.currentTimeMillis() / 1000L);
+
+	private static final class DateField {
+		private final long seconds;
+		private final PreEncodedHttpField field;
+
+		private DateField(long seconds) {
+			this.seconds = seconds;
+			this.field = new PreEncodedHttpField(HttpHeader.DATE, formatDate(seconds * 1000L));
+		}
+	}
+
+	/**
+	 * Get the Date header of the current second. The field is formatted and
+	 * pre-encoded once per second and shared by all the responses, so the
+	 * HTTP/1 generator and the HPACK encoder write its bytes directly.
+	 * 
+	 * @return the pre-encoded Date header
+	 */
+	public static PreEncodedHttpField getDateField() {
+		long seconds = Millisecond100Clock.currentTimeMillis() / 1000L;
+		DateField dateField = __dateField;
+		if (dateField.seconds != seconds) {
+			// the concurrent threads may create the same field, the last one wins
+			dateField = new DateField(seconds);
+			__dateField = dateField;
+		}
+		return dateField.field;
+	}
+
 	/**
 	 * Format HTTP date "EEE, dd MMM yyyy HH:mm:ss 'GMT'"
 	 * 
@@ -0,0 +1,613 @@
+package com.firefly.codec.http2.model;
+
+import com.firefly.utils.collection.MultiMap;
+import com.firefly.utils.function.Action1;
+import com.firefly.utils.io.BufferUtils;
+import com.firefly.utils.io.ByteArrayOutputStream2;
+import com.firefly.utils.lang.QuotedStringTokenizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.http.Part;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The non-blocking multipart/form-data parser. Unlike the {@link MultiPartInputStreamParser}, it does not need
+ * the whole request body. It consumes the body chunks when they are received, and it writes the content of each part
+ * to the final storage directly: the memory if the part is not larger than the file size threshold, otherwise
+ * a temporary file that is written by the file channel. The part listener is notified when a part is complete.
+ * <p>
+ * The parser is not thread safe, the chunks must be fed in order.
+ *
+ * @author Pengtao Qiu
+ */
+public class MultiPartFormDataParser {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private enum State {
+        BODY, DELIMITER, DELIMITER_DASH, DELIMITER_CR, HEADERS, EPILOGUE
+    }
+
+    private final MultipartConfigElement config;
+    private final File tmpDir;
+    private final MultiMap<Part> parts = new MultiMap<>();
+    private byte[] delimiter;
+    private int maxHeaderSize = 8 * 1024;
+    private boolean deleteOnExit;
+    private boolean writeFilesWithFilenames;
+    private Action1<Part> partComplete;
+
+    private State state = State.BODY;
+    private int matched;
+    private long total;
+    private final ByteArrayOutputStream2 headerLine = new ByteArrayOutputStream2(256);
+    private int headerSize;
+    private MultiMap<String> headers;
+    private MultiPart part;
+    private Exception error;
+    private boolean completed;
+
+    public class MultiPart implements Part {
+        protected final String name;
+        protected final String filename;
+        protected final String contentType;
+        protected final MultiMap<String> headers;
+        protected ByteArrayOutputStream2 bout;
+        protected File file;
+        protected FileChannel channel;
+        protected long size;
+        protected boolean temporary = true;
+
+        public MultiPart(String name, String filename, String contentType, MultiMap<String> headers) throws IOException {
+            this.name = name;
+            this.filename = filename;
+            this.contentType = contentType;
+            this.headers = headers;
+            if (writeFilesWithFilenames && filename != null && filename.trim().length() > 0) {
+                createFile();
+            }
+        }
+
+        protected void write(ByteBuffer buffer) throws IOException {
+            int length = buffer.remaining();
+            if (config.getMaxFileSize() > 0 && size + length > config.getMaxFileSize()) {
+                throw new IllegalStateException("Multipart Mime part " + name + " exceeds max filesize");
+            }
+
+            if (config.getFileSizeThreshold() > 0 && size + length > config.getFileSizeThreshold() && file == null) {
+                createFile();
+            }
+
+            if (channel != null) {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } else {
+                if (bout == null) {
+                    bout = new ByteArrayOutputStream2(Math.max(length, 256));
+                }
+                BufferUtils.writeTo(buffer, bout);
+            }
+            size += length;
+        }
+
+        protected void createFile() throws IOException {
+            if (!tmpDir.exists()) {
+                tmpDir.mkdirs();
+            }
+            file = File.createTempFile("MultiPart", "", tmpDir);
+            file.setReadable(false, false);
+            file.setReadable(true, true);
+            if (deleteOnExit) {
+                file.deleteOnExit();
+            }
+
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+            if (bout != null) {
+                ByteBuffer buffer = ByteBuffer.wrap(bout.getBuf(), 0, bout.getCount());
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                bout = null;
+            }
+        }
+
+        protected void close() throws IOException {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            if (file != null) {
+                return new BufferedInputStream(new FileInputStream(file));
+            } else if (bout != null) {
+                return new ByteArrayInputStream(bout.getBuf(), 0, bout.getCount());
+            } else {
+                return new ByteArrayInputStream(new byte[0]);
+            }
+        }
+
+        @Override
+        public String getContentType() {
+            return contentType;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getSubmittedFileName() {
+            return filename;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        public byte[] getBytes() {
+            if (file == null) {
+                return bout == null ? new byte[0] : bout.toByteArray();
+            }
+            return null;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        @Override
+        public void write(String fileName) throws IOException {
+            temporary = false;
+            if (file == null) {
+                // the part content is in the memory
+                file = new File(tmpDir, fileName);
+                try (OutputStream out = new FileOutputStream(file)) {
+                    if (bout != null) {
+                        bout.writeTo(out);
+                    }
+                } finally {
+                    bout = null;
+                }
+            } else {
+                // the part content has been written to the temporary file, just rename it
+                Path src = file.toPath();
+                Path target = src.resolveSibling(fileName);
+                Files.move(src, target, StandardCopyOption.REPLACE_EXISTING);
+                file = target.toFile();
+            }
+        }
+
+        @Override
+        public void delete() throws IOException {
+            if (file != null && file.exists()) {
+                file.delete();
+            }
+        }
+
+        /**
+         * Remove the temporary file.
+         */
+        public void cleanUp() {
+            if (temporary && file != null && file.exists()) {
+                file.delete();
+            }
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (name == null) {
+                return null;
+            }
+            return headers.getValue(name.toLowerCase(Locale.ENGLISH), 0);
+        }
+
+        @Override
+        public Collection<String> getHeaders(String name) {
+            return headers.getValues(name);
+        }
+
+        @Override
+        public Collection<String> getHeaderNames() {
+            return headers.keySet();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Part{n=%s,fn=%s,ct=%s,s=%d,t=%b,f=%s}", name, filename, contentType, size, temporary, file);
+        }
+    }
+
+    /**
+     * @param contentType   The Content-Type header that contains the boundary.
+     * @param config        The multipart config. The file size threshold decides whether the part is written to
+     *                      the temporary file.
+     * @param contextTmpDir The default temporary directory.
+     */
+    public MultiPartFormDataParser(String contentType, MultipartConfigElement config, File contextTmpDir) {
+        if (contextTmpDir == null) {
+            contextTmpDir = new File(System.getProperty("java.io.tmpdir"));
+        }
+        if (config == null) {
+            config = new MultipartConfigElement(contextTmpDir.getAbsolutePath());
+        }
+        this.config = config;
+
+        if (config.getLocation() == null || "".equals(config.getLocation())) {
+            tmpDir = contextTmpDir;
+        } else {
+            File f = new File(config.getLocation());
+            tmpDir = f.isAbsolute() ? f : new File(contextTmpDir, config.getLocation());
+        }
+
+        if (contentType == null || !contentType.startsWith("multipart/form-data")) {
+            error = new IOException("The content type is not multipart/form-data");
+            return;
+        }
+        int start = contentType.indexOf("boundary=");
+        if (start < 0) {
+            error = new IOException("Missing multipart boundary");
+            return;
+        }
+        int end = contentType.indexOf(";", start);
+        end = (end < 0 ? contentType.length() : end);
+        String boundary = QuotedStringTokenizer.unquote(value(contentType.substring(start, end)).trim());
+        delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+
+        // the first boundary has no leading CRLF
+        matched = 2;
+    }
+
+    /**
+     * Set the listener of the completed parts. It is called by the thread that feeds the last chunk of the part.
+     *
+     * @param partComplete The part listener.
+     * @return The parser.
+     */
+    public MultiPartFormDataParser partComplete(Action1<Part> partComplete) {
+        this.partComplete = partComplete;
+        return this;
+    }
+
+    /**
+     * Parse a chunk of the request body. The parsing error is latched, and it is thrown by {@link #getParts()}.
+     *
+     * @param buffer The body chunk, it is consumed.
+     */
+    public void parse(ByteBuffer buffer) {
+        if (error != null || completed) {
+            buffer.position(buffer.limit());
+            return;
+        }
+
+        try {
+            total += buffer.remaining();
+            if (config.getMaxRequestSize() > 0 && total > config.getMaxRequestSize()) {
+                throw new IllegalStateException("Request exceeds maxRequestSize (" + config.getMaxRequestSize() + ")");
+            }
+
+            int pos = buffer.position();
+            int limit = buffer.limit();
+            while (pos < limit) {
+                switch (state) {
+                    case BODY:
+                        pos = parseBody(buffer, pos, limit);
+                        break;
+                    case DELIMITER: {
+                        byte b = buffer.get(pos++);
+                        if (b == '-') {
+                            state = State.DELIMITER_DASH;
+                        } else if (b == '\r') {
+                            state = State.DELIMITER_CR;
+                        } else if (b == '\n') {
+                            startHeaders();
+                        } else if (b != ' ' && b != '\t') {
+                            throw new IOException("Bad multipart boundary");
+                        }
+                    }
+                    break;
+                    case DELIMITER_DASH:
+                        if (buffer.get(pos++) != '-') {
+                            throw new IOException("Bad multipart boundary");
+                        }
+                        state = State.EPILOGUE;
+                        break;
+                    case DELIMITER_CR:
+                        if (buffer.get(pos++) != '\n') {
+                            throw new IOException("Bad multipart boundary");
+                        }
+                        startHeaders();
+                        break;
+                    case HEADERS:
+                        pos = parseHeaders(buffer, pos, limit);
+                        break;
+                    case EPILOGUE:
+                        pos = limit;
+                        break;
+                }
+            }
+            buffer.position(limit);
+        } catch (Exception e) {
+            buffer.position(buffer.limit());
+            fail(e);
+        }
+    }
+
+    /**
+     * The request body is complete.
+     */
+    public void complete() {
+        if (completed) {
+            return;
+        }
+        completed = true;
+        if (error == null && state != State.EPILOGUE) {
+            fail(new IOException("Incomplete parts"));
+        }
+    }
+
+    private int parseBody(ByteBuffer buffer, int pos, int limit) throws IOException {
+        int dataStart = pos;
+        int matchStart = matched > 0 ? -1 : pos; // -1 means the partial delimiter is carried from the last chunk
+        while (pos < limit) {
+            if (matched == 0) {
+                // find the CR that may start the delimiter
+                while (pos < limit && buffer.get(pos) != '\r') {
+                    pos++;
+                }
+                if (pos == limit) {
+                    break;
+                }
+                matchStart = pos++;
+                matched = 1;
+            } else if (buffer.get(pos) == delimiter[matched]) {
+                pos++;
+                if (++matched == delimiter.length) {
+                    if (matchStart >= 0) {
+                        writePart(buffer, dataStart, matchStart);
+                    }
+                    matched = 0;
+                    completePart();
+                    state = State.DELIMITER;
+                    return pos;
+                }
+            } else {
+                if (matchStart < 0) {
+                    // the carried bytes are the part content
+                    writePart(ByteBuffer.wrap(delimiter, 0, matched));
+                    dataStart = pos;
+                }
+                // the current byte may start the delimiter
+                matched = 0;
+            }
+        }
+
+        if (matched == 0) {
+            writePart(buffer, dataStart, limit);
+        } else if (matchStart >= 0) {
+            // the partial delimiter is carried to the next chunk
+            writePart(buffer, dataStart, matchStart);
+        }
+        return limit;
+    }
+
+    private void writePart(ByteBuffer buffer, int from, int to) throws IOException {
+        if (part != null && to > from) {
+            ByteBuffer content = buffer.duplicate();
+            content.limit(to);
+            content.position(from);
+            part.write(content);
+        }
+    }
+
+    private void writePart(ByteBuffer content) throws IOException {
+        if (part != null) {
+            part.write(content);
+        }
+    }
+
+    private void startHeaders() {
+        state = State.HEADERS;
+        headers = new MultiMap<>();
+        headerLine.reset();
+        headerSize = 0;
+    }
+
+    private int parseHeaders(ByteBuffer buffer, int pos, int limit) throws IOException {
+        while (pos < limit) {
+            byte b = buffer.get(pos++);
+            if (b != '\n') {
+                if (++headerSize > maxHeaderSize) {
+                    throw new IllegalStateException("Multipart headers exceed max header size (" + maxHeaderSize + ")");
+                }
+                headerLine.write(b);
+                continue;
+            }
+
+            int length = headerLine.getCount();
+            if (length > 0 && headerLine.getBuf()[length - 1] == '\r') {
+                length--;
+            }
+            if (length == 0) {
+                // end of headers
+                openPart();
+                state = State.BODY;
+                return pos;
+            }
+
+            String line = new String(headerLine.getBuf(), 0, length, StandardCharsets.UTF_8);
+            headerLine.reset();
+            int c = line.indexOf(':');
+            if (c > 0) {
+                String key = line.substring(0, c).trim().toLowerCase(Locale.ENGLISH);
+                String value = line.substring(c + 1).trim();
+                headers.put(key, value);
+            }
+        }
+        return pos;
+    }
+
+    private void openPart() throws IOException {
+        String contentDisposition = headers.getValue("content-disposition", 0);
+        if (contentDisposition == null) {
+            throw new IOException("Missing content-disposition");
+        }
+
+        boolean formData = false;
+        String name = null;
+        String filename = null;
+        QuotedStringTokenizer tok = new QuotedStringTokenizer(contentDisposition, ";", false, true);
+        while (tok.hasMoreTokens()) {
+            String t = tok.nextToken().trim();
+            String tl = t.toLowerCase(Locale.ENGLISH);
+            if (t.startsWith("form-data")) {
+                formData = true;
+            } else if (tl.startsWith("name=")) {
+                name = value(t);
+            } else if (tl.startsWith("filename=")) {
+                filename = filenameValue(t);
+            }
+        }
+
+        if (formData && name != null) {
+            part = new MultiPart(name, filename, headers.getValue("content-type", 0), headers);
+        } else {
+            // the content of the part is skipped
+            part = null;
+        }
+    }
+
+    private void completePart() throws IOException {
+        if (part != null) {
+            MultiPart completedPart = part;
+            part = null;
+            completedPart.close();
+            parts.add(completedPart.getName(), completedPart);
+            if (partComplete != null) {
+                partComplete.call(completedPart);
+            }
+        }
+    }
+
+    private void fail(Exception e) {
+        error = e;
+        if (part != null) {
+            try {
+                part.close();
+            } catch (IOException x) {
+                log.warn("close multipart exception", x);
+            }
+            part.cleanUp();
+            part = null;
+        }
+    }
+
+    /**
+     * Get the completed parts.
+     *
+     * @return The parts.
+     * @throws IOException The parsing exception.
+     */
+    public Collection<Part> getParts() throws IOException {
+        throwIfError();
+        List<Part> list = new ArrayList<>();
+        for (List<Part> values : parts.values()) {
+            list.addAll(values);
+        }
+        return list;
+    }
+
+    public Part getPart(String name) throws IOException {
+        throwIfError();
+        return parts.getValue(name, 0);
+    }
+
+    protected void throwIfError() throws IOException {
+        if (error != null) {
+            if (error instanceof IOException)
+                throw (IOException) error;
+            if (error instanceof IllegalStateException)
+                throw (IllegalStateException) error;
+            throw new IllegalStateException(error);
+        }
+    }
+
+    /**
+     * Delete the temporary files of the parts, and clear the parts.
+     */
+    public void deleteParts() {
+        for (List<Part> values : parts.values()) {
+            for (Part p : values) {
+                ((MultiPart) p).cleanUp();
+            }
+        }
+        parts.clear();
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public int getMaxHeaderSize() {
+        return maxHeaderSize;
+    }
+
+    public void setMaxHeaderSize(int maxHeaderSize) {
+        this.maxHeaderSize = maxHeaderSize;
+    }
+
+    public boolean isDeleteOnExit() {
+        return deleteOnExit;
+    }
+
+    public void setDeleteOnExit(boolean deleteOnExit) {
+        this.deleteOnExit = deleteOnExit;
+    }
+
+    public boolean isWriteFilesWithFilenames() {
+        return writeFilesWithFilenames;
+    }
+
+    public void setWriteFilesWithFilenames(boolean writeFilesWithFilenames) {
+        this.writeFilesWithFilenames = writeFilesWithFilenames;
+    }
+
+    private static String value(String nameEqualsValue) {
+        int idx = nameEqualsValue.indexOf('=');
+        String value = nameEqualsValue.substring(idx + 1).trim();
+        return QuotedStringTokenizer.unquoteOnly(value);
+    }
+
+    private static String filenameValue(String nameEqualsValue) {
+        int idx = nameEqualsValue.indexOf('=');
+        String value = nameEqualsValue.substring(idx + 1).trim();
+
+        if (value.matches(".??[a-z,A-Z]\\:\\\\[^\\\\].*")) {
+            // incorrectly escaped IE filenames that have the whole path
+            char first = value.charAt(0);
+            if (first == '"' || first == '\'')
+                value = value.substring(1);
+            char last = value.charAt(value.length() - 1);
+            if (last == '"' || last == '\'')
+                value = value.substring(0, value.length() - 1);
+            return value;
+        } else {
+            return QuotedStringTokenizer.unquoteOnly(value, true);
+        }
+    }
+}
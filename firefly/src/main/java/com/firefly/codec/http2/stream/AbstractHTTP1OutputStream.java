@@ -2,7 +2,9 @@ package com.firefly.codec.http2.stream;
 
 import com.firefly.codec.http2.encode.HttpGenerator;
 import com.firefly.codec.http2.model.MetaData;
+import com.firefly.net.ByteBufferOutputEntry;
 import com.firefly.net.Session;
+import com.firefly.utils.concurrent.Callback;
 import com.firefly.utils.io.BufferUtils;
 
 import java.io.IOException;
@@ -20,6 +22,17 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
     }
 
     protected synchronized void commit(ByteBuffer data) throws IOException {
+        commit(data, data);
+    }
+
+    /**
+     * Commit the header and the first data.
+     *
+     * @param data    The first data.
+     * @param message The output message of the data, it is the data itself or the output entry that wraps the data.
+     * @throws IOException Write data exception.
+     */
+    protected synchronized void commit(ByteBuffer data, Object message) throws IOException {
         if (closed)
             return;
 
@@ -35,7 +48,7 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
         if (generatorResult == HttpGenerator.Result.FLUSH && generator.getState() == HttpGenerator.State.COMMITTED) {
             tcpSession.encode(header);
             if (data != null) {
-                tcpSession.encode(data);
+                tcpSession.encode(message);
             }
             committed = true;
         } else {
@@ -51,12 +64,31 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
         if (!data.hasRemaining())
             return;
 
+        writeMessage(data, data);
+    }
+
+    @Override
+    public synchronized void write(ByteBuffer data, Callback callback) throws IOException {
+        if (closed) {
+            callback.failed(new IOException("the output stream is closed"));
+            return;
+        }
+
+        if (!data.hasRemaining()) {
+            callback.succeeded();
+            return;
+        }
+
+        writeMessage(data, new ByteBufferOutputEntry(callback, data));
+    }
+
+    private void writeMessage(ByteBuffer data, Object message) throws IOException {
         final HttpGenerator generator = getHttpGenerator();
         final Session tcpSession = getSession();
         HttpGenerator.Result generatorResult;
 
         if (!committed) {
-            commit(data);
+            commit(data, message);
         } else {
             if (generator.isChunking()) {
                 ByteBuffer chunk = BufferUtils.allocate(HttpGenerator.CHUNK_SIZE);
@@ -64,14 +96,14 @@ abstract public class AbstractHTTP1OutputStream extends HTTPOutputStream {
                 generatorResult = generate(null, null, chunk, data, false);
                 if (generatorResult == HttpGenerator.Result.FLUSH && generator.getState() == HttpGenerator.State.COMMITTED) {
                     tcpSession.encode(chunk);
-                    tcpSession.encode(data);
+                    tcpSession.encode(message);
                 } else {
                     generateHTTPMessageExceptionally(generatorResult, generator.getState(), HttpGenerator.Result.FLUSH, HttpGenerator.State.COMMITTED);
                 }
             } else {
                 generatorResult = generate(null, null, null, data, false);
                 if (generatorResult == HttpGenerator.Result.FLUSH && generator.getState() == HttpGenerator.State.COMMITTED) {
-                    tcpSession.encode(data);
+                    tcpSession.encode(message);
                 } else {
                     generateHTTPMessageExceptionally(generatorResult, generator.getState(), HttpGenerator.Result.FLUSH, HttpGenerator.State.COMMITTED);
                 }
@@ -32,6 +32,10 @@ abstract public class AbstractHTTP2Connection extends AbstractHTTPConnection {
             case "buffer":
                 flowControl = new BufferingFlowControlStrategy(config.getInitialStreamSendWindow(), 0.5f);
                 break;
+            case "bdp":
+                flowControl = new BDPFlowControlStrategy(config.getInitialStreamSendWindow(), 0.5f,
+                        config.getMaxFlowControlWindow());
+                break;
             case "simple":
                 flowControl = new SimpleFlowControlStrategy(config.getInitialStreamSendWindow());
                 break;
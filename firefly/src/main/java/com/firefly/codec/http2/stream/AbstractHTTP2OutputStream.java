@@ -15,7 +15,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
+import java.util.*;
 import java.util.function.Supplier;
 
 abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
@@ -32,6 +32,8 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
     private LinkedList<Frame> frames = new LinkedList<>();
     private FrameCallback frameCallback = new FrameCallback();
     private DataFrame currentDataFrame;
+    private Frame writingFrame;
+    private final Map<Frame, Callback> dataFrameCallbacks = new IdentityHashMap<>();
 
     public AbstractHTTP2OutputStream(MetaData info, boolean clientMode) {
         super(info, clientMode);
@@ -50,6 +52,27 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
         if (data == null || !data.hasRemaining())
             return;
 
+        writeFrame(nextDataFrame(data));
+    }
+
+    @Override
+    public synchronized void write(ByteBuffer data, Callback callback) throws IOException {
+        if (closed) {
+            callback.failed(new IOException("the output stream is closed"));
+            return;
+        }
+
+        if (data == null || !data.hasRemaining()) {
+            callback.succeeded();
+            return;
+        }
+
+        DataFrame frame = nextDataFrame(data);
+        dataFrameCallbacks.put(frame, callback);
+        writeFrame(frame);
+    }
+
+    private DataFrame nextDataFrame(ByteBuffer data) throws IOException {
         if (!committed) {
             commit(false);
         }
@@ -64,8 +87,7 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
         }
 
         final Stream stream = getStream();
-        final DataFrame frame = new DataFrame(stream.getId(), data, endStream);
-        writeFrame(frame);
+        return new DataFrame(stream.getId(), data, endStream);
     }
 
     public synchronized void writeFrame(Frame frame) {
@@ -106,10 +128,12 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 
                             if (trailers == null) {
                                 DataFrame theLastDataFrame = new DataFrame(currentDataFrame.getStreamId(), currentDataFrame.getData(), true);
+                                transferDataFrameCallback(currentDataFrame, theLastDataFrame);
                                 writeDataFrame(theLastDataFrame);
                                 currentDataFrame = null;
                             } else {
                                 DataFrame theLastDataFrame = new DataFrame(currentDataFrame.getStreamId(), currentDataFrame.getData(), false);
+                                transferDataFrameCallback(currentDataFrame, theLastDataFrame);
                                 writeDataFrame(theLastDataFrame);
                                 currentDataFrame = null;
                                 writeTrailer();
@@ -131,6 +155,13 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
         }
     }
 
+    private void transferDataFrameCallback(DataFrame from, DataFrame to) {
+        Callback callback = dataFrameCallbacks.remove(from);
+        if (callback != null) {
+            dataFrameCallbacks.put(to, callback);
+        }
+    }
+
     protected synchronized void writeDataFrame(DataFrame dataFrame) {
         closed = dataFrame.isEndStream();
 
@@ -141,6 +172,7 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
                 log.debug("the stream {} writes a frame {}, remaining frames are {}", dataFrame.getStreamId(), dataFrame, frames.toString());
             }
             isWriting = true;
+            writingFrame = dataFrame;
             getStream().data(dataFrame, frameCallback);
         }
     }
@@ -156,6 +188,7 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
             }
 
             isWriting = true;
+            writingFrame = headersFrame;
             getStream().headers(headersFrame, frameCallback);
         }
     }
@@ -238,7 +271,10 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
 
         @Override
         public void succeeded() {
+            Callback dataFrameCallback;
             synchronized (AbstractHTTP2OutputStream.this) {
+                dataFrameCallback = dataFrameCallbacks.remove(writingFrame);
+                writingFrame = null;
                 isWriting = false;
                 final Frame frame = frames.poll();
                 if (frame != null) {
@@ -261,14 +297,22 @@ abstract public class AbstractHTTP2OutputStream extends HTTPOutputStream {
                             getStream().getId(), frames.size());
                 }
             }
+            if (dataFrameCallback != null) {
+                dataFrameCallback.succeeded();
+            }
         }
 
         @Override
         public void failed(Throwable x) {
+            List<Callback> failedCallbacks;
             synchronized (AbstractHTTP2OutputStream.this) {
                 log.error("the stream {} outputs http2 frame unsuccessfully ", x, getStream().getId());
                 isWriting = false;
+                writingFrame = null;
+                failedCallbacks = new ArrayList<>(dataFrameCallbacks.values());
+                dataFrameCallbacks.clear();
             }
+            failedCallbacks.forEach(callback -> callback.failed(x));
         }
 
     }
@@ -0,0 +1,203 @@
+package com.firefly.codec.http2.stream;
+
+import java.util.Collections;
+import java.util.function.LongSupplier;
+
+import com.firefly.codec.http2.frame.PingFrame;
+import com.firefly.codec.http2.frame.SettingsFrame;
+import com.firefly.codec.http2.frame.WindowUpdateFrame;
+import com.firefly.utils.concurrent.Callback;
+
+/**
+ * <p>
+ * A flow control strategy that grows the receive windows to the estimated
+ * bandwidth-delay product (BDP) of the connection. The consumed data is
+ * returned to the sender like the {@link BufferingFlowControlStrategy}.
+ * </p>
+ * <p>
+ * When a DATA frame is received and no BDP PING is outstanding, a PING is sent
+ * and the received bytes are counted until its reply arrives. The counted bytes
+ * are the BDP sample, and the time between the PING write and the reply is the
+ * round-trip time sample. If the sample fills most of the current window and the
+ * bandwidth (sample / RTT) is the highest seen so far, the window is the
+ * bottleneck, so the session and stream receive windows grow to twice the sample.
+ * The new stream window is sent with the SETTINGS INITIAL_WINDOW_SIZE, and the
+ * session window with a WINDOW_UPDATE.
+ * </p>
+ * <p>
+ * The windows never exceed the max window, it is the memory budget of the
+ * connection. When the max window is reached, the PINGs are not sent any more.
+ * </p>
+ *
+ * @author Pengtao Qiu
+ */
+public class BDPFlowControlStrategy extends BufferingFlowControlStrategy {
+	public static final int DEFAULT_MAX_WINDOW_SIZE = 16 * 1024 * 1024;
+
+	private static final long BDP_PING_PAYLOAD = 0x4244505F50494E47L; // "BDP_PING"
+	private static final double SAMPLE_THRESHOLD = 2.0 / 3.0;
+	private static final double GROWTH_FACTOR = 2.0;
+	private static final double RTT_ALPHA = 0.9;
+	private static final int RTT_WARM_UP_SAMPLES = 10;
+
+	private final int maxWindow;
+	private final LongSupplier ticker;
+	private int window;
+	private boolean pingSent;
+	private long pingCount;
+	private long pingTime;
+	private long sample;
+	private double rtt;
+	private int rttSamples;
+	private double maxBandwidth;
+
+	public BDPFlowControlStrategy(float bufferRatio) {
+		this(DEFAULT_WINDOW_SIZE, bufferRatio, DEFAULT_MAX_WINDOW_SIZE);
+	}
+
+	public BDPFlowControlStrategy(int initialStreamSendWindow, float bufferRatio, int maxWindow) {
+		this(initialStreamSendWindow, bufferRatio, maxWindow, System::nanoTime);
+	}
+
+	/**
+	 * @param initialStreamSendWindow The initial stream send window.
+	 * @param bufferRatio The ratio of the consumed data that is returned to the sender.
+	 * @param maxWindow The max receive window.
+	 * @param ticker The time source in nanoseconds that measures the round-trip time.
+	 */
+	public BDPFlowControlStrategy(int initialStreamSendWindow, float bufferRatio, int maxWindow, LongSupplier ticker) {
+		super(initialStreamSendWindow, bufferRatio);
+		this.maxWindow = maxWindow;
+		this.ticker = ticker;
+	}
+
+	public int getMaxWindow() {
+		return maxWindow;
+	}
+
+	/**
+	 * Get the receive window that is estimated by the BDP samples.
+	 *
+	 * @return The receive window, it is 0 before the first sample.
+	 */
+	public synchronized int getWindow() {
+		return window;
+	}
+
+	/**
+	 * Get the smoothed round-trip time of the BDP PINGs.
+	 *
+	 * @return The round-trip time in milliseconds.
+	 */
+	public synchronized double getRoundTripTime() {
+		return rtt * 1000;
+	}
+
+	@Override
+	public void onDataReceived(SessionSPI session, StreamSPI stream, int length) {
+		super.onDataReceived(session, stream, length);
+
+		if (length <= 0)
+			return;
+
+		long ping;
+		synchronized (this) {
+			window = Math.max(window, getInitialStreamRecvWindow());
+			if (window >= maxWindow)
+				return;
+
+			if (pingSent) {
+				sample += length;
+				return;
+			}
+			pingSent = true;
+			pingTime = ticker.getAsLong();
+			sample = length;
+			ping = ++pingCount;
+		}
+
+		session.ping(new PingFrame(BDP_PING_PAYLOAD, false), new Callback() {
+			@Override
+			public void succeeded() {
+				// The RTT is measured from the write, the time waiting in the flusher is excluded.
+				synchronized (BDPFlowControlStrategy.this) {
+					if (pingSent && pingCount == ping)
+						pingTime = ticker.getAsLong();
+				}
+			}
+
+			@Override
+			public void failed(Throwable x) {
+				synchronized (BDPFlowControlStrategy.this) {
+					if (pingCount == ping)
+						pingSent = false;
+				}
+			}
+		});
+	}
+
+	@Override
+	public boolean onPingReply(SessionSPI session, PingFrame frame) {
+		if (frame.getPayloadAsLong() != BDP_PING_PAYLOAD)
+			return false;
+
+		int newWindow;
+		synchronized (this) {
+			if (!pingSent)
+				return true;
+			pingSent = false;
+
+			double rttSample = Math.max(ticker.getAsLong() - pingTime, 1) / 1_000_000_000.0;
+			rttSamples++;
+			if (rttSamples < RTT_WARM_UP_SAMPLES)
+				rtt += (rttSample - rtt) / rttSamples;
+			else
+				rtt = RTT_ALPHA * rtt + (1 - RTT_ALPHA) * rttSample;
+
+			// The sample is received in about one RTT after the PING is sent,
+			// the extra half RTT is the time of the reply.
+			double bandwidth = sample / (rtt * 1.5);
+			if (bandwidth > maxBandwidth)
+				maxBandwidth = bandwidth;
+
+			if (log.isDebugEnabled())
+				log.debug("BDP sample {} bytes, rtt {}ms, bandwidth {}B/s, window {} for {}", sample, rtt * 1000,
+						(long) bandwidth, window, session);
+
+			if (sample < window * SAMPLE_THRESHOLD || bandwidth < maxBandwidth)
+				return true;
+
+			newWindow = (int) Math.min(sample * GROWTH_FACTOR, maxWindow);
+			if (newWindow <= window)
+				return true;
+			window = newWindow;
+		}
+
+		updateWindows(session, newWindow);
+		return true;
+	}
+
+	private void updateWindows(SessionSPI session, int newWindow) {
+		if (log.isDebugEnabled())
+			log.debug("Update BDP window to {} for {}", newWindow, session);
+
+		// The stream windows are updated when the SETTINGS frame is written, see HTTP2Session.ControlEntry.
+		SettingsFrame settingsFrame = new SettingsFrame(
+				Collections.singletonMap(SettingsFrame.INITIAL_WINDOW_SIZE, newWindow), false);
+		int sessionDelta = newWindow - getMaxSessionRecvWindow();
+		if (sessionDelta > 0) {
+			session.updateRecvWindow(sessionDelta);
+			updateMaxSessionRecvWindow(newWindow);
+			session.frames(null, Callback.NOOP, settingsFrame, new WindowUpdateFrame(0, sessionDelta));
+		} else {
+			session.frames(null, Callback.NOOP, settingsFrame);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s@%x[window=%d,maxWindow=%d,rtt=%.2fms,sessionStallTime=%dms,streamsStallTime=%dms]",
+				getClass().getSimpleName(), hashCode(), getWindow(), maxWindow, getRoundTripTime(),
+				getSessionStallTime(), getStreamsStallTime());
+	}
+}
@@ -73,6 +73,14 @@ public class BufferingFlowControlStrategy extends AbstractFlowControlStrategy {
 		this.bufferRatio = bufferRatio;
 	}
 
+	protected int getMaxSessionRecvWindow() {
+		return maxSessionRecvWindow.get();
+	}
+
+	protected void updateMaxSessionRecvWindow(int sessionRecvWindow) {
+		Atomics.updateMax(maxSessionRecvWindow, sessionRecvWindow);
+	}
+
 	@Override
 	public void onStreamCreated(StreamSPI stream) {
 		super.onStreamCreated(stream);
@@ -1,5 +1,6 @@
 package com.firefly.codec.http2.stream;
 
+import com.firefly.codec.http2.frame.PingFrame;
 import com.firefly.codec.http2.frame.WindowUpdateFrame;
 
 public interface FlowControlStrategy {
@@ -22,4 +23,16 @@ public interface FlowControlStrategy {
 	public void onDataSending(StreamSPI stream, int length);
 
 	public void onDataSent(StreamSPI stream, int length);
+
+	/**
+	 * Invoked when a PING reply is received.
+	 *
+	 * @param session The session.
+	 * @param frame   The PING reply.
+	 * @return True if the PING is sent by the flow control strategy, the reply is not notified to the listener.
+	 * The default implementation returns false.
+	 */
+	public default boolean onPingReply(SessionSPI session, PingFrame frame) {
+		return false;
+	}
 }
@@ -18,6 +18,7 @@ public class HTTP2Configuration {
     private String flowControlStrategy = "buffer";
     private int initialStreamSendWindow = FlowControlStrategy.DEFAULT_WINDOW_SIZE;
     private int initialSessionRecvWindow = FlowControlStrategy.DEFAULT_WINDOW_SIZE;
+    private int maxFlowControlWindow = BDPFlowControlStrategy.DEFAULT_MAX_WINDOW_SIZE;
     private int maxConcurrentStreams = -1;
     private int maxHeaderBlockFragment = 0;
     private int maxRequestHeadLength = 4 * 1024;
@@ -75,6 +76,14 @@ public class HTTP2Configuration {
         this.initialStreamSendWindow = initialStreamSendWindow;
     }
 
+    public int getMaxFlowControlWindow() {
+        return maxFlowControlWindow;
+    }
+
+    public void setMaxFlowControlWindow(int maxFlowControlWindow) {
+        this.maxFlowControlWindow = maxFlowControlWindow;
+    }
+
     public int getMaxConcurrentStreams() {
         return maxConcurrentStreams;
     }
@@ -1,6 +1,7 @@
 package com.firefly.codec.http2.stream;
 
 import com.firefly.codec.http2.frame.Frame;
+import com.firefly.codec.http2.frame.FrameType;
 import com.firefly.codec.http2.frame.WindowUpdateFrame;
 import com.firefly.net.ByteBufferArrayOutputEntry;
 import com.firefly.utils.concurrent.Callback;
@@ -13,16 +14,25 @@ import org.slf4j.LoggerFactory;
 import java.nio.ByteBuffer;
 import java.util.*;
 
+/**
+ * The flusher writes the control frames in the FIFO order, and the DATA frames are interleaved by the stream priority.
+ * Every DATA frame is selected by the virtual time of the streams in the {@link StreamPriorityTree}, and the bytes of
+ * the DATA frames in one write are bounded, so the frames of the new streams are not queued behind a bulk transfer.
+ */
 public class HTTP2Flusher extends IteratingCallback {
     private static Logger log = LoggerFactory.getLogger("firefly-system");
 
+    private static final int MAX_DATA_BYTES_PER_WRITE = 64 * 1024;
+
     private final Queue<WindowEntry> windows = new ArrayDeque<>();
     private final Deque<Entry> frames = new ArrayDeque<>();
     private final Queue<Entry> entries = new ArrayDeque<>();
     private final List<Entry> actives = new ArrayList<>();
     private final HTTP2Session session;
     private final Queue<ByteBuffer> buffers = new LinkedList<>();
-    private Entry stalled;
+    private final List<Entry> dataEntries = new ArrayList<>();
+    private final Set<Integer> dataStreams = new HashSet<>();
+    private double virtualTime;
     private Throwable terminated;
 
     public HTTP2Flusher(HTTP2Session session) {
@@ -109,33 +119,40 @@ public class HTTP2Flusher extends IteratingCallback {
             return Action.IDLE;
         }
 
-        while (!entries.isEmpty()) {
-            Entry entry = entries.poll();
-            if (log.isDebugEnabled())
-                log.debug("Processing {}", entry);
-
-            // If the stream has been reset, don't send the frame.
-            if (entry.reset()) {
+        try {
+            while (!entries.isEmpty()) {
+                Entry entry = entries.poll();
                 if (log.isDebugEnabled())
-                    log.debug("Resetting {}", entry);
-                continue;
-            }
+                    log.debug("Processing {}", entry);
 
-            try {
-                if (entry.generate(buffers)) {
-                    if (entry.dataRemaining() > 0)
-                        entries.offer(entry);
-                } else {
-                    if (stalled == null)
-                        stalled = entry;
+                // If the stream has been reset, don't send the frame.
+                if (entry.reset()) {
+                    if (log.isDebugEnabled())
+                        log.debug("Resetting {}", entry);
+                    continue;
                 }
-            } catch (Throwable failure) {
-                // Failure to generate the entry is catastrophic.
-                if (log.isDebugEnabled())
-                    log.debug("Failure generating frame " + entry.frame, failure);
-                failed(failure);
-                return Action.SUCCEEDED;
+
+                if (entry.isData()) {
+                    // The DATA frames are scheduled after the control frames.
+                    schedule(entry);
+                    continue;
+                }
+
+                if (entry.isLast()) {
+                    // The connection is closed after the frame, so the scheduled data is sent before it.
+                    generateData(Integer.MAX_VALUE);
+                }
+                entry.generate(buffers);
             }
+            generateData(MAX_DATA_BYTES_PER_WRITE);
+        } catch (Throwable failure) {
+            // Failure to generate the entry is catastrophic.
+            if (log.isDebugEnabled())
+                log.debug("Failure generating frames", failure);
+            dataEntries.clear();
+            dataStreams.clear();
+            failed(failure);
+            return Action.SUCCEEDED;
         }
 
         if (buffers.isEmpty()) {
@@ -153,6 +170,60 @@ public class HTTP2Flusher extends IteratingCallback {
         return Action.SCHEDULED;
     }
 
+    private void schedule(Entry entry) {
+        StreamPriorityTree tree = session.getPriorityTree();
+        tree.activate(entry.stream.getId(), virtualTime);
+        dataEntries.add(entry);
+        dataStreams.add(entry.stream.getId());
+    }
+
+    /**
+     * Generate the DATA frames of the scheduled entries. The stream that has the smallest virtual time sends a frame,
+     * until the bytes exceed the limit or the flow control windows are exhausted. The remaining entries are
+     * appended to the queue when the write completes.
+     *
+     * @param maxBytes The max bytes of the DATA frames.
+     */
+    private void generateData(int maxBytes) {
+        StreamPriorityTree tree = session.getPriorityTree();
+        int bytes = 0;
+        while (bytes < maxBytes && !dataEntries.isEmpty()) {
+            Entry next = null;
+            double min = Double.MAX_VALUE;
+            for (Entry entry : dataEntries) {
+                int streamId = entry.stream.getId();
+                if (tree.isBlocked(streamId, dataStreams::contains))
+                    continue;
+                double time = tree.getVirtualTime(streamId, virtualTime);
+                if (next == null || time < min) {
+                    next = entry;
+                    min = time;
+                }
+            }
+            if (next == null)
+                break;
+
+            int streamId = next.stream.getId();
+            int remaining = next.dataRemaining();
+            if (next.generate(buffers)) {
+                int written = remaining - next.dataRemaining();
+                bytes += written;
+                virtualTime = Math.max(virtualTime, min);
+                tree.charge(streamId, written);
+                if (next.dataRemaining() > 0)
+                    continue;
+            } else {
+                // The flow control window is exhausted, the dependencies of the stream can use the connection.
+                if (log.isDebugEnabled())
+                    log.debug("Stalled {}", next);
+            }
+            dataEntries.remove(next);
+            dataStreams.remove(streamId);
+        }
+        if (bytes >= maxBytes && log.isDebugEnabled())
+            log.debug("Deferred {} DATA frames, written {} bytes", dataEntries.size(), bytes);
+    }
+
     private int getBufferTotalLength() {
         int length = 0;
         for (ByteBuffer buf : buffers) {
@@ -173,26 +244,18 @@ public class HTTP2Flusher extends IteratingCallback {
 
     private void complete() {
         buffers.clear();
+        // the written frames are not referenced any more, their buffers can be reused
+        session.getGenerator().reset();
+        dataEntries.clear();
+        dataStreams.clear();
 
         actives.forEach(Entry::complete);
 
-        if (stalled != null) {
-            // We have written part of the frame, but there is more to write.
-            // The API will not allow to send two data frames for the same
-            // stream so we append the unfinished frame at the end to allow
-            // better interleaving with other streams.
-            int index = actives.indexOf(stalled);
-            for (int i = index; i < actives.size(); ++i) {
-                Entry entry = actives.get(i);
-                if (entry.dataRemaining() > 0)
-                    append(entry);
-            }
-            for (int i = 0; i < index; ++i) {
-                Entry entry = actives.get(i);
-                if (entry.dataRemaining() > 0)
-                    append(entry);
-            }
-            stalled = null;
+        // The DATA frames that are not finished in this write are appended to the queue,
+        // they are scheduled again with the new frames.
+        for (Entry entry : actives) {
+            if (entry.dataRemaining() > 0)
+                append(entry);
         }
 
         actives.clear();
@@ -257,6 +320,20 @@ public class HTTP2Flusher extends IteratingCallback {
             return 0;
         }
 
+        private boolean isData() {
+            return frame.getType() == FrameType.DATA && dataRemaining() > 0 && stream != null;
+        }
+
+        private boolean isLast() {
+            switch (frame.getType()) {
+                case GO_AWAY:
+                case DISCONNECT:
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
         protected abstract boolean generate(Queue<ByteBuffer> buffers);
 
         private void complete() {
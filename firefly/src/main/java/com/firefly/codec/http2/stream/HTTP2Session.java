@@ -39,8 +39,10 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
     private final Session.Listener listener;
     private final FlowControlStrategy flowControl;
     private final HTTP2Flusher flusher;
+    private final StreamPriorityTree priorityTree = new StreamPriorityTree();
     private int maxLocalStreams;
     private int maxRemoteStreams;
+    private volatile boolean settingsReceived;
     private long streamIdleTimeout;
     private int initialSessionRecvWindow;
     private boolean pushEnabled;
@@ -68,6 +70,10 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
         return flowControl;
     }
 
+    public StreamPriorityTree getPriorityTree() {
+        return priorityTree;
+    }
+
     public int getMaxLocalStreams() {
         return maxLocalStreams;
     }
@@ -76,6 +82,16 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
         this.maxLocalStreams = maxLocalStreams;
     }
 
+    /**
+     * Whether the peer's first SETTINGS frame is received. The max local streams is -1 until the peer sets it, so
+     * it is unknown before the settings are received, and it is unlimited if the peer does not set it.
+     *
+     * @return If true, the peer's settings are received.
+     */
+    public boolean isSettingsReceived() {
+        return settingsReceived;
+    }
+
     public int getMaxRemoteStreams() {
         return maxRemoteStreams;
     }
@@ -166,6 +182,7 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
     public void onPriority(PriorityFrame frame) {
         if (log.isDebugEnabled())
             log.debug("Received {}", frame);
+        priorityTree.prioritize(frame);
     }
 
     @Override
@@ -249,6 +266,7 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
                 }
             }
         }
+        settingsReceived = true;
         notifySettings(this, frame);
 
         if (reply) {
@@ -263,7 +281,8 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
             log.debug("Received {}", frame);
 
         if (frame.isReply()) {
-            notifyPing(this, frame);
+            if (!flowControl.onPingReply(this, frame))
+                notifyPing(this, frame);
         } else {
             PingFrame reply = new PingFrame(frame.getPayload(), true);
             control(null, Callback.NOOP, reply);
@@ -587,6 +606,7 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
             onStreamClosed(stream);
 
             flowControl.onStreamDestroyed(stream);
+            priorityTree.remove(stream.getId());
 
             if (log.isDebugEnabled())
                 log.debug("Removed {} {}", local ? "local" : "remote", stream);
@@ -991,13 +1011,13 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
 
             Pair<Integer, List<ByteBuffer>> pair = generator.data((DataFrame) frame, length);
             buffers.addAll(pair.second);
-            // Only one DATA frame is generated.
-            bytes = pair.first;
-            int written = bytes;
+            // Only one DATA frame is generated, the flusher may generate several frames of the entry in one write.
+            int written = pair.first;
+            bytes += written;
             if (log.isDebugEnabled())
                 log.debug("Generated {}, length/window/data={}/{}/{}", frame, written, window, dataRemaining);
 
-            this.dataWritten = written;
+            this.dataWritten += written;
             this.dataRemaining -= written;
 
             flowControl.onDataSending(stream, written);
@@ -1009,6 +1029,8 @@ public abstract class HTTP2Session implements SessionSPI, Parser.Listener {
         public void succeeded() {
             bytesWritten.addAndGet(bytes);
             flowControl.onDataSent(stream, dataWritten);
+            bytes = 0;
+            dataWritten = 0;
 
             // Do we have more to send ?
             DataFrame dataFrame = (DataFrame) frame;
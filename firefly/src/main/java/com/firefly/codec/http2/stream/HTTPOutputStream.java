@@ -2,6 +2,7 @@ package com.firefly.codec.http2.stream;
 
 import com.firefly.codec.http2.model.HttpHeader;
 import com.firefly.codec.http2.model.MetaData;
+import com.firefly.utils.concurrent.Callback;
 import com.firefly.utils.io.BufferUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -74,4 +75,17 @@ public abstract class HTTPOutputStream extends OutputStream {
 	abstract public void commit() throws IOException;
 	
 	abstract public void write(ByteBuffer data) throws IOException;
+
+	/**
+	 * Write the data asynchronously. The callback is completed when the data has been flushed to the connection,
+	 * so the caller can bound the data that is queued in the connection.
+	 *
+	 * @param data     The data.
+	 * @param callback The callback is completed when the data is flushed.
+	 * @throws IOException Write data exception.
+	 */
+	public void write(ByteBuffer data, Callback callback) throws IOException {
+		write(data);
+		callback.succeeded();
+	}
 }
@@ -0,0 +1,245 @@
+package com.firefly.codec.http2.stream;
+
+import com.firefly.codec.http2.frame.PriorityFrame;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * The HTTP/2 stream dependency tree (RFC 7540, section 5.3). It is built from the received PRIORITY frames and
+ * the priority data of the HEADERS frames, and it is used by the flusher to share the connection between the streams.
+ * <p>
+ * The flusher schedules the DATA frames with the virtual time of the streams. Sending n bytes advances the virtual
+ * time of the stream by n / share, the share is the product of the weight proportions along the path from the root.
+ * The stream that has the smallest virtual time is sent first, and a stream is blocked while one of its ancestors
+ * has data to send.
+ *
+ * @author Pengtao Qiu
+ */
+public class StreamPriorityTree {
+
+    public static final int DEFAULT_WEIGHT = 16;
+
+    private final Map<Integer, Node> nodes = new HashMap<>();
+    private final Node root = new Node(0);
+    private final int maxNodes;
+
+    private static class Node {
+        private final int streamId;
+        private Node parent;
+        private int weight = DEFAULT_WEIGHT;
+        private final List<Node> children = new ArrayList<>(2);
+        private int childrenWeight;
+        private double virtualTime;
+
+        private Node(int streamId) {
+            this.streamId = streamId;
+        }
+
+        private void addChild(Node child) {
+            child.parent = this;
+            children.add(child);
+            childrenWeight += child.weight;
+        }
+
+        private void removeChild(Node child) {
+            if (children.remove(child)) {
+                childrenWeight -= child.weight;
+            }
+            child.parent = null;
+        }
+
+        private boolean isDescendantOf(Node node) {
+            for (Node p = parent; p != null; p = p.parent) {
+                if (p == node) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    public StreamPriorityTree() {
+        this(1024);
+    }
+
+    /**
+     * @param maxNodes The max number of the streams in the tree. The priority information of the new streams is
+     *                 ignored when the tree is full, it bounds the memory that the peer can allocate with the PRIORITY
+     *                 frames of the idle or closed streams.
+     */
+    public StreamPriorityTree(int maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    public void prioritize(PriorityFrame frame) {
+        prioritize(frame.getStreamId(), frame.getParentStreamId(), frame.getWeight(), frame.isExclusive());
+    }
+
+    /**
+     * Change the dependency of the stream.
+     *
+     * @param streamId       The stream id.
+     * @param parentStreamId The stream that the stream depends on, 0 is the root.
+     * @param weight         The weight, it is between 1 and 256.
+     * @param exclusive      If true, the stream becomes the sole dependency of its parent, and the other dependencies
+     *                       of the parent become the dependencies of the stream.
+     */
+    public synchronized void prioritize(int streamId, int parentStreamId, int weight, boolean exclusive) {
+        if (streamId <= 0 || streamId == parentStreamId) {
+            return;
+        }
+        Node node = getOrCreate(streamId);
+        if (node == null) {
+            return;
+        }
+        Node parent = parentStreamId <= 0 ? root : getOrCreate(parentStreamId);
+        if (parent == null) {
+            parent = root;
+        }
+
+        // The new parent depends on the stream, it is moved to the former parent of the stream at first.
+        if (parent.isDescendantOf(node)) {
+            Node formerParent = node.parent;
+            parent.parent.removeChild(parent);
+            formerParent.addChild(parent);
+        }
+
+        node.parent.removeChild(node);
+        node.weight = Math.max(1, Math.min(256, weight));
+        if (exclusive) {
+            List<Node> children = new ArrayList<>(parent.children);
+            for (Node child : children) {
+                parent.removeChild(child);
+                node.addChild(child);
+            }
+        }
+        parent.addChild(node);
+    }
+
+    /**
+     * Remove the closed stream. Its dependencies are moved to its parent, and the weight of the stream is
+     * distributed to them proportionally.
+     *
+     * @param streamId The stream id.
+     */
+    public synchronized void remove(int streamId) {
+        Node node = nodes.remove(streamId);
+        if (node == null) {
+            return;
+        }
+        Node parent = node.parent;
+        parent.removeChild(node);
+        int childrenWeight = node.childrenWeight;
+        List<Node> children = new ArrayList<>(node.children);
+        for (Node child : children) {
+            node.removeChild(child);
+            child.weight = Math.max(1, node.weight * child.weight / childrenWeight);
+            parent.addChild(child);
+        }
+    }
+
+    public synchronized int getWeight(int streamId) {
+        Node node = nodes.get(streamId);
+        return node == null ? DEFAULT_WEIGHT : node.weight;
+    }
+
+    public synchronized int getParentStreamId(int streamId) {
+        Node node = nodes.get(streamId);
+        return node == null ? 0 : node.parent.streamId;
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * The proportion of the connection that the stream gets when all streams in the tree have data to send.
+     *
+     * @param streamId The stream id.
+     * @return The share that is in (0, 1].
+     */
+    public synchronized double getShare(int streamId) {
+        Node node = nodes.get(streamId);
+        if (node == null) {
+            return (double) DEFAULT_WEIGHT / (root.childrenWeight + DEFAULT_WEIGHT);
+        }
+        double share = 1.0;
+        for (Node n = node; n.parent != null; n = n.parent) {
+            share *= (double) n.weight / n.parent.childrenWeight;
+        }
+        return share;
+    }
+
+    /**
+     * Test whether an ancestor of the stream has data to send.
+     *
+     * @param streamId The stream id.
+     * @param ready    Test whether the stream has data to send.
+     * @return If true, the stream waits for its ancestor.
+     */
+    public synchronized boolean isBlocked(int streamId, IntPredicate ready) {
+        Node node = nodes.get(streamId);
+        if (node == null) {
+            return false;
+        }
+        for (Node p = node.parent; p != root; p = p.parent) {
+            if (ready.test(p.streamId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the virtual time of the stream. The stream that has been idle catches up with the current virtual time,
+     * so it can not use the time that it has not used to starve the other streams.
+     *
+     * @param streamId    The stream id.
+     * @param virtualTime The current virtual time of the connection.
+     * @return The virtual time of the stream.
+     */
+    public synchronized double activate(int streamId, double virtualTime) {
+        Node node = getOrCreate(streamId);
+        if (node == null) {
+            return virtualTime;
+        }
+        node.virtualTime = Math.max(node.virtualTime, virtualTime);
+        return node.virtualTime;
+    }
+
+    public synchronized double getVirtualTime(int streamId, double virtualTime) {
+        Node node = nodes.get(streamId);
+        return node == null ? virtualTime : node.virtualTime;
+    }
+
+    /**
+     * Advance the virtual time of the stream after its data is sent.
+     *
+     * @param streamId The stream id.
+     * @param bytes    The sent bytes.
+     */
+    public synchronized void charge(int streamId, int bytes) {
+        Node node = nodes.get(streamId);
+        if (node != null) {
+            node.virtualTime += bytes / getShare(streamId);
+        }
+    }
+
+    private Node getOrCreate(int streamId) {
+        Node node = nodes.get(streamId);
+        if (node == null) {
+            if (nodes.size() >= maxNodes) {
+                return null;
+            }
+            node = new Node(streamId);
+            nodes.put(streamId, node);
+            root.addChild(node);
+        }
+        return node;
+    }
+
+}
@@ -3,22 +3,29 @@ package com.firefly.core.support.annotation;
 import com.firefly.annotation.Component;
 import com.firefly.core.support.AbstractBeanReader;
 import com.firefly.core.support.BeanDefinition;
+import com.firefly.core.support.annotation.ComponentIndex.IndexedComponent;
+import com.firefly.utils.ClassUtils;
 import com.firefly.utils.ReflectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.net.JarURLConnection;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.List;
 import java.util.jar.JarEntry;
 
 import static com.firefly.core.support.annotation.AnnotationBeanUtils.*;
 
 /**
- * Annotation Bean processor
+ * Annotation Bean processor. The components are loaded from the {@link ComponentIndex} that is generated at compile
+ * time. If the index is not present or a class path root of the package is not indexed, the package is scanned.
  *
  * @author AlvinQiu
  */
@@ -32,9 +39,56 @@ public class AnnotationBeanReader extends AbstractBeanReader {
     public AnnotationBeanReader(String file) {
         beanDefinitions = new ArrayList<>();
         Config config = ConfigReader.getInstance().load(file);
+        ComponentIndex componentIndex = loadComponentIndex();
         for (String pack : config.getPaths()) {
             log.info("componentPath [{}]", pack);
-            scan(pack.trim());
+            String packageName = pack.trim();
+            if (isFullyIndexed(componentIndex, packageName)) {
+                List<IndexedComponent> components = componentIndex.getComponents(packageName);
+                log.info("load {} components of the package [{}] from the component index", components.size(), packageName);
+                components.forEach(this::parseIndexedComponent);
+            } else {
+                scan(packageName);
+            }
+        }
+    }
+
+    private ComponentIndex loadComponentIndex() {
+        try {
+            return ComponentIndex.load(AnnotationBeanReader.class.getClassLoader());
+        } catch (Throwable t) {
+            log.error("load component index error, scan the packages", t);
+            return null;
+        }
+    }
+
+    private boolean isFullyIndexed(ComponentIndex componentIndex, String packageName) {
+        if (componentIndex == null) {
+            return false;
+        }
+        try {
+            return componentIndex.isFullyIndexed(packageName, AnnotationBeanReader.class.getClassLoader());
+        } catch (Throwable t) {
+            log.error("check component index error, scan the package", t);
+            return false;
+        }
+    }
+
+    private void parseIndexedComponent(IndexedComponent component) {
+        try {
+            Class<?> c = AnnotationBeanReader.class.getClassLoader().loadClass(component.getClassName());
+            BeanDefinition beanDefinition;
+            try {
+                beanDefinition = getBeanDefinition(c, component);
+            } catch (ReflectiveOperationException e) {
+                log.warn("the component index of {} is out of date, {}", c.getName(), e.toString());
+                beanDefinition = getBeanDefinition(c);
+            }
+            if (beanDefinition != null) {
+                beanDefinitions.add(beanDefinition);
+            }
+        } catch (Throwable t) {
+            log.error("parse class error", t);
         }
     }
 
@@ -125,4 +179,54 @@ public class AnnotationBeanReader extends AbstractBeanReader {
         return annotationBeanDefinition;
     }
 
+    protected BeanDefinition getBeanDefinition(Class<?> c, IndexedComponent component) throws ReflectiveOperationException {
+        if (c.isAnnotationPresent(Component.class)) {
+            log.info("classes [{}]", c.getName());
+            return componentParser(c, component);
+        } else {
+            return null;
+        }
+    }
+
+    protected BeanDefinition componentParser(Class<?> c, IndexedComponent component) throws ReflectiveOperationException {
+        List<Field> injectFields = new ArrayList<>();
+        for (String field : component.getInjectFields()) {
+            injectFields.add(c.getDeclaredField(field));
+        }
+        List<Method> injectMethods = new ArrayList<>();
+        for (String method : component.getInjectMethods()) {
+            injectMethods.add(getDeclaredMethod(c, method));
+        }
+        Constructor<?> constructor;
+        if (component.getInjectConstructor() != null) {
+            constructor = c.getConstructor(getParameterTypes(component.getInjectConstructor()));
+        } else {
+            constructor = getInjectConstructor(c);
+        }
+
+        AnnotationBeanDefinition annotationBeanDefinition = new AnnotatedBeanDefinition();
+        annotationBeanDefinition.setClassName(c.getName());
+        annotationBeanDefinition.setId(component.getId());
+        annotationBeanDefinition.setInterfaceNames(ReflectUtils.getInterfaceNames(c));
+        annotationBeanDefinition.setInjectFields(injectFields);
+        annotationBeanDefinition.setInjectMethods(injectMethods);
+        annotationBeanDefinition.setConstructor(constructor);
+        annotationBeanDefinition.setInitMethod(component.getInitMethod() != null ? getDeclaredMethod(c, component.getInitMethod()) : null);
+        annotationBeanDefinition.setDestroyedMethod(component.getDestroyedMethod() != null ? getDeclaredMethod(c, component.getDestroyedMethod()) : null);
+        return annotationBeanDefinition;
+    }
+
+    private static Method getDeclaredMethod(Class<?> c, String signature) throws ReflectiveOperationException {
+        return c.getDeclaredMethod(ComponentIndex.getMethodName(signature), getParameterTypes(signature));
+    }
+
+    private static Class<?>[] getParameterTypes(String signature) throws ClassNotFoundException {
+        String[] names = ComponentIndex.getParameterTypeNames(signature);
+        Class<?>[] parameterTypes = new Class<?>[names.length];
+        for (int i = 0; i < names.length; i++) {
+            parameterTypes[i] = ClassUtils.forName(names[i], AnnotationBeanReader.class.getClassLoader());
+        }
+        return parameterTypes;
+    }
+
 }
@@ -0,0 +1,286 @@
+package com.firefly.core.support.annotation;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The component index is generated by the {@link ComponentIndexProcessor} at compile time. It contains the
+ * components and their injection metadata, so the {@link AnnotationBeanReader} loads the indexed classes only instead of
+ * scanning the packages.
+ * <p>
+ * The index is a text file, a component starts with the "component" entry and the following entries belong to it.
+ * The method is described as name(parameter types), e.g., setUser(com.firefly.User,int).
+ * <pre>
+ * component=test.component.FieldInject
+ * id=fieldInject
+ * field=addService
+ * method=init(java.lang.String)
+ * init=init()
+ * destroyed=destroy()
+ * constructor=(test.component.AddService)
+ * </pre>
+ * The index belongs to the class path root that contains it. A package is loaded from the index only if every root
+ * that contains the package has an index, because the classes that are compiled without the processor are not indexed.
+ * <p>
+ * The index is ignored if the system property "com.fireflysource.component.index.ignore" is true.
+ *
+ * @author Pengtao Qiu
+ */
+public class ComponentIndex {
+
+    public static final String COMPONENT_INDEX_LOCATION = "META-INF/firefly/components.index";
+    public static final String IGNORE_INDEX_PROPERTY = "com.fireflysource.component.index.ignore";
+
+    private final List<IndexedComponent> components;
+    private final Set<String> roots;
+
+    public ComponentIndex(List<IndexedComponent> components) {
+        this(components, Collections.emptySet());
+    }
+
+    public ComponentIndex(List<IndexedComponent> components, Set<String> roots) {
+        this.components = components;
+        this.roots = roots;
+    }
+
+    public static class IndexedComponent {
+        private String className;
+        private String id = "";
+        private List<String> injectFields = new ArrayList<>();
+        private List<String> injectMethods = new ArrayList<>();
+        private String initMethod;
+        private String destroyedMethod;
+        private String injectConstructor;
+
+        public String getClassName() {
+            return className;
+        }
+
+        public void setClassName(String className) {
+            this.className = className;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public List<String> getInjectFields() {
+            return injectFields;
+        }
+
+        public List<String> getInjectMethods() {
+            return injectMethods;
+        }
+
+        public String getInitMethod() {
+            return initMethod;
+        }
+
+        public void setInitMethod(String initMethod) {
+            this.initMethod = initMethod;
+        }
+
+        public String getDestroyedMethod() {
+            return destroyedMethod;
+        }
+
+        public void setDestroyedMethod(String destroyedMethod) {
+            this.destroyedMethod = destroyedMethod;
+        }
+
+        public String getInjectConstructor() {
+            return injectConstructor;
+        }
+
+        public void setInjectConstructor(String injectConstructor) {
+            this.injectConstructor = injectConstructor;
+        }
+    }
+
+    /**
+     * Load all component indexes in the class path.
+     *
+     * @param classLoader The class loader.
+     * @return The component index, or null if the index is not present or it is ignored.
+     * @throws IOException If the index can not be read.
+     */
+    public static ComponentIndex load(ClassLoader classLoader) throws IOException {
+        if (Boolean.getBoolean(IGNORE_INDEX_PROPERTY)) {
+            return null;
+        }
+
+        Enumeration<URL> urls = classLoader.getResources(COMPONENT_INDEX_LOCATION);
+        if (!urls.hasMoreElements()) {
+            return null;
+        }
+
+        List<IndexedComponent> components = new ArrayList<>();
+        Set<String> roots = new HashSet<>();
+        while (urls.hasMoreElements()) {
+            URL url = urls.nextElement();
+            try (InputStream in = url.openStream()) {
+                components.addAll(read(new InputStreamReader(in, StandardCharsets.UTF_8)));
+            }
+            String location = url.toString();
+            roots.add(location.substring(0, location.length() - COMPONENT_INDEX_LOCATION.length()));
+        }
+        return new ComponentIndex(components, roots);
+    }
+
+    /**
+     * Get the components in the package and its sub-packages.
+     *
+     * @param packageName The package name.
+     * @return The components in the package.
+     */
+    public List<IndexedComponent> getComponents(String packageName) {
+        List<IndexedComponent> list = new ArrayList<>();
+        for (IndexedComponent component : components) {
+            if (component.getClassName().startsWith(packageName + ".")) {
+                list.add(component);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Whether every class path root that contains the package has a component index. If a root is not indexed, e.g.,
+     * its classes are compiled without the processor, the package must be scanned.
+     *
+     * @param packageName The package name.
+     * @param classLoader The class loader.
+     * @return If true, all components of the package are in the index.
+     * @throws IOException If the package resources can not be found.
+     */
+    public boolean isFullyIndexed(String packageName, ClassLoader classLoader) throws IOException {
+        String packageDirName = packageName.replace('.', '/');
+        Enumeration<URL> urls = classLoader.getResources(packageDirName);
+        if (!urls.hasMoreElements()) {
+            return false;
+        }
+
+        while (urls.hasMoreElements()) {
+            String location = urls.nextElement().toString();
+            if (location.endsWith("/")) {
+                location = location.substring(0, location.length() - 1);
+            }
+            if (!location.endsWith(packageDirName)
+                    || !roots.contains(location.substring(0, location.length() - packageDirName.length()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static List<IndexedComponent> read(Reader reader) throws IOException {
+        List<IndexedComponent> components = new ArrayList<>();
+        BufferedReader in = new BufferedReader(reader);
+        IndexedComponent component = null;
+        for (String line = in.readLine(); line != null; line = in.readLine()) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+
+            int index = line.indexOf('=');
+            if (index < 0) {
+                throw new IOException("The component index entry format error, " + line);
+            }
+            String key = line.substring(0, index);
+            String value = line.substring(index + 1);
+            if (key.equals("component")) {
+                component = new IndexedComponent();
+                component.setClassName(value);
+                components.add(component);
+                continue;
+            }
+            if (component == null) {
+                throw new IOException("The component index entry does not belong to any component, " + line);
+            }
+
+            switch (key) {
+                case "id":
+                    component.setId(value);
+                    break;
+                case "field":
+                    component.getInjectFields().add(value);
+                    break;
+                case "method":
+                    component.getInjectMethods().add(value);
+                    break;
+                case "init":
+                    component.setInitMethod(value);
+                    break;
+                case "destroyed":
+                    component.setDestroyedMethod(value);
+                    break;
+                case "constructor":
+                    component.setInjectConstructor(value);
+                    break;
+                default:
+                    // the unknown entries are ignored, they are generated by the newer versions
+                    break;
+            }
+        }
+        return components;
+    }
+
+    public static void write(List<IndexedComponent> components, Writer writer) throws IOException {
+        PrintWriter out = new PrintWriter(writer);
+        out.println("# Generated by the firefly component index processor");
+        for (IndexedComponent component : components) {
+            out.println("component=" + component.getClassName());
+            out.println("id=" + component.getId());
+            for (String field : component.getInjectFields()) {
+                out.println("field=" + field);
+            }
+            for (String method : component.getInjectMethods()) {
+                out.println("method=" + method);
+            }
+            if (component.getInitMethod() != null) {
+                out.println("init=" + component.getInitMethod());
+            }
+            if (component.getDestroyedMethod() != null) {
+                out.println("destroyed=" + component.getDestroyedMethod());
+            }
+            if (component.getInjectConstructor() != null) {
+                out.println("constructor=" + component.getInjectConstructor());
+            }
+        }
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Write the component index error");
+        }
+    }
+
+    /**
+     * Get the method name of the signature.
+     *
+     * @param signature The method signature, e.g., setUser(com.firefly.User,int).
+     * @return The method name.
+     */
+    public static String getMethodName(String signature) {
+        return signature.substring(0, signature.indexOf('('));
+    }
+
+    /**
+     * Get the parameter type names of the method or constructor signature.
+     *
+     * @param signature The method signature, e.g., setUser(com.firefly.User,int).
+     * @return The parameter type names.
+     */
+    public static String[] getParameterTypeNames(String signature) {
+        String parameters = signature.substring(signature.indexOf('(') + 1, signature.lastIndexOf(')')).trim();
+        if (parameters.isEmpty()) {
+            return new String[0];
+        } else {
+            return parameters.split(",");
+        }
+    }
+}
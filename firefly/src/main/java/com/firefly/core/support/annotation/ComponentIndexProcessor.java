@@ -0,0 +1,156 @@
+package com.firefly.core.support.annotation;
+
+import com.firefly.annotation.Component;
+import com.firefly.annotation.DestroyedMethod;
+import com.firefly.annotation.InitialMethod;
+import com.firefly.annotation.Inject;
+import com.firefly.core.support.annotation.ComponentIndex.IndexedComponent;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.*;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Generate the {@link ComponentIndex} of the compiled components. The index entries of the previous compilation are
+ * kept if the classes are not compiled in this time, so the incremental compilation does not lose the components.
+ * <p>
+ * The processor is not registered as a service, it must be enabled explicitly, e.g., by the javac option
+ * "-processor com.firefly.core.support.annotation.ComponentIndexProcessor" or the "annotationProcessors" of the maven
+ * compiler plugin. The packages of the class path roots that are compiled without it are scanned.
+ *
+ * @author Pengtao Qiu
+ */
+@SupportedAnnotationTypes("com.firefly.annotation.Component")
+public class ComponentIndexProcessor extends AbstractProcessor {
+
+    private final Map<String, IndexedComponent> components = new LinkedHashMap<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(Component.class)) {
+            if (element instanceof TypeElement && ((TypeElement) element).getNestingKind() == NestingKind.TOP_LEVEL) {
+                IndexedComponent component = createComponent((TypeElement) element);
+                components.put(component.getClassName(), component);
+            }
+        }
+
+        if (roundEnv.processingOver() && !components.isEmpty()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private IndexedComponent createComponent(TypeElement element) {
+        IndexedComponent component = new IndexedComponent();
+        component.setClassName(processingEnv.getElementUtils().getBinaryName(element).toString());
+        component.setId(element.getAnnotation(Component.class).value());
+        for (Element member : element.getEnclosedElements()) {
+            switch (member.getKind()) {
+                case FIELD:
+                    if (member.getAnnotation(Inject.class) != null) {
+                        component.getInjectFields().add(member.getSimpleName().toString());
+                    }
+                    break;
+                case METHOD:
+                    ExecutableElement method = (ExecutableElement) member;
+                    if (method.getAnnotation(Inject.class) != null) {
+                        component.getInjectMethods().add(getSignature(method));
+                    }
+                    if (component.getInitMethod() == null && method.getAnnotation(InitialMethod.class) != null) {
+                        component.setInitMethod(getSignature(method));
+                    }
+                    if (component.getDestroyedMethod() == null && method.getAnnotation(DestroyedMethod.class) != null) {
+                        component.setDestroyedMethod(getSignature(method));
+                    }
+                    break;
+                case CONSTRUCTOR:
+                    if (component.getInjectConstructor() == null
+                            && member.getModifiers().contains(Modifier.PUBLIC)
+                            && member.getAnnotation(Inject.class) != null) {
+                        component.setInjectConstructor(getSignature((ExecutableElement) member));
+                    }
+                    break;
+            }
+        }
+        return component;
+    }
+
+    private String getSignature(ExecutableElement method) {
+        StringBuilder signature = new StringBuilder();
+        if (method.getKind() == ElementKind.METHOD) {
+            signature.append(method.getSimpleName());
+        }
+        signature.append('(');
+        List<? extends VariableElement> parameters = method.getParameters();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                signature.append(',');
+            }
+            signature.append(getTypeName(parameters.get(i).asType()));
+        }
+        return signature.append(')').toString();
+    }
+
+    private String getTypeName(TypeMirror type) {
+        TypeMirror erasure = processingEnv.getTypeUtils().erasure(type);
+        switch (erasure.getKind()) {
+            case ARRAY:
+                return getTypeName(((ArrayType) erasure).getComponentType()) + "[]";
+            case DECLARED:
+                TypeElement element = (TypeElement) processingEnv.getTypeUtils().asElement(erasure);
+                return processingEnv.getElementUtils().getBinaryName(element).toString();
+            default:
+                return erasure.toString();
+        }
+    }
+
+    private void writeIndex() {
+        Map<String, IndexedComponent> index = new TreeMap<>();
+        for (IndexedComponent component : readPreviousIndex()) {
+            TypeElement element = processingEnv.getElementUtils().getTypeElement(component.getClassName());
+            if (element != null && element.getAnnotation(Component.class) != null) {
+                index.put(component.getClassName(), component);
+            }
+        }
+        index.putAll(components);
+
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.COMPONENT_INDEX_LOCATION);
+            try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+                ComponentIndex.write(new ArrayList<>(index.values()), writer);
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Write the component index error, " + e.getMessage());
+        }
+    }
+
+    private List<IndexedComponent> readPreviousIndex() {
+        try {
+            FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", ComponentIndex.COMPONENT_INDEX_LOCATION);
+            try (Reader reader = file.openReader(true)) {
+                return ComponentIndex.read(reader);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            // the index does not exist
+            return Collections.emptyList();
+        }
+    }
+}
@@ -26,10 +26,16 @@ public class HTTP1ServerDecoder extends DecoderChain {
                 final HTTP1ServerConnection http1Connection = (HTTP1ServerConnection) connection;
                 if (http1Connection.tunnelConnectionPromise == null) {
                     final HttpParser parser = http1Connection.getParser();
+                    long contentChunks = parser.getContentChunkCount();
                     while (buf.hasRemaining()) {
                         parser.parseNext(buf);
                     }
+                    if (parser.getContentChunkCount() != contentChunks) {
+                        // the content handlers keep the slices of the buffer
+                        session.retainReadBuffer(buf);
+                    }
                 } else {
+                    session.retainReadBuffer(buf);
                     HTTP1ServerTunnelConnection tunnelConnection = http1Connection.createHTTPTunnel();
                     if (tunnelConnection.content != null) {
                         tunnelConnection.content.call(buf);
@@ -38,6 +44,7 @@ public class HTTP1ServerDecoder extends DecoderChain {
             }
             break;
             case HTTP_TUNNEL: {
+                session.retainReadBuffer(buf);
                 HTTP1ServerTunnelConnection tunnelConnection = (HTTP1ServerTunnelConnection) connection;
                 if (tunnelConnection.content != null) {
                     tunnelConnection.content.call(buf);
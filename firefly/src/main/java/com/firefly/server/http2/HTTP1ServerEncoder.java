@@ -1,6 +1,7 @@
 package com.firefly.server.http2;
 
 import com.firefly.codec.http2.stream.HTTPConnection;
+import com.firefly.net.ByteBufferOutputEntry;
 import com.firefly.net.EncoderChain;
 import com.firefly.net.Session;
 import com.firefly.utils.concurrent.Callback;
@@ -31,9 +32,11 @@ public class HTTP1ServerEncoder extends EncoderChain {
 			} else {
 				if (message instanceof ByteBuffer) {
 					session.write((ByteBuffer) message, Callback.NOOP);
+				} else if (message instanceof ByteBufferOutputEntry) {
+					session.write((ByteBufferOutputEntry) message);
 				} else {
 					throw new IllegalArgumentException(
-							"the http1 encoder must receive the ByteBuffer, but this message type is "
+							"the http1 encoder must receive the ByteBuffer or ByteBufferOutputEntry, but this message type is "
 									+ message.getClass());
 				}
 			}
@@ -5,7 +5,7 @@ import com.firefly.codec.http2.stream.ShutdownHelper;
 import com.firefly.net.DecoderChain;
 import com.firefly.net.EncoderChain;
 import com.firefly.net.Server;
-import com.firefly.net.tcp.aio.AsynchronousTcpServer;
+import com.firefly.net.tcp.TcpTransport;
 import com.firefly.utils.lang.AbstractLifeCycle;
 
 public class HTTP2Server extends AbstractLifeCycle {
@@ -45,7 +45,7 @@ public class HTTP2Server extends AbstractLifeCycle {
         http2Configuration.getTcpConfiguration().setDecoder(decoder);
         http2Configuration.getTcpConfiguration().setEncoder(encoder);
         http2Configuration.getTcpConfiguration().setHandler(new HTTP2ServerHandler(http2Configuration, listener, serverHTTPHandler));
-        this.server = new AsynchronousTcpServer(http2Configuration.getTcpConfiguration());
+        this.server = TcpTransport.createServer(http2Configuration.getTcpConfiguration());
         this.http2Configuration = http2Configuration;
     }
 
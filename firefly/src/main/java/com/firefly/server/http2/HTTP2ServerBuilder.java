@@ -36,7 +36,7 @@ public class HTTP2ServerBuilder {
     public HTTP2ServerBuilder httpServer(SimpleHTTPServerConfiguration serverConfiguration,
                                          HTTPBodyConfiguration httpBodyConfiguration) {
         server = new SimpleHTTPServer(serverConfiguration);
-        routerManager = RouterManager.create(httpBodyConfiguration);
+        routerManager = RouterManager.create(httpBodyConfiguration, serverConfiguration.getBlockingHandlerConfiguration());
         return this;
     }
 
@@ -71,6 +71,7 @@ public class HTTP2ServerBuilder {
     public HTTP2ServerBuilder stop() {
         check();
         server.stop();
+        routerManager.stop();
         return this;
     }
 
@@ -130,4 +131,19 @@ public class HTTP2ServerBuilder {
         currentRouter.handler(context);
         return this;
     }
+
+    public HTTP2ServerBuilder blocking() {
+        currentRouter.blocking();
+        return this;
+    }
+
+    public HTTP2ServerBuilder blocking(int maxConcurrency, int maxWaitingTasks) {
+        currentRouter.blocking(maxConcurrency, maxWaitingTasks);
+        return this;
+    }
+
+    public HTTP2ServerBuilder nonBlocking() {
+        currentRouter.nonBlocking();
+        return this;
+    }
 }
@@ -4,8 +4,11 @@ import com.firefly.codec.http2.frame.DataFrame;
 import com.firefly.codec.http2.frame.ErrorCode;
 import com.firefly.codec.http2.frame.HeadersFrame;
 import com.firefly.codec.http2.frame.ResetFrame;
+import com.firefly.codec.http2.frame.SettingsFrame;
 import com.firefly.codec.http2.model.*;
 import com.firefly.codec.http2.stream.AbstractHTTP2OutputStream;
+import com.firefly.codec.http2.stream.HTTP2Session;
+import com.firefly.codec.http2.stream.Session;
 import com.firefly.codec.http2.stream.Stream;
 import com.firefly.codec.http2.stream.Stream.Listener;
 import com.firefly.utils.concurrent.Callback;
@@ -13,11 +16,16 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 public class HTTP2ServerRequestHandler extends ServerSessionListener.Adapter {
 
     protected static final Logger log = LoggerFactory.getLogger("firefly-system");
 
+    private static final PreEncodedHttpField X_POWERED_BY_FIELD = new PreEncodedHttpField(HttpHeader.X_POWERED_BY, AbstractHTTP2OutputStream.X_POWERED_BY_VALUE);
+    private static final PreEncodedHttpField SERVER_FIELD = new PreEncodedHttpField(HttpHeader.SERVER, AbstractHTTP2OutputStream.SERVER_VALUE);
+
     private final ServerHTTPHandler serverHTTPHandler;
     HTTP2ServerConnection connection;
 
@@ -25,6 +33,19 @@ public class HTTP2ServerRequestHandler extends ServerSessionListener.Adapter {
         this.serverHTTPHandler = serverHTTPHandler;
     }
 
+    @Override
+    public Map<Integer, Integer> onPreface(Session session) {
+        // advertise the limit of the concurrent streams, so the client does not open the streams that are refused
+        int maxStreams = ((HTTP2Session) session).getMaxRemoteStreams();
+        if (maxStreams > 0) {
+            Map<Integer, Integer> settings = new HashMap<>();
+            settings.put(SettingsFrame.MAX_CONCURRENT_STREAMS, maxStreams);
+            return settings;
+        } else {
+            return null;
+        }
+    }
+
     @Override
     public Listener onNewStream(final Stream stream, final HeadersFrame headersFrame) {
         if (!headersFrame.getMetaData().isRequest()) {
@@ -42,8 +63,12 @@ public class HTTP2ServerRequestHandler extends ServerSessionListener.Adapter {
             @Override
             protected synchronized void commit(final boolean endStream) throws IOException {
                 if (!committed) {
-                    info.getFields().put(HttpHeader.X_POWERED_BY, X_POWERED_BY_VALUE);
-                    info.getFields().put(HttpHeader.SERVER, SERVER_VALUE);
+                    HttpFields fields = info.getFields();
+                    fields.put(X_POWERED_BY_FIELD);
+                    fields.put(SERVER_FIELD);
+                    if (!fields.contains(HttpHeader.DATE)) {
+                        fields.put(DateGenerator.getDateField());
+                    }
                 }
 
                 super.commit(endStream);
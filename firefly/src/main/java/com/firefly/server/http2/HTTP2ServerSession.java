@@ -54,6 +54,9 @@ public class HTTP2ServerSession extends HTTP2Session implements ServerParser.Lis
 		if (metaData.isRequest()) {
 			StreamSPI stream = createRemoteStream(frame.getStreamId());
 			if (stream != null) {
+				PriorityFrame priority = frame.getPriority();
+				if (priority != null)
+					getPriorityTree().prioritize(priority);
 				stream.process(frame, Callback.NOOP);
 				Stream.Listener listener = notifyNewStream(stream, frame);
 				stream.setListener(listener);
@@ -100,6 +100,7 @@ public class SimpleHTTPServer extends AbstractLifeCycle {
                     return false;
                 }).messageComplete((request, response, out, connection) -> {
                     SimpleRequest r = (SimpleRequest) request.getAttachment();
+                    r.messageCompleted = true;
                     if (r.messageComplete != null) {
                         r.messageComplete.call(r);
                     }
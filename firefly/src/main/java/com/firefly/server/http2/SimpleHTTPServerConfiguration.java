@@ -1,11 +1,13 @@
 package com.firefly.server.http2;
 
 import com.firefly.codec.http2.stream.HTTP2Configuration;
+import com.firefly.server.http2.router.executor.BlockingHandlerConfiguration;
 
 public class SimpleHTTPServerConfiguration extends HTTP2Configuration {
 
 	private String host;
 	private int port;
+	private BlockingHandlerConfiguration blockingHandlerConfiguration = new BlockingHandlerConfiguration();
 
 	public String getHost() {
 		return host;
@@ -23,4 +25,17 @@ public class SimpleHTTPServerConfiguration extends HTTP2Configuration {
 		this.port = port;
 	}
 
+	/**
+	 * The configuration of the executor that runs the blocking handlers out of the I/O threads.
+	 *
+	 * @return The blocking handler configuration.
+	 */
+	public BlockingHandlerConfiguration getBlockingHandlerConfiguration() {
+		return blockingHandlerConfiguration;
+	}
+
+	public void setBlockingHandlerConfiguration(BlockingHandlerConfiguration blockingHandlerConfiguration) {
+		this.blockingHandlerConfiguration = blockingHandlerConfiguration;
+	}
+
 }
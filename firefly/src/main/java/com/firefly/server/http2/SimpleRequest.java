@@ -11,6 +11,9 @@ import com.firefly.utils.io.BufferUtils;
 import com.firefly.utils.json.Json;
 import com.firefly.utils.json.JsonArray;
 import com.firefly.utils.json.JsonObject;
+import com.firefly.utils.json.JsonReader;
+import com.firefly.utils.json.io.JsonBytesReader;
+import com.firefly.utils.json.io.JsonStringReader;
 import com.firefly.utils.lang.GenericTypeReference;
 
 import java.nio.ByteBuffer;
@@ -31,6 +34,7 @@ public class SimpleRequest {
     Action1<SimpleRequest> contentComplete;
     Action1<SimpleRequest> messageComplete;
     List<ByteBuffer> requestBody = new ArrayList<>();
+    volatile boolean messageCompleted;
 
     List<Cookie> cookies;
     String stringBody;
@@ -141,6 +145,17 @@ public class SimpleRequest {
         return this;
     }
 
+    public Action1<SimpleRequest> getMessageComplete() {
+        return messageComplete;
+    }
+
+    /**
+     * @return If true, the server has received the whole request message.
+     */
+    public boolean isMessageComplete() {
+        return messageCompleted;
+    }
+
     public String getStringBody(String charset) {
         if (stringBody == null) {
             stringBody = BufferUtils.toString(requestBody, charset);
@@ -154,20 +169,28 @@ public class SimpleRequest {
         return getStringBody("UTF-8");
     }
 
+    private JsonReader getJsonReader() {
+        if (stringBody == null) {
+            return JsonBytesReader.create(requestBody);
+        } else {
+            return new JsonStringReader(stringBody);
+        }
+    }
+
     public <T> T getJsonBody(Class<T> clazz) {
-        return Json.toObject(getStringBody(), clazz);
+        return Json.toObject(getJsonReader(), clazz);
     }
 
     public <T> T getJsonBody(GenericTypeReference<T> typeReference) {
-        return Json.toObject(getStringBody(), typeReference);
+        return Json.toObject(getJsonReader(), typeReference.getType());
     }
 
     public JsonObject getJsonObjectBody() {
-        return Json.toJsonObject(getStringBody());
+        return Json.toJsonObject(getJsonReader());
     }
 
     public JsonArray getJsonArrayBody() {
-        return Json.toJsonArray(getStringBody());
+        return Json.toJsonArray(getJsonReader());
     }
 
     public List<Cookie> getCookies() {
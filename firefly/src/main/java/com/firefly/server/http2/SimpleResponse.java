@@ -4,11 +4,14 @@ import com.firefly.codec.http2.model.*;
 import com.firefly.codec.http2.model.MetaData.Response;
 import com.firefly.codec.http2.stream.BufferedHTTPOutputStream;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.utils.concurrent.Callback;
 import com.firefly.utils.io.IO;
+import com.firefly.utils.json.Json;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.Iterator;
 import java.util.Spliterator;
 import java.util.function.Consumer;
@@ -83,6 +86,23 @@ public class SimpleResponse implements Closeable {
         this.asynchronous = asynchronous;
     }
 
+    public HTTPOutputStream getOutput() {
+        return output;
+    }
+
+    /**
+     * Replace the HTTP output stream, e.g., wrap it to encode the content.
+     * It must be called before the output stream or the print writer is used.
+     *
+     * @param output The HTTP output stream.
+     */
+    public synchronized void setOutput(HTTPOutputStream output) {
+        if (bufferedOutputStream != null || printWriter != null) {
+            throw new IllegalStateException("the response output stream has been used");
+        }
+        this.output = output;
+    }
+
     public synchronized OutputStream getOutputStream() {
         if (printWriter != null) {
             throw new IllegalStateException("the response has used print writer");
@@ -225,4 +245,39 @@ public class SimpleResponse implements Closeable {
     public SimpleResponse end(byte[] b) {
         return write(b).end();
     }
+
+    /**
+     * Serialize the object and write the UTF-8 JSON bytes to the output stream directly.
+     *
+     * @param obj The object.
+     * @return The response.
+     */
+    public SimpleResponse writeJson(Object obj) {
+        if (!response.getFields().contains(HttpHeader.CONTENT_TYPE)) {
+            response.getFields().put(MimeTypes.Type.APPLICATION_JSON_UTF_8.getContentTypeField());
+        }
+        Json.writeJson(obj, getOutputStream());
+        return this;
+    }
+
+    public SimpleResponse endJson(Object obj) {
+        return writeJson(obj).end();
+    }
+
+    /**
+     * Write the data without copying it to the response buffer. The callback is completed when the data has been
+     * flushed to the connection, it is used to bound the data that is queued in the connection.
+     *
+     * @param data     The data.
+     * @param callback The callback is completed when the data is flushed.
+     */
+    public synchronized void write(ByteBuffer data, Callback callback) {
+        try {
+            flush();
+            output.write(data, callback);
+        } catch (IOException e) {
+            log.error("write data exception", e);
+            callback.failed(e);
+        }
+    }
 }
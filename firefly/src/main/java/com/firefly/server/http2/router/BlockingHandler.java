@@ -0,0 +1,12 @@
+package com.firefly.server.http2.router;
+
+/**
+ * The marker of the handlers that block the current thread, e.g., the file or JDBC operations. The router of the
+ * blocking handler runs it on the {@link com.firefly.server.http2.router.executor.BlockingHandlerExecutor}
+ * instead of the I/O thread, unless the router is marked non-blocking explicitly.
+ *
+ * @author Pengtao Qiu
+ */
+public interface BlockingHandler extends Handler {
+
+}
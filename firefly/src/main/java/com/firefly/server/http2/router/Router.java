@@ -37,6 +37,34 @@ public interface Router extends Comparable<Router> {
 
     Router handler(Handler context);
 
+    /**
+     * Run the handler on the blocking handler executor instead of the I/O thread. The blocking handler is dispatched
+     * after the request message is received, and the response is closed when the handler returns, unless the
+     * handler gets the asynchronous response.
+     *
+     * @return Router
+     */
+    Router blocking();
+
+    /**
+     * Run the handler on the blocking handler executor, and limit the concurrency of this router.
+     *
+     * @param maxConcurrency  The max number of the running handlers of this router.
+     * @param maxWaitingTasks The max number of the handlers that wait for running, the request is responded with
+     *                        the 503 status when the waiting queue is full.
+     * @return Router
+     */
+    Router blocking(int maxConcurrency, int maxWaitingTasks);
+
+    /**
+     * Run the handler on the I/O thread, even if it is a {@link BlockingHandler}.
+     *
+     * @return Router
+     */
+    Router nonBlocking();
+
+    boolean isBlocking();
+
     Router enable();
 
     Router disable();
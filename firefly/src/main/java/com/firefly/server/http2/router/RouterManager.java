@@ -2,6 +2,7 @@ package com.firefly.server.http2.router;
 
 import com.firefly.server.http2.router.handler.body.HTTPBodyConfiguration;
 import com.firefly.server.http2.router.handler.body.HTTPBodyHandler;
+import com.firefly.server.http2.router.executor.BlockingHandlerConfiguration;
 import com.firefly.server.http2.router.handler.error.DefaultErrorResponseHandlerLoader;
 import com.firefly.server.http2.router.impl.RouterManagerImpl;
 
@@ -62,12 +63,31 @@ public interface RouterManager extends RequestAcceptor {
 
     NavigableSet<RouterMatchResult> findRouter(String method, String path, String contentType, String accept);
 
+    /**
+     * Stop the blocking handler executor.
+     */
+    void stop();
+
     static RouterManager create() {
         return create(new HTTPBodyConfiguration());
     }
 
     static RouterManager create(HTTPBodyConfiguration configuration) {
+        return create(configuration, new BlockingHandlerConfiguration());
+    }
+
+    /**
+     * Create the router manager.
+     *
+     * @param configuration                The HTTP body configuration.
+     * @param blockingHandlerConfiguration The configuration of the blocking handler executor, the executor is
+     *                                     created when a blocking handler is called at first.
+     * @return The router manager.
+     */
+    static RouterManager create(HTTPBodyConfiguration configuration,
+                                BlockingHandlerConfiguration blockingHandlerConfiguration) {
         RouterManagerImpl routerManager = new RouterManagerImpl();
+        routerManager.setBlockingHandlerConfiguration(blockingHandlerConfiguration);
         routerManager.register().path("*").handler(new HTTPBodyHandler(configuration));
         routerManager.registerLast().path("*").handler(DefaultErrorResponseHandlerLoader.getInstance().getHandler());
         return routerManager;
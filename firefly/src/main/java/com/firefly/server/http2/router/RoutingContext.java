@@ -153,6 +153,15 @@ public interface RoutingContext extends Closeable {
         return write(b).end();
     }
 
+    default RoutingContext writeJson(Object obj) {
+        getResponse().writeJson(obj);
+        return this;
+    }
+
+    default RoutingContext endJson(Object obj) {
+        return writeJson(obj).end();
+    }
+
 
     // HTTP body API
     String getParameter(String name);
@@ -165,6 +174,16 @@ public interface RoutingContext extends Closeable {
 
     Part getPart(String name);
 
+    /**
+     * Listen the parts of the multipart/form-data request. The listener is called when a part is received completely,
+     * before the whole request body is received. It requires the multipart streaming of the HTTP body configuration,
+     * and the listener must be registered before the handler returns, the parts received earlier are not reported.
+     *
+     * @param partComplete The part listener.
+     * @return The routing context.
+     */
+    RoutingContext partComplete(Action1<Part> partComplete);
+
     InputStream getInputStream();
 
     BufferedReader getBufferedReader();
@@ -0,0 +1,79 @@
+package com.firefly.server.http2.router.executor;
+
+import com.firefly.net.DefaultMetricReporterFactory;
+import com.firefly.net.MetricReporterFactory;
+import com.firefly.utils.ServiceUtils;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class BlockingHandlerConfiguration {
+
+    private int maxThreads = 256;
+    private int maxWaitingTasks = 4096;
+    private long threadKeepAliveTime = 30 * 1000L;
+    private boolean virtualThreadEnable = true;
+    private MetricReporterFactory metricReporterFactory = ServiceUtils.loadService(MetricReporterFactory.class, new DefaultMetricReporterFactory());
+
+    /**
+     * The max number of the blocking handlers that run concurrently.
+     *
+     * @return The max threads.
+     */
+    public int getMaxThreads() {
+        return maxThreads;
+    }
+
+    public void setMaxThreads(int maxThreads) {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * The max number of the blocking handlers that wait for the threads. The request is responded with the 503 status
+     * when the waiting queue is full.
+     *
+     * @return The max waiting tasks.
+     */
+    public int getMaxWaitingTasks() {
+        return maxWaitingTasks;
+    }
+
+    public void setMaxWaitingTasks(int maxWaitingTasks) {
+        this.maxWaitingTasks = maxWaitingTasks;
+    }
+
+    /**
+     * The idle time of the worker thread before it exits, the unit is millisecond.
+     *
+     * @return The thread keep alive time.
+     */
+    public long getThreadKeepAliveTime() {
+        return threadKeepAliveTime;
+    }
+
+    public void setThreadKeepAliveTime(long threadKeepAliveTime) {
+        this.threadKeepAliveTime = threadKeepAliveTime;
+    }
+
+    /**
+     * If true, the blocking handlers run on the virtual threads when the runtime supports them, the max threads still
+     * limits the concurrency.
+     *
+     * @return Whether the virtual thread is enabled.
+     */
+    public boolean isVirtualThreadEnable() {
+        return virtualThreadEnable;
+    }
+
+    public void setVirtualThreadEnable(boolean virtualThreadEnable) {
+        this.virtualThreadEnable = virtualThreadEnable;
+    }
+
+    public MetricReporterFactory getMetricReporterFactory() {
+        return metricReporterFactory;
+    }
+
+    public void setMetricReporterFactory(MetricReporterFactory metricReporterFactory) {
+        this.metricReporterFactory = metricReporterFactory;
+    }
+}
@@ -0,0 +1,288 @@
+package com.firefly.server.http2.router.executor;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import com.firefly.utils.function.Action1;
+import com.firefly.utils.lang.AbstractLifeCycle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.concurrent.*;
+
+/**
+ * Run the blocking handlers out of the I/O threads. The handlers run on a bounded thread pool, or on the virtual
+ * threads when the runtime supports them. The number of the running handlers is limited by the max threads and
+ * the optional limiter of the router, the exceeded handlers wait in the FIFO queues, and they are rejected when
+ * the queues are full.
+ * <p>
+ * The metrics are the queue time of the handlers (from submitting to running), the number of the running handlers,
+ * and the rejected handlers.
+ *
+ * @author Pengtao Qiu
+ */
+public class BlockingHandlerExecutor extends AbstractLifeCycle {
+
+    private static final Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private final BlockingHandlerConfiguration configuration;
+    private final Limiter limiter;
+    private final MetricRegistry metrics;
+    private final Timer queueTimer;
+    private final Counter activeCounter;
+    private final Meter rejectedMeter;
+    private ExecutorService executorService;
+    private boolean virtualThread;
+
+    /**
+     * Limit the number of the running tasks, the exceeded tasks wait in the queue until the running tasks complete.
+     */
+    public static class Limiter {
+
+        private final String name;
+        private final int maxConcurrency;
+        private final int maxWaitingTasks;
+        private final ArrayDeque<Runnable> waitingTasks = new ArrayDeque<>();
+        private int running;
+
+        /**
+         * @param name            The name of the limiter metrics.
+         * @param maxConcurrency  The max number of the running tasks.
+         * @param maxWaitingTasks The max number of the waiting tasks.
+         */
+        public Limiter(String name, int maxConcurrency, int maxWaitingTasks) {
+            if (maxConcurrency <= 0) {
+                throw new IllegalArgumentException("the max concurrency must be greater than 0");
+            }
+            this.name = name;
+            this.maxConcurrency = maxConcurrency;
+            this.maxWaitingTasks = maxWaitingTasks;
+        }
+
+        /**
+         * Acquire a permit to run the task.
+         *
+         * @param resume Run it after a permit is released, if the task has to wait.
+         * @return If true, the task gets the permit. If false, the task waits in the queue.
+         * @throws RejectedExecutionException The waiting queue is full.
+         */
+        public synchronized boolean tryAcquire(Runnable resume) {
+            if (running < maxConcurrency) {
+                running++;
+                return true;
+            } else if (waitingTasks.size() < maxWaitingTasks) {
+                waitingTasks.offer(resume);
+                return false;
+            } else {
+                throw new RejectedExecutionException("the limiter " + name + " is full, running: " + running
+                        + ", waiting: " + waitingTasks.size());
+            }
+        }
+
+        /**
+         * Release the permit. The permit is transferred to the first waiting task.
+         *
+         * @return The waiting task that gets the permit, or null.
+         */
+        public synchronized Runnable release() {
+            Runnable next = waitingTasks.poll();
+            if (next == null) {
+                running--;
+            }
+            return next;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMaxConcurrency() {
+            return maxConcurrency;
+        }
+
+        public int getMaxWaitingTasks() {
+            return maxWaitingTasks;
+        }
+
+        public synchronized int getRunning() {
+            return running;
+        }
+
+        public synchronized int getWaiting() {
+            return waitingTasks.size();
+        }
+    }
+
+    public BlockingHandlerExecutor() {
+        this(new BlockingHandlerConfiguration());
+    }
+
+    public BlockingHandlerExecutor(BlockingHandlerConfiguration configuration) {
+        this.configuration = configuration;
+        limiter = new Limiter("BlockingHandlerExecutor", configuration.getMaxThreads(), configuration.getMaxWaitingTasks());
+        metrics = configuration.getMetricReporterFactory().getMetricRegistry();
+        queueTimer = metrics.timer("http2.BlockingHandlerExecutor.queue.time");
+        activeCounter = metrics.counter("http2.BlockingHandlerExecutor.active.count");
+        rejectedMeter = metrics.meter("http2.BlockingHandlerExecutor.rejected.count");
+        start();
+    }
+
+    /**
+     * Run the task on the worker thread.
+     *
+     * @param routeLimiter The limiter of the router, it may be null.
+     * @param task         The task.
+     * @param rejected     It is called when the waiting queue is full or the executor has been stopped.
+     */
+    public void execute(Limiter routeLimiter, Runnable task, Action1<RejectedExecutionException> rejected) {
+        LimitedTask limitedTask = new LimitedTask(routeLimiter, task, rejected);
+        if (routeLimiter == null) {
+            limitedTask.submit();
+        } else {
+            limitedTask.acquireRoute();
+        }
+    }
+
+    public BlockingHandlerConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    public boolean isVirtualThread() {
+        return virtualThread;
+    }
+
+    public int getRunning() {
+        return limiter.getRunning();
+    }
+
+    public int getWaiting() {
+        return limiter.getWaiting();
+    }
+
+    private class LimitedTask implements Runnable {
+
+        private final Limiter routeLimiter;
+        private final Runnable task;
+        private final Action1<RejectedExecutionException> rejected;
+        private final long createTime = System.nanoTime();
+
+        LimitedTask(Limiter routeLimiter, Runnable task, Action1<RejectedExecutionException> rejected) {
+            this.routeLimiter = routeLimiter;
+            this.task = task;
+            this.rejected = rejected;
+        }
+
+        void acquireRoute() {
+            try {
+                if (routeLimiter.tryAcquire(this::submit)) {
+                    submit();
+                }
+            } catch (RejectedExecutionException e) {
+                reject(e, false);
+            }
+        }
+
+        void submit() {
+            try {
+                if (limiter.tryAcquire(this::dispatch)) {
+                    dispatch();
+                }
+            } catch (RejectedExecutionException e) {
+                reject(e, true);
+            }
+        }
+
+        void dispatch() {
+            try {
+                executorService.execute(this);
+            } catch (RejectedExecutionException e) {
+                releaseExecutor();
+                reject(e, true);
+            }
+        }
+
+        @Override
+        public void run() {
+            long queueTime = System.nanoTime() - createTime;
+            queueTimer.update(queueTime, TimeUnit.NANOSECONDS);
+            if (routeLimiter != null) {
+                metrics.timer("http2.BlockingHandlerExecutor." + routeLimiter.getName() + ".queue.time")
+                       .update(queueTime, TimeUnit.NANOSECONDS);
+            }
+            activeCounter.inc();
+            try {
+                task.run();
+            } catch (Throwable t) {
+                log.error("run the blocking handler exception", t);
+            } finally {
+                activeCounter.dec();
+                releaseExecutor();
+                releaseRoute();
+            }
+        }
+
+        void reject(RejectedExecutionException e, boolean holdRoutePermit) {
+            rejectedMeter.mark();
+            if (holdRoutePermit) {
+                releaseRoute();
+            }
+            try {
+                rejected.call(e);
+            } catch (Throwable t) {
+                log.error("reject the blocking handler exception", t);
+            }
+        }
+
+        void releaseExecutor() {
+            Runnable next = limiter.release();
+            if (next != null) {
+                next.run();
+            }
+        }
+
+        void releaseRoute() {
+            if (routeLimiter != null) {
+                Runnable next = routeLimiter.release();
+                if (next != null) {
+                    next.run();
+                }
+            }
+        }
+    }
+
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    @Override
+    protected void init() {
+        if (configuration.isVirtualThreadEnable()) {
+            executorService = newVirtualThreadExecutor();
+            virtualThread = executorService != null;
+        }
+        if (executorService == null) {
+            ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+                    configuration.getMaxThreads(), configuration.getMaxThreads(),
+                    configuration.getThreadKeepAliveTime(), TimeUnit.MILLISECONDS,
+                    new LinkedTransferQueue<>(),
+                    r -> new Thread(r, "firefly blocking handler pool"));
+            threadPoolExecutor.allowCoreThreadTimeOut(true);
+            executorService = threadPoolExecutor;
+        }
+        log.info("the blocking handler executor starts, virtual thread: {}, max threads: {}",
+                virtualThread, configuration.getMaxThreads());
+    }
+
+    @Override
+    protected void destroy() {
+        executorService.shutdown();
+    }
+}
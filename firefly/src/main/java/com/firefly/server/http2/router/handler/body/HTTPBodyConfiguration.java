@@ -13,6 +13,7 @@ public class HTTPBodyConfiguration {
     private String tempFilePath = System.getProperty("java.io.tmpdir");
     private String charset = "UTF-8";
     private MultipartConfigElement multipartConfigElement = new MultipartConfigElement(tempFilePath, maxFileSize, maxRequestSize, bodyBufferThreshold);
+    private boolean multipartStreaming;
 
     public int getBodyBufferThreshold() {
         return bodyBufferThreshold;
@@ -53,4 +54,20 @@ public class HTTPBodyConfiguration {
     public void setMultipartConfigElement(MultipartConfigElement multipartConfigElement) {
         this.multipartConfigElement = multipartConfigElement;
     }
+
+    /**
+     * If it is true, the HTTP body handler calls the next handler as soon as it receives the multipart/form-data
+     * request headers, and the next handler listens the parts by the RoutingContext.partComplete method and the end of
+     * the request by the RoutingContext.messageComplete method. The default value is false, the next handler is called
+     * when the whole request body is received.
+     *
+     * @return Whether the multipart/form-data request is streamed to the next handler.
+     */
+    public boolean isMultipartStreaming() {
+        return multipartStreaming;
+    }
+
+    public void setMultipartStreaming(boolean multipartStreaming) {
+        this.multipartStreaming = multipartStreaming;
+    }
 }
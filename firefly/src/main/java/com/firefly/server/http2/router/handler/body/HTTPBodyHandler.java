@@ -4,7 +4,7 @@ import com.firefly.codec.http2.encode.UrlEncoded;
 import com.firefly.codec.http2.model.HttpHeader;
 import com.firefly.codec.http2.model.HttpHeaderValue;
 import com.firefly.codec.http2.model.MimeTypes;
-import com.firefly.codec.http2.model.MultiPartInputStreamParser;
+import com.firefly.codec.http2.model.MultiPartFormDataParser;
 import com.firefly.server.http2.SimpleRequest;
 import com.firefly.server.http2.router.Handler;
 import com.firefly.server.http2.router.RoutingContext;
@@ -67,20 +67,38 @@ public class HTTPBodyHandler implements Handler {
         }
 
         String transferEncoding = request.getFields().get(HttpHeader.TRANSFER_ENCODING);
-        if (HttpHeaderValue.CHUNKED.asString().equals(transferEncoding)) {
-            httpBodyHandlerSPI.pipedStream = new ByteArrayPipedStream(4 * 1024);
-        } else {
-            long contentLength = request.getContentLength();
-            if (contentLength <= 0) { // no content
+        boolean chunked = HttpHeaderValue.CHUNKED.asString().equals(transferEncoding);
+        long contentLength = request.getContentLength();
+        if (!chunked && contentLength <= 0) { // no content
+            ctx.next();
+            return;
+        }
+
+        String contentType = MimeTypes.getContentTypeMIMEType(request.getFields().get(HttpHeader.CONTENT_TYPE));
+        if ("multipart/form-data".equals(contentType)) {
+            // parse the parts when the content is received, the parts are written to the final storage directly
+            MultiPartFormDataParser parser = new MultiPartFormDataParser(
+                    request.getFields().get(HttpHeader.CONTENT_TYPE),
+                    configuration.getMultipartConfigElement(),
+                    new File(configuration.getTempFilePath()));
+            httpBodyHandlerSPI.multiPartFormDataParser = parser;
+            parser.partComplete(httpBodyHandlerSPI::completePart);
+            ctx.content(parser::parse)
+               .contentComplete(req -> parser.complete());
+            if (configuration.isMultipartStreaming()) {
                 ctx.next();
-                return;
             } else {
-                if (contentLength > configuration.getBodyBufferThreshold()) {
-                    httpBodyHandlerSPI.pipedStream = new FilePipedStream(configuration.getTempFilePath());
-                } else {
-                    httpBodyHandlerSPI.pipedStream = new ByteArrayPipedStream((int) contentLength);
-                }
+                ctx.messageComplete(req -> ctx.next());
             }
+            return;
+        }
+
+        if (chunked) {
+            httpBodyHandlerSPI.pipedStream = new ByteArrayPipedStream(4 * 1024);
+        } else if (contentLength > configuration.getBodyBufferThreshold()) {
+            httpBodyHandlerSPI.pipedStream = new FilePipedStream(configuration.getTempFilePath());
+        } else {
+            httpBodyHandlerSPI.pipedStream = new ByteArrayPipedStream((int) contentLength);
         }
 
         AtomicLong chunkedEncodingContentLength = new AtomicLong();
@@ -90,39 +108,32 @@ public class HTTPBodyHandler implements Handler {
             }
 
             try {
-                if (HttpHeaderValue.CHUNKED.asString().equals(transferEncoding)) {
+                if (chunked) {
                     if (chunkedEncodingContentLength.addAndGet(buf.remaining()) > configuration.getBodyBufferThreshold()
                             && httpBodyHandlerSPI.pipedStream instanceof ByteArrayPipedStream) {
                         // chunked encoding content dump to temp file
                         IO.close(httpBodyHandlerSPI.pipedStream.getOutputStream());
                         FilePipedStream filePipedStream = new FilePipedStream(configuration.getTempFilePath());
                         IO.copy(httpBodyHandlerSPI.pipedStream.getInputStream(), filePipedStream.getOutputStream());
-                        filePipedStream.getOutputStream().write(BufferUtils.toArray(buf));
+                        BufferUtils.writeTo(buf, filePipedStream.getOutputStream());
                         httpBodyHandlerSPI.pipedStream = filePipedStream;
                     } else {
-                        httpBodyHandlerSPI.pipedStream.getOutputStream().write(BufferUtils.toArray(buf));
+                        BufferUtils.writeTo(buf, httpBodyHandlerSPI.pipedStream.getOutputStream());
                     }
                 } else {
-                    httpBodyHandlerSPI.pipedStream.getOutputStream().write(BufferUtils.toArray(buf));
+                    BufferUtils.writeTo(buf, httpBodyHandlerSPI.pipedStream.getOutputStream());
                 }
             } catch (IOException e) {
                 log.error("http server receives http body exception", e);
             }
         }).contentComplete(req -> {
             try {
-                String contentType = MimeTypes.getContentTypeMIMEType(request.getFields().get(HttpHeader.CONTENT_TYPE));
                 httpBodyHandlerSPI.pipedStream.getOutputStream().close();
                 if ("application/x-www-form-urlencoded".equals(contentType)) {
                     try (InputStream inputStream = httpBodyHandlerSPI.pipedStream.getInputStream()) {
                         httpBodyHandlerSPI.urlEncodedMap.decode(IO.toString(inputStream, configuration.getCharset()),
                                 Charset.forName(configuration.getCharset()));
                     }
-                } else if ("multipart/form-data".equals(contentType)) {
-                    httpBodyHandlerSPI.multiPartInputStreamParser = new MultiPartInputStreamParser(
-                            httpBodyHandlerSPI.getInputStream(),
-                            request.getFields().get(HttpHeader.CONTENT_TYPE),
-                            configuration.getMultipartConfigElement(),
-                            new File(configuration.getTempFilePath()));
                 }
             } catch (IOException e) {
                 log.error("http server ends receiving data exception", e);
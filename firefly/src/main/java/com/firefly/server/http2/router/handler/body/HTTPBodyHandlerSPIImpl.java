@@ -1,13 +1,17 @@
 package com.firefly.server.http2.router.handler.body;
 
 import com.firefly.codec.http2.encode.UrlEncoded;
-import com.firefly.codec.http2.model.MultiPartInputStreamParser;
+import com.firefly.codec.http2.model.MultiPartFormDataParser;
 import com.firefly.server.http2.router.spi.HTTPBodyHandlerSPI;
+import com.firefly.utils.function.Action1;
 import com.firefly.utils.io.IO;
 import com.firefly.utils.io.PipedStream;
 import com.firefly.utils.json.Json;
 import com.firefly.utils.json.JsonArray;
 import com.firefly.utils.json.JsonObject;
+import com.firefly.utils.json.JsonReader;
+import com.firefly.utils.json.io.JsonBytesReader;
+import com.firefly.utils.json.io.JsonStringReader;
 import com.firefly.utils.lang.GenericTypeReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +22,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -30,11 +35,13 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
     private static final Logger log = LoggerFactory.getLogger("firefly-system");
 
     PipedStream pipedStream;
-    MultiPartInputStreamParser multiPartInputStreamParser;
+    MultiPartFormDataParser multiPartFormDataParser;
     UrlEncoded urlEncodedMap;
     String charset;
     private BufferedReader bufferedReader;
     private String stringBody;
+    private byte[] bodyBytes;
+    private volatile Action1<Part> partComplete;
 
 
     @Override
@@ -54,11 +61,11 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
 
     @Override
     public Collection<Part> getParts() {
-        if (multiPartInputStreamParser == null) {
+        if (multiPartFormDataParser == null) {
             return null;
         } else {
             try {
-                return multiPartInputStreamParser.getParts();
+                return multiPartFormDataParser.getParts();
             } catch (IOException e) {
                 log.error("get multi part exception", e);
                 return null;
@@ -68,11 +75,11 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
 
     @Override
     public Part getPart(String name) {
-        if (multiPartInputStreamParser == null) {
+        if (multiPartFormDataParser == null) {
             return null;
         } else {
             try {
-                return multiPartInputStreamParser.getPart(name);
+                return multiPartFormDataParser.getPart(name);
             } catch (IOException e) {
                 log.error("get multi part exception", e);
                 return null;
@@ -80,6 +87,18 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
         }
     }
 
+    @Override
+    public void partComplete(Action1<Part> partComplete) {
+        this.partComplete = partComplete;
+    }
+
+    void completePart(Part part) {
+        Action1<Part> listener = partComplete;
+        if (listener != null) {
+            listener.call(part);
+        }
+    }
+
     @Override
     public InputStream getInputStream() {
         if (pipedStream == null) {
@@ -117,15 +136,32 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
     public String getStringBody(String charset) {
         if (stringBody != null) {
             return stringBody;
+        } else {
+            byte[] bytes = getBodyBytes();
+            if (bytes == null) {
+                return null;
+            } else {
+                stringBody = new String(bytes, Charset.forName(charset));
+                return stringBody;
+            }
+        }
+    }
+
+    /**
+     * Read the body once, the string and JSON bodies are decoded from the cached bytes.
+     */
+    private byte[] getBodyBytes() {
+        if (bodyBytes != null) {
+            return bodyBytes;
         } else {
             if (getInputStream() == null) {
                 return null;
             } else {
                 try (InputStream inputStream = getInputStream()) {
-                    stringBody = IO.toString(inputStream, Charset.forName(charset));
-                    return stringBody;
+                    bodyBytes = IO.readBytes(inputStream);
+                    return bodyBytes;
                 } catch (IOException e) {
-                    log.error("get string body exception", e);
+                    log.error("get body exception", e);
                     return null;
                 }
             }
@@ -137,24 +173,41 @@ public class HTTPBodyHandlerSPIImpl implements HTTPBodyHandlerSPI {
         return getStringBody(charset);
     }
 
+    /**
+     * Parse the UTF-8 body bytes directly, the other charsets are decoded to a String at first.
+     */
+    private JsonReader getJsonReader() {
+        if (isUTF8(charset)) {
+            byte[] bytes = getBodyBytes();
+            if (bytes != null) {
+                return new JsonBytesReader(bytes);
+            }
+        }
+        return new JsonStringReader(getStringBody());
+    }
+
+    private static boolean isUTF8(String charset) {
+        return charset == null || StandardCharsets.UTF_8.name().equalsIgnoreCase(charset) || "UTF8".equalsIgnoreCase(charset);
+    }
+
     @Override
     public <T> T getJsonBody(Class<T> clazz) {
-        return Json.toObject(getStringBody(), clazz);
+        return Json.toObject(getJsonReader(), clazz);
     }
 
     @Override
     public <T> T getJsonBody(GenericTypeReference<T> typeReference) {
-        return Json.toObject(getStringBody(),typeReference);
+        return Json.toObject(getJsonReader(), typeReference.getType());
     }
 
     @Override
     public JsonObject getJsonObjectBody() {
-        return Json.toJsonObject(getStringBody());
+        return Json.toJsonObject(getJsonReader());
     }
 
     @Override
     public JsonArray getJsonArrayBody() {
-        return Json.toJsonArray(getStringBody());
+        return Json.toJsonArray(getJsonReader());
     }
 
 }
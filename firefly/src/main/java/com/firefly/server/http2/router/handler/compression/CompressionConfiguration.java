@@ -0,0 +1,100 @@
+package com.firefly.server.http2.router.handler.compression;
+
+import com.firefly.utils.io.CompressionPool;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.zip.Deflater;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class CompressionConfiguration {
+
+    private int minCompressSize = 256;
+    private int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+    private int bufferSize = 8 * 1024;
+    private int maxPooledDeflaters = CompressionPool.DEFAULT_CAPACITY;
+    private Set<String> compressibleMimeTypes = new HashSet<>(Arrays.asList(
+            "application/json", "application/javascript", "application/x-javascript",
+            "application/xml", "application/xhtml+xml", "application/rss+xml", "application/atom+xml",
+            "image/svg+xml"));
+
+    /**
+     * The response is compressed only if its size is not less than this value.
+     * If the content length is unknown, the content is buffered until this size is reached.
+     *
+     * @return The min compress size, the unit is byte.
+     */
+    public int getMinCompressSize() {
+        return minCompressSize;
+    }
+
+    public void setMinCompressSize(int minCompressSize) {
+        this.minCompressSize = minCompressSize;
+    }
+
+    /**
+     * The compression level (0-9) of the Deflater.
+     *
+     * @return The compression level.
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public void setCompressionLevel(int compressionLevel) {
+        this.compressionLevel = compressionLevel;
+    }
+
+    /**
+     * The size of the buffer that receives the compressed data.
+     *
+     * @return The buffer size, the unit is byte.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public void setBufferSize(int bufferSize) {
+        this.bufferSize = bufferSize;
+    }
+
+    /**
+     * The max number of the idle Deflaters for each content encoding.
+     *
+     * @return The max pooled Deflaters.
+     */
+    public int getMaxPooledDeflaters() {
+        return maxPooledDeflaters;
+    }
+
+    public void setMaxPooledDeflaters(int maxPooledDeflaters) {
+        this.maxPooledDeflaters = maxPooledDeflaters;
+    }
+
+    /**
+     * The MIME types that are compressed. The text types (text/*) are always compressible.
+     *
+     * @return The compressible MIME types.
+     */
+    public Set<String> getCompressibleMimeTypes() {
+        return compressibleMimeTypes;
+    }
+
+    public void setCompressibleMimeTypes(Set<String> compressibleMimeTypes) {
+        this.compressibleMimeTypes = compressibleMimeTypes;
+    }
+
+    public boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+
+        int i = contentType.indexOf(';');
+        String mimeType = (i >= 0 ? contentType.substring(0, i) : contentType).trim().toLowerCase(Locale.ENGLISH);
+        return mimeType.startsWith("text/") || compressibleMimeTypes.contains(mimeType);
+    }
+}
@@ -0,0 +1,330 @@
+package com.firefly.server.http2.router.handler.compression;
+
+import com.firefly.codec.http2.model.HttpFields;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpStatus;
+import com.firefly.codec.http2.model.MetaData;
+import com.firefly.codec.http2.stream.HTTPOutputStream;
+import com.firefly.utils.concurrent.Callback;
+import com.firefly.utils.io.ByteArrayOutputStream2;
+import com.firefly.utils.io.DeflaterPool;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * The HTTP output stream that compresses the content using the gzip or deflate encoding. Whether the content is
+ * compressed is decided when the first data is written, depending on the response status, Content-Type and
+ * Content-Length. If the content length is unknown, the content is buffered until the min compress size is reached.
+ *
+ * @author Pengtao Qiu
+ */
+public class CompressionHTTPOutputStream extends HTTPOutputStream {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final byte[] GZIP_HEADER = new byte[]{0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0};
+
+    private final HTTPOutputStream output;
+    private final MetaData.Response response;
+    private final String encoding;
+    private final DeflaterPool deflaterPool;
+    private final CompressionConfiguration configuration;
+
+    private ByteArrayOutputStream2 pending;
+    private boolean decided;
+    private Deflater deflater;
+    private CRC32 crc;
+    private byte[] buffer;
+    private boolean headerWritten;
+
+    public CompressionHTTPOutputStream(HTTPOutputStream output, MetaData.Response response, String encoding,
+                                       DeflaterPool deflaterPool, CompressionConfiguration configuration) {
+        super(response, false);
+        this.output = output;
+        this.response = response;
+        this.encoding = encoding;
+        this.deflaterPool = deflaterPool;
+        this.configuration = configuration;
+    }
+
+    public synchronized boolean isCompressing() {
+        return deflater != null;
+    }
+
+    @Override
+    public synchronized boolean isClosed() {
+        return closed || output.isClosed();
+    }
+
+    @Override
+    public synchronized boolean isCommitted() {
+        return output.isCommitted();
+    }
+
+    @Override
+    public synchronized void commit() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        if (!decided) {
+            decide(-1);
+            if (deflater == null) {
+                flushPending();
+            }
+        }
+        output.commit();
+    }
+
+    @Override
+    public synchronized void write(ByteBuffer data) throws IOException {
+        if (closed || !data.hasRemaining()) {
+            return;
+        }
+
+        if (bufferUntilDecided(data)) {
+            return;
+        }
+
+        if (deflater == null) {
+            output.write(data);
+        } else {
+            writeCompressedData(deflate(data, false), null);
+        }
+    }
+
+    @Override
+    public synchronized void write(ByteBuffer data, Callback callback) throws IOException {
+        if (closed) {
+            callback.failed(new IOException("the output stream is closed"));
+            return;
+        }
+
+        if (!data.hasRemaining() || bufferUntilDecided(data)) {
+            callback.succeeded();
+            return;
+        }
+
+        if (deflater == null) {
+            output.write(data, callback);
+        } else {
+            writeCompressedData(deflate(data, false), callback);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+
+        try {
+            if (!decided) {
+                decide(pending == null ? 0 : pending.getCount());
+                if (deflater == null) {
+                    if (pending != null && response.getFields().get(HttpHeader.CONTENT_LENGTH) == null) {
+                        response.getFields().put(HttpHeader.CONTENT_LENGTH, String.valueOf(pending.getCount()));
+                    }
+                    flushPending();
+                }
+            }
+
+            if (deflater != null) {
+                List<ByteBuffer> compressedData = deflate(ByteBuffer.allocate(0), true);
+                if (crc != null) {
+                    byte[] trailer = new byte[8];
+                    writeIntLE(trailer, 0, (int) crc.getValue());
+                    writeIntLE(trailer, 4, deflater.getTotalIn());
+                    compressedData.add(ByteBuffer.wrap(trailer));
+                }
+                writeCompressedData(compressedData, null);
+            }
+            output.close();
+        } finally {
+            closed = true;
+            if (deflater != null) {
+                deflaterPool.release(deflater);
+                deflater = null;
+            }
+        }
+    }
+
+    /**
+     * Buffer the data if the content length is unknown and the min compress size is not reached.
+     *
+     * @param data The data.
+     * @return If true, the data is buffered.
+     * @throws IOException Write data exception.
+     */
+    private boolean bufferUntilDecided(ByteBuffer data) throws IOException {
+        if (decided) {
+            return false;
+        }
+
+        if (response.getFields().get(HttpHeader.CONTENT_LENGTH) != null) {
+            decide(-1);
+            flushPending();
+            return false;
+        }
+
+        if (pending == null) {
+            pending = new ByteArrayOutputStream2(configuration.getMinCompressSize());
+        }
+        if (data.hasArray()) {
+            pending.write(data.array(), data.arrayOffset() + data.position(), data.remaining());
+            data.position(data.limit());
+        } else {
+            byte[] bytes = new byte[data.remaining()];
+            data.get(bytes);
+            pending.write(bytes);
+        }
+
+        if (pending.getCount() >= configuration.getMinCompressSize()) {
+            decide(pending.getCount());
+            flushPending();
+        }
+        return true;
+    }
+
+    private void flushPending() throws IOException {
+        if (pending != null && pending.getCount() > 0) {
+            ByteBuffer data = ByteBuffer.wrap(pending.getBuf(), 0, pending.getCount());
+            pending = null;
+            if (deflater == null) {
+                output.write(data);
+            } else {
+                writeCompressedData(deflate(data, false), null);
+            }
+        }
+    }
+
+    /**
+     * Decide whether the content is compressed.
+     *
+     * @param knownLength The content length if the content is buffered, or -1 if it is unknown.
+     */
+    private void decide(long knownLength) {
+        decided = true;
+
+        int status = response.getStatus();
+        if (status < HttpStatus.OK_200 || status == HttpStatus.NO_CONTENT_204
+                || status == HttpStatus.PARTIAL_CONTENT_206 || status == HttpStatus.NOT_MODIFIED_304) {
+            return;
+        }
+
+        HttpFields fields = response.getFields();
+        if (fields.get(HttpHeader.CONTENT_ENCODING) != null
+                || !configuration.isCompressible(fields.get(HttpHeader.CONTENT_TYPE))) {
+            return;
+        }
+
+        long contentLength = fields.getLongField(HttpHeader.CONTENT_LENGTH.asString());
+        if (contentLength < 0) {
+            contentLength = knownLength;
+        }
+        if (contentLength >= 0 && contentLength < configuration.getMinCompressSize()) {
+            return;
+        }
+
+        fields.remove(HttpHeader.CONTENT_LENGTH);
+        fields.put(HttpHeader.CONTENT_ENCODING, encoding);
+        addVary(fields);
+        String eTag = fields.get(HttpHeader.ETAG);
+        if (eTag != null && !eTag.startsWith("W/")) {
+            // the compressed content is not byte-for-byte identical to the original content
+            fields.put(HttpHeader.ETAG, "W/" + eTag);
+        }
+
+        deflater = deflaterPool.acquire();
+        buffer = new byte[configuration.getBufferSize()];
+        if (GZIP.equals(encoding)) {
+            crc = new CRC32();
+        }
+    }
+
+    static void addVary(HttpFields fields) {
+        if (!fields.contains(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString())) {
+            fields.add(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
+        }
+    }
+
+    private List<ByteBuffer> deflate(ByteBuffer data, boolean finish) {
+        List<ByteBuffer> compressedData = new ArrayList<>(2);
+        if (crc != null && !headerWritten) {
+            compressedData.add(ByteBuffer.wrap(GZIP_HEADER));
+        }
+        headerWritten = true;
+
+        if (data.hasArray()) {
+            deflate(data.array(), data.arrayOffset() + data.position(), data.remaining(), compressedData);
+            data.position(data.limit());
+        } else {
+            byte[] bytes = new byte[Math.min(data.remaining(), buffer.length)];
+            while (data.hasRemaining()) {
+                int len = Math.min(data.remaining(), bytes.length);
+                data.get(bytes, 0, len);
+                deflate(bytes, 0, len, compressedData);
+            }
+        }
+
+        if (finish) {
+            deflater.finish();
+            while (!deflater.finished()) {
+                addCompressedData(deflater.deflate(buffer), compressedData);
+            }
+        }
+        return compressedData;
+    }
+
+    private void deflate(byte[] bytes, int offset, int length, List<ByteBuffer> compressedData) {
+        if (length == 0) {
+            return;
+        }
+        if (crc != null) {
+            crc.update(bytes, offset, length);
+        }
+        deflater.setInput(bytes, offset, length);
+        while (!deflater.needsInput()) {
+            addCompressedData(deflater.deflate(buffer), compressedData);
+        }
+    }
+
+    private void addCompressedData(int len, List<ByteBuffer> compressedData) {
+        if (len > 0) {
+            compressedData.add(ByteBuffer.wrap(Arrays.copyOf(buffer, len)));
+        }
+    }
+
+    private void writeCompressedData(List<ByteBuffer> compressedData, Callback callback) throws IOException {
+        if (compressedData.isEmpty()) {
+            if (callback != null) {
+                callback.succeeded();
+            }
+            return;
+        }
+
+        int last = compressedData.size() - 1;
+        for (int i = 0; i < last; i++) {
+            output.write(compressedData.get(i));
+        }
+        if (callback != null) {
+            output.write(compressedData.get(last), callback);
+        } else {
+            output.write(compressedData.get(last));
+        }
+    }
+
+    private static void writeIntLE(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) value;
+        bytes[offset + 1] = (byte) (value >> 8);
+        bytes[offset + 2] = (byte) (value >> 16);
+        bytes[offset + 3] = (byte) (value >> 24);
+    }
+}
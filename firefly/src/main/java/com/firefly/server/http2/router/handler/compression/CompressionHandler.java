@@ -0,0 +1,92 @@
+package com.firefly.server.http2.router.handler.compression;
+
+import com.firefly.codec.http2.model.HttpFields;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpMethod;
+import com.firefly.codec.http2.model.QuotedQualityCSV;
+import com.firefly.server.http2.SimpleResponse;
+import com.firefly.server.http2.router.Handler;
+import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.utils.io.DeflaterPool;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.firefly.server.http2.router.handler.compression.CompressionHTTPOutputStream.DEFLATE;
+import static com.firefly.server.http2.router.handler.compression.CompressionHTTPOutputStream.GZIP;
+
+/**
+ * Negotiate the Accept-Encoding and compress the response content using the gzip or deflate encoding.
+ * It must be added in front of the handlers that write the response.
+ *
+ * @author Pengtao Qiu
+ */
+public class CompressionHandler implements Handler {
+
+    private static final String[] SUPPORTED_ENCODINGS = {GZIP, DEFLATE};
+
+    private final CompressionConfiguration configuration;
+    private final DeflaterPool gzipDeflaterPool;
+    private final DeflaterPool deflateDeflaterPool;
+
+    public CompressionHandler() {
+        this(new CompressionConfiguration());
+    }
+
+    public CompressionHandler(CompressionConfiguration configuration) {
+        this.configuration = configuration;
+        gzipDeflaterPool = new DeflaterPool(configuration.getMaxPooledDeflaters(), configuration.getCompressionLevel(), true);
+        deflateDeflaterPool = new DeflaterPool(configuration.getMaxPooledDeflaters(), configuration.getCompressionLevel(), false);
+    }
+
+    public CompressionConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public void handle(RoutingContext ctx) {
+        if (!HttpMethod.HEAD.is(ctx.getMethod())) {
+            String encoding = selectEncoding(ctx.getFields());
+            if (encoding != null) {
+                SimpleResponse response = ctx.getResponse();
+                DeflaterPool deflaterPool = GZIP.equals(encoding) ? gzipDeflaterPool : deflateDeflaterPool;
+                response.setOutput(new CompressionHTTPOutputStream(response.getOutput(), response.getResponse(),
+                        encoding, deflaterPool, configuration));
+            }
+        }
+        ctx.next();
+    }
+
+    /**
+     * Select the content encoding that is preferred by the client. The gzip is preferred if the qualities are equal.
+     *
+     * @param requestFields The request fields.
+     * @return The content encoding or null if the client does not accept the gzip or deflate encoding.
+     */
+    public static String selectEncoding(HttpFields requestFields) {
+        for (String value : getAcceptEncoding(requestFields)) {
+            if (GZIP.equalsIgnoreCase(value) || "*".equals(value)) {
+                return GZIP;
+            } else if (DEFLATE.equalsIgnoreCase(value)) {
+                return DEFLATE;
+            }
+        }
+        return null;
+    }
+
+    public static boolean isGzipAcceptable(HttpFields requestFields) {
+        return getAcceptEncoding(requestFields).stream()
+                                               .anyMatch(value -> GZIP.equalsIgnoreCase(value) || "*".equals(value));
+    }
+
+    private static List<String> getAcceptEncoding(HttpFields requestFields) {
+        List<String> values = requestFields.getValuesList(HttpHeader.ACCEPT_ENCODING.asString());
+        if (values == null || values.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        QuotedQualityCSV acceptEncoding = new QuotedQualityCSV(SUPPORTED_ENCODINGS);
+        values.forEach(acceptEncoding::addValue);
+        return acceptEncoding.getValues();
+    }
+}
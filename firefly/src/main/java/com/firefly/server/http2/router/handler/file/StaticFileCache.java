@@ -0,0 +1,201 @@
+package com.firefly.server.http2.router.handler.file;
+
+import com.firefly.codec.http2.model.DateGenerator;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.MimeTypes;
+import com.firefly.codec.http2.model.PreEncodedHttpField;
+import com.firefly.utils.StringUtils;
+import com.firefly.utils.cache.Cache;
+import com.firefly.utils.cache.CacheBuilder;
+import com.firefly.utils.time.Millisecond100Clock;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The cache of the small static files, it is bounded by the total bytes of the cached files and the frequently
+ * requested files are retained. The cached file keeps the content and the pre-encoded response fields, and it is
+ * checked whether the file has been modified at most once per the check interval.
+ *
+ * @author Pengtao Qiu
+ */
+public class StaticFileCache {
+
+    private final StaticFileConfiguration configuration;
+    private final Cache<String, CachedFile> cache;
+
+    public StaticFileCache(StaticFileConfiguration configuration) {
+        this.configuration = configuration;
+        cache = CacheBuilder.<String, CachedFile>newBuilder()
+                .maximumWeight(configuration.getMaxCacheSize())
+                .weigher((path, cachedFile) -> (int) Math.min(cachedFile.size(), Integer.MAX_VALUE))
+                .build();
+    }
+
+    /**
+     * Get the cached file. If the file is not cached and it is small enough, it will be loaded to the cache.
+     *
+     * @param file The static file.
+     * @return The cached file or null if the file can not be cached.
+     * @throws IOException Read the file exception.
+     */
+    public CachedFile get(File file) throws IOException {
+        String key = file.getPath();
+        long now = Millisecond100Clock.currentTimeMillis();
+        CachedFile cachedFile = cache.get(key);
+        if (cachedFile != null) {
+            if (now - cachedFile.lastChecked < configuration.getCacheCheckInterval()) {
+                return cachedFile;
+            }
+            if (cachedFile.isModified(file)) {
+                cache.remove(key);
+            } else {
+                cachedFile.lastChecked = now;
+                return cachedFile;
+            }
+        }
+
+        long length = file.length();
+        if (!file.isFile() || length > configuration.getMaxCacheFileSize() || length > configuration.getMaxCacheSize()) {
+            return null;
+        }
+
+        long lastModified = file.lastModified();
+        byte[] content = Files.readAllBytes(file.toPath());
+        if (content.length != length) { // the file is modified when it is read
+            return null;
+        }
+        String mimetype = MimeTypes.getDefaultMimeByExtension(file.getName());
+        byte[] gzipContent = null;
+        if (configuration.isGzipEnable()
+                && content.length >= configuration.getCompressionConfiguration().getMinCompressSize()
+                && configuration.getCompressionConfiguration().isCompressible(mimetype)) {
+            gzipContent = gzip(content);
+            if (gzipContent.length >= content.length) {
+                gzipContent = null;
+            }
+        }
+        cachedFile = new CachedFile(mimetype, content, gzipContent, lastModified, now);
+        cache.put(key, cachedFile);
+        return cachedFile;
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 2);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(out)) {
+            gzipOutputStream.write(content);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Get the total bytes of the cached files. The latest loaded files may not be counted yet.
+     *
+     * @return The cache size.
+     */
+    public long size() {
+        return cache.weightedSize();
+    }
+
+    public int count() {
+        return (int) cache.size();
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * Generate the weak ETag of the file. The ETag consists of the file length and the last modified time.
+     *
+     * @param length       The file length.
+     * @param lastModified The last modified time.
+     * @return The weak ETag.
+     */
+    public static String toETag(long length, long lastModified) {
+        return "W/\"" + Long.toString(length, 36) + "-" + Long.toString(lastModified, 36) + "\"";
+    }
+
+    public static class CachedFile {
+        private final byte[] content;
+        private final long lastModified;
+        private final String eTag;
+        private final PreEncodedHttpField eTagField;
+        private final PreEncodedHttpField lastModifiedField;
+        private final PreEncodedHttpField contentTypeField;
+        private final PreEncodedHttpField contentLengthField;
+        private final byte[] gzipContent;
+        private final PreEncodedHttpField gzipContentLengthField;
+        private volatile long lastChecked;
+
+        private CachedFile(String mimetype, byte[] content, byte[] gzipContent, long lastModified, long lastChecked) {
+            this.content = content;
+            this.gzipContent = gzipContent;
+            this.lastModified = lastModified;
+            this.lastChecked = lastChecked;
+            eTag = toETag(content.length, lastModified);
+            eTagField = new PreEncodedHttpField(HttpHeader.ETAG, eTag);
+            lastModifiedField = new PreEncodedHttpField(HttpHeader.LAST_MODIFIED, DateGenerator.formatDate(lastModified));
+            contentTypeField = StringUtils.hasText(mimetype) ? new PreEncodedHttpField(HttpHeader.CONTENT_TYPE, mimetype) : null;
+            contentLengthField = new PreEncodedHttpField(HttpHeader.CONTENT_LENGTH, String.valueOf(content.length));
+            gzipContentLengthField = gzipContent != null ? new PreEncodedHttpField(HttpHeader.CONTENT_LENGTH, String.valueOf(gzipContent.length)) : null;
+        }
+
+        private long size() {
+            return content.length + (gzipContent != null ? gzipContent.length : 0);
+        }
+
+        private boolean isModified(File file) {
+            return !file.isFile() || file.lastModified() != lastModified || file.length() != content.length;
+        }
+
+        public byte[] getContent() {
+            return content;
+        }
+
+        public long getLastModified() {
+            return lastModified;
+        }
+
+        public String getETag() {
+            return eTag;
+        }
+
+        public PreEncodedHttpField getETagField() {
+            return eTagField;
+        }
+
+        public PreEncodedHttpField getLastModifiedField() {
+            return lastModifiedField;
+        }
+
+        /**
+         * Get the Content-Type field.
+         *
+         * @return The Content-Type field or null if the mime type of the file is unknown.
+         */
+        public PreEncodedHttpField getContentTypeField() {
+            return contentTypeField;
+        }
+
+        public PreEncodedHttpField getContentLengthField() {
+            return contentLengthField;
+        }
+
+        /**
+         * Get the gzip compressed content. It is generated when the file is loaded to the cache.
+         *
+         * @return The gzip compressed content or null if the file is not compressible.
+         */
+        public byte[] getGzipContent() {
+            return gzipContent;
+        }
+
+        public PreEncodedHttpField getGzipContentLengthField() {
+            return gzipContentLengthField;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.firefly.server.http2.router.handler.file;
 
+import com.firefly.net.buffer.FileRegionSender;
+import com.firefly.server.http2.router.handler.compression.CompressionConfiguration;
+
 /**
  * @author Pengtao Qiu
  */
@@ -7,6 +10,14 @@ public class StaticFileConfiguration {
 
     private String rootPath;
     private int maxRangePart = 8;
+    private boolean cacheEnable = true;
+    private long maxCacheSize = 32 * 1024 * 1024;
+    private long maxCacheFileSize = 64 * 1024;
+    private long cacheCheckInterval = 1000L;
+    private int fileChunkSize = FileRegionSender.DEFAULT_CHUNK_SIZE;
+    private int maxInFlightFileChunks = FileRegionSender.DEFAULT_MAX_IN_FLIGHT_CHUNKS;
+    private boolean gzipEnable = true;
+    private CompressionConfiguration compressionConfiguration = new CompressionConfiguration();
 
     public String getRootPath() {
         return rootPath;
@@ -23,4 +34,111 @@ public class StaticFileConfiguration {
     public void setMaxRangePart(int maxRangePart) {
         this.maxRangePart = maxRangePart;
     }
+
+    /**
+     * If true, the small files are kept in memory as the pre-built responses.
+     *
+     * @return Is the static file cache enabled.
+     */
+    public boolean isCacheEnable() {
+        return cacheEnable;
+    }
+
+    public void setCacheEnable(boolean cacheEnable) {
+        this.cacheEnable = cacheEnable;
+    }
+
+    /**
+     * The max bytes of all cached files. The least recently used files are evicted when the cache is full.
+     *
+     * @return The max cache size, the unit is byte.
+     */
+    public long getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    public void setMaxCacheSize(long maxCacheSize) {
+        this.maxCacheSize = maxCacheSize;
+    }
+
+    /**
+     * The file is cached only if its size is not greater than this value.
+     *
+     * @return The max cached file size, the unit is byte.
+     */
+    public long getMaxCacheFileSize() {
+        return maxCacheFileSize;
+    }
+
+    public void setMaxCacheFileSize(long maxCacheFileSize) {
+        this.maxCacheFileSize = maxCacheFileSize;
+    }
+
+    /**
+     * The min interval of checking whether the cached file has been modified or deleted.
+     *
+     * @return The cache check interval, the unit is millisecond.
+     */
+    public long getCacheCheckInterval() {
+        return cacheCheckInterval;
+    }
+
+    public void setCacheCheckInterval(long cacheCheckInterval) {
+        this.cacheCheckInterval = cacheCheckInterval;
+    }
+
+    /**
+     * The size of the file chunk that is written to the response,
+     * it is capped at the {@link FileRegionSender#MAX_CHUNK_SIZE}.
+     *
+     * @return The file chunk size, the unit is byte.
+     */
+    public int getFileChunkSize() {
+        return fileChunkSize;
+    }
+
+    public void setFileChunkSize(int fileChunkSize) {
+        this.fileChunkSize = fileChunkSize;
+    }
+
+    /**
+     * The max number of the file chunks that are written to the response but not flushed.
+     *
+     * @return The max in-flight file chunks.
+     */
+    public int getMaxInFlightFileChunks() {
+        return maxInFlightFileChunks;
+    }
+
+    public void setMaxInFlightFileChunks(int maxInFlightFileChunks) {
+        this.maxInFlightFileChunks = maxInFlightFileChunks;
+    }
+
+    /**
+     * If true, the gzip compressed file is sent when the client accepts the gzip encoding. The precompressed
+     * sibling file (e.g. app.js.gz) is used if it is newer than the file, and the small cached files are
+     * compressed once when they are loaded to the cache.
+     *
+     * @return Is the gzip encoding enabled.
+     */
+    public boolean isGzipEnable() {
+        return gzipEnable;
+    }
+
+    public void setGzipEnable(boolean gzipEnable) {
+        this.gzipEnable = gzipEnable;
+    }
+
+    /**
+     * The compressible MIME types and the min compress size of the static files.
+     *
+     * @return The compression configuration.
+     */
+    public CompressionConfiguration getCompressionConfiguration() {
+        return compressionConfiguration;
+    }
+
+    public void setCompressionConfiguration(CompressionConfiguration compressionConfiguration) {
+        this.compressionConfiguration = compressionConfiguration;
+    }
 }
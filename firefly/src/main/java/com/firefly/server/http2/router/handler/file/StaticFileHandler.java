@@ -2,165 +2,294 @@ package com.firefly.server.http2.router.handler.file;
 
 import com.firefly.codec.http2.model.*;
 import com.firefly.net.buffer.FileRegion;
-import com.firefly.server.http2.router.Handler;
+import com.firefly.net.buffer.FileRegionSender;
+import com.firefly.server.http2.SimpleResponse;
+import com.firefly.server.http2.router.BlockingHandler;
 import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.server.http2.router.handler.compression.CompressionHTTPOutputStream;
+import com.firefly.server.http2.router.handler.compression.CompressionHandler;
 import com.firefly.server.http2.router.handler.error.AbstractErrorResponseHandler;
 import com.firefly.server.http2.router.handler.error.DefaultErrorResponseHandlerLoader;
+import com.firefly.server.http2.router.handler.file.StaticFileCache.CachedFile;
 import com.firefly.utils.StringUtils;
 import com.firefly.utils.concurrent.Callback;
-import com.firefly.utils.io.BufferUtils;
 import com.firefly.utils.io.IO;
 import com.firefly.utils.lang.URIUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 import java.util.List;
 
 /**
+ * The handler reads the files on a cache miss, the multiple ranges and the file chunks with the blocking file I/O,
+ * so it runs on the blocking handler executor.
+ *
  * @author Pengtao Qiu
  */
-public class StaticFileHandler implements Handler {
+public class StaticFileHandler implements BlockingHandler {
+
+    private static final Logger log = LoggerFactory.getLogger("firefly-system");
+    private static final PreEncodedHttpField CONTENT_ENCODING_GZIP = new PreEncodedHttpField(HttpHeader.CONTENT_ENCODING, CompressionHTTPOutputStream.GZIP);
 
     private StaticFileConfiguration configuration;
     private AbstractErrorResponseHandler errorResponseHandler;
+    private StaticFileCache cache;
 
     public StaticFileHandler(StaticFileConfiguration configuration) {
         this.configuration = configuration;
         errorResponseHandler = DefaultErrorResponseHandlerLoader.getInstance().getHandler();
+        cache = new StaticFileCache(configuration);
     }
 
     public StaticFileHandler(String rootPath) {
         this(new StaticFileConfiguration());
         configuration.setRootPath(rootPath);
-        errorResponseHandler = DefaultErrorResponseHandlerLoader.getInstance().getHandler();
+    }
+
+    public StaticFileCache getCache() {
+        return cache;
     }
 
     @Override
     public void handle(RoutingContext ctx) {
         File file = new File(configuration.getRootPath(), URIUtils.canonicalPath(ctx.getURI().getPath()));
-        if (file.exists()) {
-            long contentLength = file.length();
-            String mimetype = MimeTypes.getDefaultMimeByExtension(file.getName());
+        if (!file.isFile()) {
+            errorResponseHandler.render(ctx, HttpStatus.NOT_FOUND_404, null);
+            return;
+        }
 
-            List<String> reqRanges = ctx.getFields().getValuesList(HttpHeader.RANGE.asString());
-            if (reqRanges == null || reqRanges.isEmpty()) {
+        CachedFile cachedFile = null;
+        if (configuration.isCacheEnable()) {
+            try {
+                cachedFile = cache.get(file);
+            } catch (IOException e) {
+                log.warn("load the static file {} to cache exception", file, e);
+            }
+        }
+
+        long contentLength;
+        long lastModified;
+        String eTag;
+        if (cachedFile != null) {
+            contentLength = cachedFile.getContent().length;
+            lastModified = cachedFile.getLastModified();
+            eTag = cachedFile.getETag();
+        } else {
+            contentLength = file.length();
+            lastModified = file.lastModified();
+            eTag = StaticFileCache.toETag(contentLength, lastModified);
+        }
+
+        if (isNotModified(ctx.getFields(), eTag, lastModified)) {
+            ctx.setStatus(HttpStatus.NOT_MODIFIED_304);
+            if (cachedFile != null) {
+                ctx.getResponse().getFields().put(cachedFile.getETagField());
+                ctx.getResponse().getFields().put(cachedFile.getLastModifiedField());
+            } else {
+                ctx.put(HttpHeader.ETAG, eTag);
+                ctx.put(HttpHeader.LAST_MODIFIED, DateGenerator.formatDate(lastModified));
+            }
+            ctx.end();
+            return;
+        }
+
+        String mimetype = MimeTypes.getDefaultMimeByExtension(file.getName());
+        List<String> reqRanges = ctx.getFields().getValuesList(HttpHeader.RANGE.asString());
+        if (reqRanges == null || reqRanges.isEmpty()) {
+            boolean compressible = configuration.isGzipEnable()
+                    && configuration.getCompressionConfiguration().isCompressible(mimetype);
+            boolean gzipAcceptable = compressible && CompressionHandler.isGzipAcceptable(ctx.getFields());
+            if (compressible) {
+                ctx.put(HttpHeader.VARY, HttpHeader.ACCEPT_ENCODING.asString());
+            }
+
+            if (cachedFile != null) {
+                HttpFields fields = ctx.getResponse().getFields();
+                byte[] content;
+                ctx.setStatus(HttpStatus.OK_200);
+                if (gzipAcceptable && cachedFile.getGzipContent() != null) {
+                    content = cachedFile.getGzipContent();
+                    fields.put(cachedFile.getGzipContentLengthField());
+                    fields.put(CONTENT_ENCODING_GZIP);
+                } else {
+                    content = cachedFile.getContent();
+                    fields.put(cachedFile.getContentLengthField());
+                }
+                if (cachedFile.getContentTypeField() != null) {
+                    fields.put(cachedFile.getContentTypeField());
+                }
+                fields.put(cachedFile.getETagField());
+                fields.put(cachedFile.getLastModifiedField());
+                ctx.getResponse().write(ByteBuffer.wrap(content), Callback.NOOP);
+                ctx.end();
+            } else {
                 ctx.setStatus(HttpStatus.OK_200);
-                ctx.put(HttpHeader.CONTENT_LENGTH, String.valueOf(contentLength));
                 if (StringUtils.hasText(mimetype)) {
                     ctx.put(HttpHeader.CONTENT_TYPE, mimetype);
                 }
+                ctx.put(HttpHeader.ETAG, eTag);
+                ctx.put(HttpHeader.LAST_MODIFIED, DateGenerator.formatDate(lastModified));
 
-                try (OutputStream out = ctx.getResponse().getOutputStream();
-                     BufferedInputStream in = new BufferedInputStream(new FileInputStream(file))) {
-                    IO.copy(in, out, contentLength);
-                } catch (FileNotFoundException e) {
-                    errorResponseHandler.render(ctx, HttpStatus.NOT_FOUND_404, null);
-                } catch (IOException e) {
-                    if (ctx.getResponse().isCommitted()) {
-                        errorResponseHandler.render(ctx, HttpStatus.INTERNAL_SERVER_ERROR_500, e);
-                    }
+                File gzipFile = gzipAcceptable ? new File(file.getPath() + ".gz") : null;
+                if (gzipFile != null && gzipFile.isFile() && gzipFile.lastModified() >= lastModified) {
+                    // the precompressed file is sent without compressing the content on every request
+                    long gzipLength = gzipFile.length();
+                    ctx.put(HttpHeader.CONTENT_LENGTH, String.valueOf(gzipLength));
+                    ctx.getResponse().getFields().put(CONTENT_ENCODING_GZIP);
+                    sendFileRegion(ctx, gzipFile, 0, gzipLength);
+                } else {
+                    ctx.put(HttpHeader.CONTENT_LENGTH, String.valueOf(contentLength));
+                    sendFileRegion(ctx, file, 0, contentLength);
                 }
-            } else {
-                // Parse the satisfiable ranges
-                List<InclusiveByteRange> ranges = InclusiveByteRange.satisfiableRanges(reqRanges, contentLength);
+            }
+        } else {
+            // Parse the satisfiable ranges
+            List<InclusiveByteRange> ranges = InclusiveByteRange.satisfiableRanges(reqRanges, contentLength);
 
-                if (ranges == null || ranges.size() == 0) {
-                    // if there are no satisfiable ranges, send 416 response
-                    ctx.put(HttpHeader.CONTENT_RANGE, InclusiveByteRange.to416HeaderRangeString(contentLength));
-                    errorResponseHandler.render(ctx, HttpStatus.RANGE_NOT_SATISFIABLE_416, null);
+            if (ranges == null || ranges.size() == 0) {
+                // if there are no satisfiable ranges, send 416 response
+                ctx.put(HttpHeader.CONTENT_RANGE, InclusiveByteRange.to416HeaderRangeString(contentLength));
+                errorResponseHandler.render(ctx, HttpStatus.RANGE_NOT_SATISFIABLE_416, null);
+            } else {
+                //  if there is only a single valid range (must be satisfiable
+                //  since were here now), send that range with a 206 response
+                if (ranges.size() == 1) {
+                    InclusiveByteRange singleSatisfiableRange = ranges.get(0);
+                    long singleLength = singleSatisfiableRange.getSize(contentLength);
+                    ctx.setStatus(HttpStatus.PARTIAL_CONTENT_206);
+                    ctx.put(HttpHeader.CONTENT_LENGTH, String.valueOf(singleLength));
+                    ctx.put(HttpHeader.CONTENT_RANGE, singleSatisfiableRange.toHeaderRangeString(contentLength));
+                    if (StringUtils.hasText(mimetype)) {
+                        ctx.put(HttpHeader.CONTENT_TYPE, mimetype);
+                    }
+                    sendFileRegion(ctx, file, singleSatisfiableRange.getFirst(contentLength), singleLength);
                 } else {
-                    //  if there is only a single valid range (must be satisfiable
-                    //  since were here now), send that range with a 206 response
-                    if (ranges.size() == 1) {
-                        InclusiveByteRange singleSatisfiableRange = ranges.get(0);
-                        long singleLength = singleSatisfiableRange.getSize(contentLength);
-                        ctx.setStatus(HttpStatus.PARTIAL_CONTENT_206);
-                        ctx.put(HttpHeader.CONTENT_LENGTH, String.valueOf(singleLength));
-                        ctx.put(HttpHeader.CONTENT_RANGE, singleSatisfiableRange.toHeaderRangeString(contentLength));
-                        if (StringUtils.hasText(mimetype)) {
-                            ctx.put(HttpHeader.CONTENT_TYPE, mimetype);
+                    //  multiple non-overlapping valid ranges cause a multipart
+                    //  206 response which does not require an overall content-length header
+                    ctx.setStatus(HttpStatus.PARTIAL_CONTENT_206);
+
+                    InputStream in = null;
+                    try (MultiPartOutputStream multi = new MultiPartOutputStream(ctx.getResponse().getOutputStream())) {
+                        String ctp;
+                        if (ctx.getFields().get(HttpHeader.REQUEST_RANGE) != null) {
+                            ctp = "multipart/x-byteranges; boundary=";
+                        } else {
+                            ctp = "multipart/byteranges; boundary=";
                         }
+                        ctx.put(HttpHeader.CONTENT_TYPE, ctp + multi.getBoundary());
+                        in = new BufferedInputStream(new FileInputStream(file));
+                        long pos = 0;
 
-                        long position = singleSatisfiableRange.getFirst(contentLength);
-                        try (FileRegion fileRegion = new FileRegion(file, position, singleLength);
-                             OutputStream out = ctx.getResponse().getOutputStream()) {
-                            fileRegion.transferTo(Callback.NOOP, (buf, callback, count) -> out.write(BufferUtils.toArray(buf)));
-                        } catch (FileNotFoundException e) {
-                            errorResponseHandler.render(ctx, HttpStatus.NOT_FOUND_404, null);
-                        } catch (IOException e) {
-                            if (ctx.getResponse().isCommitted()) {
-                                errorResponseHandler.render(ctx, HttpStatus.INTERNAL_SERVER_ERROR_500, e);
-                            }
+
+                        // calculate the content-length
+                        int length = 0;
+                        String[] header = new String[ranges.size()];
+                        for (int i = 0; i < ranges.size(); i++) {
+                            InclusiveByteRange ibr = ranges.get(i);
+                            header[i] = ibr.toHeaderRangeString(contentLength);
+                            length += ((i > 0) ? 2 : 0) +
+                                    2 + multi.getBoundary().length() + 2 +
+                                    (mimetype == null ? 0 : HttpHeader.CONTENT_TYPE.asString().length() + 2 + mimetype.length()) + 2 +
+                                    HttpHeader.CONTENT_RANGE.asString().length() + 2 + header[i].length() + 2 +
+                                    2 +
+                                    (ibr.getLast(contentLength) - ibr.getFirst(contentLength)) + 1;
                         }
-                    } else {
-                        //  multiple non-overlapping valid ranges cause a multipart
-                        //  206 response which does not require an overall content-length header
-                        ctx.setStatus(HttpStatus.PARTIAL_CONTENT_206);
-
-                        InputStream in = null;
-                        try (MultiPartOutputStream multi = new MultiPartOutputStream(ctx.getResponse().getOutputStream())) {
-                            String ctp;
-                            if (ctx.getFields().get(HttpHeader.REQUEST_RANGE) != null) {
-                                ctp = "multipart/x-byteranges; boundary=";
-                            } else {
-                                ctp = "multipart/byteranges; boundary=";
-                            }
-                            ctx.put(HttpHeader.CONTENT_TYPE, ctp + multi.getBoundary());
-                            in = new BufferedInputStream(new FileInputStream(file));
-                            long pos = 0;
-
-
-                            // calculate the content-length
-                            int length = 0;
-                            String[] header = new String[ranges.size()];
-                            for (int i = 0; i < ranges.size(); i++) {
-                                InclusiveByteRange ibr = ranges.get(i);
-                                header[i] = ibr.toHeaderRangeString(contentLength);
-                                length += ((i > 0) ? 2 : 0) +
-                                        2 + multi.getBoundary().length() + 2 +
-                                        (mimetype == null ? 0 : HttpHeader.CONTENT_TYPE.asString().length() + 2 + mimetype.length()) + 2 +
-                                        HttpHeader.CONTENT_RANGE.asString().length() + 2 + header[i].length() + 2 +
-                                        2 +
-                                        (ibr.getLast(contentLength) - ibr.getFirst(contentLength)) + 1;
-                            }
-                            length += 2 + 2 + multi.getBoundary().length() + 2 + 2;
-                            ctx.put(HttpHeader.CONTENT_LENGTH, String.valueOf(length));
-
-                            for (int i = 0; i < ranges.size(); i++) {
-                                InclusiveByteRange ibr = ranges.get(i);
-                                multi.startPart(mimetype, new String[]{HttpHeader.CONTENT_RANGE + ": " + header[i]});
-
-                                long start = ibr.getFirst(contentLength);
-                                long size = ibr.getSize(contentLength);
-
-                                // Handle non cached resource
-                                if (start < pos) {
-                                    in.close();
-                                    in = new BufferedInputStream(new FileInputStream(file));
-                                    pos = 0;
-                                }
-                                if (pos < start) {
-                                    in.skip(start - pos);
-                                    pos = start;
-                                }
-
-                                IO.copy(in, multi, size);
-                                pos += size;
-                            }
-                            in.close();
-                        } catch (IOException e) {
-                            if (in != null) {
-                                IO.close(in);
+                        length += 2 + 2 + multi.getBoundary().length() + 2 + 2;
+                        ctx.put(HttpHeader.CONTENT_LENGTH, String.valueOf(length));
+
+                        for (int i = 0; i < ranges.size(); i++) {
+                            InclusiveByteRange ibr = ranges.get(i);
+                            multi.startPart(mimetype, new String[]{HttpHeader.CONTENT_RANGE + ": " + header[i]});
+
+                            long start = ibr.getFirst(contentLength);
+                            long size = ibr.getSize(contentLength);
+
+                            // Handle non cached resource
+                            if (start < pos) {
+                                in.close();
+                                in = new BufferedInputStream(new FileInputStream(file));
+                                pos = 0;
                             }
-                            if (ctx.getResponse().isCommitted()) {
-                                errorResponseHandler.render(ctx, HttpStatus.INTERNAL_SERVER_ERROR_500, e);
+                            if (pos < start) {
+                                in.skip(start - pos);
+                                pos = start;
                             }
+
+                            IO.copy(in, multi, size);
+                            pos += size;
+                        }
+                        in.close();
+                    } catch (IOException e) {
+                        if (in != null) {
+                            IO.close(in);
+                        }
+                        if (ctx.getResponse().isCommitted()) {
+                            errorResponseHandler.render(ctx, HttpStatus.INTERNAL_SERVER_ERROR_500, e);
                         }
                     }
                 }
             }
-        } else {
+        }
+    }
+
+    /**
+     * Evaluate the conditional request. The If-None-Match takes precedence over the If-Modified-Since,
+     * and the ETags are compared with the weak comparison.
+     *
+     * @param fields       The request fields.
+     * @param eTag         The ETag of the file.
+     * @param lastModified The last modified time of the file.
+     * @return If true, the file is not modified and the server should send the 304 response.
+     */
+    protected boolean isNotModified(HttpFields fields, String eTag, long lastModified) {
+        List<String> ifNoneMatch = fields.getCSV(HttpHeader.IF_NONE_MATCH, true);
+        if (!ifNoneMatch.isEmpty()) {
+            String opaqueTag = toOpaqueTag(eTag);
+            return ifNoneMatch.stream().anyMatch(tag -> tag.equals("*") || toOpaqueTag(tag).equals(opaqueTag));
+        }
+
+        try {
+            long ifModifiedSince = fields.getDateField(HttpHeader.IF_MODIFIED_SINCE.asString());
+            // the HTTP date is accurate to the second
+            return ifModifiedSince >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static String toOpaqueTag(String eTag) {
+        return eTag.startsWith("W/") ? eTag.substring(2) : eTag;
+    }
+
+    /**
+     * Send the file region. The file chunks are read into the pooled direct buffers with the blocking file reads,
+     * only the network writes are asynchronous, and the next chunk is read when the in-flight chunks are flushed.
+     */
+    private void sendFileRegion(RoutingContext ctx, File file, long position, long length) {
+        SimpleResponse response = ctx.getAsyncResponse();
+        FileRegion fileRegion;
+        try {
+            fileRegion = new FileRegion(file, position, length);
+        } catch (FileNotFoundException e) {
             errorResponseHandler.render(ctx, HttpStatus.NOT_FOUND_404, null);
+            IO.close(response);
+            return;
         }
+
+        new FileRegionSender(fileRegion, response::write, new Callback() {
+            @Override
+            public void succeeded() {
+                IO.close(response);
+            }
+
+            @Override
+            public void failed(Throwable x) {
+                log.error("send the static file {} exception", file, x);
+                IO.close(ctx.getRequest().getConnection());
+            }
+        }, configuration.getFileChunkSize(), configuration.getMaxInFlightFileChunks()).send();
     }
 
 }
@@ -1,12 +1,18 @@
 package com.firefly.server.http2.router.handler.session;
 
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
 import com.firefly.server.http2.router.Handler;
 import com.firefly.server.http2.router.RoutingContext;
 import com.firefly.server.http2.router.impl.RoutingContextImpl;
 import com.firefly.server.http2.router.spi.HTTPSessionHandlerSPI;
-import com.firefly.utils.concurrent.Scheduler;
-import com.firefly.utils.concurrent.Schedulers;
+import com.firefly.utils.io.IO;
 import com.firefly.utils.lang.AbstractLifeCycle;
+import com.firefly.utils.time.ExpirationTimeWheel;
+
+import java.io.Closeable;
 
 /**
  * @author Pengtao Qiu
@@ -15,31 +21,75 @@ abstract public class AbstractSessionHandler extends AbstractLifeCycle implement
 
     protected final SessionStore sessionStore;
     protected final HTTPSessionConfiguration configuration;
-    protected final Scheduler scheduler;
+    protected final ExpirationTimeWheel<String> expirationWheel;
 
     public AbstractSessionHandler(HTTPSessionConfiguration configuration) {
         this.configuration = configuration;
         this.sessionStore = createSessionStore();
-        this.scheduler = Schedulers.createScheduler(configuration.getSchedulerPoolSize());
+        this.expirationWheel = new ExpirationTimeWheel<>("firefly session expiration wheel",
+                configuration.getExpirationTickDuration(),
+                configuration.getExpirationWheelSize(),
+                configuration.getExpirationBatchSize(),
+                this::checkExpiration);
+        registerMetrics();
+        // the restored sessions are checked after the default max inactive interval at first
+        long delay = configuration.getDefaultMaxInactiveInterval() * 1000L;
+        sessionStore.keys().forEach(id -> expirationWheel.add(id, delay));
         start();
     }
 
     abstract public SessionStore createSessionStore();
 
+    /**
+     * Check the session when its deadline in the expiration wheel is reached.
+     *
+     * @param id The session id.
+     * @return The remaining inactive interval of the session, or 0 if the session is expired and removed.
+     */
+    protected long checkExpiration(String id) {
+        long remainInactiveInterval = sessionStore.getRemainInactiveInterval(id);
+        if (remainInactiveInterval > 0) {
+            return remainInactiveInterval;
+        } else {
+            sessionStore.remove(id);
+            return 0;
+        }
+    }
+
+    private void registerMetrics() {
+        MetricRegistry metrics = configuration.getMetricReporterFactory().getMetricRegistry();
+        Histogram sweepLag = metrics.histogram("http2.SessionHandler.expiration.sweepLag");
+        Meter swept = metrics.meter("http2.SessionHandler.expiration.swept");
+        Meter expired = metrics.meter("http2.SessionHandler.expiration.expired");
+        expirationWheel.setSweepListener((lag, sweptCount, expiredCount) -> {
+            sweepLag.update(lag);
+            swept.mark(sweptCount);
+            expired.mark(expiredCount);
+        });
+        String sizeName = "http2.SessionHandler.expiration.size";
+        if (!metrics.getGauges().containsKey(sizeName)) {
+            metrics.register(sizeName, (Gauge<Integer>) expirationWheel::size);
+        }
+    }
+
     @Override
     public void handle(RoutingContext context) {
         RoutingContextImpl ctx = (RoutingContextImpl) context;
-        HTTPSessionHandlerSPI sessionHandlerSPI = new HTTPSessionHandlerSPIImpl(sessionStore, ctx, scheduler, configuration);
+        HTTPSessionHandlerSPI sessionHandlerSPI = new HTTPSessionHandlerSPIImpl(sessionStore, ctx, expirationWheel, configuration);
         ctx.setHTTPSessionHandlerSPI(sessionHandlerSPI);
         ctx.next();
     }
 
     @Override
     protected void init() {
+        expirationWheel.start();
     }
 
     @Override
     protected void destroy() {
-        scheduler.stop();
+        expirationWheel.stop();
+        if (sessionStore instanceof Closeable) {
+            IO.close((Closeable) sessionStore);
+        }
     }
 }
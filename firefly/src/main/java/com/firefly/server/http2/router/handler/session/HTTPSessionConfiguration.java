@@ -1,5 +1,9 @@
 package com.firefly.server.http2.router.handler.session;
 
+import com.firefly.net.DefaultMetricReporterFactory;
+import com.firefly.net.MetricReporterFactory;
+import com.firefly.utils.ServiceUtils;
+
 /**
  * @author Pengtao Qiu
  */
@@ -8,6 +12,14 @@ public class HTTPSessionConfiguration {
     private String sessionIdParameterName = "jsessionid";
     private int defaultMaxInactiveInterval = 10 * 60; //unit second
     private int schedulerPoolSize = 1;
+    private long expirationTickDuration = 1000L;
+    private int expirationWheelSize = 512;
+    private int expirationBatchSize = 256;
+    private boolean offHeapSessionStoreEnable;
+    private long offHeapSessionStoreCapacity = 64 * 1024 * 1024;
+    private int offHeapSessionStoreBlockSize = 512;
+    private String offHeapSessionStoreFile;
+    private MetricReporterFactory metricReporterFactory = ServiceUtils.loadService(MetricReporterFactory.class, new DefaultMetricReporterFactory());
 
     public String getSessionIdParameterName() {
         return sessionIdParameterName;
@@ -25,11 +37,129 @@ public class HTTPSessionConfiguration {
         this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
     }
 
+    /**
+     * @return The scheduler pool size.
+     * @deprecated The sessions are expired by the timing wheel, this value is unused.
+     */
+    @Deprecated
     public int getSchedulerPoolSize() {
         return schedulerPoolSize;
     }
 
+    /**
+     * @param schedulerPoolSize The scheduler pool size.
+     * @deprecated The sessions are expired by the timing wheel, this value is unused.
+     */
+    @Deprecated
     public void setSchedulerPoolSize(int schedulerPoolSize) {
         this.schedulerPoolSize = schedulerPoolSize;
     }
+
+    /**
+     * The accuracy of the session expiration. The timing wheel checks the sessions once per tick.
+     *
+     * @return The tick duration of the session expiration wheel, the unit is millisecond.
+     */
+    public long getExpirationTickDuration() {
+        return expirationTickDuration;
+    }
+
+    public void setExpirationTickDuration(long expirationTickDuration) {
+        this.expirationTickDuration = expirationTickDuration;
+    }
+
+    /**
+     * The slot number of the session expiration wheel. The sessions whose remaining time is longer than a round of
+     * the wheel stay in the slot for several rounds.
+     *
+     * @return The wheel size.
+     */
+    public int getExpirationWheelSize() {
+        return expirationWheelSize;
+    }
+
+    public void setExpirationWheelSize(int expirationWheelSize) {
+        this.expirationWheelSize = expirationWheelSize;
+    }
+
+    /**
+     * The max number of the alive sessions that are put back to the wheel under a lock acquisition.
+     *
+     * @return The batch size of rescheduling the sessions.
+     */
+    public int getExpirationBatchSize() {
+        return expirationBatchSize;
+    }
+
+    public void setExpirationBatchSize(int expirationBatchSize) {
+        this.expirationBatchSize = expirationBatchSize;
+    }
+
+    /**
+     * The session expiration metrics, e.g., the sweep lag and the expired session count, are registered in the
+     * metric registry of this factory.
+     *
+     * @return The metric reporter factory.
+     */
+    public MetricReporterFactory getMetricReporterFactory() {
+        return metricReporterFactory;
+    }
+
+    public void setMetricReporterFactory(MetricReporterFactory metricReporterFactory) {
+        this.metricReporterFactory = metricReporterFactory;
+    }
+
+    /**
+     * If true, the local session handler keeps the serialized sessions in the off-heap memory, and the session
+     * attributes must be serializable.
+     *
+     * @return Is the off-heap session store enabled.
+     */
+    public boolean isOffHeapSessionStoreEnable() {
+        return offHeapSessionStoreEnable;
+    }
+
+    public void setOffHeapSessionStoreEnable(boolean offHeapSessionStoreEnable) {
+        this.offHeapSessionStoreEnable = offHeapSessionStoreEnable;
+    }
+
+    /**
+     * The max bytes of the off-heap session store. The least recently used sessions are evicted when it is full.
+     *
+     * @return The off-heap session store capacity, the unit is byte.
+     */
+    public long getOffHeapSessionStoreCapacity() {
+        return offHeapSessionStoreCapacity;
+    }
+
+    public void setOffHeapSessionStoreCapacity(long offHeapSessionStoreCapacity) {
+        this.offHeapSessionStoreCapacity = offHeapSessionStoreCapacity;
+    }
+
+    /**
+     * The size of the memory block. A session is stored in one or more blocks.
+     *
+     * @return The block size of the off-heap session store, the unit is byte.
+     */
+    public int getOffHeapSessionStoreBlockSize() {
+        return offHeapSessionStoreBlockSize;
+    }
+
+    public void setOffHeapSessionStoreBlockSize(int offHeapSessionStoreBlockSize) {
+        this.offHeapSessionStoreBlockSize = offHeapSessionStoreBlockSize;
+    }
+
+    /**
+     * The file that the off-heap session store is mapped to. The sessions are restored from the file after the
+     * server restarts. If it is null, the sessions are only kept in the direct memory.
+     *
+     * @return The persistent file path of the off-heap session store.
+     */
+    public String getOffHeapSessionStoreFile() {
+        return offHeapSessionStoreFile;
+    }
+
+    public void setOffHeapSessionStoreFile(String offHeapSessionStoreFile) {
+        this.offHeapSessionStoreFile = offHeapSessionStoreFile;
+    }
 }
@@ -4,14 +4,13 @@ import com.firefly.codec.http2.model.Cookie;
 import com.firefly.server.http2.router.RoutingContext;
 import com.firefly.server.http2.router.spi.HTTPSessionHandlerSPI;
 import com.firefly.utils.StringUtils;
-import com.firefly.utils.concurrent.Scheduler;
+import com.firefly.utils.time.ExpirationTimeWheel;
 import com.firefly.utils.time.Millisecond100Clock;
 
 import javax.servlet.http.HttpSession;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.TimeUnit;
 
 /**
  * @author Pengtao Qiu
@@ -21,7 +20,7 @@ public class HTTPSessionHandlerSPIImpl implements HTTPSessionHandlerSPI {
     private final HTTPSessionConfiguration configuration;
     private final SessionStore sessionStore;
     private final RoutingContext routingContext;
-    private final Scheduler scheduler;
+    private final ExpirationTimeWheel<String> expirationWheel;
     private boolean requestedSessionIdFromURL;
     private boolean requestedSessionIdFromCookie;
     private String requestedSessionId;
@@ -29,12 +28,12 @@ public class HTTPSessionHandlerSPIImpl implements HTTPSessionHandlerSPI {
 
     public HTTPSessionHandlerSPIImpl(SessionStore sessionStore,
                                      RoutingContext routingContext,
-                                     Scheduler scheduler,
+                                     ExpirationTimeWheel<String> expirationWheel,
                                      HTTPSessionConfiguration configuration) {
         this.sessionStore = sessionStore;
         this.routingContext = routingContext;
         this.configuration = configuration;
-        this.scheduler = scheduler;
+        this.expirationWheel = expirationWheel;
         init();
     }
 
@@ -95,7 +94,6 @@ public class HTTPSessionHandlerSPIImpl implements HTTPSessionHandlerSPI {
             if (httpSession.check()) {
                 httpSession.setLastAccessedTime(Millisecond100Clock.currentTimeMillis());
                 httpSession.setNewSession(false);
-                scheduleCheck(httpSession, httpSession.getRemainInactiveInterval());
             } else {
                 httpSession = null;
                 sessionStore.remove(requestedSessionId);
@@ -117,7 +115,9 @@ public class HTTPSessionHandlerSPIImpl implements HTTPSessionHandlerSPI {
                 httpSession.setMaxInactiveInterval(configuration.getDefaultMaxInactiveInterval());
                 routingContext.addCookie(new Cookie(configuration.getSessionIdParameterName(), id));
                 sessionStore.put(id, httpSession);
-                scheduleCheck(httpSession, httpSession.getMaxInactiveInterval());
+                // the session is checked at the next tick first, so the max inactive interval that is set by
+                // the current request takes effect, then it is rescheduled by its remaining inactive interval.
+                expirationWheel.add(id, 0);
                 return httpSession;
             } else {
                 return httpSession;
@@ -127,16 +127,6 @@ public class HTTPSessionHandlerSPIImpl implements HTTPSessionHandlerSPI {
         }
     }
 
-    private void scheduleCheck(final HTTPSessionImpl session, final long remainInactiveInterval) {
-        scheduler.schedule(() -> {
-            if (!session.check()) {
-                sessionStore.remove(session.getId());
-            } else {
-                scheduleCheck(session, session.getRemainInactiveInterval());
-            }
-        }, remainInactiveInterval, TimeUnit.MILLISECONDS);
-    }
-
     @Override
     public boolean isRequestedSessionIdFromURL() {
         return requestedSessionIdFromURL;
@@ -25,6 +25,7 @@ public class HTTPSessionImpl implements HttpSession, Serializable {
     private volatile boolean newSession;
     private volatile long lastAccessedTime;
     private volatile boolean invalid;
+    private transient volatile OffHeapSessionStore sessionStore;
 
     public HTTPSessionImpl(String id) {
         this.id = id;
@@ -34,6 +35,15 @@ public class HTTPSessionImpl implements HttpSession, Serializable {
         lastAccessedTime = createTime;
     }
 
+    HTTPSessionImpl(String id, long createTime, long lastAccessedTime, int maxInactiveInterval) {
+        this.id = id;
+        this.createTime = createTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        newSession = false;
+        invalid = false;
+    }
+
     @Override
     public long getCreationTime() {
         return createTime;
@@ -51,6 +61,10 @@ public class HTTPSessionImpl implements HttpSession, Serializable {
 
     public void setLastAccessedTime(long lastAccessedTime) {
         this.lastAccessedTime = lastAccessedTime;
+        OffHeapSessionStore store = sessionStore;
+        if (store != null) {
+            store.touch(id, lastAccessedTime);
+        }
     }
 
     @Override
@@ -61,6 +75,7 @@ public class HTTPSessionImpl implements HttpSession, Serializable {
     @Override
     public void setMaxInactiveInterval(int maxInactiveInterval) {
         this.maxInactiveInterval = maxInactiveInterval;
+        writeBack();
     }
 
     @Override
@@ -112,6 +127,7 @@ public class HTTPSessionImpl implements HttpSession, Serializable {
     @Override
     public void setAttribute(String name, Object value) {
         attributes.put(name, value);
+        writeBack();
     }
 
     @Deprecated
@@ -123,6 +139,7 @@ public class HTTPSessionImpl implements HttpSession, Serializable {
     @Override
     public void removeAttribute(String name) {
         attributes.remove(name);
+        writeBack();
     }
 
     @Deprecated
@@ -134,6 +151,10 @@ public class HTTPSessionImpl implements HttpSession, Serializable {
     @Override
     public void invalidate() {
         invalid = true;
+        OffHeapSessionStore store = sessionStore;
+        if (store != null) {
+            store.delete(id);
+        }
     }
 
     public boolean isInvalid() {
@@ -162,4 +183,24 @@ public class HTTPSessionImpl implements HttpSession, Serializable {
         long inactiveInterval = currentTime - getLastAccessedTime();
         return getMaxInactiveInterval() * 1000 - inactiveInterval;
     }
+
+    ConcurrentMap<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Set the store that keeps the serialized session. The changes of the session are written back to the store.
+     *
+     * @param sessionStore The off-heap session store.
+     */
+    void setSessionStore(OffHeapSessionStore sessionStore) {
+        this.sessionStore = sessionStore;
+    }
+
+    private void writeBack() {
+        OffHeapSessionStore store = sessionStore;
+        if (store != null && !invalid) {
+            store.update(id, this);
+        }
+    }
 }
@@ -11,7 +11,13 @@ public class LocalHTTPSessionHandler extends AbstractSessionHandler {
 
     @Override
     public SessionStore createSessionStore() {
-        return new LocalSessionStore();
+        if (configuration.isOffHeapSessionStoreEnable()) {
+            return new OffHeapSessionStore(configuration.getOffHeapSessionStoreCapacity(),
+                    configuration.getOffHeapSessionStoreBlockSize(),
+                    configuration.getOffHeapSessionStoreFile());
+        } else {
+            return new LocalSessionStore();
+        }
     }
 
 }
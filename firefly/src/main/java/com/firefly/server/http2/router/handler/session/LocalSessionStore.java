@@ -1,6 +1,8 @@
 package com.firefly.server.http2.router.handler.session;
 
 import javax.servlet.http.HttpSession;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 
@@ -30,4 +32,9 @@ public class LocalSessionStore implements SessionStore {
     public int size() {
         return sessionMap.size();
     }
+
+    @Override
+    public Collection<String> keys() {
+        return new ArrayList<>(sessionMap.keySet());
+    }
 }
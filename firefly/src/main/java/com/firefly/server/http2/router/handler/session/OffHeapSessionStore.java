@@ -0,0 +1,552 @@
+package com.firefly.server.http2.router.handler.session;
+
+import com.firefly.utils.exception.CommonRuntimeException;
+import com.firefly.utils.io.ByteArrayOutputStream2;
+import com.firefly.utils.time.Millisecond100Clock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.servlet.http.HttpSession;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * The session store that keeps the serialized sessions in the off-heap memory. Only a small index entry of every
+ * session stays in the heap, so the sessions do not increase the GC pauses, and the memory is bounded by the capacity.
+ * When the memory is exhausted, the least recently used sessions are evicted.
+ * <p>
+ * The memory is divided into the fixed size blocks, a session is stored in a chain of blocks. The head block keeps
+ * the content length, the last accessed time and the max inactive interval, so touching a session updates the head
+ * block in place, and the expiration check reads the head block without deserializing the session. If the
+ * persistent file is set, the blocks are mapped to the file, and the sessions are restored when the store is created
+ * again.
+ * <p>
+ * The get method returns a copy of the session. The copy writes the changes of the attributes, the max inactive
+ * interval and the last accessed time back to the store immediately. The put and remove methods return a detached
+ * copy of the previous session, the changes of the detached copy are not written back.
+ *
+ * @author Pengtao Qiu
+ */
+public class OffHeapSessionStore implements SessionStore, Closeable {
+
+    private static Logger log = LoggerFactory.getLogger("firefly-system");
+
+    private static final int MAGIC = 0x46465353;
+    private static final int VERSION = 2;
+    private static final int FILE_HEADER_SIZE = 16;
+
+    private static final byte FREE = 0;
+    private static final byte HEAD = 1;
+    private static final byte BODY = 2;
+
+    // block layout: state(1) next(4), the head block also has: length(4) lastAccessedTime(8) maxInactiveInterval(4)
+    private static final int NEXT_OFFSET = 1;
+    private static final int LENGTH_OFFSET = 5;
+    private static final int LAST_ACCESSED_TIME_OFFSET = 9;
+    private static final int MAX_INACTIVE_INTERVAL_OFFSET = 17;
+    private static final int HEAD_HEADER_SIZE = 21;
+    private static final int BODY_HEADER_SIZE = 5;
+    private static final int MIN_BLOCK_SIZE = 64;
+
+    private final ByteBuffer buffer;
+    private final FileChannel fileChannel;
+    private final int base;
+    private final int blockSize;
+    private final int blockCount;
+    // the least recently used session is the first one, the accessed session is moved to the end explicitly,
+    // so the expiration check does not change the order
+    private final LinkedHashMap<String, Record> index = new LinkedHashMap<>(64);
+    private int freeHead = -1;
+    private int freeBlocks;
+    private long evictionCount;
+    private boolean closed;
+
+    /**
+     * Create a store in the direct memory.
+     *
+     * @param capacity  The max bytes of the stored sessions.
+     * @param blockSize The block size.
+     */
+    public OffHeapSessionStore(long capacity, int blockSize) {
+        this(capacity, blockSize, null);
+    }
+
+    /**
+     * Create a store.
+     *
+     * @param capacity       The max bytes of the stored sessions.
+     * @param blockSize      The block size.
+     * @param persistentFile The file that the blocks are mapped to. If it is null, the sessions are kept in the direct
+     *                       memory.
+     */
+    public OffHeapSessionStore(long capacity, int blockSize, String persistentFile) {
+        if (blockSize < MIN_BLOCK_SIZE) {
+            throw new IllegalArgumentException("the block size must be greater than or equal to " + MIN_BLOCK_SIZE);
+        }
+        this.blockSize = blockSize;
+        this.blockCount = (int) Math.min(capacity / blockSize, (Integer.MAX_VALUE - FILE_HEADER_SIZE) / blockSize);
+        if (blockCount <= 0) {
+            throw new IllegalArgumentException("the capacity must be greater than or equal to the block size");
+        }
+
+        int size = blockCount * blockSize;
+        if (persistentFile == null) {
+            fileChannel = null;
+            base = 0;
+            buffer = ByteBuffer.allocateDirect(size);
+            initFreeBlocks();
+        } else {
+            base = FILE_HEADER_SIZE;
+            size += FILE_HEADER_SIZE;
+            try {
+                fileChannel = FileChannel.open(Paths.get(persistentFile),
+                        StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                boolean restore = fileChannel.size() == size;
+                buffer = fileChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                if (restore && buffer.getInt(0) == MAGIC && buffer.getInt(4) == VERSION
+                        && buffer.getInt(8) == blockSize && buffer.getInt(12) == blockCount) {
+                    restore();
+                } else {
+                    buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, blockSize).putInt(12, blockCount);
+                    initFreeBlocks();
+                }
+            } catch (IOException e) {
+                throw new CommonRuntimeException(e);
+            }
+        }
+    }
+
+    private static final class Record {
+        private final int head;
+        private final int blocks;
+
+        private Record(int head, int blocks) {
+            this.head = head;
+            this.blocks = blocks;
+        }
+    }
+
+    private static final class StoredSession {
+        private final byte[] data;
+        private final long lastAccessedTime;
+
+        private StoredSession(byte[] data, long lastAccessedTime) {
+            this.data = data;
+            this.lastAccessedTime = lastAccessedTime;
+        }
+    }
+
+    @Override
+    public HttpSession remove(String key) {
+        return toDetachedSession(key, removeSession(key, true));
+    }
+
+    @Override
+    public HttpSession put(String key, HttpSession value) {
+        if (!(value instanceof HTTPSessionImpl)) {
+            throw new IllegalArgumentException("the off-heap session store only supports the HTTPSessionImpl");
+        }
+        return toDetachedSession(key, writeSession(key, (HTTPSessionImpl) value, true));
+    }
+
+    @Override
+    public HttpSession get(String key) {
+        StoredSession storedSession;
+        synchronized (this) {
+            Record record = index.remove(key);
+            if (record == null) {
+                return null;
+            }
+            index.put(key, record);
+            storedSession = read(record);
+        }
+
+        try {
+            HTTPSessionImpl session = deserialize(storedSession.data, storedSession.lastAccessedTime);
+            session.setSessionStore(this);
+            return session;
+        } catch (IOException | ClassNotFoundException e) {
+            log.error("deserialize the session {} exception", key, e);
+            removeSession(key, false);
+            return null;
+        }
+    }
+
+    /**
+     * Read the remaining inactive interval from the head block. It neither deserializes the session nor changes
+     * the least recently used order.
+     *
+     * @param key The session id.
+     * @return The remaining inactive interval in milliseconds. If it is less than or equal to 0, the session is
+     * expired or not found.
+     */
+    @Override
+    public long getRemainInactiveInterval(String key) {
+        long lastAccessedTime;
+        int maxInactiveInterval;
+        synchronized (this) {
+            Record record = index.get(key);
+            if (record == null) {
+                return 0;
+            }
+            int offset = offset(record.head);
+            lastAccessedTime = buffer.getLong(offset + LAST_ACCESSED_TIME_OFFSET);
+            maxInactiveInterval = buffer.getInt(offset + MAX_INACTIVE_INTERVAL_OFFSET);
+        }
+        return maxInactiveInterval * 1000L - (Millisecond100Clock.currentTimeMillis() - lastAccessedTime);
+    }
+
+    @Override
+    public synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized Collection<String> keys() {
+        return new ArrayList<>(index.keySet());
+    }
+
+    /**
+     * Update the last accessed time of the session in place.
+     *
+     * @param key              The session id.
+     * @param lastAccessedTime The last accessed time.
+     */
+    synchronized void touch(String key, long lastAccessedTime) {
+        Record record = index.remove(key);
+        if (record != null) {
+            index.put(key, record);
+            buffer.putLong(offset(record.head) + LAST_ACCESSED_TIME_OFFSET, lastAccessedTime);
+        }
+    }
+
+    /**
+     * Write back the changes of the session without deserializing the previous session.
+     *
+     * @param key     The session id.
+     * @param session The session.
+     */
+    void update(String key, HTTPSessionImpl session) {
+        writeSession(key, session, false);
+    }
+
+    /**
+     * Remove the invalidated session without deserializing it.
+     *
+     * @param key The session id.
+     */
+    void delete(String key) {
+        removeSession(key, false);
+    }
+
+    private StoredSession writeSession(String key, HTTPSessionImpl session, boolean readPrevious) {
+        ByteArrayOutputStream2 out = new ByteArrayOutputStream2(blockSize);
+        try {
+            serialize(session, out);
+        } catch (IOException e) {
+            throw new CommonRuntimeException(e);
+        }
+        StoredSession previous = write(key, out.getBuf(), out.getCount(),
+                session.getLastAccessedTime(), session.getMaxInactiveInterval(), readPrevious);
+        session.setSessionStore(this);
+        return previous;
+    }
+
+    private synchronized StoredSession removeSession(String key, boolean readPrevious) {
+        Record record = index.remove(key);
+        if (record == null) {
+            return null;
+        }
+        StoredSession storedSession = readPrevious ? read(record) : null;
+        free(record);
+        return storedSession;
+    }
+
+    private HttpSession toDetachedSession(String key, StoredSession storedSession) {
+        if (storedSession == null) {
+            return null;
+        }
+        try {
+            return deserialize(storedSession.data, storedSession.lastAccessedTime);
+        } catch (IOException | ClassNotFoundException e) {
+            log.error("deserialize the previous session {} exception", key, e);
+            return null;
+        }
+    }
+
+    private synchronized StoredSession write(String key, byte[] data, int length,
+                                             long lastAccessedTime, int maxInactiveInterval, boolean readPrevious) {
+        if (closed) {
+            throw new IllegalStateException("the session store is closed");
+        }
+
+        int headCapacity = blockSize - HEAD_HEADER_SIZE;
+        int bodyCapacity = blockSize - BODY_HEADER_SIZE;
+        int needed = length <= headCapacity ? 1 : 1 + (length - headCapacity + bodyCapacity - 1) / bodyCapacity;
+        if (needed > blockCount) {
+            throw new IllegalArgumentException("the session " + key + " is larger than the session store capacity");
+        }
+
+        StoredSession previous = null;
+        Record old = index.remove(key);
+        if (old != null) {
+            previous = readPrevious ? read(old) : null;
+            free(old);
+        }
+        Iterator<Record> iterator = index.values().iterator();
+        while (freeBlocks < needed) {
+            free(iterator.next());
+            iterator.remove();
+            evictionCount++;
+        }
+
+        int[] blocks = new int[needed];
+        for (int i = 0; i < needed; i++) {
+            blocks[i] = freeHead;
+            freeHead = buffer.getInt(offset(freeHead) + NEXT_OFFSET);
+        }
+        freeBlocks -= needed;
+
+        // write the body blocks first, the session is visible after the head block state is set
+        int position = Math.min(length, headCapacity);
+        for (int i = 1; i < needed; i++) {
+            int offset = offset(blocks[i]);
+            int len = Math.min(length - position, bodyCapacity);
+            buffer.put(offset, BODY);
+            buffer.putInt(offset + NEXT_OFFSET, i + 1 < needed ? blocks[i + 1] : -1);
+            copyIn(data, position, offset + BODY_HEADER_SIZE, len);
+            position += len;
+        }
+        int offset = offset(blocks[0]);
+        buffer.putInt(offset + NEXT_OFFSET, needed > 1 ? blocks[1] : -1);
+        buffer.putInt(offset + LENGTH_OFFSET, length);
+        buffer.putLong(offset + LAST_ACCESSED_TIME_OFFSET, lastAccessedTime);
+        buffer.putInt(offset + MAX_INACTIVE_INTERVAL_OFFSET, maxInactiveInterval);
+        copyIn(data, 0, offset + HEAD_HEADER_SIZE, Math.min(length, headCapacity));
+        buffer.put(offset, HEAD);
+        index.put(key, new Record(blocks[0], needed));
+        return previous;
+    }
+
+    private StoredSession read(Record record) {
+        return new StoredSession(readData(record),
+                buffer.getLong(offset(record.head) + LAST_ACCESSED_TIME_OFFSET));
+    }
+
+    private byte[] readData(Record record) {
+        int offset = offset(record.head);
+        int length = buffer.getInt(offset + LENGTH_OFFSET);
+        byte[] data = new byte[length];
+        int len = Math.min(length, blockSize - HEAD_HEADER_SIZE);
+        copyOut(offset + HEAD_HEADER_SIZE, data, 0, len);
+        int position = len;
+        int block = buffer.getInt(offset + NEXT_OFFSET);
+        while (position < length) {
+            offset = offset(block);
+            len = Math.min(length - position, blockSize - BODY_HEADER_SIZE);
+            copyOut(offset + BODY_HEADER_SIZE, data, position, len);
+            position += len;
+            block = buffer.getInt(offset + NEXT_OFFSET);
+        }
+        return data;
+    }
+
+    private void free(Record record) {
+        int block = record.head;
+        for (int i = 0; i < record.blocks; i++) {
+            int offset = offset(block);
+            int next = buffer.getInt(offset + NEXT_OFFSET);
+            buffer.put(offset, FREE);
+            buffer.putInt(offset + NEXT_OFFSET, freeHead);
+            freeHead = block;
+            block = next;
+        }
+        freeBlocks += record.blocks;
+    }
+
+    private void initFreeBlocks() {
+        for (int i = blockCount - 1; i >= 0; i--) {
+            int offset = offset(i);
+            buffer.put(offset, FREE);
+            buffer.putInt(offset + NEXT_OFFSET, freeHead);
+            freeHead = i;
+        }
+        freeBlocks = blockCount;
+    }
+
+    /**
+     * Rebuild the index from the mapped file. The broken chains, e.g., the session is being written when the process
+     * exits, are dropped.
+     */
+    private void restore() {
+        BitSet used = new BitSet(blockCount);
+        List<Object[]> restored = new ArrayList<>();
+        int headCapacity = blockSize - HEAD_HEADER_SIZE;
+        int bodyCapacity = blockSize - BODY_HEADER_SIZE;
+        for (int i = 0; i < blockCount; i++) {
+            int offset = offset(i);
+            if (buffer.get(offset) != HEAD) {
+                continue;
+            }
+
+            int length = buffer.getInt(offset + LENGTH_OFFSET);
+            if (length < 0) {
+                continue;
+            }
+            int blocks = length <= headCapacity ? 1 : 1 + (length - headCapacity + bodyCapacity - 1) / bodyCapacity;
+            if (blocks > blockCount || !isValidChain(i, blocks, used)) {
+                continue;
+            }
+
+            Record record = new Record(i, blocks);
+            try {
+                HTTPSessionImpl session = deserialize(readData(record), 0L);
+                markUsed(record, used);
+                restored.add(new Object[]{session.getId(), record, buffer.getLong(offset + LAST_ACCESSED_TIME_OFFSET)});
+            } catch (IOException | ClassNotFoundException | RuntimeException e) {
+                log.warn("restore the session exception", e);
+            }
+        }
+
+        restored.sort(Comparator.comparingLong(r -> (Long) r[2]));
+        for (Object[] r : restored) {
+            Record old = index.put((String) r[0], (Record) r[1]);
+            if (old != null) {
+                clearUsed(old, used);
+            }
+        }
+
+        for (int i = blockCount - 1; i >= 0; i--) {
+            if (!used.get(i)) {
+                int offset = offset(i);
+                buffer.put(offset, FREE);
+                buffer.putInt(offset + NEXT_OFFSET, freeHead);
+                freeHead = i;
+                freeBlocks++;
+            }
+        }
+        log.info("restore {} sessions from the off-heap session store", index.size());
+    }
+
+    private boolean isValidChain(int head, int blocks, BitSet used) {
+        int block = head;
+        for (int i = 0; i < blocks; i++) {
+            if (block < 0 || block >= blockCount || used.get(block)) {
+                return false;
+            }
+            if (i > 0 && buffer.get(offset(block)) != BODY) {
+                return false;
+            }
+            block = buffer.getInt(offset(block) + NEXT_OFFSET);
+        }
+        return true;
+    }
+
+    private void markUsed(Record record, BitSet used) {
+        int block = record.head;
+        for (int i = 0; i < record.blocks; i++) {
+            used.set(block);
+            block = buffer.getInt(offset(block) + NEXT_OFFSET);
+        }
+    }
+
+    private void clearUsed(Record record, BitSet used) {
+        int block = record.head;
+        for (int i = 0; i < record.blocks; i++) {
+            used.clear(block);
+            block = buffer.getInt(offset(block) + NEXT_OFFSET);
+        }
+    }
+
+    /**
+     * Serialize the session fields one by one, it is much smaller than serializing the session object. The
+     * attribute values must be serializable.
+     */
+    private static void serialize(HTTPSessionImpl session, ByteArrayOutputStream2 out) throws IOException {
+        List<Map.Entry<String, Object>> attributes = new ArrayList<>(session.getAttributes().entrySet());
+        try (ObjectOutputStream objectOutput = new ObjectOutputStream(out)) {
+            objectOutput.writeUTF(session.getId());
+            objectOutput.writeLong(session.getCreationTime());
+            objectOutput.writeInt(session.getMaxInactiveInterval());
+            objectOutput.writeInt(attributes.size());
+            for (Map.Entry<String, Object> attribute : attributes) {
+                objectOutput.writeUTF(attribute.getKey());
+                objectOutput.writeObject(attribute.getValue());
+            }
+        }
+    }
+
+    private static HTTPSessionImpl deserialize(byte[] data, long lastAccessedTime) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream objectInput = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            String id = objectInput.readUTF();
+            long createTime = objectInput.readLong();
+            int maxInactiveInterval = objectInput.readInt();
+            HTTPSessionImpl session = new HTTPSessionImpl(id, createTime, lastAccessedTime, maxInactiveInterval);
+            int size = objectInput.readInt();
+            for (int i = 0; i < size; i++) {
+                String name = objectInput.readUTF();
+                session.getAttributes().put(name, objectInput.readObject());
+            }
+            return session;
+        }
+    }
+
+    private int offset(int block) {
+        return base + block * blockSize;
+    }
+
+    private void copyIn(byte[] data, int from, int offset, int length) {
+        ByteBuffer dst = buffer.duplicate();
+        dst.position(offset);
+        dst.put(data, from, length);
+    }
+
+    private void copyOut(int offset, byte[] data, int to, int length) {
+        ByteBuffer src = buffer.duplicate();
+        src.position(offset);
+        src.get(data, to, length);
+    }
+
+    /**
+     * Get the number of the sessions that are evicted because the memory is exhausted.
+     *
+     * @return The eviction count.
+     */
+    public synchronized long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * Get the bytes of the blocks that are used by the sessions.
+     *
+     * @return The used bytes.
+     */
+    public synchronized long getUsedBytes() {
+        return (long) (blockCount - freeBlocks) * blockSize;
+    }
+
+    public long getCapacity() {
+        return (long) blockCount * blockSize;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (fileChannel != null) {
+            ((MappedByteBuffer) buffer).force();
+            fileChannel.close();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.firefly.server.http2.router.handler.session;
 
 import javax.servlet.http.HttpSession;
+import java.util.Collection;
+import java.util.Collections;
 
 /**
  * @author Pengtao Qiu
@@ -15,4 +17,32 @@ public interface SessionStore {
 
     int size();
 
+    /**
+     * Get the ids of the stored sessions. The sessions that are restored when the store is created are scheduled
+     * for the expiration check by their ids. The default implementation returns an empty collection.
+     *
+     * @return The session ids.
+     */
+    default Collection<String> keys() {
+        return Collections.emptyList();
+    }
+
+    /**
+     * Get the remaining inactive interval of the session. The default implementation gets the session, the store
+     * that keeps the serialized sessions can read the interval without loading the session.
+     *
+     * @param key The session id.
+     * @return The remaining inactive interval in milliseconds. If it is less than or equal to 0, the session is
+     * expired, invalid or not found.
+     */
+    default long getRemainInactiveInterval(String key) {
+        HttpSession session = get(key);
+        if (session == null) {
+            return 0;
+        }
+
+        HTTPSessionImpl httpSession = (HTTPSessionImpl) session;
+        return httpSession.check() ? httpSession.getRemainInactiveInterval() : 0;
+    }
+
 }
@@ -0,0 +1,552 @@
+package com.firefly.server.http2.router.impl;
+
+import com.firefly.codec.http2.model.MimeTypes;
+import com.firefly.server.http2.router.Matcher.MatchType;
+import com.firefly.server.http2.router.Router;
+import com.firefly.server.http2.router.RouterManager.RouterMatchResult;
+import com.firefly.server.http2.router.utils.PathUtils;
+import com.firefly.utils.StringUtils;
+import com.firefly.utils.pattern.Pattern;
+
+import java.util.*;
+
+/**
+ * The immutable route table that is compiled from the registered routers. The precise, parameter and pattern paths
+ * are compiled into a segment radix tree, and the method, content type and accept rules are compiled into the
+ * bitsets of the router indexes. The regex paths are matched one by one as the fallback.
+ *
+ * @author Pengtao Qiu
+ */
+public class RouteTable {
+
+    private final RouterImpl[] routers;
+    private final int words;
+
+    // the routers that are enabled and have at least one rule
+    private final long[] activeMask;
+    // the routers that have no rule of the match type
+    private final long[] noMethodMask;
+    private final long[] noPathMask;
+    private final long[] noContentTypeMask;
+    private final long[] noAcceptMask;
+
+    private final Map<String, long[]> methodMap = new HashMap<>();
+    private final Map<String, long[]> contentTypeMap = new HashMap<>();
+    private final List<PatternRoute> contentTypePatterns = new ArrayList<>();
+    private final Map<String, long[]> acceptMap = new HashMap<>();
+    private final Map<String, long[]> acceptParentTypeMap = new HashMap<>();
+    private final Map<String, long[]> acceptChildTypeMap = new HashMap<>();
+
+    private final Node root = new Node();
+    private final List<RegexRoute> regexRoutes = new ArrayList<>();
+
+    public RouteTable(Collection<RouterImpl> registeredRouters) {
+        routers = registeredRouters.stream().sorted().toArray(RouterImpl[]::new);
+        words = (routers.length + 63) >>> 6;
+        activeMask = new long[words];
+        noMethodMask = new long[words];
+        noPathMask = new long[words];
+        noContentTypeMask = new long[words];
+        noAcceptMask = new long[words];
+
+        for (int i = 0; i < routers.length; i++) {
+            RouterImpl router = routers[i];
+            Set<MatchType> matchTypes = router.getMatchTypes();
+            if (!router.isEnable() || matchTypes.isEmpty()) {
+                continue;
+            }
+            set(activeMask, i);
+
+            if (matchTypes.contains(MatchType.METHOD)) {
+                for (String method : router.getMethods()) {
+                    set(methodMap.computeIfAbsent(method, k -> new long[words]), i);
+                }
+            } else {
+                set(noMethodMask, i);
+            }
+
+            if (matchTypes.contains(MatchType.PATH)) {
+                addPath(router, i);
+            } else {
+                set(noPathMask, i);
+            }
+
+            if (matchTypes.contains(MatchType.CONTENT_TYPE)) {
+                for (String contentType : router.getContentTypes()) {
+                    if (contentType.contains("*")) {
+                        addPatternRoute(contentTypePatterns, contentType, i);
+                    } else {
+                        set(contentTypeMap.computeIfAbsent(contentType, k -> new long[words]), i);
+                    }
+                }
+            } else {
+                set(noContentTypeMask, i);
+            }
+
+            if (matchTypes.contains(MatchType.ACCEPT)) {
+                for (String accept : router.getAccepts()) {
+                    set(acceptMap.computeIfAbsent(accept, k -> new long[words]), i);
+                    String[] t = StringUtils.split(accept, '/');
+                    if (t.length == 2) {
+                        set(acceptParentTypeMap.computeIfAbsent(t[0].trim(), k -> new long[words]), i);
+                        set(acceptChildTypeMap.computeIfAbsent(t[1].trim(), k -> new long[words]), i);
+                    }
+                }
+            } else {
+                set(noAcceptMask, i);
+            }
+        }
+        root.compile();
+    }
+
+    private void addPath(RouterImpl router, int index) {
+        String url = router.getUrl();
+        if (router.isRegexPath()) {
+            RegexRoute regexRoute = regexRoutes.stream().filter(r -> r.rule.equals(url)).findFirst().orElse(null);
+            if (regexRoute == null) {
+                regexRoute = new RegexRoute(url, new long[words]);
+                regexRoutes.add(regexRoute);
+            }
+            set(regexRoute.routers, index);
+        } else if (url.contains("*")) {
+            // the pattern is stored in the node of its literal prefix
+            Node node = root;
+            if (url.length() > 1) {
+                List<String> segments = PathUtils.split(url);
+                for (int i = 0; i < segments.size() - 1 && !segments.get(i).contains("*"); i++) {
+                    node = node.child(segments.get(i));
+                }
+            }
+            addPatternRoute(node.patterns, url, index);
+        } else {
+            List<String> segments = PathUtils.split(url);
+            String[] parameterNames = null;
+            Node node = root;
+            for (int i = 0; i < segments.size(); i++) {
+                String segment = segments.get(i);
+                if (segment.charAt(0) == ':') {
+                    if (parameterNames == null) {
+                        parameterNames = new String[segments.size()];
+                    }
+                    parameterNames[i] = segment.substring(1);
+                    if (node.parameterChild == null) {
+                        node.parameterChild = new Node();
+                    }
+                    node = node.parameterChild;
+                } else {
+                    node = node.child(segment);
+                }
+            }
+            node.terminals.add(new Terminal(index, parameterNames));
+        }
+    }
+
+    private void addPatternRoute(List<PatternRoute> patternRoutes, String rule, int index) {
+        PatternRoute patternRoute = patternRoutes.stream().filter(r -> r.rule.equals(rule)).findFirst().orElse(null);
+        if (patternRoute == null) {
+            patternRoute = new PatternRoute(rule, new long[words]);
+            patternRoutes.add(patternRoute);
+        }
+        set(patternRoute.routers, index);
+    }
+
+    public int size() {
+        return routers.length;
+    }
+
+    public NavigableSet<RouterMatchResult> find(String method, String path, String contentType, String accept) {
+        if (routers.length == 0) {
+            return Collections.emptyNavigableSet();
+        }
+
+        long[] candidates = activeMask.clone();
+        // filter the routers by the cheap rules first
+        if (!filterByMethod(candidates, method)) {
+            return Collections.emptyNavigableSet();
+        }
+
+        Map<String, String>[] contentTypeParameters = null;
+        long[] matched = new long[words];
+        or(matched, noContentTypeMask);
+        if (StringUtils.hasText(contentType)) {
+            String mimeType = MimeTypes.getContentTypeMIMEType(contentType);
+            if (StringUtils.hasText(mimeType)) {
+                or(matched, contentTypeMap.get(mimeType));
+                for (PatternRoute patternRoute : contentTypePatterns) {
+                    if (intersects(candidates, patternRoute.routers)) {
+                        String[] strings = patternRoute.pattern.match(mimeType);
+                        if (strings != null) {
+                            or(matched, patternRoute.routers);
+                            if (strings.length > 0) {
+                                contentTypeParameters = putParameters(contentTypeParameters, patternRoute.routers,
+                                        candidates, toParameters(strings, "param"));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (!and(candidates, matched)) {
+            return Collections.emptyNavigableSet();
+        }
+
+        if (!filterByAccept(candidates, accept)) {
+            return Collections.emptyNavigableSet();
+        }
+
+        // match the path of the remaining routers
+        Map<String, String>[] parameters = null;
+        Arrays.fill(matched, 0L);
+        or(matched, noPathMask);
+        if (StringUtils.hasText(path)) {
+            PathMatcher pathMatcher = new PathMatcher(path, candidates, matched);
+            pathMatcher.match(root, 0);
+            parameters = pathMatcher.parameters;
+
+            for (RegexRoute regexRoute : regexRoutes) {
+                if (intersects(candidates, regexRoute.routers)) {
+                    java.util.regex.Matcher m = regexRoute.pattern.matcher(path);
+                    if (m.matches()) {
+                        or(matched, regexRoute.routers);
+                        if (m.groupCount() > 0) {
+                            Map<String, String> param = new HashMap<>();
+                            for (int i = 1; i <= m.groupCount(); i++) {
+                                param.put("group" + i, m.group(i));
+                            }
+                            parameters = putParameters(parameters, regexRoute.routers, candidates, param);
+                        }
+                    }
+                }
+            }
+        }
+        if (!and(candidates, matched)) {
+            return Collections.emptyNavigableSet();
+        }
+
+        NavigableSet<RouterMatchResult> ret = new TreeSet<>();
+        for (int i = nextSetBit(candidates, 0); i >= 0; i = nextSetBit(candidates, i + 1)) {
+            Map<String, String> param = parameters != null ? parameters[i] : null;
+            if (contentTypeParameters != null && contentTypeParameters[i] != null) {
+                if (param == null) {
+                    param = contentTypeParameters[i];
+                } else {
+                    param = new HashMap<>(param);
+                    param.putAll(contentTypeParameters[i]);
+                }
+            }
+            ret.add(new RouterMatchResult(routers[i], param != null ? param : Collections.emptyMap(), routers[i].getMatchTypes()));
+        }
+        return ret;
+    }
+
+    private boolean filterByMethod(long[] candidates, String method) {
+        long[] matched = noMethodMask.clone();
+        if (StringUtils.hasText(method)) {
+            or(matched, methodMap.get(method.toUpperCase()));
+        }
+        return and(candidates, matched);
+    }
+
+    private boolean filterByAccept(long[] candidates, String accept) {
+        long[] matched = noAcceptMask.clone();
+        if (StringUtils.hasText(accept) && !acceptMap.isEmpty()) {
+            for (String s : MimeTypes.getAcceptMIMETypes(accept)) {
+                int i = s.indexOf('/');
+                if (i < 0) {
+                    continue;
+                }
+                String parentType = s.substring(0, i).trim();
+                String childType = s.substring(i + 1).trim();
+                if (parentType.equals("*")) {
+                    if (!childType.equals("*")) {
+                        or(matched, acceptChildTypeMap.get(childType));
+                    }
+                } else {
+                    if (!childType.equals("*")) {
+                        or(matched, acceptMap.get(s));
+                    } else {
+                        or(matched, acceptParentTypeMap.get(parentType));
+                    }
+                }
+            }
+        }
+        return and(candidates, matched);
+    }
+
+    private static Map<String, String> toParameters(String[] strings, String prefix) {
+        Map<String, String> param = new HashMap<>();
+        for (int i = 0; i < strings.length; i++) {
+            param.put(prefix + i, strings[i]);
+        }
+        return param;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, String>[] newParameterArray() {
+        return new Map[routers.length];
+    }
+
+    private Map<String, String>[] putParameters(Map<String, String>[] parameters, long[] routerBits, long[] candidates,
+                                                Map<String, String> param) {
+        for (int i = nextSetBit(routerBits, 0); i >= 0; i = nextSetBit(routerBits, i + 1)) {
+            if (get(candidates, i)) {
+                if (parameters == null) {
+                    parameters = newParameterArray();
+                }
+                parameters[i] = param;
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Traverse the radix tree with the path segments. The segments are located in the path without copying.
+     */
+    private class PathMatcher {
+        final String path;
+        final long[] candidates;
+        final long[] matched;
+        final int[] segmentStart;
+        final int[] segmentEnd;
+        final int segmentCount;
+        Map<String, String>[] parameters;
+
+        PathMatcher(String path, long[] candidates, long[] matched) {
+            this.path = path;
+            this.candidates = candidates;
+            this.matched = matched;
+
+            // the same segments as the PathUtils.split
+            int max = path.length() - 1;
+            int count = 0;
+            for (int i = 1; i <= max; i++) {
+                if (path.charAt(i) == '/') {
+                    count++;
+                }
+            }
+            if (max > 0 && path.charAt(max) != '/') {
+                count++;
+            }
+            segmentStart = new int[count];
+            segmentEnd = new int[count];
+            int n = 0;
+            int start = 1;
+            for (int i = 1; i <= max; i++) {
+                if (path.charAt(i) == '/') {
+                    setSegment(n++, start, i);
+                    start = i + 1;
+                }
+            }
+            if (n < count) {
+                setSegment(n, start, path.length());
+            }
+            segmentCount = count;
+        }
+
+        private void setSegment(int n, int start, int end) {
+            while (start < end && path.charAt(start) <= ' ') {
+                start++;
+            }
+            while (start < end && path.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            segmentStart[n] = start;
+            segmentEnd[n] = end;
+        }
+
+        void match(Node node, int depth) {
+            for (PatternRoute patternRoute : node.patterns) {
+                if (intersects(candidates, patternRoute.routers)) {
+                    String[] strings = patternRoute.pattern.match(path);
+                    if (strings != null) {
+                        or(matched, patternRoute.routers);
+                        if (strings.length > 0) {
+                            parameters = putParameters(parameters, patternRoute.routers, candidates, toParameters(strings, "param"));
+                        }
+                    }
+                }
+            }
+
+            if (depth == segmentCount) {
+                for (Terminal terminal : node.terminals) {
+                    if (get(candidates, terminal.router)) {
+                        set(matched, terminal.router);
+                        if (terminal.parameterNames != null) {
+                            Map<String, String> param = new HashMap<>();
+                            for (int i = 0; i < terminal.parameterNames.length; i++) {
+                                if (terminal.parameterNames[i] != null) {
+                                    param.put(terminal.parameterNames[i], path.substring(segmentStart[i], segmentEnd[i]));
+                                }
+                            }
+                            if (parameters == null) {
+                                parameters = newParameterArray();
+                            }
+                            parameters[terminal.router] = param;
+                        }
+                    }
+                }
+                return;
+            }
+
+            Node child = node.find(path, segmentStart[depth], segmentEnd[depth]);
+            if (child != null) {
+                match(child, depth + 1);
+            }
+            if (node.parameterChild != null) {
+                match(node.parameterChild, depth + 1);
+            }
+        }
+    }
+
+    private static class Node {
+        final Map<String, Node> children = new HashMap<>();
+        final List<Terminal> terminals = new ArrayList<>();
+        final List<PatternRoute> patterns = new ArrayList<>();
+        Node parameterChild;
+
+        // the open addressing hash table of the children, it is looked up with the path region
+        String[] keys;
+        Node[] nodes;
+        int mask;
+
+        Node child(String segment) {
+            return children.computeIfAbsent(segment, k -> new Node());
+        }
+
+        void compile() {
+            if (!children.isEmpty()) {
+                int capacity = Integer.highestOneBit(children.size() * 2 - 1) << 1;
+                keys = new String[capacity];
+                nodes = new Node[capacity];
+                mask = capacity - 1;
+                children.forEach((key, node) -> {
+                    int i = hash(key, 0, key.length()) & mask;
+                    while (keys[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = key;
+                    nodes[i] = node;
+                    node.compile();
+                });
+            }
+            if (parameterChild != null) {
+                parameterChild.compile();
+            }
+        }
+
+        Node find(String path, int start, int end) {
+            if (keys == null) {
+                return null;
+            }
+
+            int len = end - start;
+            int i = hash(path, start, end) & mask;
+            String key;
+            while ((key = keys[i]) != null) {
+                if (key.length() == len && path.regionMatches(start, key, 0, len)) {
+                    return nodes[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        static int hash(String s, int start, int end) {
+            int h = 0;
+            for (int i = start; i < end; i++) {
+                h = 31 * h + s.charAt(i);
+            }
+            return h ^ (h >>> 16);
+        }
+    }
+
+    private static class Terminal {
+        final int router;
+        final String[] parameterNames;
+
+        Terminal(int router, String[] parameterNames) {
+            this.router = router;
+            this.parameterNames = parameterNames;
+        }
+    }
+
+    private static class PatternRoute {
+        final String rule;
+        final Pattern pattern;
+        final long[] routers;
+
+        PatternRoute(String rule, long[] routers) {
+            this.rule = rule;
+            this.pattern = Pattern.compile(rule, "*");
+            this.routers = routers;
+        }
+    }
+
+    private static class RegexRoute {
+        final String rule;
+        final java.util.regex.Pattern pattern;
+        final long[] routers;
+
+        RegexRoute(String rule, long[] routers) {
+            this.rule = rule;
+            this.pattern = java.util.regex.Pattern.compile(rule);
+            this.routers = routers;
+        }
+    }
+
+    // bitset operations
+
+    private static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    private static boolean get(long[] bits, int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    private static void or(long[] bits, long[] other) {
+        if (other != null) {
+            for (int i = 0; i < bits.length; i++) {
+                bits[i] |= other[i];
+            }
+        }
+    }
+
+    /**
+     * @return If true, there is at least one bit left.
+     */
+    private static boolean and(long[] bits, long[] other) {
+        long r = 0;
+        for (int i = 0; i < bits.length; i++) {
+            bits[i] &= other[i];
+            r |= bits[i];
+        }
+        return r != 0;
+    }
+
+    private static boolean intersects(long[] bits, long[] other) {
+        for (int i = 0; i < bits.length; i++) {
+            if ((bits[i] & other[i]) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int nextSetBit(long[] bits, int from) {
+        int u = from >>> 6;
+        if (u >= bits.length) {
+            return -1;
+        }
+        long word = bits[u] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return (u << 6) + Long.numberOfTrailingZeros(word);
+            }
+            if (++u == bits.length) {
+                return -1;
+            }
+            word = bits[u];
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package com.firefly.server.http2.router.impl;
 
 import com.firefly.codec.http2.model.HttpMethod;
+import com.firefly.server.http2.router.BlockingHandler;
 import com.firefly.server.http2.router.Handler;
 import com.firefly.server.http2.router.Matcher.MatchType;
 import com.firefly.server.http2.router.Router;
 import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.server.http2.router.executor.BlockingHandlerExecutor;
 import com.firefly.server.http2.router.utils.PathUtils;
 import com.firefly.utils.function.Action1;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Objects;
@@ -21,10 +24,16 @@ public class RouterImpl implements Router {
     private final int id;
     private final RouterManagerImpl routerManager;
     private final Set<MatchType> matchTypes;
+    private final Set<String> methods = new HashSet<>();
+    private final List<String> contentTypes = new ArrayList<>();
+    private final List<String> accepts = new ArrayList<>();
 
     private Handler handler;
-    private boolean enable = true;
+    private volatile boolean enable = true;
     private String url;
+    private boolean regexPath;
+    private Boolean blocking;
+    private BlockingHandlerExecutor.Limiter limiter;
 
     public RouterImpl(int id, RouterManagerImpl routerManager) {
         this.id = id;
@@ -70,6 +79,7 @@ public class RouterImpl implements Router {
         }
         this.url = url;
         matchTypes.add(MatchType.PATH);
+        routerManager.routerChanged();
         return this;
     }
 
@@ -98,7 +108,9 @@ public class RouterImpl implements Router {
         regex = regex.trim();
         routerManager.getRegexPathMatcher().add(regex, this);
         this.url = regex;
+        regexPath = true;
         matchTypes.add(MatchType.PATH);
+        routerManager.routerChanged();
         return this;
     }
 
@@ -110,7 +122,9 @@ public class RouterImpl implements Router {
     @Override
     public Router method(String method) {
         routerManager.getHttpMethodMatcher().add(method, this);
+        methods.add(method);
         matchTypes.add(MatchType.METHOD);
+        routerManager.routerChanged();
         return this;
     }
 
@@ -141,14 +155,18 @@ public class RouterImpl implements Router {
         } else {
             routerManager.getContentTypePatternMatcher().add(contentType, this);
         }
+        contentTypes.add(contentType);
         matchTypes.add(MatchType.CONTENT_TYPE);
+        routerManager.routerChanged();
         return this;
     }
 
     @Override
     public Router produces(String accept) {
         routerManager.getAcceptHeaderMatcher().add(accept, this);
+        accepts.add(accept);
         matchTypes.add(MatchType.ACCEPT);
+        routerManager.routerChanged();
         return this;
     }
 
@@ -158,15 +176,47 @@ public class RouterImpl implements Router {
         return this;
     }
 
+    @Override
+    public Router blocking() {
+        blocking = true;
+        limiter = null;
+        return this;
+    }
+
+    @Override
+    public Router blocking(int maxConcurrency, int maxWaitingTasks) {
+        blocking = true;
+        limiter = new BlockingHandlerExecutor.Limiter("router-" + id, maxConcurrency, maxWaitingTasks);
+        return this;
+    }
+
+    @Override
+    public Router nonBlocking() {
+        blocking = false;
+        limiter = null;
+        return this;
+    }
+
+    @Override
+    public boolean isBlocking() {
+        if (blocking != null) {
+            return blocking;
+        } else {
+            return handler instanceof BlockingHandler;
+        }
+    }
+
     @Override
     public Router enable() {
         enable = true;
+        routerManager.routerChanged();
         return this;
     }
 
     @Override
     public Router disable() {
         enable = false;
+        routerManager.routerChanged();
         return this;
     }
 
@@ -189,6 +239,30 @@ public class RouterImpl implements Router {
         return handler;
     }
 
+    public BlockingHandlerExecutor.Limiter getLimiter() {
+        return limiter;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public boolean isRegexPath() {
+        return regexPath;
+    }
+
+    public Set<String> getMethods() {
+        return methods;
+    }
+
+    public List<String> getContentTypes() {
+        return contentTypes;
+    }
+
+    public List<String> getAccepts() {
+        return accepts;
+    }
+
     @Override
     public int compareTo(Router o) {
         return Integer.compare(id, o.getId());
@@ -6,11 +6,13 @@ import com.firefly.server.http2.router.Matcher;
 import com.firefly.server.http2.router.Router;
 import com.firefly.server.http2.router.RouterManager;
 import com.firefly.server.http2.router.RoutingContext;
-import com.firefly.utils.StringUtils;
+import com.firefly.server.http2.router.executor.BlockingHandlerConfiguration;
+import com.firefly.server.http2.router.executor.BlockingHandlerExecutor;
 
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * @author Pengtao Qiu
@@ -18,6 +20,9 @@ import java.util.stream.Collectors;
 public class RouterManagerImpl implements RouterManager {
 
     private AtomicInteger idGenerator = new AtomicInteger();
+    private final List<RouterImpl> routers = new CopyOnWriteArrayList<>();
+    private final AtomicInteger version = new AtomicInteger();
+    private final AtomicReference<VersionedRouteTable> routeTable = new AtomicReference<>();
     private final Map<Matcher.MatchType, List<Matcher>> matcherMap;
     private final Matcher precisePathMather;
     private final Matcher patternPathMatcher;
@@ -27,6 +32,8 @@ public class RouterManagerImpl implements RouterManager {
     private final Matcher contentTypePreciseMatcher;
     private final Matcher contentTypePatternMatcher;
     private final Matcher acceptHeaderMatcher;
+    private BlockingHandlerConfiguration blockingHandlerConfiguration = new BlockingHandlerConfiguration();
+    private volatile BlockingHandlerExecutor blockingHandlerExecutor;
 
     public RouterManagerImpl() {
         matcherMap = new HashMap<>();
@@ -79,79 +86,98 @@ public class RouterManagerImpl implements RouterManager {
         return contentTypePatternMatcher;
     }
 
+    /**
+     * Get the executor of the blocking handlers. The executor is created with the blocking handler configuration
+     * when it is used at first, so the server that has no blocking handler does not start the worker threads.
+     *
+     * @return The blocking handler executor.
+     */
+    public BlockingHandlerExecutor getBlockingHandlerExecutor() {
+        BlockingHandlerExecutor executor = blockingHandlerExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = blockingHandlerExecutor;
+                if (executor == null) {
+                    executor = new BlockingHandlerExecutor(blockingHandlerConfiguration);
+                    blockingHandlerExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    public synchronized void setBlockingHandlerExecutor(BlockingHandlerExecutor blockingHandlerExecutor) {
+        this.blockingHandlerExecutor = blockingHandlerExecutor;
+    }
+
+    public BlockingHandlerConfiguration getBlockingHandlerConfiguration() {
+        return blockingHandlerConfiguration;
+    }
+
+    public synchronized void setBlockingHandlerConfiguration(BlockingHandlerConfiguration blockingHandlerConfiguration) {
+        this.blockingHandlerConfiguration = blockingHandlerConfiguration;
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (blockingHandlerExecutor != null) {
+            blockingHandlerExecutor.stop();
+        }
+    }
+
     @Override
     public NavigableSet<RouterMatchResult> findRouter(String method, String path, String contentType, String accept) {
-        Map<Router, Set<Matcher.MatchType>> routerMatchTypes = new HashMap<>();
-        Map<Router, Map<String, String>> routerParameters = new HashMap<>();
-        findRouter(method, Matcher.MatchType.METHOD, routerMatchTypes, routerParameters);
-        findRouter(path, Matcher.MatchType.PATH, routerMatchTypes, routerParameters);
-        findRouter(contentType, Matcher.MatchType.CONTENT_TYPE, routerMatchTypes, routerParameters);
-        findRouter(accept, Matcher.MatchType.ACCEPT, routerMatchTypes, routerParameters);
-
-        Map<Router, Set<Matcher.MatchType>> filtered = filter(routerMatchTypes);
-
-        if (filtered.isEmpty()) {
-            return Collections.emptyNavigableSet();
-        } else {
-            NavigableSet<RouterMatchResult> ret = new TreeSet<>();
-            filtered.forEach((router, value) -> {
-                Map<String, String> routerParam = routerParameters.get(router);
-                ret.add(new RouterMatchResult(router, routerParam, value));
-            });
-            return ret;
+        return getRouteTable().find(method, path, contentType, accept);
+    }
+
+    /**
+     * Get the compiled route table. The table is rebuilt and swapped when the routers are changed.
+     *
+     * @return The route table.
+     */
+    public RouteTable getRouteTable() {
+        VersionedRouteTable current = routeTable.get();
+        int v = version.get();
+        if (current != null && current.version == v) {
+            return current.table;
         }
+
+        RouteTable table = new RouteTable(routers);
+        VersionedRouteTable next = new VersionedRouteTable(v, table);
+        if (version.get() == v) {
+            routeTable.compareAndSet(current, next);
+        }
+        return table;
     }
 
-    private Map<Router, Set<Matcher.MatchType>> filter(Map<Router, Set<Matcher.MatchType>> routerMatchTypes) {
-        Map<Router, Set<Matcher.MatchType>> ret = new HashMap<>();
-        routerMatchTypes.entrySet()
-                        .stream()
-                        .filter(e -> e.getKey().isEnable())
-                        .filter(e -> e.getKey().getMatchTypes().equals(e.getValue()))
-                        .forEach(e -> ret.computeIfAbsent(e.getKey(), k -> new HashSet<>()).addAll(e.getValue()));
-        return ret;
-    }
-
-    private List<Matcher.MatchResult> findRouter(String value, Matcher.MatchType matchType,
-                                                 Map<Router, Set<Matcher.MatchType>> routerMatchTypes,
-                                                 Map<Router, Map<String, String>> routerParameters) {
-        List<Matcher.MatchResult> r = findRouter(value, matchType);
-        r.forEach(result -> result.getRouters().forEach(router -> {
-            routerMatchTypes.computeIfAbsent(router, k -> new HashSet<>()).add(result.getMatchType());
-            if (result.getParameters() != null && !result.getParameters().isEmpty()) {
-                routerParameters.computeIfAbsent(router, k -> new HashMap<>())
-                                .putAll(result.getParameters().get(router));
-            }
-        }));
-        return r;
+    void routerChanged() {
+        version.incrementAndGet();
     }
 
-    private List<Matcher.MatchResult> findRouter(String value, Matcher.MatchType matchType) {
-        if (!StringUtils.hasText(value) || matchType == null) {
-            return Collections.emptyList();
-        }
+    private static class VersionedRouteTable {
+        final int version;
+        final RouteTable table;
 
-        List<Matcher.MatchResult> ret = matcherMap.get(matchType)
-                                                  .stream()
-                                                  .map(m -> m.match(value))
-                                                  .filter(Objects::nonNull)
-                                                  .collect(Collectors.toList());
-        if (ret == null) {
-            return Collections.emptyList();
-        } else {
-            return ret;
+        VersionedRouteTable(int version, RouteTable table) {
+            this.version = version;
+            this.table = table;
         }
     }
 
     @Override
     public Router register() {
-        return new RouterImpl(idGenerator.getAndIncrement(), this);
+        return addRouter(new RouterImpl(idGenerator.getAndIncrement(), this));
     }
 
     public Router registerLast() {
-        return new RouterImpl(Integer.MAX_VALUE, this);
+        return addRouter(new RouterImpl(Integer.MAX_VALUE, this));
     }
 
+    private Router addRouter(RouterImpl router) {
+        routers.add(router);
+        routerChanged();
+        return router;
+    }
     @Override
     public void accept(SimpleRequest request) {
         String method = request.getMethod();
@@ -160,7 +186,7 @@ public class RouterManagerImpl implements RouterManager {
         String accept = request.getFields().get(HttpHeader.ACCEPT);
 
         NavigableSet<RouterMatchResult> routers = findRouter(method, path, contentType, accept);
-        RoutingContext routingContext = new RoutingContextImpl(request, routers);
+        RoutingContext routingContext = new RoutingContextImpl(request, routers, this);
         routingContext.next();
     }
 }
@@ -1,17 +1,23 @@
 package com.firefly.server.http2.router.impl;
 
+import com.firefly.codec.http2.model.HttpStatus;
 import com.firefly.server.http2.SimpleRequest;
 import com.firefly.server.http2.SimpleResponse;
 import com.firefly.server.http2.router.RouterManager;
 import com.firefly.server.http2.router.RoutingContext;
+import com.firefly.server.http2.router.executor.BlockingHandlerExecutor;
+import com.firefly.server.http2.router.handler.error.DefaultErrorResponseHandlerLoader;
 import com.firefly.server.http2.router.handler.template.TemplateHandlerSPILoader;
 import com.firefly.server.http2.router.spi.HTTPBodyHandlerSPI;
 import com.firefly.server.http2.router.spi.HTTPSessionHandlerSPI;
 import com.firefly.server.http2.router.spi.TemplateHandlerSPI;
 import com.firefly.utils.function.Action1;
+import com.firefly.utils.io.IO;
 import com.firefly.utils.json.JsonArray;
 import com.firefly.utils.json.JsonObject;
 import com.firefly.utils.lang.GenericTypeReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.servlet.http.HttpSession;
 import javax.servlet.http.Part;
@@ -30,17 +36,28 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class RoutingContextImpl implements RoutingContext {
 
+    private static final Logger log = LoggerFactory.getLogger("firefly-system");
+
     private final SimpleRequest request;
     private final NavigableSet<RouterManager.RouterMatchResult> routers;
+    private final RouterManagerImpl routerManager;
     private volatile RouterManager.RouterMatchResult current;
     private volatile HTTPBodyHandlerSPI httpBodyHandlerSPI;
     private volatile HTTPSessionHandlerSPI httpSessionHandlerSPI;
     private final TemplateHandlerSPI templateHandlerSPI = TemplateHandlerSPILoader.getInstance().getTemplateHandlerSPI();
     private volatile boolean asynchronousRead;
+    private volatile boolean asynchronousResponse;
+    private volatile boolean blockingDispatched;
 
     public RoutingContextImpl(SimpleRequest request, NavigableSet<RouterManager.RouterMatchResult> routers) {
+        this(request, routers, null);
+    }
+
+    public RoutingContextImpl(SimpleRequest request, NavigableSet<RouterManager.RouterMatchResult> routers,
+                              RouterManagerImpl routerManager) {
         this.request = request;
         this.routers = routers;
+        this.routerManager = routerManager;
     }
 
     @Override
@@ -70,6 +87,7 @@ public class RoutingContextImpl implements RoutingContext {
 
     @Override
     public SimpleResponse getAsyncResponse() {
+        asynchronousResponse = true;
         return request.getAsyncResponse();
     }
 
@@ -113,13 +131,67 @@ public class RoutingContextImpl implements RoutingContext {
     public boolean next() {
         current = routers.pollFirst();
         if (current != null) {
-            ((RouterImpl) current.getRouter()).getHandler().handle(this);
+            RouterImpl router = (RouterImpl) current.getRouter();
+            if (router.isBlocking() && !blockingDispatched && routerManager != null) {
+                dispatch(router);
+            } else {
+                router.getHandler().handle(this);
+            }
             return true;
         } else {
             return false;
         }
     }
 
+    /**
+     * Run the handler of the blocking router on the worker thread. The remaining handlers run on the same worker
+     * thread, and the response is closed after they return unless one of them gets the asynchronous response.
+     *
+     * @param router The blocking router.
+     */
+    private void dispatch(RouterImpl router) {
+        if (!request.isMessageComplete()) {
+            // the blocking handler reads the whole request, it waits for the end of the message
+            Action1<SimpleRequest> messageComplete = request.getMessageComplete();
+            request.messageComplete(req -> {
+                if (messageComplete != null) {
+                    messageComplete.call(req);
+                }
+                dispatch(router);
+            });
+            return;
+        }
+
+        SimpleResponse response = request.getResponse();
+        if (response.isAsynchronous()) {
+            asynchronousResponse = true;
+        }
+        // the I/O thread does not close the response, the worker thread closes it
+        response.setAsynchronous(true);
+        blockingDispatched = true;
+        BlockingHandlerExecutor executor = routerManager.getBlockingHandlerExecutor();
+        executor.execute(router.getLimiter(), () -> {
+            try {
+                router.getHandler().handle(this);
+            } catch (Throwable t) {
+                log.error("the blocking handler exception", t);
+                if (!response.isCommitted()) {
+                    DefaultErrorResponseHandlerLoader.getInstance().getHandler()
+                                                     .render(this, HttpStatus.INTERNAL_SERVER_ERROR_500, t);
+                }
+            } finally {
+                if (!asynchronousResponse) {
+                    IO.close(response);
+                }
+            }
+        }, e -> {
+            log.warn("the blocking handler is rejected, {}", e.getMessage());
+            DefaultErrorResponseHandlerLoader.getInstance().getHandler()
+                                             .render(this, HttpStatus.SERVICE_UNAVAILABLE_503, e);
+            IO.close(response);
+        });
+    }
+
     @Override
     public boolean hasNext() {
         return !routers.isEmpty();
@@ -175,6 +247,14 @@ public class RoutingContextImpl implements RoutingContext {
         }
     }
 
+    @Override
+    public RoutingContext partComplete(Action1<Part> partComplete) {
+        if (httpBodyHandlerSPI != null) {
+            httpBodyHandlerSPI.partComplete(partComplete);
+        }
+        return this;
+    }
+
     @Override
     public InputStream getInputStream() {
         if (httpBodyHandlerSPI == null) {
@@ -1,5 +1,6 @@
 package com.firefly.server.http2.router.spi;
 
+import com.firefly.utils.function.Action1;
 import com.firefly.utils.json.JsonArray;
 import com.firefly.utils.json.JsonObject;
 import com.firefly.utils.lang.GenericTypeReference;
@@ -26,6 +27,8 @@ public interface HTTPBodyHandlerSPI {
 
     Part getPart(String name);
 
+    void partComplete(Action1<Part> partComplete);
+
     InputStream getInputStream();
 
     BufferedReader getBufferedReader();
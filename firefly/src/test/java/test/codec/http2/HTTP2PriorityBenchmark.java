@@ -0,0 +1,92 @@
+package test.codec.http2;
+
+import com.firefly.codec.http2.frame.FrameType;
+import com.firefly.codec.http2.frame.PriorityFrame;
+import test.codec.http2.stream.PendingWriteMockSession;
+import test.codec.http2.stream.PendingWriteMockSession.WrittenFrame;
+import test.codec.http2.stream.PriorityServerHarness;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The time to first byte and the completion time of the small responses while a bulk response is sent on the same
+ * connection. The network is simulated by completing the writes one by one, the time is the connection bytes that are
+ * written before the DATA frames of the small response, and it is converted to millisecond with the bandwidth.
+ *
+ * @author Pengtao Qiu
+ */
+public class HTTP2PriorityBenchmark {
+
+    public static void main(String[] args) throws Throwable {
+        int bulkSize = 16 * 1024 * 1024;
+        int smallSize = 128 * 1024;
+        int smallCount = 16;
+        long bandwidth = 100L * 1000 * 1000 / 8; // 100 Mbit/s
+
+        System.out.println("bulk: " + bulkSize + " bytes, small: " + smallCount + " x " + smallSize + " bytes, bandwidth: 100Mbit/s");
+        test(bulkSize, smallSize, smallCount, bandwidth, null);
+        test(bulkSize, smallSize, smallCount, bandwidth, 256);
+        System.exit(0);
+    }
+
+    private static void test(int bulkSize, int smallSize, int smallCount, long bandwidth, Integer smallWeight) throws Throwable {
+        PriorityServerHarness harness = new PriorityServerHarness();
+        PendingWriteMockSession session = harness.getSession();
+        Map<Integer, Long> requestTime = new HashMap<>();
+        Map<Integer, Long> firstByteTime = new HashMap<>();
+        Map<Integer, Long> lastByteTime = new HashMap<>();
+
+        harness.request(1, bulkSize, null);
+        int streamId = 3;
+        int writes = 0;
+        int processed = 0;
+        while (true) {
+            // a small request arrives every 8 writes
+            if (writes % 8 == 0 && requestTime.size() < smallCount) {
+                PriorityFrame priority = smallWeight == null ? null : new PriorityFrame(streamId, 0, smallWeight, false);
+                requestTime.put(streamId, session.getWrittenBytes());
+                harness.request(streamId, smallSize, priority);
+                streamId += 2;
+            }
+            if (!session.complete()) {
+                break;
+            }
+            writes++;
+
+            List<List<WrittenFrame>> list = session.getWrites();
+            for (; processed < list.size(); processed++) {
+                for (WrittenFrame frame : list.get(processed)) {
+                    if (frame.type == FrameType.DATA && frame.streamId != 1) {
+                        firstByteTime.putIfAbsent(frame.streamId, frame.offset);
+                        lastByteTime.put(frame.streamId, frame.offset + 9 + frame.length);
+                    }
+                }
+            }
+        }
+
+        long total = 0;
+        long max = 0;
+        long totalCompletion = 0;
+        for (Map.Entry<Integer, Long> entry : firstByteTime.entrySet()) {
+            long ttfb = entry.getValue() - requestTime.get(entry.getKey());
+            total += ttfb;
+            max = Math.max(max, ttfb);
+            totalCompletion += lastByteTime.get(entry.getKey()) - requestTime.get(entry.getKey());
+        }
+        int count = firstByteTime.size();
+        System.out.println("small stream weight: " + (smallWeight == null ? "default" : smallWeight)
+                + ", completed: " + count
+                + ", avg ttfb: " + toMillis(total / count, bandwidth)
+                + ", max ttfb: " + toMillis(max, bandwidth)
+                + ", avg completion: " + toMillis(totalCompletion / count, bandwidth)
+                + ", total: " + toMillis(session.getWrittenBytes(), bandwidth)
+                + ", writes: " + writes);
+        harness.close();
+    }
+
+    private static String toMillis(long bytes, long bandwidth) {
+        return String.format("%.2fms", (double) bytes * 1000 / bandwidth);
+    }
+}
@@ -42,6 +42,11 @@ public class HTTP2MockSession implements Session {
 		}
 	}
 
+	@Override
+	public void retainReadBuffer(ByteBuffer buffer) {
+
+	}
+
 	@Override
 	public int getSessionId() {
 		// TODO Auto-generated method stub
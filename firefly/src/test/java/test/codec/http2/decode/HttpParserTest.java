@@ -742,6 +742,28 @@ public class HttpParserTest {
         Assert.assertTrue(_messageCompleted);
     }
 
+    @Test
+    public void testContentChunkCount() throws Exception {
+        HttpParser parser = new HttpParser((HttpParser.RequestHandler) new Handler());
+        parseAll(parser, BufferUtils.toBuffer("GET /foo HTTP/1.1\r\n" + "Host: localhost\r\n" + "\r\n"));
+        Assert.assertTrue(_messageCompleted);
+        Assert.assertEquals(0, parser.getContentChunkCount());
+
+        parser = new HttpParser((HttpParser.RequestHandler) new Handler());
+        parseAll(parser, BufferUtils.toBuffer(
+                "GET /chunk HTTP/1.0\r\n"
+                        + "Transfer-Encoding: chunked\r\n"
+                        + "\r\n"
+                        + "a;\r\n"
+                        + "0123456789\r\n"
+                        + "1a\r\n"
+                        + "ABCDEFGHIJKLMNOPQRSTUVWXYZ\r\n"
+                        + "0\r\n"
+                        + "\r\n"));
+        Assert.assertTrue(_messageCompleted);
+        Assert.assertEquals(2, parser.getContentChunkCount());
+    }
+
     @Test
     public void testChunkParseTrailer() throws Exception {
         ByteBuffer buffer = BufferUtils.toBuffer(
@@ -793,4 +793,31 @@ public class HttpGeneratorServerTest {
         Assert.assertTrue(headers.contains(HttpHeaderValue.KEEP_ALIVE.asString()));
         Assert.assertTrue(headers.contains(customValue));
     }
+
+    @Test
+    public void testSendDate() throws Exception {
+        ByteBuffer header = BufferUtils.allocate(8096);
+        HttpGenerator gen = new HttpGenerator(false, false, true);
+
+        MetaData.Response info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, null, new HttpFields(), 0);
+        info.getFields().add(HttpHeader.CONTENT_TYPE, MimeTypes.Type.TEXT_HTML_UTF_8.asString());
+        HttpGenerator.Result result = gen.generateResponse(info, false, header, null, null, true);
+        assertEquals(HttpGenerator.Result.FLUSH, result);
+        String response = BufferUtils.toString(header);
+
+        PreEncodedHttpField dateField = DateGenerator.getDateField();
+        assertThat(dateField, sameInstance(DateGenerator.getDateField()));
+        assertThat(response, containsString("Date: " + dateField.getValue() + "\r\n"));
+        assertThat(response, containsString("Content-Type: text/html;charset=utf-8\r\n"));
+
+        // the date of the application is not replaced
+        BufferUtils.clear(header);
+        gen = new HttpGenerator(false, false, true);
+        info = new MetaData.Response(HttpVersion.HTTP_1_1, 200, null, new HttpFields(), 0);
+        info.getFields().put(HttpHeader.DATE, DateGenerator.__01Jan1970);
+        gen.generateResponse(info, false, header, null, null, true);
+        response = BufferUtils.toString(header);
+        assertThat(response, containsString("Date: " + DateGenerator.__01Jan1970 + "\r\n"));
+        assertThat(response, not(containsString(dateField.getValue())));
+    }
 }
@@ -11,6 +11,7 @@ import com.firefly.codec.http2.decode.Parser;
 import com.firefly.codec.http2.encode.HeaderGenerator;
 import com.firefly.codec.http2.encode.HeadersGenerator;
 import com.firefly.codec.http2.frame.Flags;
+import com.firefly.codec.http2.frame.Frame;
 import com.firefly.codec.http2.frame.FrameType;
 import com.firefly.codec.http2.frame.HeadersFrame;
 import com.firefly.codec.http2.frame.PriorityFrame;
@@ -49,10 +50,17 @@ public class ContinuationParseTest {
 			MetaData.Request metaData = new MetaData.Request("GET", HttpScheme.HTTP,
 					new HostPortHttpField("localhost:8080"), "/path", HttpVersion.HTTP_2, fields);
 
-			List<ByteBuffer> byteBuffers = generator.generateHeaders(streamId, metaData, null, true);
-			Assert.assertEquals(2, byteBuffers.size());
+			List<ByteBuffer> generated = generator.generateHeaders(streamId, metaData, null, true);
+			Assert.assertEquals(1, generated.size());
 
-			ByteBuffer headersBody = byteBuffers.remove(1);
+			// Split the frame into the HEADERS header and body.
+			ByteBuffer frameBuffer = generated.get(0);
+			ByteBuffer headersBody = frameBuffer.duplicate();
+			headersBody.position(headersBody.position() + Frame.HEADER_LENGTH);
+			headersBody = headersBody.slice();
+			frameBuffer.limit(frameBuffer.position() + Frame.HEADER_LENGTH);
+			List<ByteBuffer> byteBuffers = new ArrayList<>();
+			byteBuffers.add(frameBuffer.slice());
 			int start = headersBody.position();
 			int length = headersBody.remaining();
 			int oneThird = length / 3;
@@ -0,0 +1,73 @@
+package test.codec.http2.frame;
+
+import com.firefly.codec.http2.encode.Generator;
+import com.firefly.codec.http2.frame.DataFrame;
+import com.firefly.codec.http2.frame.HeadersFrame;
+import com.firefly.codec.http2.model.*;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The throughput and the allocation rate of the HEADERS and DATA frame generation. Every response generates a HEADERS
+ * frame and a small DATA frame, the generator is reset after every 8 responses like the flusher does after a write.
+ *
+ * @author Pengtao Qiu
+ */
+public class FrameGeneratorBenchmark {
+
+    private static final int RESPONSES_PER_WRITE = 8;
+
+    public static void main(String[] args) {
+        com.sun.management.ThreadMXBean threadMXBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        MetaData.Response response = createResponse();
+        ByteBuffer content = ByteBuffer.allocate(1024);
+
+        for (int i = 0; i < 5; i++) {
+            test("warm up", threadMXBean, response, content, 100_000);
+        }
+        for (int i = 0; i < 3; i++) {
+            test("headers and data", threadMXBean, response, content, 500_000);
+        }
+        System.exit(0);
+    }
+
+    private static void test(String name, com.sun.management.ThreadMXBean threadMXBean,
+                             MetaData.Response response, ByteBuffer content, int count) {
+        Generator generator = new Generator();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        long octets = 0;
+        long threadId = Thread.currentThread().getId();
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            int streamId = (i % 1000) * 2 + 1;
+            buffers.addAll(generator.control(new HeadersFrame(streamId, response, null, false)));
+            content.clear();
+            buffers.addAll(generator.data(new DataFrame(streamId, content, true), content.remaining()).second);
+            if ((i + 1) % RESPONSES_PER_WRITE == 0) {
+                for (ByteBuffer buffer : buffers) {
+                    octets += buffer.remaining();
+                }
+                buffers.clear();
+                generator.reset();
+            }
+        }
+        long time = System.nanoTime() - start;
+        allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocated;
+        System.out.println(String.format("%s: %d ns/op, %d bytes allocated/op, %d octets/op",
+                name, time / count, allocated / count, octets / count));
+    }
+
+    private static MetaData.Response createResponse() {
+        HttpFields fields = new HttpFields();
+        fields.put(HttpHeader.SERVER, "Firefly 4.3.0");
+        fields.put(HttpHeader.CONTENT_TYPE, MimeTypes.Type.APPLICATION_JSON_UTF_8.asString());
+        fields.put(HttpHeader.CONTENT_LENGTH, "1024");
+        fields.put(HttpHeader.CACHE_CONTROL, "no-cache, no-store, must-revalidate");
+        fields.put("X-Service", "order-service");
+        return new MetaData.Response(HttpVersion.HTTP_2, 200, fields);
+    }
+}
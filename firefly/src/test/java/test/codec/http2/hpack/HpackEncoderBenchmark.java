@@ -0,0 +1,86 @@
+package test.codec.http2.hpack;
+
+import com.firefly.codec.http2.hpack.HpackEncoder;
+import com.firefly.codec.http2.model.*;
+import com.firefly.utils.io.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+/**
+ * The throughput and the compressed size of the response header encoding. The responses are prepared before the
+ * measurement, they contain the stable fields, the high cardinality fields and the custom fields that repeat a few
+ * values. The long connection encodes all responses with one encoder, the short connections create a new encoder every
+ * 20 responses.
+ *
+ * @author Pengtao Qiu
+ */
+public class HpackEncoderBenchmark {
+
+    private static final int RESPONSES = 4096;
+    private static final String[] REGIONS = {"us-east", "us-west", "eu-central"};
+    private static final String[] CONTENT_TYPES = {
+            MimeTypes.Type.APPLICATION_JSON_UTF_8.asString(),
+            MimeTypes.Type.TEXT_HTML_UTF_8.asString(),
+            "image/png"};
+
+    public static void main(String[] args) {
+        MetaData.Response[] responses = createResponses();
+        ByteBuffer buffer = BufferUtils.allocate(16 * 1024);
+
+        for (int i = 0; i < 5; i++) {
+            test("warm up", responses, buffer, RESPONSES, 50);
+            test("warm up", responses, buffer, 20, 50);
+        }
+        for (int i = 0; i < 3; i++) {
+            test("long connection", responses, buffer, RESPONSES, 200);
+            test("short connections", responses, buffer, 20, 200);
+        }
+        System.exit(0);
+    }
+
+    private static void test(String name, MetaData.Response[] responses, ByteBuffer buffer,
+                             int responsesPerConnection, int iterations) {
+        long octets = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            HpackEncoder encoder = null;
+            for (int j = 0; j < responses.length; j++) {
+                if (j % responsesPerConnection == 0) {
+                    encoder = new HpackEncoder();
+                }
+                BufferUtils.clearToFill(buffer);
+                encoder.encode(buffer, responses[j]);
+                octets += buffer.position();
+            }
+        }
+        long time = System.nanoTime() - start;
+        long count = (long) iterations * responses.length;
+        System.out.println(String.format("%s: %d ns/op, %d ops/ms, %d octets/op",
+                name, time / count, count * 1000_000L / time, octets / count));
+    }
+
+    private static MetaData.Response[] createResponses() {
+        Random random = new Random(7L);
+        MetaData.Response[] responses = new MetaData.Response[RESPONSES];
+        for (int i = 0; i < RESPONSES; i++) {
+            HttpFields fields = new HttpFields();
+            fields.put(HttpHeader.DATE, DateGenerator.formatDate(1500000000000L + (i / 512) * 1000L));
+            fields.put(HttpHeader.SERVER, "Firefly 4.3.0");
+            fields.put(HttpHeader.X_POWERED_BY, "Firefly 4.3.0");
+            fields.put(HttpHeader.CONTENT_TYPE, CONTENT_TYPES[random.nextInt(CONTENT_TYPES.length)]);
+            fields.put(HttpHeader.CONTENT_LENGTH, String.valueOf(100 + random.nextInt(100000)));
+            fields.put(HttpHeader.CACHE_CONTROL, "no-cache, no-store, must-revalidate");
+            fields.put(HttpHeader.VARY, "Accept-Encoding");
+            fields.put(HttpHeader.ETAG, "W/\"" + Long.toHexString(random.nextLong()) + "\"");
+            fields.put("X-Request-Id", Long.toHexString(random.nextLong()) + Long.toHexString(random.nextLong()));
+            fields.put("X-Region", REGIONS[random.nextInt(REGIONS.length)]);
+            fields.put("X-Service", "order-service");
+            if (i % 16 == 0) {
+                fields.put(HttpHeader.SET_COOKIE, "session=" + Long.toHexString(random.nextLong()) + "; Path=/; HttpOnly");
+            }
+            responses[i] = new MetaData.Response(HttpVersion.HTTP_2, 200, fields);
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,149 @@
+package test.codec.http2.model;
+
+import com.firefly.codec.http2.model.MultiPartFormDataParser;
+import com.firefly.utils.io.IO;
+import org.junit.Test;
+
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.http.Part;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class MultiPartFormDataParserTest {
+
+    private static final String CONTENT_TYPE = "multipart/form-data; boundary=AaB03x";
+
+    private final File tmpDir = new File(System.getProperty("java.io.tmpdir"), "multipart-" + System.currentTimeMillis());
+
+    private static String createMultipartRequestString(String content) {
+        return "preamble\r\n" +
+                "--AaB03x\r\n" +
+                "content-disposition: form-data; name=\"field1\"\r\n" +
+                "\r\n" +
+                "Joe Blow\r\n" +
+                "--AaB03x \r\n" +
+                "content-disposition: form-data; name=\"stuff\"; filename=\"stuff.txt\"\r\n" +
+                "Content-Type: text/plain\r\n" +
+                "\r\n" +
+                content + "\r\n" +
+                "--AaB03x--\r\n" +
+                "epilogue";
+    }
+
+    private MultiPartFormDataParser parse(String body, MultipartConfigElement config, int chunkSize) {
+        MultiPartFormDataParser parser = new MultiPartFormDataParser(CONTENT_TYPE, config, tmpDir);
+        parser.setDeleteOnExit(true);
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < bytes.length; i += chunkSize) {
+            parser.parse(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+        }
+        parser.complete();
+        return parser;
+    }
+
+    private static String toString(Part part) throws IOException {
+        try (InputStream in = part.getInputStream()) {
+            return IO.toString(in, "UTF-8");
+        }
+    }
+
+    @Test
+    public void testChunks() throws IOException {
+        // the content contains the partial delimiters
+        String content = "line1\r\nline2\r\n--AaB03\r\n-\r\r\n--AaB03y end";
+        String body = createMultipartRequestString(content);
+        for (int chunkSize = 1; chunkSize <= body.length(); chunkSize++) {
+            List<String> completedParts = new ArrayList<>();
+            MultiPartFormDataParser parser = new MultiPartFormDataParser(CONTENT_TYPE, new MultipartConfigElement(tmpDir.getAbsolutePath()), tmpDir);
+            parser.partComplete(part -> completedParts.add(part.getName()));
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            for (int i = 0; i < bytes.length; i += chunkSize) {
+                parser.parse(ByteBuffer.wrap(bytes, i, Math.min(chunkSize, bytes.length - i)));
+            }
+            parser.complete();
+
+            assertThat(parser.getParts().size(), is(2));
+            assertThat(completedParts, contains("field1", "stuff"));
+            assertThat(toString(parser.getPart("field1")), is("Joe Blow"));
+            Part stuff = parser.getPart("stuff");
+            assertThat("chunk size " + chunkSize, toString(stuff), is(content));
+            assertThat(stuff.getSubmittedFileName(), is("stuff.txt"));
+            assertThat(stuff.getContentType(), is("text/plain"));
+            assertThat(stuff.getSize(), is((long) content.length()));
+        }
+    }
+
+    @Test
+    public void testFileSizeThreshold() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            content.append(i);
+        }
+        MultipartConfigElement config = new MultipartConfigElement(tmpDir.getAbsolutePath(), 1024 * 1024, 2 * 1024 * 1024, 100);
+        MultiPartFormDataParser parser = parse(createMultipartRequestString(content.toString()), config, 37);
+
+        MultiPartFormDataParser.MultiPart field1 = (MultiPartFormDataParser.MultiPart) parser.getPart("field1");
+        assertThat(field1.getFile(), nullValue());
+        assertThat(new String(field1.getBytes(), StandardCharsets.UTF_8), is("Joe Blow"));
+
+        MultiPartFormDataParser.MultiPart stuff = (MultiPartFormDataParser.MultiPart) parser.getPart("stuff");
+        File file = stuff.getFile();
+        assertThat(file, notNullValue());
+        assertThat(file.length(), is((long) content.length()));
+        assertThat(toString(stuff), is(content.toString()));
+
+        parser.deleteParts();
+        assertThat(file.exists(), is(false));
+    }
+
+    @Test
+    public void testIncomplete() {
+        String body = "--AaB03x\r\n" +
+                "content-disposition: form-data; name=\"field1\"\r\n" +
+                "\r\n" +
+                "Joe Blow\r\n" +
+                "--AaB03x-\r\n\r\n";
+        MultiPartFormDataParser parser = parse(body, null, 8);
+        try {
+            parser.getParts();
+            fail("Multipart incomplete");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), anyOf(startsWith("Incomplete"), startsWith("Bad multipart")));
+        }
+
+        parser = parse(body.substring(0, 40), null, 8);
+        try {
+            parser.getParts();
+            fail("Multipart incomplete");
+        } catch (IOException e) {
+            assertThat(e.getMessage(), startsWith("Incomplete"));
+        }
+    }
+
+    @Test
+    public void testFileTooBig() throws IOException {
+        MultipartConfigElement config = new MultipartConfigElement(tmpDir.getAbsolutePath(), 60, 100 * 1024, 10);
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append('a');
+        }
+        MultiPartFormDataParser parser = parse(createMultipartRequestString(content.toString()), config, 16);
+        try {
+            parser.getParts();
+            fail("stuff.txt should have been larger than maxFileSize");
+        } catch (IllegalStateException e) {
+            assertThat(e.getMessage(), startsWith("Multipart Mime part"));
+        }
+    }
+}
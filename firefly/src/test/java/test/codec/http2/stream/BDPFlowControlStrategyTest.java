@@ -0,0 +1,129 @@
+package test.codec.http2.stream;
+
+import com.firefly.codec.http2.frame.Frame;
+import com.firefly.codec.http2.frame.PingFrame;
+import com.firefly.codec.http2.frame.SettingsFrame;
+import com.firefly.codec.http2.frame.WindowUpdateFrame;
+import com.firefly.codec.http2.stream.BDPFlowControlStrategy;
+import com.firefly.codec.http2.stream.FlowControlStrategy;
+import com.firefly.codec.http2.stream.SessionSPI;
+import com.firefly.utils.concurrent.Callback;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class BDPFlowControlStrategyTest {
+
+    private final List<PingFrame> pings = new ArrayList<>();
+    private final List<Frame> frames = new ArrayList<>();
+    private final SessionSPI session = createSession();
+    private final AtomicLong ticker = new AtomicLong();
+
+    @Test
+    public void testGrowWindows() {
+        int maxWindow = 1024 * 1024;
+        BDPFlowControlStrategy flowControl = new BDPFlowControlStrategy(FlowControlStrategy.DEFAULT_WINDOW_SIZE, 0.5f, maxWindow, ticker::get);
+
+        // the window is filled in a round trip, it is the bottleneck
+        int window = FlowControlStrategy.DEFAULT_WINDOW_SIZE;
+        for (int i = 0; i < 10 && window < maxWindow; i++) {
+            receive(flowControl, window);
+            ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+            Assert.assertThat(flowControl.onPingReply(session, new PingFrame(pings.get(pings.size() - 1).getPayload(), true)), is(true));
+
+            int newWindow = Math.min(window * 2, maxWindow);
+            Assert.assertThat(flowControl.getWindow(), is(newWindow));
+            Assert.assertThat(frames.size(), is(2));
+            SettingsFrame settingsFrame = (SettingsFrame) frames.get(0);
+            Assert.assertThat(settingsFrame.getSettings().get(SettingsFrame.INITIAL_WINDOW_SIZE), is(newWindow));
+            WindowUpdateFrame windowUpdateFrame = (WindowUpdateFrame) frames.get(1);
+            Assert.assertThat(windowUpdateFrame.getStreamId(), is(0));
+            Assert.assertThat(windowUpdateFrame.getWindowDelta(), is(newWindow - window));
+            frames.clear();
+            window = newWindow;
+        }
+        Assert.assertThat(window, is(maxWindow));
+        Assert.assertThat(flowControl.getRoundTripTime(), closeTo(5.0, 0.001));
+
+        // the PINGs are not sent after the max window is reached
+        int count = pings.size();
+        receive(flowControl, 16 * 1024);
+        Assert.assertThat(pings.size(), is(count));
+    }
+
+    @Test
+    public void testWindowIsNotBottleneck() {
+        BDPFlowControlStrategy flowControl = new BDPFlowControlStrategy(FlowControlStrategy.DEFAULT_WINDOW_SIZE, 0.5f,
+                BDPFlowControlStrategy.DEFAULT_MAX_WINDOW_SIZE, ticker::get);
+        receive(flowControl, 16 * 1024);
+        Assert.assertThat(pings.size(), is(1));
+        ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(5));
+        flowControl.onPingReply(session, new PingFrame(pings.get(0).getPayload(), true));
+        Assert.assertThat(flowControl.getWindow(), is(FlowControlStrategy.DEFAULT_WINDOW_SIZE));
+        Assert.assertThat(frames.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRoundTripTime() {
+        BDPFlowControlStrategy flowControl = new BDPFlowControlStrategy(FlowControlStrategy.DEFAULT_WINDOW_SIZE, 0.5f,
+                BDPFlowControlStrategy.DEFAULT_MAX_WINDOW_SIZE, ticker::get);
+        for (int i = 0; i < 10; i++) {
+            reply(flowControl, 10);
+        }
+        Assert.assertThat(flowControl.getRoundTripTime(), closeTo(10.0, 0.001));
+
+        // the smoothed RTT keeps the most weight of the history
+        reply(flowControl, 110);
+        Assert.assertThat(flowControl.getRoundTripTime(), closeTo(20.0, 0.001));
+    }
+
+    @Test
+    public void testApplicationPing() {
+        BDPFlowControlStrategy flowControl = new BDPFlowControlStrategy(0.5f);
+        Assert.assertThat(flowControl.onPingReply(session, new PingFrame(System.nanoTime(), true)), is(false));
+    }
+
+    private void reply(BDPFlowControlStrategy flowControl, long rttMillis) {
+        receive(flowControl, 16 * 1024);
+        ticker.addAndGet(TimeUnit.MILLISECONDS.toNanos(rttMillis));
+        flowControl.onPingReply(session, new PingFrame(pings.get(pings.size() - 1).getPayload(), true));
+    }
+
+    private void receive(BDPFlowControlStrategy flowControl, int length) {
+        int frameLength = 16 * 1024;
+        for (int i = 0; i < length; i += frameLength) {
+            flowControl.onDataReceived(session, null, Math.min(frameLength, length - i));
+        }
+    }
+
+    private SessionSPI createSession() {
+        return (SessionSPI) Proxy.newProxyInstance(SessionSPI.class.getClassLoader(), new Class<?>[]{SessionSPI.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "ping":
+                            pings.add((PingFrame) args[0]);
+                            ((Callback) args[1]).succeeded();
+                            return null;
+                        case "frames":
+                            frames.add((Frame) args[2]);
+                            frames.addAll(Arrays.asList((Frame[]) args[3]));
+                            return null;
+                        case "updateRecvWindow":
+                            return 0;
+                        default:
+                            return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,90 @@
+package test.codec.http2.stream;
+
+import com.firefly.codec.http2.frame.FrameType;
+import com.firefly.utils.concurrent.Callback;
+import test.codec.http2.decode.HTTP2MockSession;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The mock session that holds the write callbacks until the test completes them, it simulates a slow network.
+ * The written frames are recorded with their offsets in the connection.
+ *
+ * @author Pengtao Qiu
+ */
+public class PendingWriteMockSession extends HTTP2MockSession {
+
+    public static class WrittenFrame {
+        public final FrameType type;
+        public final int streamId;
+        public final int length;
+        public final long offset;
+
+        public WrittenFrame(FrameType type, int streamId, int length, long offset) {
+            this.type = type;
+            this.streamId = streamId;
+            this.length = length;
+            this.offset = offset;
+        }
+
+        @Override
+        public String toString() {
+            return type + "#" + streamId + "(" + length + ")@" + offset;
+        }
+    }
+
+    private final LinkedList<Callback> pendingWrites = new LinkedList<>();
+    private final List<List<WrittenFrame>> writes = new ArrayList<>();
+    private long writtenBytes;
+
+    @Override
+    public void write(ByteBuffer[] buffers, Callback callback) {
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+        ByteBuffer data = ByteBuffer.allocate(length);
+        for (ByteBuffer buffer : buffers) {
+            data.put(buffer.slice());
+        }
+        data.flip();
+
+        List<WrittenFrame> frames = new ArrayList<>();
+        while (data.remaining() >= 9) {
+            int frameLength = ((data.get() & 0xFF) << 16) | ((data.get() & 0xFF) << 8) | (data.get() & 0xFF);
+            FrameType type = FrameType.from(data.get());
+            data.get();
+            int streamId = data.getInt() & 0x7F_FF_FF_FF;
+            frames.add(new WrittenFrame(type, streamId, frameLength, writtenBytes + data.position() - 9));
+            data.position(data.position() + frameLength);
+        }
+        writtenBytes += length;
+        writes.add(frames);
+        pendingWrites.offer(callback);
+    }
+
+    /**
+     * Complete the first pending write.
+     *
+     * @return If false, there is no pending write.
+     */
+    public boolean complete() {
+        Callback callback = pendingWrites.poll();
+        if (callback == null) {
+            return false;
+        }
+        callback.succeeded();
+        return true;
+    }
+
+    public List<List<WrittenFrame>> getWrites() {
+        return writes;
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes;
+    }
+}
@@ -0,0 +1,110 @@
+package test.codec.http2.stream;
+
+import com.firefly.codec.http2.encode.Generator;
+import com.firefly.codec.http2.frame.*;
+import com.firefly.codec.http2.model.*;
+import com.firefly.codec.http2.stream.HTTP2Configuration;
+import com.firefly.codec.http2.stream.Session;
+import com.firefly.codec.http2.stream.Stream;
+import com.firefly.server.http2.HTTP2ServerConnection;
+import com.firefly.server.http2.HTTP2ServerDecoder;
+import com.firefly.server.http2.ServerSessionListener;
+import com.firefly.utils.concurrent.Callback;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The HTTP/2 server connection that is driven by the client frames in the test. The server responds every request
+ * with the body size that is in the request path, e.g., /1024. The network is simulated by the
+ * {@link PendingWriteMockSession}.
+ *
+ * @author Pengtao Qiu
+ */
+public class PriorityServerHarness {
+
+    public static final int WINDOW_SIZE = 1 << 30;
+
+    private final PendingWriteMockSession session = new PendingWriteMockSession();
+    private final HTTP2ServerDecoder decoder = new HTTP2ServerDecoder();
+    private final HTTP2ServerConnection connection;
+    private final Generator generator;
+
+    public PriorityServerHarness() throws Throwable {
+        HTTP2Configuration http2Configuration = new HTTP2Configuration();
+        http2Configuration.setFlowControlStrategy("simple");
+        generator = new Generator(http2Configuration.getMaxDynamicTableSize(), http2Configuration.getMaxHeaderBlockFragment());
+        connection = new HTTP2ServerConnection(http2Configuration, session, null, new ServerSessionListener.Adapter() {
+            @Override
+            public Map<Integer, Integer> onPreface(Session session) {
+                return new HashMap<>();
+            }
+
+            @Override
+            public Stream.Listener onNewStream(Stream stream, HeadersFrame frame) {
+                MetaData.Request request = (MetaData.Request) frame.getMetaData();
+                int size = Integer.parseInt(request.getURI().getPath().substring(1));
+                MetaData.Response response = new MetaData.Response(HttpVersion.HTTP_2, 200, new HttpFields());
+                stream.headers(new HeadersFrame(stream.getId(), response, null, false), new Callback() {
+                    @Override
+                    public void succeeded() {
+                        stream.data(new DataFrame(stream.getId(), ByteBuffer.allocate(size), true), Callback.NOOP);
+                    }
+                });
+                return new Stream.Listener.Adapter();
+            }
+        });
+        session.attachObject(connection);
+
+        // The client enlarges the flow control windows, so the server is only limited by the network.
+        Map<Integer, Integer> settings = new HashMap<>();
+        settings.put(SettingsFrame.INITIAL_WINDOW_SIZE, WINDOW_SIZE);
+        decode(ByteBuffer.wrap(PrefaceFrame.PREFACE_BYTES));
+        decode(generator.control(new SettingsFrame(settings, false)));
+        decode(generator.control(new WindowUpdateFrame(0, WINDOW_SIZE - 65535)));
+        while (session.complete()) ;
+    }
+
+    /**
+     * Send a request, the server responds the body of the size.
+     *
+     * @param streamId The stream id.
+     * @param size     The response body size.
+     * @param priority The priority of the request, it may be null.
+     * @throws Throwable The decoding exception.
+     */
+    public void request(int streamId, int size, PriorityFrame priority) throws Throwable {
+        MetaData.Request request = new MetaData.Request("GET", HttpScheme.HTTP,
+                new HostPortHttpField("localhost:8080"), "/" + size, HttpVersion.HTTP_2, new HttpFields());
+        decode(generator.control(new HeadersFrame(streamId, request, priority, true)));
+    }
+
+    public void priority(int streamId, int parentStreamId, int weight, boolean exclusive) throws Throwable {
+        decode(generator.control(new PriorityFrame(streamId, parentStreamId, weight, exclusive)));
+    }
+
+    private void decode(List<ByteBuffer> buffers) throws Throwable {
+        for (ByteBuffer buffer : buffers) {
+            decode(buffer);
+        }
+    }
+
+    private void decode(ByteBuffer buffer) throws Throwable {
+        decoder.decode(buffer, session);
+    }
+
+    public PendingWriteMockSession getSession() {
+        return session;
+    }
+
+    public HTTP2ServerConnection getConnection() {
+        return connection;
+    }
+
+    public void close() throws IOException {
+        connection.close();
+    }
+}
@@ -0,0 +1,123 @@
+package test.codec.http2.stream;
+
+import com.firefly.codec.http2.frame.FrameType;
+import com.firefly.codec.http2.frame.PriorityFrame;
+import com.firefly.codec.http2.stream.HTTP2Session;
+import com.firefly.codec.http2.stream.StreamPriorityTree;
+import org.junit.Assert;
+import org.junit.Test;
+import test.codec.http2.stream.PendingWriteMockSession.WrittenFrame;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class StreamPriorityTreeTest {
+
+    @Test
+    public void testDependency() {
+        StreamPriorityTree tree = new StreamPriorityTree();
+        tree.prioritize(1, 0, 16, false);
+        tree.prioritize(3, 0, 48, false);
+        Assert.assertThat(tree.getShare(1), is(0.25));
+        Assert.assertThat(tree.getShare(3), is(0.75));
+
+        // 5 becomes the sole dependency of the root
+        tree.prioritize(5, 0, 32, true);
+        Assert.assertThat(tree.getParentStreamId(1), is(5));
+        Assert.assertThat(tree.getParentStreamId(3), is(5));
+        Assert.assertThat(tree.getShare(5), is(1.0));
+        Assert.assertThat(tree.isBlocked(1, id -> id == 5), is(true));
+        Assert.assertThat(tree.isBlocked(1, id -> id == 3), is(false));
+
+        // 5 depends on its dependency 1, so 1 is moved to the former parent of 5
+        tree.prioritize(5, 1, 32, false);
+        Assert.assertThat(tree.getParentStreamId(1), is(0));
+        Assert.assertThat(tree.getParentStreamId(5), is(1));
+        Assert.assertThat(tree.getParentStreamId(3), is(5));
+
+        // the weight of the removed stream is distributed to its dependencies
+        tree.prioritize(7, 5, 16, false);
+        tree.remove(5);
+        Assert.assertThat(tree.getParentStreamId(3), is(1));
+        Assert.assertThat(tree.getParentStreamId(7), is(1));
+        Assert.assertThat(tree.getWeight(3), is(24));
+        Assert.assertThat(tree.getWeight(7), is(8));
+        Assert.assertThat(tree.size(), is(3));
+    }
+
+    @Test
+    public void testMaxNodes() {
+        StreamPriorityTree tree = new StreamPriorityTree(2);
+        tree.prioritize(1, 0, 100, false);
+        tree.prioritize(3, 0, 100, false);
+        tree.prioritize(5, 0, 100, false);
+        Assert.assertThat(tree.size(), is(2));
+        Assert.assertThat(tree.getWeight(5), is(StreamPriorityTree.DEFAULT_WEIGHT));
+    }
+
+    @Test
+    public void testSmallStreamIsNotBlockedByBulkTransfer() throws Throwable {
+        PriorityServerHarness harness = new PriorityServerHarness();
+        PendingWriteMockSession session = harness.getSession();
+        int bulkSize = 4 * 1024 * 1024;
+        harness.request(1, bulkSize, null);
+        harness.request(3, 1024, new PriorityFrame(3, 0, 256, false));
+
+        // the small response is written after the first write of the bulk transfer
+        while (session.complete()) ;
+        WrittenFrame firstSmallData = null;
+        long bulkWritten = 0;
+        for (List<WrittenFrame> write : session.getWrites()) {
+            for (WrittenFrame frame : write) {
+                if (frame.type == FrameType.DATA) {
+                    if (frame.streamId == 3 && firstSmallData == null) {
+                        firstSmallData = frame;
+                    } else if (frame.streamId == 1 && firstSmallData == null) {
+                        bulkWritten += frame.length;
+                    }
+                }
+            }
+        }
+        Assert.assertThat(firstSmallData, notNullValue());
+        Assert.assertThat(bulkWritten, lessThanOrEqualTo(128L * 1024));
+        Assert.assertThat(session.getWrittenBytes(), greaterThan((long) bulkSize));
+
+        HTTP2Session http2Session = (HTTP2Session) harness.getConnection().getHttp2Session();
+        Assert.assertThat(http2Session.getPriorityTree().size(), is(0));
+        harness.close();
+    }
+
+    @Test
+    public void testWeight() throws Throwable {
+        PriorityServerHarness harness = new PriorityServerHarness();
+        PendingWriteMockSession session = harness.getSession();
+        int size = 1024 * 1024;
+        harness.request(1, size, null);
+        harness.request(3, size, null);
+        harness.priority(1, 0, 64, false);
+        harness.priority(3, 0, 192, false);
+
+        // the stream 3 gets 3/4 of the connection until it completes
+        while (session.complete()) ;
+        long stream1 = 0;
+        long stream3 = 0;
+        for (List<WrittenFrame> write : session.getWrites()) {
+            for (WrittenFrame frame : write) {
+                if (frame.type == FrameType.DATA && stream3 < size) {
+                    if (frame.streamId == 1) {
+                        stream1 += frame.length;
+                    } else if (frame.streamId == 3) {
+                        stream3 += frame.length;
+                    }
+                }
+            }
+        }
+        Assert.assertThat(stream3, is((long) size));
+        Assert.assertThat((double) stream1 / stream3, closeTo(1.0 / 3.0, 0.05));
+        harness.close();
+    }
+}
@@ -0,0 +1,123 @@
+package test.http;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A local TCP proxy that delays the bytes of both directions, it simulates the latency of a long distance link. The
+ * bandwidth is not limited, so the throughput of a connection is limited by the latency and the flow control windows.
+ *
+ * @author Pengtao Qiu
+ */
+public class DelayProxy implements AutoCloseable {
+
+    private final ServerSocket serverSocket;
+    private final String targetHost;
+    private final int targetPort;
+    private final long delay;
+    private volatile boolean closed;
+
+    /**
+     * Create a proxy.
+     *
+     * @param port       The proxy port.
+     * @param targetHost The target host.
+     * @param targetPort The target port.
+     * @param delay      The one way delay in milliseconds, the round-trip time is twice the delay.
+     * @throws IOException If the proxy can not listen the port.
+     */
+    public DelayProxy(int port, String targetHost, int targetPort, long delay) throws IOException {
+        this.targetHost = targetHost;
+        this.targetPort = targetPort;
+        this.delay = delay;
+        serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress("localhost", port));
+        startThread("delay-proxy-acceptor", this::accept);
+    }
+
+    private void accept() {
+        while (!closed) {
+            try {
+                Socket client = serverSocket.accept();
+                Socket target = new Socket(targetHost, targetPort);
+                client.setTcpNoDelay(true);
+                target.setTcpNoDelay(true);
+                forward(client, target);
+                forward(target, client);
+            } catch (IOException e) {
+                if (!closed) {
+                    e.printStackTrace();
+                }
+            }
+        }
+    }
+
+    private void forward(Socket from, Socket to) {
+        BlockingQueue<Packet> packets = new LinkedBlockingQueue<>();
+        startThread("delay-proxy-reader", () -> {
+            byte[] buf = new byte[64 * 1024];
+            try (InputStream in = from.getInputStream()) {
+                int len;
+                while ((len = in.read(buf)) >= 0) {
+                    packets.offer(new Packet(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay),
+                            Arrays.copyOf(buf, len)));
+                }
+            } catch (IOException ignored) {
+            }
+            packets.offer(new Packet(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay), null));
+        });
+        startThread("delay-proxy-writer", () -> {
+            try (OutputStream out = to.getOutputStream()) {
+                while (true) {
+                    Packet packet = packets.take();
+                    long wait = packet.time - System.nanoTime();
+                    if (wait > 0) {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    }
+                    if (packet.data == null) {
+                        break;
+                    }
+                    out.write(packet.data);
+                    out.flush();
+                }
+            } catch (IOException | InterruptedException ignored) {
+            }
+            try {
+                from.close();
+                to.close();
+            } catch (IOException ignored) {
+            }
+        });
+    }
+
+    private static void startThread(String name, Runnable runnable) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+    }
+
+    private static class Packet {
+        final long time;
+        final byte[] data;
+
+        Packet(long time, byte[] data) {
+            this.time = time;
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package test.http;
+
+import com.firefly.$;
+import com.firefly.client.http2.SimpleHTTPClient;
+import com.firefly.client.http2.SimpleHTTPClientConfiguration;
+import com.firefly.client.http2.SimpleResponse;
+import com.firefly.server.http2.SimpleHTTPServer;
+import com.firefly.server.http2.SimpleHTTPServerConfiguration;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The throughput of the bulk downloads on a long distance link. The link is simulated by a local proxy that delays
+ * the bytes, the client downloads the responses through the proxy with the different flow control strategies.
+ *
+ * @author Pengtao Qiu
+ */
+public class HTTP2FlowControlBenchmark {
+
+    private static final int BULK_SIZE = 8 * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        int port = 1340;
+        int proxyPort = 1341;
+        long delay = 10; // 20ms round-trip time
+
+        byte[] chunk = new byte[16 * 1024];
+        SimpleHTTPServerConfiguration serverConfig = new SimpleHTTPServerConfiguration();
+        serverConfig.setSecureConnectionEnabled(true);
+        SimpleHTTPServer server = $.createHTTPServer(serverConfig);
+        server.headerComplete(r -> r.messageComplete(request -> {
+            // the writes wait for the flow control windows, so they are not in the I/O thread
+            request.getAsyncResponse();
+            new Thread(() -> {
+                try (OutputStream out = request.getResponse().getOutputStream()) {
+                    for (int i = 0; i < BULK_SIZE / chunk.length; i++) {
+                        out.write(chunk);
+                    }
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            }).start();
+        })).listen("localhost", port);
+
+        System.out.println("bulk: " + BULK_SIZE + " bytes, rtt: " + delay * 2 + "ms");
+        try (DelayProxy ignored = new DelayProxy(proxyPort, "localhost", port, delay)) {
+            test("buffer", proxyPort);
+            test("bdp", proxyPort);
+        }
+        server.stop();
+        System.exit(0);
+    }
+
+    private static void test(String flowControlStrategy, int port) throws Exception {
+        SimpleHTTPClientConfiguration clientConfig = new SimpleHTTPClientConfiguration();
+        clientConfig.setSecureConnectionEnabled(true);
+        clientConfig.setFlowControlStrategy(flowControlStrategy);
+        SimpleHTTPClient client = $.createHTTPClient(clientConfig);
+        String url = "https://localhost:" + port + "/";
+        try {
+            // the first download warms up the connection and the flow control windows
+            download(client, url);
+            for (int i = 0; i < 3; i++) {
+                long start = System.nanoTime();
+                long length = download(client, url);
+                long time = System.nanoTime() - start;
+                System.out.println(String.format("%s: %d bytes, %d ms, %.2f MB/s", flowControlStrategy,
+                        length, time / 1000_000, length * 1000.0 / time));
+            }
+        } finally {
+            client.stop();
+        }
+    }
+
+    private static long download(SimpleHTTPClient client, String url) throws Exception {
+        SimpleResponse response = client.get(url).submit().get();
+        long length = 0;
+        for (ByteBuffer buffer : response.getResponseBody()) {
+            length += buffer.remaining();
+        }
+        if (length != BULK_SIZE) {
+            throw new IllegalStateException("the response length is " + length);
+        }
+        return length;
+    }
+}
@@ -0,0 +1,128 @@
+package test.http;
+
+import com.firefly.$;
+import com.firefly.client.http2.HTTP2ConnectionManager;
+import com.firefly.client.http2.SimpleHTTPClient;
+import com.firefly.client.http2.SimpleHTTPClientConfiguration;
+import com.firefly.client.http2.SimpleResponse;
+import com.firefly.codec.http2.model.HttpVersion;
+import com.firefly.server.http2.SimpleHTTPServer;
+import com.firefly.server.http2.SimpleHTTPServerConfiguration;
+import com.firefly.utils.concurrent.ThreadUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestHTTP2ConnectionManager {
+
+    @Test
+    public void test() throws Exception {
+        int port = 1334;
+        int maxStreams = 2;
+        int poolSize = 4;
+        String url = "https://localhost:" + port + "/";
+
+        SimpleHTTPServerConfiguration serverConfig = new SimpleHTTPServerConfiguration();
+        serverConfig.setSecureConnectionEnabled(true);
+        serverConfig.setMaxConcurrentStreams(maxStreams);
+        SimpleHTTPServer server = $.createHTTPServer(serverConfig);
+        server.headerComplete(r -> r.messageComplete(request -> {
+            request.getAsyncResponse();
+            new Thread(() -> {
+                // keep the streams active for a while
+                ThreadUtils.sleep(100L);
+                try (PrintWriter writer = request.getResponse().getPrintWriter()) {
+                    writer.print("ok");
+                }
+            }).start();
+        })).listen("localhost", port);
+
+        SimpleHTTPClientConfiguration clientConfig = new SimpleHTTPClientConfiguration();
+        clientConfig.setSecureConnectionEnabled(true);
+        clientConfig.setPoolSize(poolSize);
+        SimpleHTTPClient client = $.createHTTPClient(clientConfig);
+        try {
+            // the first exchange receives the server settings
+            Assert.assertThat(client.get(url).submit().get().getStringBody(), is("ok"));
+            HTTP2ConnectionManager manager = client.getConnectionManager("localhost", port);
+            Assert.assertThat(manager.getHttpVersion(), is(HttpVersion.HTTP_2));
+            Assert.assertThat(manager.getConnectionSize(), is(1));
+
+            List<CompletableFuture<SimpleResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                futures.add(client.get(url).submit());
+            }
+            for (CompletableFuture<SimpleResponse> future : futures) {
+                Assert.assertThat(future.get().getStringBody(), is("ok"));
+            }
+
+            // the saturated connections cause the new connections, but the pool size is not exceeded
+            Assert.assertThat(manager.getConnectionSize(), greaterThan(1));
+            Assert.assertThat(manager.getConnectionSize(), lessThanOrEqualTo(poolSize));
+
+            // the stream is released after the response future completes
+            for (int i = 0; i < 20 && manager.getActiveStreamSize() > 0; i++) {
+                ThreadUtils.sleep(50L);
+            }
+            Assert.assertThat(manager.getActiveStreamSize(), is(0));
+            Assert.assertThat(manager.getWaitingSize(), is(0));
+        } finally {
+            client.stop();
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testServerWithoutMaxConcurrentStreams() throws Exception {
+        int port = 1335;
+        String url = "https://localhost:" + port + "/";
+
+        // the server settings do not contain the SETTINGS_MAX_CONCURRENT_STREAMS
+        SimpleHTTPServerConfiguration serverConfig = new SimpleHTTPServerConfiguration();
+        serverConfig.setSecureConnectionEnabled(true);
+        SimpleHTTPServer server = $.createHTTPServer(serverConfig);
+        server.headerComplete(r -> r.messageComplete(request -> {
+            request.getAsyncResponse();
+            new Thread(() -> {
+                ThreadUtils.sleep(100L);
+                try (PrintWriter writer = request.getResponse().getPrintWriter()) {
+                    writer.print("ok");
+                }
+            }).start();
+        })).listen("localhost", port);
+
+        SimpleHTTPClientConfiguration clientConfig = new SimpleHTTPClientConfiguration();
+        clientConfig.setSecureConnectionEnabled(true);
+        clientConfig.setPoolSize(4);
+        clientConfig.setMaxStreamsPerConnection(16);
+        SimpleHTTPClient client = $.createHTTPClient(clientConfig);
+        try {
+            Assert.assertThat(client.get(url).submit().get().getStringBody(), is("ok"));
+            HTTP2ConnectionManager manager = client.getConnectionManager("localhost", port);
+            Assert.assertThat(manager.getHttpVersion(), is(HttpVersion.HTTP_2));
+
+            List<CompletableFuture<SimpleResponse>> futures = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                futures.add(client.get(url).submit());
+            }
+            for (CompletableFuture<SimpleResponse> future : futures) {
+                Assert.assertThat(future.get().getStringBody(), is("ok"));
+            }
+
+            // the settings are received, the streams are multiplexed up to the max streams per connection
+            Assert.assertThat(manager.getConnectionSize(), is(1));
+        } finally {
+            client.stop();
+            server.stop();
+        }
+    }
+}
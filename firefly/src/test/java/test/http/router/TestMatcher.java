@@ -182,4 +182,70 @@ public class TestMatcher {
         Assert.assertThat(result.getRouters().contains(router9), is(true));
         Assert.assertThat(result.getParameters().get(router9).get("group1"), is("113"));
     }
+
+    @Test
+    public void testRouteTable() {
+        RouterManagerImpl routerManager = new RouterManagerImpl();
+        Router router0 = routerManager.register().path("/hello/foo");
+        Router router1 = routerManager.register().path("/");
+        Router router2 = routerManager.register().path("/hello*");
+        Router router3 = routerManager.register().path("/static/*");
+        Router router4 = routerManager.register().path("/he*/*");
+        Router router5 = routerManager.register().get("/hello/:foo");
+        Router router6 = routerManager.register().path("/:hello/:foo/");
+        Router router7 = routerManager.register().pathRegex("/hello(\\d*)");
+        Router router8 = routerManager.register().method("GET");
+        for (int i = 0; i < 200; i++) {
+            routerManager.register().get("/api/" + i + "/:id");
+        }
+
+        NavigableSet<RouterManager.RouterMatchResult> result = routerManager.findRouter("GET", "/hello/foo", null, null);
+        Assert.assertThat(result.size(), is(6));
+        Assert.assertThat(result.first().getRouter(), is(router0));
+        Assert.assertThat(result.pollFirst().getParameters().isEmpty(), is(true));
+        Assert.assertThat(result.first().getRouter(), is(router2));
+        Assert.assertThat(result.pollFirst().getParameters().get("param0"), is("/foo"));
+        Assert.assertThat(result.first().getRouter(), is(router4));
+        Assert.assertThat(result.pollFirst().getParameters().get("param1"), is("foo"));
+        Assert.assertThat(result.first().getRouter(), is(router5));
+        Assert.assertThat(result.pollFirst().getParameters().get("foo"), is("foo"));
+        Assert.assertThat(result.first().getRouter(), is(router6));
+        Assert.assertThat(result.pollFirst().getParameters().get("hello"), is("hello"));
+        Assert.assertThat(result.first().getRouter(), is(router8));
+
+        result = routerManager.findRouter("POST", "/hello/foo/", null, null);
+        Assert.assertThat(result.size(), is(4));
+        Assert.assertThat(result.last().getRouter(), is(router6));
+
+        result = routerManager.findRouter("POST", "/", null, null);
+        Assert.assertThat(result.size(), is(1));
+        Assert.assertThat(result.first().getRouter(), is(router1));
+
+        result = routerManager.findRouter("PUT", "/static/js/app.js", null, null);
+        Assert.assertThat(result.size(), is(1));
+        Assert.assertThat(result.first().getRouter(), is(router3));
+        Assert.assertThat(result.first().getParameters().get("param0"), is("js/app.js"));
+
+        result = routerManager.findRouter("PUT", "/hello113", null, null);
+        Assert.assertThat(result.size(), is(2));
+        Assert.assertThat(result.first().getRouter(), is(router2));
+        Assert.assertThat(result.last().getRouter(), is(router7));
+        Assert.assertThat(result.last().getParameters().get("group1"), is("113"));
+
+        result = routerManager.findRouter("GET", "/api/150/33", null, null);
+        Assert.assertThat(result.size(), is(2));
+        Assert.assertThat(result.first().getRouter(), is(router8));
+        Assert.assertThat(result.last().getParameters().get("id"), is("33"));
+
+        router8.disable();
+        result = routerManager.findRouter("GET", "/api/150/33", null, null);
+        Assert.assertThat(result.size(), is(1));
+        Assert.assertThat(result.first().getParameters().get("id"), is("33"));
+
+        router8.enable();
+        Router router9 = routerManager.register().get("/api/150/33");
+        result = routerManager.findRouter("GET", "/api/150/33", null, null);
+        Assert.assertThat(result.size(), is(3));
+        Assert.assertThat(result.last().getRouter(), is(router9));
+    }
 }
@@ -7,6 +7,7 @@ import com.firefly.codec.http2.model.HttpStatus;
 import com.firefly.codec.http2.stream.HTTPOutputStream;
 import com.firefly.server.http2.HTTP2ServerBuilder;
 import com.firefly.utils.concurrent.Promise;
+import com.firefly.utils.lang.GenericTypeReference;
 import org.junit.Assert;
 import org.junit.Test;
 import test.http.router.handler.AbstractHTTPHandlerTest;
@@ -123,6 +124,36 @@ public class TestHTTPBodyHandler extends AbstractHTTPHandlerTest {
         $.httpClient().stop();
     }
 
+    @Test
+    public void testPostJson() {
+        Phaser phaser = new Phaser(3);
+        String json = "[\"测试\",\"json\"]";
+
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        httpServer.router().post("/json").handler(ctx -> {
+            // the body is read once and the later calls decode the cached bytes
+            List<String> names = ctx.getJsonBody(new GenericTypeReference<List<String>>() {
+            });
+            Assert.assertThat(names.size(), is(2));
+            Assert.assertThat(names.get(0), is("测试"));
+            Assert.assertThat(ctx.getStringBody(), is(json));
+            Assert.assertThat(ctx.getJsonArrayBody().getString(1), is("json"));
+            ctx.end("server received json");
+            phaser.arrive();
+        }).listen(host, port);
+
+        $.httpClient().post(uri + "/json").body(json).submit()
+         .thenAccept(res -> {
+             Assert.assertThat(res.getStatus(), is(HttpStatus.OK_200));
+             Assert.assertThat(res.getStringBody(), is("server received json"));
+             phaser.arrive();
+         });
+
+        phaser.arriveAndAwaitAdvance();
+        httpServer.stop();
+        $.httpClient().stop();
+    }
+
     @Test
     public void testPostForm() {
         Phaser phaser = new Phaser(3);
@@ -3,6 +3,8 @@ package test.http.router.handler.body;
 import com.firefly.$;
 import com.firefly.codec.http2.model.*;
 import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.SimpleHTTPServerConfiguration;
+import com.firefly.server.http2.router.handler.body.HTTPBodyConfiguration;
 import org.junit.Assert;
 import org.junit.Test;
 import test.http.router.handler.AbstractHTTPHandlerTest;
@@ -16,6 +18,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Phaser;
 
 import static org.hamcrest.Matchers.*;
@@ -152,4 +155,46 @@ public class TestMultiPartContentProvider extends AbstractHTTPHandlerTest {
         httpServer.stop();
         $.httpClient().stop();
     }
+
+    @Test
+    public void testMultiPartStreaming() {
+        Phaser phaser = new Phaser(3);
+
+        HTTPBodyConfiguration bodyConfiguration = new HTTPBodyConfiguration();
+        bodyConfiguration.setMultipartStreaming(true);
+        HTTP2ServerBuilder httpServer = $.httpServer(new SimpleHTTPServerConfiguration(), bodyConfiguration);
+        httpServer.router().post("/upload/streaming").handler(ctx -> {
+            List<String> values = new CopyOnWriteArrayList<>();
+            ctx.partComplete(part -> {
+                // the part arrives before the request body is received completely
+                Assert.assertThat(ctx.getRequest().isMessageComplete(), is(false));
+                try (InputStream in = part.getInputStream()) {
+                    values.add(part.getName() + "=" + $.io.toString(in));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }).messageComplete(req -> {
+                Assert.assertThat(values.size(), is(2));
+                Assert.assertThat(values.get(0), is("test1=hello multi part1"));
+                Assert.assertThat(values.get(1), is("test2=hello multi part2"));
+                Assert.assertThat(ctx.getParts().size(), is(2));
+                ctx.end("server received " + values.size() + " parts");
+                phaser.arrive();
+            });
+        }).listen(host, port);
+
+        $.httpClient().post(uri + "/upload/streaming")
+         .addFieldPart("test1", new StringContentProvider("hello multi part1"), null)
+         .addFieldPart("test2", new StringContentProvider("hello multi part2"), null)
+         .submit()
+         .thenAccept(res -> {
+             Assert.assertThat(res.getStatus(), is(HttpStatus.OK_200));
+             Assert.assertThat(res.getStringBody(), is("server received 2 parts"));
+             phaser.arrive();
+         });
+
+        phaser.arriveAndAwaitAdvance();
+        httpServer.stop();
+        $.httpClient().stop();
+    }
 }
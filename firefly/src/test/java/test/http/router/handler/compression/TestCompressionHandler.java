@@ -0,0 +1,122 @@
+package test.http.router.handler.compression;
+
+import com.firefly.$;
+import com.firefly.client.http2.SimpleResponse;
+import com.firefly.codec.http2.model.HttpHeader;
+import com.firefly.codec.http2.model.HttpStatus;
+import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.router.handler.compression.CompressionHandler;
+import com.firefly.server.http2.router.handler.file.StaticFileHandler;
+import org.junit.Assert;
+import org.junit.Test;
+import test.http.router.handler.AbstractHTTPHandlerTest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestCompressionHandler extends AbstractHTTPHandlerTest {
+
+    private static String text(int lines) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            text.append("compressible line ").append(i).append("\n");
+        }
+        return text.toString();
+    }
+
+    @Test
+    public void test() throws Exception {
+        String bigText = text(5000);
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        httpServer.router().path("*").handler(new CompressionHandler())
+                  .router().get("/big").handler(ctx -> ctx.put(HttpHeader.CONTENT_TYPE, "text/plain").end(bigText))
+                  .router().get("/small").handler(ctx -> ctx.put(HttpHeader.CONTENT_TYPE, "text/plain").end("hello"))
+                  .router().get("/binary").handler(ctx -> ctx.put(HttpHeader.CONTENT_TYPE, "image/png").end(bigText))
+                  .listen(host, port);
+
+        try {
+            SimpleResponse res = $.httpClient().get(uri + "/big").put(HttpHeader.ACCEPT_ENCODING, "gzip").submit().get();
+            Assert.assertThat(res.getStatus(), is(HttpStatus.OK_200));
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_ENCODING), is("gzip"));
+            Assert.assertThat(res.getFields().get(HttpHeader.VARY), is("Accept-Encoding"));
+            Assert.assertThat(res.getStringBody(), is(bigText));
+
+            res = $.httpClient().get(uri + "/big").put(HttpHeader.ACCEPT_ENCODING, "gzip;q=0.5, deflate").submit().get();
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_ENCODING), is("deflate"));
+            Assert.assertThat(res.getStringBody(), is(bigText));
+
+            res = $.httpClient().get(uri + "/big").put(HttpHeader.ACCEPT_ENCODING, "br").submit().get();
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_ENCODING), nullValue());
+            Assert.assertThat(res.getStringBody(), is(bigText));
+
+            res = $.httpClient().get(uri + "/small").put(HttpHeader.ACCEPT_ENCODING, "gzip").submit().get();
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_ENCODING), nullValue());
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_LENGTH), is("5"));
+            Assert.assertThat(res.getStringBody(), is("hello"));
+
+            res = $.httpClient().get(uri + "/binary").put(HttpHeader.ACCEPT_ENCODING, "gzip").submit().get();
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_ENCODING), nullValue());
+            Assert.assertThat(res.getStringBody(), is(bigText));
+        } finally {
+            httpServer.stop();
+            $.httpClient().stop();
+        }
+    }
+
+    @Test
+    public void testStaticFile() throws Exception {
+        Path root = Files.createTempDirectory("testCompressionHandler");
+        String smallText = text(100);
+        String bigText = text(20000);
+        Path smallFile = root.resolve("small.txt");
+        Path bigFile = root.resolve("big.js");
+        Files.write(smallFile, smallText.getBytes(StandardCharsets.UTF_8));
+        Files.write(bigFile, bigText.getBytes(StandardCharsets.UTF_8));
+        smallFile.toFile().deleteOnExit();
+        bigFile.toFile().deleteOnExit();
+        root.toFile().deleteOnExit();
+
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        httpServer.router().path("*").handler(new CompressionHandler())
+                  .router().get("/*").handler(new StaticFileHandler(root.toAbsolutePath().toString()))
+                  .listen(host, port);
+
+        try {
+            SimpleResponse res = $.httpClient().get(uri + "/small.txt").put(HttpHeader.ACCEPT_ENCODING, "gzip").submit().get();
+            Assert.assertThat(res.getStatus(), is(HttpStatus.OK_200));
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_ENCODING), is("gzip"));
+            Assert.assertThat(res.getStringBody(), is(smallText));
+
+            res = $.httpClient().get(uri + "/small.txt").submit().get();
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_ENCODING), nullValue());
+            Assert.assertThat(res.getStringBody(), is(smallText));
+
+            // compressed on the fly
+            res = $.httpClient().get(uri + "/big.js").put(HttpHeader.ACCEPT_ENCODING, "gzip").submit().get();
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_ENCODING), is("gzip"));
+            Assert.assertThat(res.getStringBody(), is(bigText));
+
+            // the precompressed sibling file
+            Path gzipFile = root.resolve("big.js.gz");
+            gzipFile.toFile().deleteOnExit();
+            try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(gzipFile))) {
+                out.write(bigText.getBytes(StandardCharsets.UTF_8));
+            }
+            res = $.httpClient().get(uri + "/big.js").put(HttpHeader.ACCEPT_ENCODING, "gzip").submit().get();
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_ENCODING), is("gzip"));
+            Assert.assertThat(res.getFields().get(HttpHeader.CONTENT_LENGTH), is(String.valueOf(Files.size(gzipFile))));
+            Assert.assertThat(res.getStringBody(), is(bigText));
+        } finally {
+            httpServer.stop();
+            $.httpClient().stop();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package test.http.router.handler.executor;
+
+import com.firefly.$;
+import com.firefly.codec.http2.model.HttpStatus;
+import com.firefly.server.http2.HTTP2ServerBuilder;
+import org.junit.Assert;
+import org.junit.Test;
+import test.http.router.handler.AbstractHTTPHandlerTest;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestBlockingHandler extends AbstractHTTPHandlerTest {
+
+    @Test
+    public void testBlockingHandler() throws Exception {
+        Phaser phaser = new Phaser(3);
+        AtomicReference<Thread> ioThread = new AtomicReference<>();
+
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        httpServer.router().path("*").handler(ctx -> {
+            ioThread.set(Thread.currentThread());
+            ctx.next();
+        }).router().post("/blocking").blocking().handler(ctx -> {
+            Assert.assertThat(Thread.currentThread(), not(ioThread.get()));
+            try {
+                Thread.sleep(100L);
+            } catch (InterruptedException ignored) {
+            }
+            // the response is closed after the handler returns
+            ctx.write("blocking handler received: ").write(ctx.getStringBody());
+            phaser.arrive();
+        }).router().get("/nonBlocking").nonBlocking().handler(ctx -> {
+            Assert.assertThat(Thread.currentThread(), is(ioThread.get()));
+            ctx.end("non-blocking");
+        }).listen(host, port);
+
+        $.httpClient().post(uri + "/blocking").body("hello").submit()
+         .thenAccept(res -> {
+             Assert.assertThat(res.getStatus(), is(HttpStatus.OK_200));
+             Assert.assertThat(res.getStringBody(), is("blocking handler received: hello"));
+             phaser.arrive();
+         });
+
+        phaser.arriveAndAwaitAdvance();
+
+        Assert.assertThat($.httpClient().get(uri + "/nonBlocking").submit().get().getStringBody(), is("non-blocking"));
+        httpServer.stop();
+        $.httpClient().stop();
+    }
+
+    @Test
+    public void testConcurrencyLimit() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Phaser phaser = new Phaser(2);
+
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        httpServer.router().get("/limited").blocking(1, 0).handler(ctx -> {
+            running.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+            }
+            ctx.end("done");
+        }).listen(host, port);
+
+        $.httpClient().get(uri + "/limited").submit()
+         .thenAccept(res -> {
+             Assert.assertThat(res.getStatus(), is(HttpStatus.OK_200));
+             Assert.assertThat(res.getStringBody(), is("done"));
+             phaser.arrive();
+         });
+        Assert.assertThat(running.await(10, TimeUnit.SECONDS), is(true));
+
+        // the router runs one handler at most and it has no waiting queue
+        Assert.assertThat($.httpClient().get(uri + "/limited").submit().get().getStatus(), is(HttpStatus.SERVICE_UNAVAILABLE_503));
+        release.countDown();
+
+        phaser.arriveAndAwaitAdvance();
+        httpServer.stop();
+        $.httpClient().stop();
+    }
+}
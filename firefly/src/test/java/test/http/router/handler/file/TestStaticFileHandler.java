@@ -1,16 +1,20 @@
 package test.http.router.handler.file;
 
 import com.firefly.$;
+import com.firefly.client.http2.SimpleResponse;
 import com.firefly.codec.http2.model.HttpFields;
 import com.firefly.codec.http2.model.HttpHeader;
 import com.firefly.codec.http2.model.HttpStatus;
 import com.firefly.server.http2.HTTP2ServerBuilder;
+import com.firefly.server.http2.router.handler.file.StaticFileConfiguration;
 import com.firefly.server.http2.router.handler.file.StaticFileHandler;
 import org.junit.Assert;
 import org.junit.Test;
 import test.http.router.handler.AbstractHTTPHandlerTest;
 
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.concurrent.Phaser;
@@ -128,4 +132,75 @@ public class TestStaticFileHandler extends AbstractHTTPHandlerTest {
         httpServer.stop();
         $.httpClient().stop();
     }
+
+    @Test
+    public void testConditionalGet() throws Exception {
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        Path path = Paths.get(TestStaticFileHandler.class.getResource("/").toURI());
+        StaticFileHandler staticFileHandler = new StaticFileHandler(path.toAbsolutePath().toString());
+        httpServer.router().get("/static/*").handler(staticFileHandler).listen(host, port);
+
+        try {
+            SimpleResponse res = $.httpClient().get(uri + "/static/hello.txt").submit().get();
+            Assert.assertThat(res.getStatus(), is(HttpStatus.OK_200));
+            Assert.assertThat(res.getStringBody(), is("hello static file"));
+            Assert.assertThat(staticFileHandler.getCache().count(), is(1));
+            String eTag = res.getFields().get(HttpHeader.ETAG);
+            String lastModified = res.getFields().get(HttpHeader.LAST_MODIFIED);
+            Assert.assertThat(eTag.startsWith("W/"), is(true));
+
+            res = $.httpClient().get(uri + "/static/hello.txt").put(HttpHeader.IF_NONE_MATCH, eTag).submit().get();
+            Assert.assertThat(res.getStatus(), is(HttpStatus.NOT_MODIFIED_304));
+            Assert.assertThat(res.getFields().get(HttpHeader.ETAG), is(eTag));
+
+            res = $.httpClient().get(uri + "/static/hello.txt")
+                    .put(HttpHeader.IF_MODIFIED_SINCE, lastModified).submit().get();
+            Assert.assertThat(res.getStatus(), is(HttpStatus.NOT_MODIFIED_304));
+
+            res = $.httpClient().get(uri + "/static/hello.txt")
+                    .put(HttpHeader.IF_NONE_MATCH, "\"xyz\"")
+                    .put(HttpHeader.IF_MODIFIED_SINCE, lastModified).submit().get();
+            Assert.assertThat(res.getStatus(), is(HttpStatus.OK_200));
+            Assert.assertThat(res.getStringBody(), is("hello static file"));
+        } finally {
+            httpServer.stop();
+            $.httpClient().stop();
+        }
+    }
+
+    @Test
+    public void testUncachedFile() throws Exception {
+        Path root = Files.createTempDirectory("testStaticFileHandler");
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            text.append("line ").append(i).append("\n");
+        }
+        Path file = root.resolve("big.txt");
+        Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+        file.toFile().deleteOnExit();
+        root.toFile().deleteOnExit();
+
+        StaticFileConfiguration configuration = new StaticFileConfiguration();
+        configuration.setRootPath(root.toAbsolutePath().toString());
+        configuration.setFileChunkSize(8 * 1024);
+        configuration.setMaxInFlightFileChunks(2);
+        StaticFileHandler staticFileHandler = new StaticFileHandler(configuration);
+
+        HTTP2ServerBuilder httpServer = $.httpServer();
+        httpServer.router().get("/*").handler(staticFileHandler).listen(host, port);
+
+        try {
+            SimpleResponse res = $.httpClient().get(uri + "/big.txt").submit().get();
+            Assert.assertThat(res.getStatus(), is(HttpStatus.OK_200));
+            Assert.assertThat(res.getStringBody(), is(text.toString()));
+            Assert.assertThat(staticFileHandler.getCache().count(), is(0));
+
+            res = $.httpClient().get(uri + "/big.txt").put(HttpHeader.RANGE, "bytes=100000-100009").submit().get();
+            Assert.assertThat(res.getStatus(), is(HttpStatus.PARTIAL_CONTENT_206));
+            Assert.assertThat(res.getStringBody(), is(text.substring(100000, 100010)));
+        } finally {
+            httpServer.stop();
+            $.httpClient().stop();
+        }
+    }
 }
@@ -0,0 +1,145 @@
+package test.http.router.handler.session;
+
+import com.firefly.server.http2.router.handler.session.HTTPSessionImpl;
+import com.firefly.server.http2.router.handler.session.OffHeapSessionStore;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.servlet.http.HttpSession;
+import java.io.File;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestOffHeapSessionStore {
+
+    @Test
+    public void testWriteBack() throws Exception {
+        try (OffHeapSessionStore store = new OffHeapSessionStore(64 * 1024, 128)) {
+            HTTPSessionImpl session = new HTTPSessionImpl("s1");
+            session.setMaxInactiveInterval(60);
+            store.put(session.getId(), session);
+            Assert.assertThat(store.size(), is(1));
+
+            session.setAttribute("foo", "bar");
+            char[] large = new char[1000]; // the session is stored in several blocks
+            Arrays.fill(large, 'a');
+            session.setAttribute("large", new String(large));
+
+            HttpSession copy = store.get("s1");
+            Assert.assertThat(copy, not(sameInstance(session)));
+            Assert.assertThat(copy.getAttribute("foo"), is("bar"));
+            Assert.assertThat(((String) copy.getAttribute("large")).length(), is(1000));
+            Assert.assertThat(copy.getMaxInactiveInterval(), is(60));
+
+            ((HTTPSessionImpl) copy).setLastAccessedTime(123L);
+            copy.removeAttribute("large");
+            Assert.assertThat(store.get("s1").getLastAccessedTime(), is(123L));
+            Assert.assertThat(store.get("s1").getAttribute("large"), nullValue());
+            Assert.assertThat(store.getUsedBytes(), is(128L));
+
+            copy.invalidate();
+            Assert.assertThat(store.get("s1"), nullValue());
+            Assert.assertThat(store.size(), is(0));
+            Assert.assertThat(store.getUsedBytes(), is(0L));
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        try (OffHeapSessionStore store = new OffHeapSessionStore(4 * 128, 128)) {
+            for (int i = 0; i < 6; i++) {
+                HTTPSessionImpl session = new HTTPSessionImpl("s" + i);
+                session.setAttribute("i", i);
+                store.put(session.getId(), session);
+            }
+            Assert.assertThat(store.size(), is(4));
+            Assert.assertThat(store.getEvictionCount(), is(2L));
+            Assert.assertThat(store.get("s0"), nullValue());
+            Assert.assertThat(store.get("s1"), nullValue());
+
+            store.get("s2"); // the least recently used session is accessed
+            HTTPSessionImpl session = new HTTPSessionImpl("new");
+            store.put(session.getId(), session);
+            Assert.assertThat(store.get("s2").getAttribute("i"), is(2));
+            Assert.assertThat(store.get("s3"), nullValue());
+            Assert.assertThat(store.get("s5").getAttribute("i"), is(5));
+            Assert.assertThat(store.getUsedBytes(), is(store.getCapacity()));
+        }
+    }
+
+    @Test
+    public void testPreviousSession() throws Exception {
+        try (OffHeapSessionStore store = new OffHeapSessionStore(64 * 1024, 128)) {
+            HTTPSessionImpl session = new HTTPSessionImpl("s1");
+            session.setAttribute("i", 1);
+            Assert.assertThat(store.put(session.getId(), session), nullValue());
+
+            HTTPSessionImpl newSession = new HTTPSessionImpl("s1");
+            newSession.setAttribute("i", 2);
+            HttpSession previous = store.put(newSession.getId(), newSession);
+            Assert.assertThat(previous.getAttribute("i"), is(1));
+
+            previous = store.remove("s1");
+            Assert.assertThat(previous.getAttribute("i"), is(2));
+            Assert.assertThat(store.remove("s1"), nullValue());
+
+            // the detached session does not write back
+            previous.setAttribute("i", 3);
+            Assert.assertThat(store.size(), is(0));
+        }
+    }
+
+    @Test
+    public void testRemainInactiveInterval() throws Exception {
+        try (OffHeapSessionStore store = new OffHeapSessionStore(4 * 128, 128)) {
+            for (int i = 0; i < 4; i++) {
+                HTTPSessionImpl session = new HTTPSessionImpl("s" + i);
+                session.setMaxInactiveInterval(60);
+                store.put(session.getId(), session);
+            }
+            long remain = store.getRemainInactiveInterval("s0");
+            Assert.assertThat(remain, greaterThan(50 * 1000L));
+            Assert.assertThat(remain, lessThanOrEqualTo(60 * 1000L));
+            Assert.assertThat(store.getRemainInactiveInterval("none"), is(0L));
+
+            ((HTTPSessionImpl) store.get("s1")).setLastAccessedTime(0L);
+            Assert.assertThat(store.getRemainInactiveInterval("s1"), lessThanOrEqualTo(0L));
+
+            // the expiration check does not change the least recently used order
+            HTTPSessionImpl session = new HTTPSessionImpl("new");
+            store.put(session.getId(), session);
+            Assert.assertThat(store.get("s0"), nullValue());
+            Assert.assertThat(store.get("s1"), notNullValue());
+        }
+    }
+
+    @Test
+    public void testPersistence() throws Exception {
+        File file = File.createTempFile("firefly-session", ".data");
+        file.deleteOnExit();
+        try (OffHeapSessionStore store = new OffHeapSessionStore(64 * 1024, 256, file.getAbsolutePath())) {
+            for (int i = 0; i < 10; i++) {
+                HTTPSessionImpl session = new HTTPSessionImpl("s" + i);
+                session.setAttribute("i", i);
+                store.put(session.getId(), session);
+            }
+            store.remove("s3");
+            ((HTTPSessionImpl) store.get("s5")).setLastAccessedTime(456L);
+        }
+
+        try (OffHeapSessionStore store = new OffHeapSessionStore(64 * 1024, 256, file.getAbsolutePath())) {
+            Assert.assertThat(store.size(), is(9));
+            Assert.assertThat(store.get("s3"), nullValue());
+            Assert.assertThat(store.get("s9").getAttribute("i"), is(9));
+            Assert.assertThat(store.get("s5").getLastAccessedTime(), is(456L));
+
+            HTTPSessionImpl session = new HTTPSessionImpl("s10");
+            store.put(session.getId(), session);
+            Assert.assertThat(store.size(), is(10));
+        }
+    }
+}
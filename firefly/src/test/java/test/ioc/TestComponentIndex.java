@@ -0,0 +1,94 @@
+package test.ioc;
+
+import com.firefly.core.support.BeanDefinition;
+import com.firefly.core.support.annotation.AnnotationBeanDefinition;
+import com.firefly.core.support.annotation.AnnotationBeanReader;
+import com.firefly.core.support.annotation.ComponentIndex;
+import com.firefly.core.support.annotation.ComponentIndex.IndexedComponent;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.hamcrest.Matchers.*;
+
+/**
+ * @author Pengtao Qiu
+ */
+public class TestComponentIndex {
+
+    @Test
+    public void testIndex() throws Exception {
+        ComponentIndex componentIndex = ComponentIndex.load(getClass().getClassLoader());
+        Assert.assertThat(componentIndex, notNullValue());
+
+        List<IndexedComponent> components = componentIndex.getComponents("test.component2");
+        Assert.assertThat(components.size(), is(1));
+        IndexedComponent component = components.get(0);
+        Assert.assertThat(component.getClassName(), is("test.component2.impl.MethodInjectImpl2"));
+        Assert.assertThat(component.getId(), is("methodInject2"));
+        Assert.assertThat(component.getInitMethod(), is("init()"));
+        Assert.assertThat(component.getInjectMethods(), contains("init(test.component.AddService,test.component.FieldInject,java.lang.String)"));
+
+        component = componentIndex.getComponents("test.mixed").stream()
+                                  .filter(c -> c.getClassName().endsWith("FoodConstructorTestService"))
+                                  .findFirst().orElse(null);
+        Assert.assertThat(component, notNullValue());
+        Assert.assertThat(component.getInjectConstructor(), is("(test.ioc.TestConstructorsIoc$BeanTest,test.mixed.FoodRepository)"));
+
+        StringWriter writer = new StringWriter();
+        ComponentIndex.write(components, writer);
+        List<IndexedComponent> list = ComponentIndex.read(new StringReader(writer.toString()));
+        Assert.assertThat(list.size(), is(1));
+        Assert.assertThat(list.get(0).getInjectMethods(), is(components.get(0).getInjectMethods()));
+    }
+
+    @Test
+    public void testFullyIndexed() throws Exception {
+        ClassLoader classLoader = getClass().getClassLoader();
+        ComponentIndex componentIndex = ComponentIndex.load(classLoader);
+        Assert.assertThat(componentIndex.isFullyIndexed("test.component2", classLoader), is(true));
+        // the main classes are compiled without the processor
+        Assert.assertThat(componentIndex.isFullyIndexed("com.firefly.annotation", classLoader), is(false));
+        Assert.assertThat(componentIndex.isFullyIndexed("test.notExisted", classLoader), is(false));
+
+        ComponentIndex unknownRoots = new ComponentIndex(componentIndex.getComponents("test.component2"));
+        Assert.assertThat(unknownRoots.isFullyIndexed("test.component2", classLoader), is(false));
+    }
+
+    @Test
+    public void testIndexAndScanning() {
+        for (String file : Arrays.asList("annotation-config.xml", "mixed-constructor.xml")) {
+            Map<String, BeanDefinition> indexed = toMap(new AnnotationBeanReader(file).loadBeanDefinitions());
+            Map<String, BeanDefinition> scanned;
+            System.setProperty(ComponentIndex.IGNORE_INDEX_PROPERTY, "true");
+            try {
+                scanned = toMap(new AnnotationBeanReader(file).loadBeanDefinitions());
+            } finally {
+                System.clearProperty(ComponentIndex.IGNORE_INDEX_PROPERTY);
+            }
+
+            Assert.assertThat(indexed.isEmpty(), is(false));
+            Assert.assertThat(indexed.keySet(), is(scanned.keySet()));
+            indexed.forEach((className, b1) -> {
+                AnnotationBeanDefinition d1 = (AnnotationBeanDefinition) b1;
+                AnnotationBeanDefinition d2 = (AnnotationBeanDefinition) scanned.get(className);
+                Assert.assertThat(d1.getId(), is(d2.getId()));
+                Assert.assertThat(d1.getInterfaceNames(), is(d2.getInterfaceNames()));
+                Assert.assertThat(d1.getConstructor(), is(d2.getConstructor()));
+                Assert.assertThat(d1.getInitMethod(), is(d2.getInitMethod()));
+                Assert.assertThat(d1.getDestroyedMethod(), is(d2.getDestroyedMethod()));
+                Assert.assertThat(new HashSet<>(d1.getInjectFields()), is(new HashSet<>(d2.getInjectFields())));
+                Assert.assertThat(new HashSet<>(d1.getInjectMethods()), is(new HashSet<>(d2.getInjectMethods())));
+            });
+        }
+    }
+
+    private static Map<String, BeanDefinition> toMap(List<BeanDefinition> beanDefinitions) {
+        Map<String, BeanDefinition> map = new HashMap<>();
+        beanDefinitions.forEach(b -> map.put(b.getClassName(), b));
+        return map;
+    }
+}